@@ -31,7 +31,21 @@ public class AudioBufferManager {
      * @param configuration   configuration to be used
      */
     public AudioBufferManager(AudioBufferRenderer sample_renderer, AudioDeviceConfiguration configuration) {
-        if (AndroidProbe.isAndroid()) {
+        this(sample_renderer, configuration, false);
+    }
+
+    /**
+     * @param sample_renderer renderer to be used
+     * @param configuration   configuration to be used
+     * @param shared_device   play renderer through the shared {@link wellen.AudioDeviceHost} of the configured audio
+     *                        device instead of opening a dedicated audio device and audio thread
+     */
+    public AudioBufferManager(AudioBufferRenderer sample_renderer,
+                              AudioDeviceConfiguration configuration,
+                              boolean shared_device) {
+        if (shared_device) {
+            fImplementation = AudioDeviceHost.attach(sample_renderer, configuration);
+        } else if (AndroidProbe.isAndroid()) {
             fImplementation = new AudioDeviceImplAndroid(sample_renderer, configuration);
         } else {
             fImplementation = new AudioDeviceImplDesktop(sample_renderer, configuration);
@@ -21,12 +21,24 @@ package wellen;
 
 /**
  * interface for audio callbacks of {@link wellen.AudioBufferManager}
+ * <p>
+ * the buffers passed to {@link #audioblock(float[][], float[][])} are owned by the audio device and are reused for
+ * subsequent audio blocks ( see {@link wellen.AudioBufferSet} ). a renderer must observe the following contract:
+ * <ul>
+ *     <li>output buffers are cleared to zero before each call and must be filled during the call.</li>
+ *     <li>the contents of <code>output_signal</code> and <code>input_signal</code> are only guaranteed to be valid
+ *     for the duration of the call. if the device is double buffered ( default, see
+ *     {@link wellen.AudioDeviceConfiguration#double_buffering} ) a buffer is not overwritten before the end of the
+ *     following call, i.e it may be read by other threads for one more audio block.</li>
+ *     <li>renderers that need to keep samples for longer must copy them into buffers of their own.</li>
+ *     <li>the arrays must not be resized, replaced or retained as storage.</li>
+ * </ul>
  */
 public interface AudioBufferRenderer {
 
     /**
-     * @param output_signal output signal
-     * @param input_signal  input signal
+     * @param output_signal output signal. buffers are owned by the audio device and are zeroed before each call.
+     * @param input_signal  input signal. buffers are owned by the audio device and are only valid during the call.
      */
     void audioblock(float[][] output_signal, float[][] input_signal);
 }
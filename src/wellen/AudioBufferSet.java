@@ -0,0 +1,131 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen;
+
+import java.util.Arrays;
+
+/**
+ * preallocated set of channel buffers owned by an audio device. the buffers are allocated once at construction and
+ * handed to {@link wellen.AudioBufferRenderer#audioblock(float[][], float[][])} on every audio block, so that the
+ * audio thread does not allocate in steady state.
+ * <p>
+ * if double buffering is enabled the set holds two generations of buffers and alternates between them on each call to
+ * {@link #swap()}. a buffer handed to a renderer is then left untouched for the duration of the following audio block,
+ * which gives readers on other threads ( e.g a drawing thread ) one full block to access it.
+ */
+public class AudioBufferSet {
+
+    private final int         fBufferSize;
+    private final float[][][] fInputBuffers;
+    private final float[][][] fOutputBuffers;
+    private       int         fCurrentSet;
+    private       boolean     fInputAttached;
+
+    /**
+     * @param number_of_output_channels number of output channels
+     * @param number_of_input_channels  number of input channels
+     * @param buffer_size               number of samples per channel
+     * @param double_buffering          alternate between two generations of buffers
+     */
+    public AudioBufferSet(int number_of_output_channels,
+                          int number_of_input_channels,
+                          int buffer_size,
+                          boolean double_buffering) {
+        final int mNumberOfSets = double_buffering ? 2 : 1;
+        fBufferSize    = buffer_size;
+        fOutputBuffers = new float[mNumberOfSets][Math.max(number_of_output_channels, 0)][buffer_size];
+        fInputBuffers  = new float[mNumberOfSets][Math.max(number_of_input_channels, 0)][buffer_size];
+        fCurrentSet    = 0;
+        fInputAttached = false;
+    }
+
+    /**
+     * @return output buffers of the current generation
+     */
+    public float[][] output() {
+        return fOutputBuffers[fCurrentSet];
+    }
+
+    /**
+     * @return input buffers of the current generation
+     */
+    public float[][] input() {
+        return fInputBuffers[fCurrentSet];
+    }
+
+    /**
+     * @return number of samples per channel
+     */
+    public int buffer_size() {
+        return fBufferSize;
+    }
+
+    /**
+     * @return <code>true</code> if buffer set alternates between two generations of buffers
+     */
+    public boolean is_double_buffered() {
+        return fOutputBuffers.length > 1;
+    }
+
+    /**
+     * @param input_attached <code>true</code> if an input source fills the input buffers on every audio block. if no
+     *                       input is attached the input buffers are cleared on every swap.
+     */
+    public void set_input_attached(boolean input_attached) {
+        fInputAttached = input_attached;
+    }
+
+    /**
+     * @return <code>true</code> if an input source fills the input buffers
+     */
+    public boolean is_input_attached() {
+        return fInputAttached;
+    }
+
+    /**
+     * advance to the next generation of buffers and clear its output buffers. the input buffers are cleared as well if
+     * no input is attached. this is called by the audio device once per audio block before the renderer is invoked.
+     */
+    public void swap() {
+        fCurrentSet = (fCurrentSet + 1) % fOutputBuffers.length;
+        clear_output();
+        if (!fInputAttached) {
+            clear_input();
+        }
+    }
+
+    /**
+     * fill input buffers of the current generation with zeros
+     */
+    public void clear_input() {
+        for (float[] mBuffer : fInputBuffers[fCurrentSet]) {
+            Arrays.fill(mBuffer, 0.0f);
+        }
+    }
+
+    /**
+     * fill output buffers of the current generation with zeros
+     */
+    public void clear_output() {
+        for (float[] mBuffer : fOutputBuffers[fCurrentSet]) {
+            Arrays.fill(mBuffer, 0.0f);
+        }
+    }
+}
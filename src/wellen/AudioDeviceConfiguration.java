@@ -64,6 +64,12 @@ public class AudioDeviceConfiguration {
      */
     public boolean is_big_endian = Wellen.DEFAULT_ENDIANESS;
 
+    /**
+     * alternate between two generations of preallocated audio buffers. see {@link wellen.AudioBufferRenderer} for the
+     * buffer lifetime contract.
+     */
+    public boolean double_buffering = Wellen.DEFAULT_DOUBLE_BUFFERING;
+
     /**
      * @return instance of {@link wellen.AudioDeviceConfiguration} with default values
      */
@@ -133,4 +139,33 @@ public class AudioDeviceConfiguration {
         bits_per_sample = pBitsPerSample;
         return this;
     }
+
+    /**
+     * @param pEncoding {@link Wellen#ENCODING_PCM_SIGNED}, {@link Wellen#ENCODING_PCM_UNSIGNED} or
+     *                  {@link Wellen#ENCODING_PCM_FLOAT}. PCM_FLOAT always uses 32 bits per sample and falls back to
+     *                  signed PCM if the audio device does not support it.
+     * @return instance of {@link wellen.AudioDeviceConfiguration}
+     */
+    public AudioDeviceConfiguration set_encoding(int pEncoding) {
+        encoding = pEncoding;
+        return this;
+    }
+
+    /**
+     * @param pIsBigEndian byte order of samples with more than 8 bits
+     * @return instance of {@link wellen.AudioDeviceConfiguration}
+     */
+    public AudioDeviceConfiguration set_big_endian(boolean pIsBigEndian) {
+        is_big_endian = pIsBigEndian;
+        return this;
+    }
+
+    /**
+     * @param pDoubleBuffering alternate between two generations of preallocated audio buffers
+     * @return instance of {@link wellen.AudioDeviceConfiguration}
+     */
+    public AudioDeviceConfiguration set_double_buffering(boolean pDoubleBuffering) {
+        double_buffering = pDoubleBuffering;
+        return this;
+    }
 }
@@ -0,0 +1,266 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen;
+
+import wellen.dsp.BlockKernels;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * hosts any number of {@link wellen.AudioBufferRenderer}s on a single audio device. each physical output device is
+ * opened only once and driven by a single audio thread, which calls all registered renderers in turn and mixes their
+ * outputs into the device buffers. this avoids one audio thread and audio line per renderer when many independent
+ * renderers ( e.g multiple DSP instances ) play through the same audio device.
+ * <p>
+ * each renderer owns a preallocated bus ( see {@link wellen.AudioBufferSet} ) with the channel layout of the device, so
+ * the buffer contract of {@link wellen.AudioBufferRenderer} applies unchanged. renderers share the input buffers of the
+ * device. renderers can be added and removed at any time, the audio thread reads the list of renderers without locks.
+ * <p>
+ * shared hosts are obtained with {@link #get(AudioDeviceConfiguration)} or implicitly by creating an
+ * {@link wellen.AudioBufferManager} with <code>shared_device</code> enabled. a shared host closes its audio device when
+ * the last renderer is removed.
+ */
+public class AudioDeviceHost implements AudioBufferRenderer {
+
+    private static final HashMap<String, AudioDeviceHost> fHosts = new HashMap<>();
+
+    private final AudioBufferManager       fAudioBufferManager;
+    private final AudioDeviceConfiguration fConfiguration;
+    private final AtomicReference<Entry[]> fEntries = new AtomicReference<>(new Entry[0]);
+    private final String                   fKey;
+
+    /**
+     * create a host and open the audio device. the host is not shared with {@link #get(AudioDeviceConfiguration)}.
+     *
+     * @param configuration configuration of audio device
+     */
+    public AudioDeviceHost(AudioDeviceConfiguration configuration) {
+        this(configuration, null);
+    }
+
+    private AudioDeviceHost(AudioDeviceConfiguration pConfiguration, String pKey) {
+        fConfiguration      = copy(pConfiguration);
+        fKey                = pKey;
+        fAudioBufferManager = new AudioBufferManager(this, fConfiguration);
+    }
+
+    /**
+     * get the shared host for the output and input device of <code>configuration</code>. the host is created and the
+     * audio device opened if necessary. if a host for the devices already exists its configuration is used, a
+     * configuration differing in e.g sample rate or number of channels is reported.
+     *
+     * @param configuration configuration of audio device
+     * @return shared host
+     */
+    public static synchronized AudioDeviceHost get(AudioDeviceConfiguration configuration) {
+        final String mKey = configuration.output_device_ID + ":" + configuration.input_device_ID;
+        AudioDeviceHost mHost = fHosts.get(mKey);
+        if (mHost == null) {
+            mHost = new AudioDeviceHost(configuration, mKey);
+            fHosts.put(mKey, mHost);
+        } else if (!mHost.matches(configuration)) {
+            System.err.println("+++ @" + AudioDeviceHost.class.getSimpleName() + " / configuration differs from " +
+                               "shared audio device ( " + mKey + " ). using configuration of shared audio device.");
+        }
+        return mHost;
+    }
+
+    /**
+     * close all shared hosts and their audio devices
+     */
+    public static synchronized void exit_all() {
+        for (AudioDeviceHost mHost : fHosts.values()) {
+            mHost.fAudioBufferManager.exit();
+        }
+        fHosts.clear();
+    }
+
+    /**
+     * register renderer. the renderer is called from the next audio block on.
+     *
+     * @param renderer renderer to add
+     */
+    public void add(AudioBufferRenderer renderer) {
+        final Entry mEntry = new Entry(renderer,
+                                             new AudioBufferSet(fConfiguration.number_of_output_channels,
+                                                                0,
+                                                                fConfiguration.sample_buffer_size,
+                                                                fConfiguration.double_buffering));
+        Entry[] mCurrent;
+        Entry[] mUpdated;
+        do {
+            mCurrent = fEntries.get();
+            mUpdated = new Entry[mCurrent.length + 1];
+            System.arraycopy(mCurrent, 0, mUpdated, 0, mCurrent.length);
+            mUpdated[mCurrent.length] = mEntry;
+        } while (!fEntries.compareAndSet(mCurrent, mUpdated));
+    }
+
+    /**
+     * unregister renderer. if the host is shared and this was the last renderer the audio device is closed.
+     *
+     * @param renderer renderer to remove
+     * @return <code>true</code> if renderer was registered
+     */
+    public boolean remove(AudioBufferRenderer renderer) {
+        Entry[] mCurrent;
+        Entry[] mUpdated;
+        do {
+            mCurrent = fEntries.get();
+            int mIndex = -1;
+            for (int i = 0; i < mCurrent.length; i++) {
+                if (mCurrent[i].renderer == renderer) {
+                    mIndex = i;
+                    break;
+                }
+            }
+            if (mIndex == -1) {
+                return false;
+            }
+            mUpdated = new Entry[mCurrent.length - 1];
+            System.arraycopy(mCurrent, 0, mUpdated, 0, mIndex);
+            System.arraycopy(mCurrent, mIndex + 1, mUpdated, mIndex, mUpdated.length - mIndex);
+        } while (!fEntries.compareAndSet(mCurrent, mUpdated));
+        if (fKey != null) {
+            releaseShared(this);
+        }
+        return true;
+    }
+
+    /**
+     * @return number of registered renderers
+     */
+    public int get_number_of_renderers() {
+        return fEntries.get().length;
+    }
+
+    /**
+     * @return copy of configuration of audio device
+     */
+    public AudioDeviceConfiguration get_configuration() {
+        return copy(fConfiguration);
+    }
+
+    /**
+     * @return audio buffer manager of hosted audio device
+     */
+    public AudioBufferManager get_audio_buffer_manager() {
+        return fAudioBufferManager;
+    }
+
+    /**
+     * remove all renderers and close audio device
+     */
+    public void exit() {
+        fEntries.set(new Entry[0]);
+        if (fKey != null) {
+            releaseShared(this);
+        } else {
+            fAudioBufferManager.exit();
+        }
+    }
+
+    @Override
+    public void audioblock(float[][] output_signal, float[][] input_signal) {
+        final Entry[] mEntries = fEntries.get();
+        for (Entry mEntry : mEntries) {
+            final AudioBufferSet mBus = mEntry.bus;
+            mBus.swap();
+            final float[][] mBusSignal = mBus.output();
+            mEntry.renderer.audioblock(mBusSignal, input_signal);
+            for (int c = 0; c < output_signal.length && c < mBusSignal.length; c++) {
+                BlockKernels.add(output_signal[c], mBusSignal[c], 0, output_signal[c].length);
+            }
+        }
+    }
+
+    /**
+     * create an audio device that plays a single renderer through the shared host of <code>configuration</code>.
+     * exiting the device removes the renderer from the host.
+     *
+     * @param renderer      renderer to add
+     * @param configuration configuration of audio device
+     * @return audio device representing renderer on shared host
+     */
+    static AudioDevice attach(AudioBufferRenderer renderer, AudioDeviceConfiguration configuration) {
+        final AudioDeviceHost mHost;
+        synchronized (AudioDeviceHost.class) {
+            mHost = get(configuration);
+            mHost.add(renderer);
+        }
+        return new AudioDevice() {
+            @Override
+            public void exit() {
+                mHost.remove(renderer);
+            }
+
+            @Override
+            public int sample_rate() {
+                return mHost.fConfiguration.sample_rate;
+            }
+
+            @Override
+            public int buffer_size() {
+                return mHost.fConfiguration.sample_buffer_size;
+            }
+        };
+    }
+
+    private static synchronized void releaseShared(AudioDeviceHost pHost) {
+        if (pHost.fEntries.get().length == 0 && fHosts.get(pHost.fKey) == pHost) {
+            fHosts.remove(pHost.fKey);
+            pHost.fAudioBufferManager.exit();
+        }
+    }
+
+    private boolean matches(AudioDeviceConfiguration pConfiguration) {
+        return fConfiguration.sample_rate == pConfiguration.sample_rate &&
+               fConfiguration.sample_buffer_size == pConfiguration.sample_buffer_size &&
+               fConfiguration.number_of_output_channels == pConfiguration.number_of_output_channels &&
+               fConfiguration.number_of_input_channels == pConfiguration.number_of_input_channels &&
+               fConfiguration.bits_per_sample == pConfiguration.bits_per_sample;
+    }
+
+    private static AudioDeviceConfiguration copy(AudioDeviceConfiguration pConfiguration) {
+        final AudioDeviceConfiguration mCopy = new AudioDeviceConfiguration();
+        mCopy.bits_per_sample           = pConfiguration.bits_per_sample;
+        mCopy.input_device_ID           = pConfiguration.input_device_ID;
+        mCopy.number_of_input_channels  = pConfiguration.number_of_input_channels;
+        mCopy.number_of_output_channels = pConfiguration.number_of_output_channels;
+        mCopy.output_device_ID          = pConfiguration.output_device_ID;
+        mCopy.sample_buffer_size        = pConfiguration.sample_buffer_size;
+        mCopy.sample_rate               = pConfiguration.sample_rate;
+        mCopy.encoding                  = pConfiguration.encoding;
+        mCopy.is_big_endian             = pConfiguration.is_big_endian;
+        mCopy.double_buffering          = pConfiguration.double_buffering;
+        return mCopy;
+    }
+
+    private static class Entry {
+        final AudioBufferSet      bus;
+        final AudioBufferRenderer renderer;
+
+        Entry(AudioBufferRenderer pRenderer, AudioBufferSet pBus) {
+            renderer = pRenderer;
+            bus      = pBus;
+        }
+    }
+}
@@ -21,11 +21,13 @@ package wellen;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
 import javax.sound.sampled.Line;
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.Mixer;
 import javax.sound.sampled.SourceDataLine;
 import javax.sound.sampled.TargetDataLine;
+import java.util.Arrays;
 
 import static wellen.Wellen.CHECK_DEFAULT_AUDIO_DEVICE_SAMPLE_RATE;
 import static wellen.Wellen.ENCODING_ALAW;
@@ -132,17 +134,12 @@ public class AudioDeviceImplDesktop extends Thread implements AudioDevice {
 //    0xff), (byte) ((pcmRight >> 24) & 0xff)}, 0, 4);
 
     public static boolean VERBOSE = false;
-    private static final float SIG_16BIT_MAX = 32768.0f;
-    private static final float SIG_16BIT_MAX_INVERSE = 1.0f / SIG_16BIT_MAX;
-    private static final float SIG_24BIT_MAX = 8388608.0f;
-    private static final float SIG_24BIT_MAX_INVERSE = 1.0f / SIG_24BIT_MAX;
-    private static final float SIG_32BIT_MAX = 2147483648.0f;
-    private static final float SIG_32BIT_MAX_INVERSE = 1.0f / SIG_32BIT_MAX;
-    private static final float SIG_8BIT_MAX = 128.0f;
-    private static final float SIG_8BIT_MAX_INVERSE = 1.0f / SIG_8BIT_MAX;
     private final int fBitsPerSample;
     /* --- */
-    private final int fBytesPerSample;
+    private final AudioBufferSet fBufferSet;
+    private final int fEncoding;
+    private final PCMCodec fInputCodec;
+    private final PCMCodec fOutputCodec;
     private final int mNumInputChannels;
     private final int mNumOutputChannels;
     private final int mSampleBufferSize;
@@ -162,21 +159,32 @@ public class AudioDeviceImplDesktop extends Thread implements AudioDevice {
         mSampleBufferSize = pConfiguration.sample_buffer_size;
         mNumOutputChannels = pConfiguration.number_of_output_channels;
         mNumInputChannels = pConfiguration.number_of_input_channels;
-        fBitsPerSample = pConfiguration.bits_per_sample;
-        fBytesPerSample = fBitsPerSample / 8;
+        final AudioFormat mRequestedOutputFormat = negotiateFormat(SourceDataLine.class,
+                                                                   pConfiguration.output_device_ID,
+                                                                   pConfiguration,
+                                                                   mNumOutputChannels);
+        fOutputCodec   = createCodec(mRequestedOutputFormat);
+        fEncoding      = getEncoding(mRequestedOutputFormat.getEncoding());
+        fBitsPerSample = mRequestedOutputFormat.getSampleSizeInBits();
+        final AudioFormat mInputFormat;
+        if (mNumInputChannels > 0) {
+            mInputFormat = negotiateFormat(TargetDataLine.class,
+                                           pConfiguration.input_device_ID,
+                                           pConfiguration,
+                                           mNumInputChannels);
+            fInputCodec  = createCodec(mInputFormat);
+        } else {
+            mInputFormat = null;
+            fInputCodec  = null;
+        }
+        fBufferSet = new AudioBufferSet(mNumOutputChannels,
+                                        mNumInputChannels,
+                                        mSampleBufferSize,
+                                        pConfiguration.double_buffering);
 
         try {
             /* output */
-            // TODO check if there is any java implementation that allows PCM_FLOAT
-            AudioFormat mOutputFormat;
-            mOutputFormat = new AudioFormat(getEncoding(pConfiguration.encoding),
-                                            pConfiguration.sample_rate,
-                                            pConfiguration.bits_per_sample,
-                                            pConfiguration.number_of_output_channels,
-                                            getFrameSize(pConfiguration.bits_per_sample,
-                                                         pConfiguration.number_of_output_channels),
-                                            pConfiguration.sample_rate,
-                                            pConfiguration.is_big_endian);
+            AudioFormat mOutputFormat = mRequestedOutputFormat;
             if (pConfiguration.output_device_ID == Wellen.DEFAULT_AUDIO_DEVICE) {
                 if (CHECK_DEFAULT_AUDIO_DEVICE_SAMPLE_RATE) {
                     System.out.println("+-------------------------------------------------------+");
@@ -197,14 +205,13 @@ public class AudioDeviceImplDesktop extends Thread implements AudioDevice {
                                 System.out.print("+ WARNING desired sample rate '" + mSampleRate + "' ");
                                 System.out.println("and DEFAULT OUTPUT DEVICE sample rate '" + mDefaultAudioFormat.getSampleRate() + "' do not match.");
                                 System.out.println("+ setting sample rate to '" + mDefaultAudioFormat.getSampleRate() + "' ( be aware that this might cause problems later ).");
-                                mOutputFormat = new AudioFormat(getEncoding(pConfiguration.encoding),
-                                                                pConfiguration.sample_rate,
-                                                                pConfiguration.bits_per_sample,
-                                                                pConfiguration.number_of_output_channels,
-                                                                getFrameSize(pConfiguration.bits_per_sample,
-                                                                             pConfiguration.number_of_output_channels),
+                                mOutputFormat = new AudioFormat(mRequestedOutputFormat.getEncoding(),
+                                                                mRequestedOutputFormat.getSampleRate(),
+                                                                mRequestedOutputFormat.getSampleSizeInBits(),
+                                                                mRequestedOutputFormat.getChannels(),
+                                                                mRequestedOutputFormat.getFrameSize(),
                                                                 mDefaultAudioFormat.getSampleRate(),
-                                                                pConfiguration.is_big_endian);
+                                                                mRequestedOutputFormat.isBigEndian());
                                 mSampleRateMatch = false;
                                 System.out.println("+");
                                 System.out.println("+ try setting the sample rate manually in `setup()` e.g:");
@@ -274,28 +281,19 @@ public class AudioDeviceImplDesktop extends Thread implements AudioDevice {
                                                                                                                                                                                         .getSampleRate());
                 }
             }
-            mOutputByteBuffer =
-                    new byte[mSampleBufferSize * fBytesPerSample * pConfiguration.number_of_output_channels];
+            mOutputByteBuffer = new byte[mSampleBufferSize * mOutputFormat.getFrameSize()];
             mOutputLine.open(mOutputFormat, mOutputByteBuffer.length);
 
             /* input */
-            if (mNumInputChannels > 0) {
-                final AudioFormat mInputFormat = new AudioFormat(getEncoding(pConfiguration.encoding),
-                                                                 pConfiguration.sample_rate,
-                                                                 pConfiguration.bits_per_sample,
-                                                                 pConfiguration.number_of_input_channels,
-                                                                 getFrameSize(pConfiguration.bits_per_sample,
-                                                                              pConfiguration.number_of_input_channels),
-                                                                 pConfiguration.sample_rate,
-                                                                 pConfiguration.is_big_endian);
+            if (mInputFormat != null) {
                 if (pConfiguration.input_device_ID == Wellen.DEFAULT_AUDIO_DEVICE) {
                     mInputLine = AudioSystem.getTargetDataLine(mInputFormat);
                     if (mNumInputChannels != mInputLine.getFormat().getChannels()) {
                         System.err.println("+++ @" + getClass().getSimpleName() + " / input line 'channel numbers' " + "do" + " not match: REQUESTED: " + mNumInputChannels + " RECEIVED:" + " " + mInputLine.getFormat()
                                                                                                                                                                                                              .getChannels());
                     }
-                    if (fBitsPerSample != mInputLine.getFormat().getSampleSizeInBits()) {
-                        System.err.println("+++ @" + getClass().getSimpleName() + " / input line 'bits per sample' " + "do" + " not match: REQUESTED: " + fBitsPerSample + " RECEIVED: " + mInputLine.getFormat()
+                    if (mInputFormat.getSampleSizeInBits() != mInputLine.getFormat().getSampleSizeInBits()) {
+                        System.err.println("+++ @" + getClass().getSimpleName() + " / input line 'bits per sample' " + "do" + " not match: REQUESTED: " + mInputFormat.getSampleSizeInBits() + " RECEIVED: " + mInputLine.getFormat()
                                                                                                                                                                                                      .getSampleSizeInBits());
                     }
                     if (mSampleRate != mInputLine.getFormat().getSampleRate()) {
@@ -309,7 +307,7 @@ public class AudioDeviceImplDesktop extends Thread implements AudioDevice {
                         System.out.println("+ INPUT DEVICE: " + AudioSystem.getMixerInfo()[pConfiguration.input_device_ID]);
                     }
                 }
-                mInputByteBuffer = new byte[mSampleBufferSize * fBytesPerSample * mNumInputChannels];
+                mInputByteBuffer = new byte[mSampleBufferSize * mInputFormat.getFrameSize()];
                 mInputLine.open(mInputFormat, mInputByteBuffer.length);
             }
         } catch (LineUnavailableException e) {
@@ -318,31 +316,60 @@ public class AudioDeviceImplDesktop extends Thread implements AudioDevice {
         if (mInputLine != null) {
             mInputLine.start();
         }
+        fBufferSet.set_input_attached(mInputLine != null && fInputCodec != null);
         mOutputLine.start();
         start();
     }
 
-    AudioFormat.Encoding getEncoding(int encoding) {
+    static AudioFormat.Encoding getEncoding(int encoding) {
         switch (encoding) {
-            case ENCODING_PCM_SIGNED:
-                return new AudioFormat.Encoding("PCM_SIGNED");
             case ENCODING_PCM_UNSIGNED:
-                return new AudioFormat.Encoding("PCM_UNSIGNED");
+                return AudioFormat.Encoding.PCM_UNSIGNED;
             case ENCODING_PCM_FLOAT:
-                return new AudioFormat.Encoding("PCM_FLOAT");
+                return AudioFormat.Encoding.PCM_FLOAT;
             case ENCODING_ULAW:
-                return new AudioFormat.Encoding("ULAW");
+                return AudioFormat.Encoding.ULAW;
             case ENCODING_ALAW:
-                return new AudioFormat.Encoding("ALAW");
+                return AudioFormat.Encoding.ALAW;
+            case ENCODING_PCM_SIGNED:
+            default:
+                return AudioFormat.Encoding.PCM_SIGNED;
+        }
+    }
+
+    static int getEncoding(AudioFormat.Encoding encoding) {
+        if (AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding)) {
+            return ENCODING_PCM_UNSIGNED;
+        } else if (AudioFormat.Encoding.PCM_FLOAT.equals(encoding)) {
+            return ENCODING_PCM_FLOAT;
+        } else if (AudioFormat.Encoding.ULAW.equals(encoding)) {
+            return ENCODING_ULAW;
+        } else if (AudioFormat.Encoding.ALAW.equals(encoding)) {
+            return ENCODING_ALAW;
         }
-        return new AudioFormat.Encoding("PCM_SIGNED");
+        return ENCODING_PCM_SIGNED;
     }
 
-    private int getFrameSize(int bits_per_sample, int number_of_channels) {
+    private static int getFrameSize(int bits_per_sample, int number_of_channels) {
         return (number_of_channels == AudioSystem.NOT_SPECIFIED || bits_per_sample == AudioSystem.NOT_SPECIFIED) ?
                 AudioSystem.NOT_SPECIFIED : ((bits_per_sample + 7) / 8) * number_of_channels;
     }
 
+    /**
+     * @return encoding of the output line. this is the configured encoding or {@link Wellen#ENCODING_PCM_SIGNED} if
+     *         the output device does not support the configured encoding.
+     */
+    public int encoding() {
+        return fEncoding;
+    }
+
+    /**
+     * @return bits per sample of the output line
+     */
+    public int bits_per_sample() {
+        return fBitsPerSample;
+    }
+
     @Override
     public int buffer_size() {
         return mSampleBufferSize;
@@ -393,35 +420,22 @@ public class AudioDeviceImplDesktop extends Thread implements AudioDevice {
                 e.printStackTrace();
             }
 
+            fBufferSet.swap();
+
             /* input */
-            float[][] mInputBuffers = new float[mNumInputChannels][];
-            for (int j = 0; j < mNumInputChannels; j++) {
-                mInputBuffers[j] = new float[mSampleBufferSize];
-            }
+            final float[][] mInputBuffers = fBufferSet.input();
             if (mInputLine != null) {
                 final int mBytesRead = mInputLine.read(mInputByteBuffer, 0, mInputByteBuffer.length);
-                if (VERBOSE) {
-                    if (mBytesRead != mInputByteBuffer.length) {
-                        System.err.println("+++ @" + getClass().getSimpleName() + " / input buffer underrun.");
-                    }
+                /* only complete frames that were read in this block are decoded, the rest of the block is silent */
+                final int mFramesRead = Math.max(mBytesRead, 0) / (mInputByteBuffer.length / mSampleBufferSize);
+                if (mFramesRead < mSampleBufferSize) {
+                    System.err.println("+++ WARNING @" + getClass().getSimpleName() + " / input buffer underrun ( " +
+                                       mFramesRead + " of " + mSampleBufferSize + " frames read ).");
                 }
-                for (int i = 0; i < mSampleBufferSize; i++) {
-                    final int k = i * mNumInputChannels * fBytesPerSample;
-                    for (int j = 0; j < mNumInputChannels; j++) {
-                        final int l = k + fBytesPerSample * j;
-                        final float mSample;
-                        if (fBitsPerSample == Wellen.BITS_PER_SAMPLE_16) {
-                            mSample = readSample16(mInputByteBuffer, l);
-                        } else if (fBitsPerSample == Wellen.BITS_PER_SAMPLE_24) {
-                            mSample = readSample24(mInputByteBuffer, l);
-                        } else if (fBitsPerSample == Wellen.BITS_PER_SAMPLE_32) {
-                            mSample = readSample32(mInputByteBuffer, l);
-                        } else if (fBitsPerSample == Wellen.BITS_PER_SAMPLE_8) {
-                            mSample = readSample8(mInputByteBuffer, l);
-                        } else {
-                            mSample = 0;
-                        }
-                        mInputBuffers[j][i] = mSample;
+                if (fInputCodec != null) {
+                    fInputCodec.decode(mInputByteBuffer, 0, mInputBuffers, 0, mFramesRead, mNumInputChannels);
+                    for (float[] mInputBuffer : mInputBuffers) {
+                        Arrays.fill(mInputBuffer, mFramesRead, mSampleBufferSize, 0.0f);
                     }
                 }
 
@@ -438,26 +452,11 @@ public class AudioDeviceImplDesktop extends Thread implements AudioDevice {
 //                mInputLine.flush();
             }
             /* output */
-            float[][] mOutputBuffers = new float[mNumOutputChannels][];
-            for (int j = 0; j < mNumOutputChannels; j++) {
-                mOutputBuffers[j] = new float[mSampleBufferSize];
-            }
-
+            final float[][] mOutputBuffers = fBufferSet.output();
             mSampleRenderer.audioblock(mOutputBuffers, mInputBuffers);
 
-            for (int i = 0; i < mSampleBufferSize; i++) {
-                for (int j = 0; j < mNumOutputChannels; j++) {
-                    final float mSample = Wellen.clamp(mOutputBuffers[j][i]);
-                    if (fBitsPerSample == Wellen.BITS_PER_SAMPLE_16) {
-                        writeSample16(mSample, i * mNumOutputChannels + j);
-                    } else if (fBitsPerSample == Wellen.BITS_PER_SAMPLE_24) {
-                        writeSample24(mSample, i * mNumOutputChannels + j);
-                    } else if (fBitsPerSample == Wellen.BITS_PER_SAMPLE_32) {
-                        writeSample32(mSample, i * mNumOutputChannels + j);
-                    } else if (fBitsPerSample == Wellen.BITS_PER_SAMPLE_8) {
-                        writeSample8(mSample, i * mNumOutputChannels + j);
-                    }
-                }
+            if (fOutputCodec != null) {
+                fOutputCodec.encode(mOutputBuffers, 0, mOutputByteBuffer, 0, mSampleBufferSize, mNumOutputChannels);
             }
 
             /* detect buffer underrun */
@@ -500,78 +499,62 @@ public class AudioDeviceImplDesktop extends Thread implements AudioDevice {
 //        return mInputFormat;
 //    }
 
-    private float readSample16(byte[] b, int offset) { // low+high
-        final float v = ((b[offset + 1] << 8) | (b[offset + 0] & 0xFF));
-        return v * SIG_16BIT_MAX_INVERSE;
-    }
-
-    private float readSample24(byte[] b, int offset) {
-        final float v = ((b[offset + 2] << 16) | ((b[offset + 1] & 0xFF) << 8) | (b[offset + 0] & 0xFF));
-        return v * SIG_24BIT_MAX_INVERSE;
-    }
-
-    private float readSample32(byte[] b, int offset) {
-        final float v =
-                ((b[offset + 3] << 24) | ((b[offset + 2] & 0xFF) << 16) | ((b[offset + 1] & 0xFF) << 8) | (b[offset + 0] & 0xFF));
-        return v * SIG_32BIT_MAX_INVERSE;
-    }
-
-    private float readSample8(byte[] b, int offset) {
-        final float v = b[offset];
-        return v * SIG_8BIT_MAX_INVERSE;
-    }
-
-    private void writeSample16(final float sample, final int i) {
-        final short v;
-        if (sample == 1.0f) {
-            v = Short.MAX_VALUE; // special case since 32768 not a short
-        } else {
-            v = (short) (SIG_16BIT_MAX * sample);
-        }
-        mOutputByteBuffer[i * fBytesPerSample + 0] = (byte) (v & 0xff);
-        mOutputByteBuffer[i * fBytesPerSample + 1] = (byte) (v >> 8 & 0xff); // little endian
-    }
-
-    private void writeSample24(final float sample, final int i) {
-        final int v;
-        if (sample == 1.0f) {
-            v = Integer.MAX_VALUE;
-        } else {
-            v = (int) (SIG_24BIT_MAX * sample);
-        }
-        mOutputByteBuffer[i * fBytesPerSample + 0] = (byte) (v & 0xff);
-        mOutputByteBuffer[i * fBytesPerSample + 1] = (byte) (v >> 8 & 0xff); // little endian
-        mOutputByteBuffer[i * fBytesPerSample + 2] = (byte) (v >> 16 & 0xff);
-    }
-
-    private void writeSample32(final float sample, final int i) {
-        final long v;
-        if (sample == 1.0f) {
-            v = Long.MAX_VALUE; // special case
-        } else {
-            v = (long) (SIG_32BIT_MAX * sample);
+    /*
+     * find a line format the device supports. candidates are tried in order: the configured encoding ( 32-bit for
+     * PCM_FLOAT ), signed PCM with the configured bits per sample and finally 16-bit signed PCM. if the device
+     * supports none of them the first candidate is returned and opening the line reports the error. the last
+     * candidate is always supported by {@link PCMCodec}.
+     */
+    private static AudioFormat negotiateFormat(Class<?> pLineClass,
+                                               int pDeviceID,
+                                               AudioDeviceConfiguration pConfiguration,
+                                               int pNumberOfChannels) {
+        final int mRequestedBitsPerSample = pConfiguration.encoding == ENCODING_PCM_FLOAT ?
+                Wellen.BITS_PER_SAMPLE_32 : pConfiguration.bits_per_sample;
+        final int[][] mCandidates = {{pConfiguration.encoding, mRequestedBitsPerSample},
+                                     {ENCODING_PCM_SIGNED, pConfiguration.bits_per_sample},
+                                     {ENCODING_PCM_SIGNED, Wellen.BITS_PER_SAMPLE_16}};
+        AudioFormat mFallback = null;
+        for (int[] mCandidate : mCandidates) {
+            if (PCMCodec.create(mCandidate[0], mCandidate[1], pConfiguration.is_big_endian) == null) {
+                continue;
+            }
+            final AudioFormat mFormat = new AudioFormat(getEncoding(mCandidate[0]),
+                                                        pConfiguration.sample_rate,
+                                                        mCandidate[1],
+                                                        pNumberOfChannels,
+                                                        getFrameSize(mCandidate[1], pNumberOfChannels),
+                                                        pConfiguration.sample_rate,
+                                                        pConfiguration.is_big_endian);
+            if (mFallback == null) {
+                mFallback = mFormat;
+            }
+            if (isLineSupported(pLineClass, pDeviceID, mFormat)) {
+                if (VERBOSE && mCandidate != mCandidates[0]) {
+                    System.out.println("+ " + (pLineClass == SourceDataLine.class ? "output" : "input") + " device " +
+                                       "does not support requested format. falling back to: " + mFormat);
+                }
+                return mFormat;
+            }
         }
-        mOutputByteBuffer[i * fBytesPerSample + 0] = (byte) (v & 0xff);
-        mOutputByteBuffer[i * fBytesPerSample + 1] = (byte) (v >> 8 & 0xff); // little endian
-        mOutputByteBuffer[i * fBytesPerSample + 2] = (byte) (v >> 16 & 0xff);
-        mOutputByteBuffer[i * fBytesPerSample + 3] = (byte) (v >> 24 & 0xff);
+        return mFallback;
     }
 
-    private void writeSample8(final float sample, final int i) {
-        final byte v;
-        if (sample == 1.0f) {
-            v = Byte.MAX_VALUE;
-        } else {
-            v = (byte) (SIG_8BIT_MAX * sample);
+    private static boolean isLineSupported(Class<?> pLineClass, int pDeviceID, AudioFormat pFormat) {
+        final DataLine.Info mInfo = new DataLine.Info(pLineClass, pFormat);
+        try {
+            if (pDeviceID == Wellen.DEFAULT_AUDIO_DEVICE) {
+                return AudioSystem.isLineSupported(mInfo);
+            }
+            return AudioSystem.getMixer(AudioSystem.getMixerInfo()[pDeviceID]).isLineSupported(mInfo);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            return false;
         }
-        mOutputByteBuffer[i * fBytesPerSample + 0] = (byte) (v & 0xff);
     }
 
-    private void writeSamplePCM_FLOAT32(final float sample, final int i) {
-        int mPCM = Float.floatToIntBits(sample);
-        mOutputByteBuffer[i * fBytesPerSample + 0] = (byte) (mPCM & 0xff);
-        mOutputByteBuffer[i * fBytesPerSample + 1] = (byte) ((mPCM >> 8) & 0xff);
-        mOutputByteBuffer[i * fBytesPerSample + 2] = (byte) ((mPCM >> 16) & 0xff);
-        mOutputByteBuffer[i * fBytesPerSample + 3] = (byte) ((mPCM >> 24) & 0xff);
+    private static PCMCodec createCodec(AudioFormat pFormat) {
+        return PCMCodec.create(getEncoding(pFormat.getEncoding()),
+                               pFormat.getSampleSizeInBits(),
+                               pFormat.isBigEndian());
     }
 }
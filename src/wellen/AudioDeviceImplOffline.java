@@ -0,0 +1,187 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * audio device that renders audio blocks as fast as possible instead of at the pace of an audio interface. the device
+ * does not start a thread, audio blocks are requested from the {@link wellen.AudioBufferRenderer} on the calling thread
+ * with each call to <code>render(...)</code>. the position of the device is kept in a virtual sample clock ( see
+ * {@link #get_sample_time()} ) that only advances with rendered samples, so renderers that count samples ( e.g
+ * <code>BeatDSP</code> or events scheduled in <code>ToneEngineDSP</code> ) behave exactly as they would in real-time
+ * and the output is deterministic.
+ * <p>
+ * the rendered output can be streamed to a WAV file sink. input channels are passed to the renderer as silence.
+ */
+public class AudioDeviceImplOffline implements AudioDevice {
+
+    private final AudioBufferSet      fBufferSet;
+    private       int                 fBlockPosition;
+    private final int                 fBufferSize;
+    private       boolean             fExited     = false;
+    private final AudioBufferRenderer fRenderer;
+    private       long                fSampleTime = 0;
+    private final int                 fSampleRate;
+    private final WAVWriter           fSink;
+
+    /**
+     * create an offline device without file sink. the rendered output can be accessed with
+     * <code>get_output_buffers()</code> after each call to <code>render(...)</code>.
+     *
+     * @param sample_renderer renderer to be used
+     * @param configuration   configuration to be used ( device IDs are ignored )
+     */
+    public AudioDeviceImplOffline(AudioBufferRenderer sample_renderer, AudioDeviceConfiguration configuration) {
+        this(sample_renderer, configuration, null);
+    }
+
+    /**
+     * create an offline device that streams the rendered output to a WAV file. the file is written as 32 bit IEEE
+     * float if the configured encoding is {@link Wellen#ENCODING_PCM_FLOAT} and as PCM with the configured bits per
+     * sample otherwise.
+     *
+     * @param sample_renderer renderer to be used
+     * @param configuration   configuration to be used ( device IDs are ignored )
+     * @param file            WAV file ( an existing file is overwritten ) or <code>null</code> for no file sink
+     */
+    public AudioDeviceImplOffline(AudioBufferRenderer sample_renderer,
+                                  AudioDeviceConfiguration configuration,
+                                  File file) {
+        fRenderer   = sample_renderer;
+        fSampleRate = configuration.sample_rate;
+        fBufferSize = configuration.sample_buffer_size;
+        /* no frames of a rendered block are pending before the first block is rendered */
+        fBlockPosition = fBufferSize;
+        fBufferSet  = new AudioBufferSet(configuration.number_of_output_channels,
+                                         configuration.number_of_input_channels,
+                                         fBufferSize,
+                                         configuration.double_buffering);
+        WAVWriter mSink = null;
+        if (file != null) {
+            final boolean mFloat = configuration.encoding == Wellen.ENCODING_PCM_FLOAT;
+            try {
+                mSink = new WAVWriter(file,
+                                      Math.max(configuration.number_of_output_channels, 1),
+                                      mFloat ? 32 : configuration.bits_per_sample,
+                                      fSampleRate,
+                                      mFloat ? Wellen.WAV_FORMAT_IEEE_FLOAT_32BIT : Wellen.WAV_FORMAT_PCM);
+            } catch (IOException e) {
+                System.err.println("+++ @" + getClass().getSimpleName() + " / could not create file sink: " + e.getMessage());
+            }
+        }
+        fSink = mSink;
+    }
+
+    /**
+     * render the requested number of samples. rendering happens on the calling thread and returns as soon as the
+     * samples are rendered. audio blocks are always rendered completely. frames of the last block that exceed the
+     * requested number of samples are kept and written first with the next call, so that consecutive calls produce a
+     * continuous signal.
+     *
+     * @param number_of_samples number of samples per channel to render
+     * @return number of samples per channel written
+     */
+    public long render(long number_of_samples) {
+        if (fExited) {
+            return 0;
+        }
+        long mRendered = 0;
+        while (mRendered < number_of_samples) {
+            if (fBlockPosition == fBufferSize) {
+                fBufferSet.swap();
+                fRenderer.audioblock(fBufferSet.output(), fBufferSet.input());
+                fSampleTime += fBufferSize;
+                fBlockPosition = 0;
+            }
+            final int mLength = (int) Math.min(fBufferSize - fBlockPosition, number_of_samples - mRendered);
+            if (fSink != null && fBufferSet.output().length > 0) {
+                try {
+                    fSink.append(fBufferSet.output(), fBlockPosition, mLength);
+                } catch (IOException e) {
+                    System.err.println("+++ @" + getClass().getSimpleName() + " / could not write to file sink: " + e.getMessage());
+                    return mRendered;
+                }
+            }
+            fBlockPosition += mLength;
+            mRendered += mLength;
+        }
+        return mRendered;
+    }
+
+    /**
+     * @param duration duration in seconds
+     * @return number of samples per channel written
+     */
+    public long render_seconds(float duration) {
+        return render(Math.round((double) duration * fSampleRate));
+    }
+
+    /**
+     * @return number of samples per channel rendered so far. the clock advances in whole audio blocks, so it may be
+     *         ahead of the samples written by up to one audio block.
+     */
+    public long get_sample_time() {
+        return fSampleTime;
+    }
+
+    /**
+     * @return position of virtual sample clock in seconds
+     */
+    public double get_time() {
+        return (double) fSampleTime / fSampleRate;
+    }
+
+    /**
+     * @return output buffers of most recently rendered audio block
+     */
+    public float[][] get_output_buffers() {
+        return fBufferSet.output();
+    }
+
+    /**
+     * close file sink. the device can not be used to render afterwards.
+     */
+    @Override
+    public void exit() {
+        if (fExited) {
+            return;
+        }
+        fExited = true;
+        if (fSink != null) {
+            try {
+                fSink.close();
+            } catch (IOException e) {
+                System.err.println("+++ @" + getClass().getSimpleName() + " / could not close file sink: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public int sample_rate() {
+        return fSampleRate;
+    }
+
+    @Override
+    public int buffer_size() {
+        return fBufferSize;
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * records audio blocks to a WAV file on disk without blocking the audio thread. each block passed to
+ * <code>audioblock(...)</code> is copied into a preallocated single-producer single-consumer ring buffer, a background
+ * writer thread drains the ring and streams the samples to disk with {@link WAVWriter}.
+ * <p>
+ * the recorder can be attached to <code>ToneEngineDSP</code> or <code>DSP</code> via
+ * <code>register_audioblock_callback(...)</code> or be fed manually with <code>record(...)</code> from within an
+ * <code>audioblock(...)</code> method. if the writer thread falls behind and the ring has no room for a block, the
+ * complete block is dropped and counted as an overrun ( see {@link #get_overruns()} ), the file itself stays valid.
+ */
+public class AudioRecorder implements ToneEngineDSP.AudioOutputCallback {
+
+    public static final float DEFAULT_BUFFER_DURATION = 2.0f;
+
+    private final int          fBitsPerSample;
+    private final int          fCapacity;
+    private final int          fChannels;
+    private final AtomicLong   fDroppedFrames = new AtomicLong();
+    private final int          fFormat;
+    private final int          fMask;
+    private final AtomicLong   fOverruns      = new AtomicLong();
+    private final AtomicLong   fReadPosition  = new AtomicLong();
+    private volatile boolean   fRecording     = false;
+    private final float[][]    fRing;
+    private final float[][]    fScratch;
+    private final int          fSampleRate;
+    private final AtomicLong   fWritePosition = new AtomicLong();
+    private volatile Thread    fWriterThread  = null;
+    private volatile WAVWriter fWriter        = null;
+    private volatile boolean   fWriterFailed  = false;
+
+    /**
+     * create a recorder for 32 bit IEEE float samples with a ring buffer of {@link #DEFAULT_BUFFER_DURATION} seconds.
+     *
+     * @param channels    number of channels
+     * @param sample_rate sample rate
+     */
+    public AudioRecorder(int channels, int sample_rate) {
+        this(channels,
+             sample_rate,
+             (int) (sample_rate * DEFAULT_BUFFER_DURATION),
+             32,
+             Wellen.WAV_FORMAT_IEEE_FLOAT_32BIT);
+    }
+
+    /**
+     * @param channels        number of channels
+     * @param sample_rate     sample rate
+     * @param buffer_frames   minimum capacity of ring buffer in frames ( rounded up to next power of two )
+     * @param bits_per_sample bits per sample ( 8, 16, 24 or 32 for PCM, 32 for IEEE float )
+     * @param format          format of samples either {@link Wellen#WAV_FORMAT_PCM} or
+     *                        {@link Wellen#WAV_FORMAT_IEEE_FLOAT_32BIT}
+     */
+    public AudioRecorder(int channels, int sample_rate, int buffer_frames, int bits_per_sample, int format) {
+        if (!WAVReader.is_supported(format, bits_per_sample)) {
+            System.err.println("+++ @" + getClass().getSimpleName() + " / unsupported WAV format " + format + " ( " + bits_per_sample + " bit ). falling back to 32 bit IEEE float.");
+            bits_per_sample = 32;
+            format          = Wellen.WAV_FORMAT_IEEE_FLOAT_32BIT;
+        }
+        fChannels      = Math.max(channels, 1);
+        fSampleRate    = sample_rate;
+        fBitsPerSample = bits_per_sample;
+        fFormat        = format;
+        fCapacity      = Integer.highestOneBit(Math.max(buffer_frames, 2) - 1) << 1;
+        fMask          = fCapacity - 1;
+        fRing          = new float[fChannels][fCapacity];
+        fScratch       = new float[fChannels][fCapacity / 2];
+    }
+
+    /**
+     * start recording to file. an existing file is overwritten.
+     *
+     * @param file_path path to WAV file
+     * @return <code>true</code> if file could be created and recording started
+     */
+    public boolean start(String file_path) {
+        return start(new File(file_path));
+    }
+
+    /**
+     * start recording to file. an existing file is overwritten.
+     *
+     * @param file WAV file
+     * @return <code>true</code> if file could be created and recording started
+     */
+    public synchronized boolean start(File file) {
+        if (fWriterThread != null) {
+            stop();
+        }
+        try {
+            fWriter = new WAVWriter(file, fChannels, fBitsPerSample, fSampleRate, fFormat);
+        } catch (IOException e) {
+            System.err.println("+++ @" + getClass().getSimpleName() + " / could not create file: " + e.getMessage());
+            return false;
+        }
+        fOverruns.set(0);
+        fDroppedFrames.set(0);
+        fWriterFailed = false;
+        fReadPosition.set(fWritePosition.get());
+        fWriterThread = new Thread(this::drain, getClass().getSimpleName());
+        fWriterThread.setDaemon(true);
+        fRecording = true;
+        fWriterThread.start();
+        return true;
+    }
+
+    /**
+     * stop recording. blocks until all buffered samples are written and the file is closed. overruns that occurred
+     * during recording are reported.
+     */
+    public synchronized void stop() {
+        if (fWriterThread == null) {
+            return;
+        }
+        fRecording = false;
+        LockSupport.unpark(fWriterThread);
+        try {
+            fWriterThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        fWriterThread = null;
+        try {
+            fWriter.close();
+        } catch (IOException e) {
+            System.err.println("+++ @" + getClass().getSimpleName() + " / could not close file: " + e.getMessage());
+        }
+        if (fOverruns.get() > 0) {
+            System.err.println("+++ @" + getClass().getSimpleName() + " / " + fOverruns.get() + " overrun(s), " + fDroppedFrames.get() + " frames dropped");
+        }
+    }
+
+    /**
+     * @return <code>true</code> if recorder is currently recording
+     */
+    public boolean is_recording() {
+        return fRecording;
+    }
+
+    /**
+     * @return number of blocks dropped because ring buffer was full since recording started
+     */
+    public long get_overruns() {
+        return fOverruns.get();
+    }
+
+    /**
+     * @return number of frames dropped because ring buffer was full since recording started
+     */
+    public long get_dropped_frames() {
+        return fDroppedFrames.get();
+    }
+
+    /**
+     * @return number of frames written to file so far
+     */
+    public long get_frames_written() {
+        final WAVWriter mWriter = fWriter;
+        return mWriter == null ? 0 : mWriter.get_frames_written();
+    }
+
+    /**
+     * @return capacity of ring buffer in frames
+     */
+    public int get_buffer_frames() {
+        return fCapacity;
+    }
+
+    /**
+     * @return number of channels
+     */
+    public int get_channels() {
+        return fChannels;
+    }
+
+    @Override
+    public void audioblock(float[][] output_signals) {
+        record(output_signals, 0, output_signals.length > 0 ? output_signals[0].length : 0);
+    }
+
+    /**
+     * record a mono block. if the recorder has more than one channel the remaining channels are recorded as silence.
+     *
+     * @param signal block of samples
+     */
+    public void record(float[] signal) {
+        if (!fRecording) {
+            return;
+        }
+        final long mWritePosition = fWritePosition.get();
+        if (!reserve(mWritePosition, signal.length)) {
+            return;
+        }
+        for (int c = 0; c < fChannels; c++) {
+            copyToRing(c == 0 ? signal : null, 0, fRing[c], mWritePosition, signal.length);
+        }
+        fWritePosition.lazySet(mWritePosition + signal.length);
+    }
+
+    /**
+     * record a block. must only be called from a single ( audio ) thread. the method never blocks or allocates.
+     * channels missing in <code>signals</code> are recorded as silence.
+     *
+     * @param signals block of samples with one array per channel
+     * @param offset  index of first frame in block
+     * @param length  number of frames to record
+     */
+    public void record(float[][] signals, int offset, int length) {
+        if (!fRecording) {
+            return;
+        }
+        final long mWritePosition = fWritePosition.get();
+        if (!reserve(mWritePosition, length)) {
+            return;
+        }
+        for (int c = 0; c < fChannels; c++) {
+            copyToRing(c < signals.length ? signals[c] : null, offset, fRing[c], mWritePosition, length);
+        }
+        fWritePosition.lazySet(mWritePosition + length);
+    }
+
+    private boolean reserve(long pWritePosition, int pLength) {
+        if (pLength > fCapacity - (pWritePosition - fReadPosition.get())) {
+            fOverruns.incrementAndGet();
+            fDroppedFrames.addAndGet(pLength);
+            return false;
+        }
+        return true;
+    }
+
+    private void copyToRing(float[] pSource, int pOffset, float[] pRing, long pPosition, int pLength) {
+        final int mStart = (int) (pPosition & fMask);
+        final int mFirst = Math.min(pLength, fCapacity - mStart);
+        if (pSource == null) {
+            Arrays.fill(pRing, mStart, mStart + mFirst, 0.0f);
+            Arrays.fill(pRing, 0, pLength - mFirst, 0.0f);
+        } else {
+            System.arraycopy(pSource, pOffset, pRing, mStart, mFirst);
+            System.arraycopy(pSource, pOffset + mFirst, pRing, 0, pLength - mFirst);
+        }
+    }
+
+    private void drain() {
+        final long mPollInterval = 5_000_000L;
+        while (true) {
+            final boolean mStopping = !fRecording;
+            final long mAvailable = fWritePosition.get() - fReadPosition.get();
+            if (mAvailable > 0) {
+                writeChunk((int) Math.min(mAvailable, fScratch[0].length));
+            } else if (mStopping) {
+                break;
+            } else {
+                LockSupport.parkNanos(mPollInterval);
+            }
+        }
+    }
+
+    private void writeChunk(int pFrames) {
+        final long mReadPosition = fReadPosition.get();
+        final int  mStart        = (int) (mReadPosition & fMask);
+        final int  mFirst        = Math.min(pFrames, fCapacity - mStart);
+        for (int c = 0; c < fChannels; c++) {
+            System.arraycopy(fRing[c], mStart, fScratch[c], 0, mFirst);
+            System.arraycopy(fRing[c], 0, fScratch[c], mFirst, pFrames - mFirst);
+        }
+        fReadPosition.lazySet(mReadPosition + pFrames);
+        if (fWriterFailed) {
+            return;
+        }
+        try {
+            fWriter.append(fScratch, 0, pFrames);
+        } catch (IOException e) {
+            fWriterFailed = true;
+            System.err.println("+++ @" + getClass().getSimpleName() + " / could not write to file: " + e.getMessage());
+        }
+    }
+}
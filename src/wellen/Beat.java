@@ -19,26 +19,33 @@
 
 package wellen;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import wellen.dsp.DSP;
+
 import java.util.ArrayList;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * continuously triggers a <code>beat(int)</code> event.
+ * <p>
+ * beats are derived from a sample clock ( see {@link Transport} ) rather than a system timer. if {@link DSP} is
+ * started, beats are counted by its audio device and fire on the audio thread before <code>audioblock(...)</code> is
+ * called. otherwise if the tone engine of {@link Tone} is a {@link ToneEngineDSP} with an audio device of its own,
+ * beats fire on its audio thread at the exact sample offset inside the audio block, and notes played from
+ * <code>beat(int)</code> start exactly on the beat. if neither is running when the beat is created, a clock thread
+ * advances the transport from the elapsed system time and a warning is printed if <code>Tone</code> is not started.
+ * <p>
+ * since <code>beat(int)</code> may be called from the audio thread it should not block or run for a long time.
  */
 public class Beat {
 
-    private static final String METHOD_NAME = "beat";
-    private static Beat fInstance = null;
-    private float fBPM;
-    private int fBeat;
-    private final Object fListener;
-    private final ArrayList<Listener> fListeners;
-    private final Method fMethod;
-    private TimerTask fTask;
-    private final Timer fTimer;
+    private static final String              METHOD_NAME = "beat";
+    private static       Beat                fInstance   = null;
+    private final        BeatListener        fBeatListener;
+    private final        ArrayList<Listener> fListeners;
+    private final        Transport           fTransport;
+    private              BeatClock           fClock;
+    private              ToneEngineDSP       fToneEngine;
+    private              boolean             fAttachedToDSP;
 
     public Beat(Object beat_listener, int BPM) {
         this(beat_listener);
@@ -46,21 +53,29 @@ public class Beat {
     }
 
     public Beat(Object beat_listener) {
-        fListener = beat_listener;
-        Method mMethod = null;
-        if (fListener != null) {
-            try {
-                mMethod = beat_listener.getClass().getDeclaredMethod(METHOD_NAME, Integer.TYPE);
-            } catch (NoSuchMethodException | SecurityException ex) {
-                System.err.println("+++ @" + getClass().getSimpleName() + " / could not find `" + METHOD_NAME +
-                                           "(int)`");
+        fBeatListener = bindBeatListener(this, beat_listener);
+        fListeners    = new ArrayList<>();
+        final ToneEngine mToneEngine = Tone.getStartedInstance();
+        if (DSP.get_sample_rate() != Wellen.NO_VALUE) {
+            fTransport     = new Transport(DSP.get_sample_rate());
+            fAttachedToDSP = DSP.add_transport(fTransport);
+        } else if (mToneEngine instanceof ToneEngineDSP && ((ToneEngineDSP) mToneEngine).has_audio_device()) {
+            fToneEngine = (ToneEngineDSP) mToneEngine;
+            fTransport  = new Transport(fToneEngine.get_sampling_rate());
+            fToneEngine.add_transport(fTransport);
+        } else {
+            fTransport = new Transport();
+            if (mToneEngine == null) {
+                System.err.println("+++ WARNING @" + getClass().getSimpleName() + " / neither `DSP` nor `Tone` is " +
+                                   "started. beats are timed by the system clock. start `DSP` or `Tone` before " +
+                                   "creating the beat to count beats on the audio thread.");
             }
         }
-        fMethod = mMethod;
-        fBeat = -1;
-        fListeners = new ArrayList<>();
-        fTimer = new Timer();
-        fBPM = 0;
+        fTransport.add(this::fireBeat);
+        if (!fAttachedToDSP && fToneEngine == null) {
+            fClock = new BeatClock(fTransport);
+            fClock.start();
+        }
     }
 
     public static Beat instance() {
@@ -99,46 +114,126 @@ public class Beat {
     }
 
     public float get_bpm() {
-        return fBPM;
+        return fTransport.get_bpm();
     }
 
+    /**
+     * @param BPM tempo in beats per minute. fractional values are kept, changes take effect without restarting the
+     *            beat.
+     */
     public void set_bpm(float BPM) {
-        fBPM = BPM;
-        final int mPeriod = (int) (60.0f / BPM * 1000.0f);
-        if (fTask != null) {
-            fTask.cancel();
+        fTransport.set_bpm(BPM);
+        if (fClock != null) {
+            LockSupport.unpark(fClock);
         }
-        fTask = new BeatTimerTaskP5();
-        fTimer.scheduleAtFixedRate(fTask, 1000, mPeriod);
+    }
+
+    /**
+     * @param swing delay of every second beat as a fraction of a beat ( see {@link Transport#set_swing(float)} )
+     */
+    public void set_swing(float swing) {
+        fTransport.set_swing(swing);
+    }
+
+    public float get_swing() {
+        return fTransport.get_swing();
     }
 
     public int get_beat_count() {
-        return fBeat;
+        return fTransport.get_tick_count();
+    }
+
+    /**
+     * @return transport that counts the beats
+     */
+    public Transport get_transport() {
+        return fTransport;
     }
 
     public void clean_up() {
-        fTimer.cancel();
-        fTimer.purge();
-        fTask.cancel();
+        fTransport.stop();
+        if (fAttachedToDSP) {
+            DSP.remove_transport(fTransport);
+            fAttachedToDSP = false;
+        }
+        if (fToneEngine != null) {
+            fToneEngine.remove_transport(fTransport);
+            fToneEngine = null;
+        }
+        if (fClock != null) {
+            fClock.terminate();
+            fClock = null;
+        }
     }
+
     public interface Listener {
         void trigger(int beat_count);
     }
 
-    private class BeatTimerTaskP5 extends TimerTask {
+    private void fireBeat(int pBeat) {
+        if (fBeatListener != null) {
+            try {
+                fBeatListener.beat(pBeat);
+            } catch (RuntimeException ex) {
+                System.err.println("+++ @" + getClass().getSimpleName() + " / error in beat: " + ex);
+                ex.printStackTrace();
+            }
+        }
+        for (int i = 0; i < fListeners.size(); i++) {
+            try {
+                fListeners.get(i).trigger(pBeat);
+            } catch (RuntimeException ex) {
+                System.err.println("+++ @" + getClass().getSimpleName() + " / error in listener: " + ex);
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @param pOwner    object reporting errors
+     * @param pListener object which implements {@link BeatListener} or declares a <code>beat(int)</code> method
+     * @return listener or <code>null</code> if no <code>beat(int)</code> method was found
+     */
+    static BeatListener bindBeatListener(Object pOwner, Object pListener) {
+        return CallbackBinder.bind_listener(BeatListener.class, pListener, METHOD_NAME, pOwner);
+    }
+
+    /**
+     * advances a transport from the elapsed system time if no audio device drives it. the number of elapsed samples is
+     * derived from the time since the clock started, so the beat does not drift even if the thread wakes up late.
+     */
+    private static class BeatClock extends Thread {
+
+        private static final long      MAX_WAIT_NANOS = 10000000L;
+        private final        Transport fTransport;
+        private volatile     boolean   fActive        = true;
+
+        BeatClock(Transport pTransport) {
+            fTransport = pTransport;
+            setDaemon(true);
+            setName(Beat.class.getSimpleName() + "-clock");
+        }
+
+        void terminate() {
+            fActive = false;
+            LockSupport.unpark(this);
+        }
 
-        @Override
         public void run() {
-            fBeat++;
-            if (fMethod != null) {
-                try {
-                    fMethod.invoke(fListener, fBeat);
-                } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
-                    ex.printStackTrace();
+            final long   mStart        = System.nanoTime();
+            final double mSamplingRate = fTransport.get_sampling_rate();
+            long         mSamples      = 0;
+            while (fActive) {
+                final long mElapsed = (long) ((System.nanoTime() - mStart) * mSamplingRate / 1.0E9);
+                while (mSamples < mElapsed && fActive) {
+                    fTransport.fire_due_ticks();
+                    final int mStep = (int) Math.min(fTransport.samples_until_next_tick(), mElapsed - mSamples);
+                    fTransport.advance(mStep);
+                    mSamples += mStep;
                 }
-            }
-            for (Listener l : fListeners) {
-                l.trigger(fBeat);
+                fTransport.fire_due_ticks();
+                final long mWait = (long) (fTransport.samples_until_next_tick() / mSamplingRate * 1.0E9);
+                LockSupport.parkNanos(Math.max(Math.min(mWait, MAX_WAIT_NANOS), 0));
             }
         }
     }
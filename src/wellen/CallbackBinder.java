@@ -0,0 +1,172 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleProxies;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * binds callback methods of an object ( e.g <code>audioblock(...)</code> or <code>beat(int)</code> in a sketch ) to a
+ * functional interface. the method is resolved once and bound with {@link LambdaMetafactory} so that calling the
+ * interface is as fast as a regular method call and can be inlined by the JIT without boxing parameters or return
+ * values. methods that are not public or declared by a class that is not public are bound the same way from within
+ * their declaring class.
+ * <p>
+ * only if that fails ( e.g because the declaring class is in a module that is not open ) the method is bound through
+ * a {@link MethodHandleProxies} proxy. the proxy is a reflective {@link java.lang.reflect.Proxy} that boxes all
+ * parameters and return values on every call, which is considerably slower, especially for callbacks called per
+ * sample such as <code>audio()</code>. a warning is printed in this case.
+ * <p>
+ * exceptions thrown by the bound method are passed on to the caller of the interface method.
+ */
+public final class CallbackBinder {
+
+    private CallbackBinder() {
+    }
+
+    /**
+     * find method declared by the class of <code>target</code> that matches the single abstract method of
+     * <code>callback_interface</code> in parameters and return type and bind it to the interface.
+     *
+     * @param callback_interface functional interface
+     * @param target             object that declares the method
+     * @param method_name        name of method
+     * @param <T>                type of functional interface
+     * @return instance of functional interface calling method or <code>null</code> if no matching method was found
+     */
+    public static <T> T bind(Class<T> callback_interface, Object target, String method_name) {
+        if (target == null) {
+            return null;
+        }
+        final Method mInterfaceMethod = getInterfaceMethod(callback_interface);
+        final Method mMethod          = find_method(target,
+                                                    method_name,
+                                                    mInterfaceMethod.getParameterTypes());
+        if (mMethod == null || mMethod.getReturnType() != mInterfaceMethod.getReturnType()) {
+            return null;
+        }
+        return bind(callback_interface, target, mMethod);
+    }
+
+    /**
+     * bind method to functional interface. parameters and return type of method must match the single abstract method
+     * of <code>callback_interface</code>.
+     *
+     * @param callback_interface functional interface
+     * @param target             object on which method is called
+     * @param method             method declared by the class of <code>target</code>
+     * @param <T>                type of functional interface
+     * @return instance of functional interface calling method or <code>null</code> if method could not be bound
+     */
+    public static <T> T bind(Class<T> callback_interface, Object target, Method method) {
+        final Method     mInterfaceMethod = getInterfaceMethod(callback_interface);
+        final MethodType mSignature       = MethodType.methodType(mInterfaceMethod.getReturnType(),
+                                                                  mInterfaceMethod.getParameterTypes());
+        try {
+            final boolean mIsPublic = Modifier.isPublic(method.getModifiers()) &&
+                                      Modifier.isPublic(method.getDeclaringClass().getModifiers());
+            /* methods that are not public are bound from within their declaring class */
+            final MethodHandles.Lookup mLookup = mIsPublic ? MethodHandles.lookup() :
+                                                 MethodHandles.privateLookupIn(method.getDeclaringClass(),
+                                                                               MethodHandles.lookup());
+            try {
+                final CallSite mCallSite = LambdaMetafactory.metafactory(mLookup,
+                                                                         mInterfaceMethod.getName(),
+                                                                         MethodType.methodType(callback_interface,
+                                                                                               method.getDeclaringClass()),
+                                                                         mSignature,
+                                                                         mLookup.unreflect(method),
+                                                                         mSignature);
+                return callback_interface.cast(mCallSite.getTarget().invoke(target));
+            } catch (Throwable ex) {
+                if (mIsPublic) {
+                    throw ex;
+                }
+            }
+            System.err.println("+++ @" + CallbackBinder.class.getSimpleName() + " / binding `" + method.getName() +
+                               "` through a reflective proxy. make the method and its class public for faster calls.");
+            method.setAccessible(true);
+            final MethodHandle mHandle = MethodHandles.lookup().unreflect(method).bindTo(target);
+            return MethodHandleProxies.asInterfaceInstance(callback_interface, mHandle.asType(mSignature));
+        } catch (Throwable ex) {
+            System.err.println("+++ @" + CallbackBinder.class.getSimpleName() + " / could not bind `" + method.getName() + "` to `" + callback_interface.getSimpleName() + "`: " + ex);
+            return null;
+        }
+    }
+
+    /**
+     * use <code>listener</code> directly if it implements <code>callback_interface</code>, otherwise bind its method
+     * named <code>method_name</code>. an error is printed on behalf of <code>owner</code> if no matching method is
+     * found.
+     *
+     * @param callback_interface functional interface
+     * @param listener           object which implements the interface or declares the method
+     * @param method_name        name of method
+     * @param owner              object that reports errors
+     * @param <T>                type of functional interface
+     * @return listener, bound method or <code>null</code> if listener is <code>null</code> or no method was found
+     */
+    public static <T> T bind_listener(Class<T> callback_interface, Object listener, String method_name, Object owner) {
+        if (listener == null) {
+            return null;
+        }
+        if (callback_interface.isInstance(listener)) {
+            return callback_interface.cast(listener);
+        }
+        final T mListener = bind(callback_interface, listener, method_name);
+        if (mListener == null) {
+            final StringBuilder mParameters = new StringBuilder();
+            for (Class<?> mType : getInterfaceMethod(callback_interface).getParameterTypes()) {
+                mParameters.append(mParameters.length() > 0 ? ", " : "").append(mType.getSimpleName());
+            }
+            System.err.println("+++ @" + owner.getClass().getSimpleName() + " / could not find `" + method_name + "(" + mParameters + ")`");
+        }
+        return mListener;
+    }
+
+    /**
+     * @param target          object that declares the method
+     * @param method_name     name of method
+     * @param parameter_types types of parameters
+     * @return method declared by the class of <code>target</code> or <code>null</code> if no such method exists
+     */
+    public static Method find_method(Object target, String method_name, Class<?>... parameter_types) {
+        try {
+            return target.getClass().getDeclaredMethod(method_name, parameter_types);
+        } catch (NoSuchMethodException | SecurityException ex) {
+            return null;
+        }
+    }
+
+    private static Method getInterfaceMethod(Class<?> pInterface) {
+        for (Method m : pInterface.getMethods()) {
+            if (Modifier.isAbstract(m.getModifiers())) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException(pInterface.getName() + " is not a functional interface");
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen;
+
+import wellen.dsp.DSPNodeOutputBlock;
+import wellen.dsp.DSPNodeOutputSignal;
+import wellen.dsp.Signal;
+
+import java.util.Arrays;
+
+import static wellen.Wellen.SIGNAL_LEFT;
+import static wellen.Wellen.SIGNAL_MONO;
+import static wellen.Wellen.SIGNAL_RIGHT;
+import static wellen.Wellen.SIGNAL_STEREO;
+
+/**
+ * mixes the signals of child nodes into a stereo block. used by {@link wellen.Track} and {@link wellen.Patch} to
+ * collect the signals of their children. children that only override <code>Signal&nbsp;output_signal()</code> are
+ * rendered per sample and mono signals are panned, all other children are rendered as a block into a scratch buffer.
+ */
+class ChildMixer {
+
+    private float[][] fBlockBuffer = new float[SIGNAL_STEREO][0];
+
+    /**
+     * clear a range of a block before mixing children into it
+     *
+     * @param output_signal buffers to clear
+     * @param offset        index of the first sample to clear
+     * @param length        number of samples to clear
+     */
+    void clear(float[][] output_signal, int offset, int length) {
+        for (float[] mChannel : output_signal) {
+            Arrays.fill(mChannel, offset, offset + length, 0.0f);
+        }
+    }
+
+    /**
+     * @param output_signal      buffers to mix child into. only the first two channels are written.
+     * @param offset             index of the first sample to write
+     * @param length             number of samples to write
+     * @param child              child node
+     * @param renders_per_sample <code>true</code> if child must be rendered via <code>output_signal()</code>
+     * @param pan                pan applied to mono signals of child rendered per sample
+     * @param volume             volume of child
+     */
+    <T extends DSPNodeOutputSignal & DSPNodeOutputBlock> void mix(float[][] output_signal,
+                                                                  int offset,
+                                                                  int length,
+                                                                  T child,
+                                                                  boolean renders_per_sample,
+                                                                  Pan pan,
+                                                                  float volume) {
+        final float[] mLeft = output_signal.length > 0 ? output_signal[SIGNAL_LEFT] : null;
+        final float[] mRight = output_signal.length > 1 ? output_signal[SIGNAL_RIGHT] : null;
+        if (renders_per_sample) {
+            for (int i = offset; i < offset + length; i++) {
+                final Signal mSignal = child.output_signal();
+                final float mSignalLeft;
+                final float mSignalRight;
+                if (mSignal.num_channels() == SIGNAL_MONO) {
+                    mSignalLeft = mSignal.mono() * pan.get_gain_left();
+                    mSignalRight = mSignal.mono() * pan.get_gain_right();
+                } else {
+                    mSignalLeft = mSignal.left();
+                    mSignalRight = mSignal.right();
+                }
+                if (mLeft != null) {
+                    mLeft[i] += mSignalLeft * volume;
+                }
+                if (mRight != null) {
+                    mRight[i] += mSignalRight * volume;
+                }
+            }
+        } else {
+            if (fBlockBuffer[SIGNAL_LEFT].length < length) {
+                fBlockBuffer = new float[SIGNAL_STEREO][length];
+            }
+            child.render(fBlockBuffer, 0, length);
+            for (int i = 0; i < length; i++) {
+                if (mLeft != null) {
+                    mLeft[offset + i] += fBlockBuffer[SIGNAL_LEFT][i] * volume;
+                }
+                if (mRight != null) {
+                    mRight[offset + i] += fBlockBuffer[SIGNAL_RIGHT][i] * volume;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * lock-free queue of timestamped events between control threads ( e.g drawing, MIDI or OSC threads ) and the audio
+ * thread. any number of threads may <code>offer(...)</code> events concurrently while a single consumer ( usually the
+ * audio thread ) collects and dispatches them. all event records are preallocated, neither producers nor the consumer
+ * allocate memory or acquire locks.
+ * <p>
+ * each event carries an absolute time in samples. the consumer moves published events into a time-ordered pending list
+ * with {@link #collect()} and can then query and remove events that are due before a given sample time. events with
+ * identical times are dispatched in the order they were offered.
+ * <p>
+ * event types are the <code>Wellen.EVENT_*</code> constants e.g {@link Wellen#EVENT_NOTE_ON}.
+ */
+public class EventQueue {
+
+    private final int             fCapacity;
+    private final int             fMask;
+    private final AtomicLongArray fSequence;
+    private final AtomicLong      fTail;
+    private final AtomicLong      fRejectedEvents;
+    private final long[]          fTime;
+    private final int[]           fEvent;
+    private final int[]           fInstrument;
+    private final int[]           fDataA;
+    private final int[]           fDataB;
+    private final float[]         fValue;
+    private       long            fHead;
+    /* --- pending events ( consumer only ) --- */
+    private final long[]          fPendingTime;
+    private final long[]          fPendingOrder;
+    private final int[]           fPendingEvent;
+    private final int[]           fPendingInstrument;
+    private final int[]           fPendingDataA;
+    private final int[]           fPendingDataB;
+    private final float[]         fPendingValue;
+    private       int             fPendingCount;
+    private       long            fOrderCounter;
+
+    /**
+     * @param capacity maximum number of events that can be queued at the same time. the capacity is rounded up to the
+     *                 next power of two.
+     */
+    public EventQueue(int capacity) {
+        int mCapacity = 1;
+        while (mCapacity < Math.max(capacity, 2)) {
+            mCapacity <<= 1;
+        }
+        fCapacity       = mCapacity;
+        fMask           = mCapacity - 1;
+        fSequence       = new AtomicLongArray(mCapacity);
+        fTail           = new AtomicLong();
+        fRejectedEvents = new AtomicLong();
+        fTime           = new long[mCapacity];
+        fEvent          = new int[mCapacity];
+        fInstrument     = new int[mCapacity];
+        fDataA          = new int[mCapacity];
+        fDataB          = new int[mCapacity];
+        fValue          = new float[mCapacity];
+        for (int i = 0; i < mCapacity; i++) {
+            fSequence.set(i, i);
+        }
+        fHead = 0;
+
+        fPendingTime       = new long[mCapacity];
+        fPendingOrder      = new long[mCapacity];
+        fPendingEvent      = new int[mCapacity];
+        fPendingInstrument = new int[mCapacity];
+        fPendingDataA      = new int[mCapacity];
+        fPendingDataB      = new int[mCapacity];
+        fPendingValue      = new float[mCapacity];
+        fPendingCount      = 0;
+    }
+
+    /**
+     * add an event to the queue. this method may be called concurrently from any number of threads.
+     *
+     * @param sample_time absolute time of event in samples
+     * @param event       type of event e.g {@link Wellen#EVENT_NOTE_ON}
+     * @param instrument  ID of instrument the event is addressed to
+     * @param data_a      first data value e.g note
+     * @param data_b      second data value e.g velocity
+     * @param value       floating point value e.g parameter value
+     * @return <code>true</code> if event was queued, <code>false</code> if queue is full
+     */
+    public boolean offer(long sample_time, int event, int instrument, int data_a, int data_b, float value) {
+        long mPosition;
+        while (true) {
+            mPosition = fTail.get();
+            final long mSequence   = fSequence.get((int) (mPosition & fMask));
+            final long mDifference = mSequence - mPosition;
+            if (mDifference == 0) {
+                if (fTail.compareAndSet(mPosition, mPosition + 1)) {
+                    break;
+                }
+            } else if (mDifference < 0) {
+                fRejectedEvents.incrementAndGet();
+                return false;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        final int mIndex = (int) (mPosition & fMask);
+        fTime[mIndex]       = sample_time;
+        fEvent[mIndex]      = event;
+        fInstrument[mIndex] = instrument;
+        fDataA[mIndex]      = data_a;
+        fDataB[mIndex]      = data_b;
+        fValue[mIndex]      = value;
+        fSequence.lazySet(mIndex, mPosition + 1);
+        return true;
+    }
+
+    /**
+     * @return number of events that could not be queued because the queue was full
+     */
+    public long get_rejected_events() {
+        return fRejectedEvents.get();
+    }
+
+    /**
+     * @return maximum number of events that can be queued at the same time
+     */
+    public int capacity() {
+        return fCapacity;
+    }
+
+    /**
+     * move all published events into the time-ordered pending list. must only be called by the consumer thread.
+     *
+     * @return number of collected events
+     */
+    public int collect() {
+        int mCollected = 0;
+        while (fPendingCount < fCapacity) {
+            final int  mIndex    = (int) (fHead & fMask);
+            final long mSequence = fSequence.get(mIndex);
+            if (mSequence != fHead + 1) {
+                break;
+            }
+            insertPending(fTime[mIndex],
+                          fEvent[mIndex],
+                          fInstrument[mIndex],
+                          fDataA[mIndex],
+                          fDataB[mIndex],
+                          fValue[mIndex]);
+            fSequence.lazySet(mIndex, fHead + fCapacity);
+            fHead++;
+            mCollected++;
+        }
+        return mCollected;
+    }
+
+    /**
+     * @param sample_time absolute time in samples
+     * @return <code>true</code> if the earliest pending event is due before <code>sample_time</code>
+     */
+    public boolean has_event_before(long sample_time) {
+        return fPendingCount > 0 && fPendingTime[0] < sample_time;
+    }
+
+    /**
+     * @return number of pending events
+     */
+    public int pending() {
+        return fPendingCount;
+    }
+
+    /**
+     * @return time of earliest pending event in samples
+     */
+    public long time() {
+        return fPendingTime[0];
+    }
+
+    /**
+     * @return type of earliest pending event
+     */
+    public int event() {
+        return fPendingEvent[0];
+    }
+
+    /**
+     * @return instrument ID of earliest pending event
+     */
+    public int instrument() {
+        return fPendingInstrument[0];
+    }
+
+    /**
+     * @return first data value of earliest pending event
+     */
+    public int data_a() {
+        return fPendingDataA[0];
+    }
+
+    /**
+     * @return second data value of earliest pending event
+     */
+    public int data_b() {
+        return fPendingDataB[0];
+    }
+
+    /**
+     * @return floating point value of earliest pending event
+     */
+    public float value() {
+        return fPendingValue[0];
+    }
+
+    /**
+     * remove earliest pending event. must only be called by the consumer thread.
+     */
+    public void pop() {
+        if (fPendingCount == 0) {
+            return;
+        }
+        fPendingCount--;
+        if (fPendingCount > 0) {
+            movePending(fPendingCount, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * remove all pending and queued events. must only be called by the consumer thread.
+     */
+    public void clear() {
+        collect();
+        fPendingCount = 0;
+    }
+
+    private void insertPending(long pTime, int pEvent, int pInstrument, int pDataA, int pDataB, float pValue) {
+        int mIndex = fPendingCount++;
+        fPendingTime[mIndex]       = pTime;
+        fPendingOrder[mIndex]      = fOrderCounter++;
+        fPendingEvent[mIndex]      = pEvent;
+        fPendingInstrument[mIndex] = pInstrument;
+        fPendingDataA[mIndex]      = pDataA;
+        fPendingDataB[mIndex]      = pDataB;
+        fPendingValue[mIndex]      = pValue;
+        /* sift up */
+        while (mIndex > 0) {
+            final int mParent = (mIndex - 1) >> 1;
+            if (!isEarlier(mIndex, mParent)) {
+                break;
+            }
+            swapPending(mIndex, mParent);
+            mIndex = mParent;
+        }
+    }
+
+    private void siftDown(int pIndex) {
+        while (true) {
+            final int mLeft     = 2 * pIndex + 1;
+            final int mRight    = mLeft + 1;
+            int       mEarliest = pIndex;
+            if (mLeft < fPendingCount && isEarlier(mLeft, mEarliest)) {
+                mEarliest = mLeft;
+            }
+            if (mRight < fPendingCount && isEarlier(mRight, mEarliest)) {
+                mEarliest = mRight;
+            }
+            if (mEarliest == pIndex) {
+                return;
+            }
+            swapPending(pIndex, mEarliest);
+            pIndex = mEarliest;
+        }
+    }
+
+    private boolean isEarlier(int pA, int pB) {
+        if (fPendingTime[pA] != fPendingTime[pB]) {
+            return fPendingTime[pA] < fPendingTime[pB];
+        }
+        return fPendingOrder[pA] < fPendingOrder[pB];
+    }
+
+    private void movePending(int pFrom, int pTo) {
+        fPendingTime[pTo]       = fPendingTime[pFrom];
+        fPendingOrder[pTo]      = fPendingOrder[pFrom];
+        fPendingEvent[pTo]      = fPendingEvent[pFrom];
+        fPendingInstrument[pTo] = fPendingInstrument[pFrom];
+        fPendingDataA[pTo]      = fPendingDataA[pFrom];
+        fPendingDataB[pTo]      = fPendingDataB[pFrom];
+        fPendingValue[pTo]      = fPendingValue[pFrom];
+    }
+
+    private void swapPending(int pA, int pB) {
+        final long mTime = fPendingTime[pA];
+        fPendingTime[pA] = fPendingTime[pB];
+        fPendingTime[pB] = mTime;
+        final long mOrder = fPendingOrder[pA];
+        fPendingOrder[pA] = fPendingOrder[pB];
+        fPendingOrder[pB] = mOrder;
+        final int mEvent = fPendingEvent[pA];
+        fPendingEvent[pA] = fPendingEvent[pB];
+        fPendingEvent[pB] = mEvent;
+        final int mInstrument = fPendingInstrument[pA];
+        fPendingInstrument[pA] = fPendingInstrument[pB];
+        fPendingInstrument[pB] = mInstrument;
+        final int mDataA = fPendingDataA[pA];
+        fPendingDataA[pA] = fPendingDataA[pB];
+        fPendingDataA[pB] = mDataA;
+        final int mDataB = fPendingDataB[pA];
+        fPendingDataB[pA] = fPendingDataB[pB];
+        fPendingDataB[pB] = mDataB;
+        final float mValue = fPendingValue[pA];
+        fPendingValue[pA] = fPendingValue[pB];
+        fPendingValue[pB] = mValue;
+    }
+}
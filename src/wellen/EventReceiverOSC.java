@@ -22,9 +22,6 @@ package wellen;
 import oscP5.OscMessage;
 import oscP5.OscP5;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-
 /**
  * listens to incoming OSC messages.
  */
@@ -33,22 +30,16 @@ public class EventReceiverOSC {
     private static final int DEFAULT_RECEIVE_PORT = 7001;
     private static final String METHOD_NAME = "event_receive";
     private static EventReceiverOSC mInstance = null;
-    private Method mMethod = null;
+    private final Listener mListener;
     private final OscP5 mOscP5;
-    private final Object mParent;
 
     /**
      * @param pListener    object which will receive OSC messages
      * @param pPortReceive port to listen on for incoming OSC messages
      */
     public EventReceiverOSC(Object pListener, int pPortReceive) {
-        mParent = pListener;
+        mListener = CallbackBinder.bind_listener(Listener.class, pListener, METHOD_NAME, this);
         mOscP5 = new OscP5(this, pPortReceive);
-        try {
-            mMethod = pListener.getClass().getDeclaredMethod(METHOD_NAME, int.class, float[].class);
-        } catch (NoSuchMethodException | SecurityException ex) {
-            ex.printStackTrace();
-        }
     }
 
     /**
@@ -77,29 +68,41 @@ public class EventReceiverOSC {
      * @param pOSCMessage OSC message
      */
     public void oscEvent(OscMessage pOSCMessage) {
-        try {
-            int mEvent = Wellen.EVENT_UNDEFINED;
-            int mNumOfArgs = pOSCMessage.typetag().length();
-            final float[] mData = new float[mNumOfArgs];
-            if (pOSCMessage.checkAddrPattern(ToneEngineOSC.OSC_ADDR_PATTERN_NOTE_ON)) {
-                mEvent = Wellen.EVENT_NOTE_ON;
-            } else if (pOSCMessage.checkAddrPattern(ToneEngineOSC.OSC_ADDR_PATTERN_NOTE_OFF)) {
-                mEvent = Wellen.EVENT_NOTE_OFF;
-            } else if (pOSCMessage.checkAddrPattern(ToneEngineOSC.OSC_ADDR_PATTERN_CONTROLCHANGE)) {
-                mEvent = Wellen.EVENT_CONTROLCHANGE;
-            } else if (pOSCMessage.checkAddrPattern(ToneEngineOSC.OSC_ADDR_PATTERN_PITCHBEND)) {
-                mEvent = Wellen.EVENT_PITCHBEND;
-            }
-            for (int i = 0; i < mData.length; i++) {
-                if (pOSCMessage.typetag().charAt(i) == 'i') {
-                    mData[i] = pOSCMessage.get(i).intValue();
-                } else if (pOSCMessage.typetag().charAt(i) == 'f') {
-                    mData[i] = pOSCMessage.get(i).floatValue();
-                }
+        if (mListener == null) {
+            return;
+        }
+        int mEvent = Wellen.EVENT_UNDEFINED;
+        int mNumOfArgs = pOSCMessage.typetag().length();
+        final float[] mData = new float[mNumOfArgs];
+        if (pOSCMessage.checkAddrPattern(ToneEngineOSC.OSC_ADDR_PATTERN_NOTE_ON)) {
+            mEvent = Wellen.EVENT_NOTE_ON;
+        } else if (pOSCMessage.checkAddrPattern(ToneEngineOSC.OSC_ADDR_PATTERN_NOTE_OFF)) {
+            mEvent = Wellen.EVENT_NOTE_OFF;
+        } else if (pOSCMessage.checkAddrPattern(ToneEngineOSC.OSC_ADDR_PATTERN_CONTROLCHANGE)) {
+            mEvent = Wellen.EVENT_CONTROLCHANGE;
+        } else if (pOSCMessage.checkAddrPattern(ToneEngineOSC.OSC_ADDR_PATTERN_PITCHBEND)) {
+            mEvent = Wellen.EVENT_PITCHBEND;
+        }
+        for (int i = 0; i < mData.length; i++) {
+            if (pOSCMessage.typetag().charAt(i) == 'i') {
+                mData[i] = pOSCMessage.get(i).intValue();
+            } else if (pOSCMessage.typetag().charAt(i) == 'f') {
+                mData[i] = pOSCMessage.get(i).floatValue();
             }
-            mMethod.invoke(mParent, mEvent, mData);
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+        }
+        try {
+            mListener.event_receive(mEvent, mData);
+        } catch (RuntimeException ex) {
+            System.err.println("+++ @" + getClass().getSimpleName() + " / error in event_receive: " + ex);
             ex.printStackTrace();
         }
     }
+
+    /**
+     * interface for objects receiving OSC events. objects that do not implement the interface but declare a method
+     * <code>event_receive(int, float[])</code> are bound to it.
+     */
+    public interface Listener {
+        void event_receive(int event, float[] data);
+    }
 }
@@ -0,0 +1,321 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * evaluates musical structures ahead of the playhead and passes the resulting events to a {@link ToneEngineDSP} tagged
+ * with absolute sample times.
+ * <p>
+ * the scheduler calls <code>beat(int)</code> of its listener a configurable lookahead before the tick is heard. all
+ * events sent from within <code>beat(int)</code> are timestamped with the exact sample time of the tick and applied by
+ * the audio thread at their offset inside the audio block. this applies to the event methods of the scheduler ( e.g
+ * {@link #note_on(int, int, int, float)} ) as well as to events sent through the tone engine or {@link Tone} ( e.g
+ * <code>Tone.note_on(int, int, float)</code> ) on the thread that evaluates the tick. structures that are evaluated per beat like {@link Sequencer},
+ * {@link Pattern}, {@link Loop}, {@link Grid} or <code>Track.update(int)</code> can therefore be used unchanged:
+ * <pre>
+ *     public void beat(int beat) {
+ *         if (fPattern.event(beat, 0)) {
+ *             Tone.note_on(fSequencer.step(), 100, 0.1f);
+ *         }
+ *     }
+ * </pre>
+ * as long as the scheduler is not late by more than the lookahead, timing is independent of when the scheduler thread
+ * is woken up. since <code>beat(int)</code> is called ahead of time, visual feedback drawn from it leads the audio by
+ * the lookahead.
+ * <p>
+ * by default a scheduler thread calls {@link #update()} periodically. alternatively ( e.g when rendering offline )
+ * {@link #update()} can be called once per audio block without starting the thread.
+ */
+public class EventScheduler {
+
+    public static final  float           DEFAULT_LOOKAHEAD = 0.05f;
+    private final        BeatListener    fBeatListener;
+    private final        ToneEngineDSP   fToneEngine;
+    private final        Transport       fTransport;
+    private volatile     Thread          fDispatchThread;
+    private              long            fEventTime;
+    private volatile     int             fLookahead;
+    private              long            fStartTime;
+    private              boolean         fStarted;
+    private              SchedulerThread fThread;
+
+    /**
+     * @param listener    object which implements {@link BeatListener} or declares a <code>beat(int)</code> method
+     * @param tone_engine tone engine that receives events and provides the playhead
+     */
+    public EventScheduler(Object listener, ToneEngineDSP tone_engine) {
+        fToneEngine   = tone_engine;
+        fTransport    = new Transport(tone_engine.get_sampling_rate());
+        fBeatListener = Beat.bindBeatListener(this, listener);
+        fLookahead    = (int) (DEFAULT_LOOKAHEAD * tone_engine.get_sampling_rate());
+        fTransport.add(this::fireBeat);
+        fToneEngine.addScheduler(this);
+    }
+
+    /**
+     * @param listener object which implements {@link BeatListener} or declares a <code>beat(int)</code> method
+     */
+    public EventScheduler(Object listener) {
+        this(listener, Tone.get_DSP_engine());
+    }
+
+    /**
+     * create a scheduler for the tone engine of {@link Tone} and start the scheduler thread.
+     *
+     * @param listener object which implements {@link BeatListener} or declares a <code>beat(int)</code> method
+     * @param BPM      tempo in ticks per minute
+     * @return scheduler
+     */
+    public static EventScheduler start(Object listener, float BPM) {
+        final EventScheduler mScheduler = new EventScheduler(listener);
+        mScheduler.set_bpm(BPM);
+        mScheduler.start();
+        return mScheduler;
+    }
+
+    /**
+     * @return transport that defines tempo, ticks per beat and swing of the scheduler
+     */
+    public Transport get_transport() {
+        return fTransport;
+    }
+
+    public void set_bpm(float BPM) {
+        fTransport.set_bpm(BPM);
+    }
+
+    public float get_bpm() {
+        return fTransport.get_bpm();
+    }
+
+    /**
+     * @param lookahead time in seconds that ticks are evaluated ahead of the playhead. the lookahead should be larger
+     *                  than the longest expected delay of the scheduler thread and at least two audio blocks.
+     */
+    public void set_lookahead(float lookahead) {
+        fLookahead = Math.max((int) (lookahead * fToneEngine.get_sampling_rate()), 0);
+    }
+
+    public float get_lookahead() {
+        return (float) fLookahead / fToneEngine.get_sampling_rate();
+    }
+
+    /**
+     * start the scheduler thread. the first tick is played one lookahead from now.
+     */
+    public void start() {
+        start(true);
+    }
+
+    /**
+     * @param use_scheduler_thread start a scheduler thread that calls {@link #update()}. without a scheduler thread
+     *                             {@link #update()} must be called regularly e.g once per audio block.
+     */
+    public synchronized void start(boolean use_scheduler_thread) {
+        if (!fStarted) {
+            fTransport.reset();
+            fStartTime = fToneEngine.get_sample_time() + fLookahead;
+            fStarted   = true;
+        }
+        if (use_scheduler_thread && fThread == null) {
+            fThread = new SchedulerThread();
+            fThread.start();
+        }
+    }
+
+    /**
+     * stop scheduling. events that are already queued are still played.
+     */
+    public synchronized void stop() {
+        fStarted = false;
+        if (fThread != null) {
+            fThread.terminate();
+            fThread = null;
+        }
+    }
+
+    /**
+     * release the scheduler from its tone engine
+     */
+    public void clean_up() {
+        stop();
+        fToneEngine.removeScheduler(this);
+    }
+
+    public boolean is_started() {
+        return fStarted;
+    }
+
+    /**
+     * call <code>beat(int)</code> for all ticks up to one lookahead after the current playhead. while the transport is
+     * stopped or its tempo is 0 no ticks are evaluated and the schedule is held, so that ticks continue from the
+     * current playhead once the transport resumes.
+     */
+    public synchronized void update() {
+        if (!fStarted) {
+            return;
+        }
+        final long mHorizon = fToneEngine.get_sample_time() + fLookahead;
+        if (isPaused()) {
+            fStartTime = mHorizon - fTransport.get_sample_position();
+            return;
+        }
+        final long mTarget = mHorizon - fStartTime;
+        fDispatchThread = Thread.currentThread();
+        try {
+            while (fTransport.get_sample_position() < mTarget && !isPaused()) {
+                fEventTime = fStartTime + fTransport.get_sample_position();
+                fTransport.fire_due_ticks();
+                final long mSamples = Math.min(fTransport.samples_until_next_tick(),
+                                               mTarget - fTransport.get_sample_position());
+                fTransport.advance((int) mSamples);
+            }
+        } finally {
+            fDispatchThread = null;
+        }
+    }
+
+    /**
+     * @return absolute time in samples of the tick that is currently evaluated
+     */
+    public long get_event_time() {
+        return fEventTime;
+    }
+
+    /**
+     * @param instrument_ID ID of instrument
+     * @param note          pitch of note ranging from 0 to 127
+     * @param velocity      volume of note ranging from 0 to 127
+     */
+    public void note_on(int instrument_ID, int note, int velocity) {
+        fToneEngine.schedule_note_on(fEventTime, instrument_ID, note, velocity);
+    }
+
+    /**
+     * @param instrument_ID ID of instrument
+     * @param note          pitch of note ranging from 0 to 127
+     * @param velocity      volume of note ranging from 0 to 127
+     * @param duration      duration in seconds before the note is turned off again
+     */
+    public void note_on(int instrument_ID, int note, int velocity, float duration) {
+        fToneEngine.schedule_note_on(fEventTime, instrument_ID, note, velocity);
+        fToneEngine.schedule_note_off(fEventTime + toSamples(duration), instrument_ID, note);
+    }
+
+    /**
+     * @param instrument_ID ID of instrument
+     * @param note          pitch of note to turn off
+     */
+    public void note_off(int instrument_ID, int note) {
+        fToneEngine.schedule_note_off(fEventTime, instrument_ID, note);
+    }
+
+    /**
+     * @param instrument_ID ID of instrument
+     * @param CC            control change number
+     * @param value         value ranging from 0 to 127
+     */
+    public void control_change(int instrument_ID, int CC, int value) {
+        fToneEngine.schedule_control_change(fEventTime, instrument_ID, CC, value);
+    }
+
+    /**
+     * @param instrument_ID ID of instrument
+     * @param parameter     parameter ID e.g {@link Wellen#INSTRUMENT_PARAMETER_ATTACK}
+     * @param value         value of parameter
+     */
+    public void set_parameter(int instrument_ID, int parameter, float value) {
+        fToneEngine.schedule_parameter(fEventTime, instrument_ID, parameter, value);
+    }
+
+    /**
+     * change a parameter linearly from <code>start</code> to <code>end</code>. the ramp is sent as one parameter event
+     * per audio block.
+     *
+     * @param instrument_ID ID of instrument
+     * @param parameter     parameter ID e.g {@link Wellen#INSTRUMENT_PARAMETER_FREQUENCY}
+     * @param start         value at the start of the ramp
+     * @param end           value at the end of the ramp
+     * @param duration      duration of the ramp in seconds
+     */
+    public void ramp_parameter(int instrument_ID, int parameter, float start, float end, float duration) {
+        final long mDuration = toSamples(duration);
+        final int  mSteps    = (int) Math.max(mDuration / fToneEngine.get_audioblock_size(), 1);
+        for (int i = 0; i <= mSteps; i++) {
+            final float mRatio = (float) i / mSteps;
+            fToneEngine.schedule_parameter(fEventTime + mDuration * i / mSteps,
+                                           instrument_ID,
+                                           parameter,
+                                           start + (end - start) * mRatio);
+        }
+    }
+
+    /**
+     * @return thread that currently evaluates ticks or <code>null</code>
+     */
+    Thread getDispatchThread() {
+        return fDispatchThread;
+    }
+
+    private long toSamples(float pSeconds) {
+        return (long) (pSeconds * fToneEngine.get_sampling_rate());
+    }
+
+    private boolean isPaused() {
+        return !fTransport.is_running() || fTransport.get_bpm() <= 0;
+    }
+
+    private void fireBeat(int pTick) {
+        if (fBeatListener != null) {
+            try {
+                fBeatListener.beat(pTick);
+            } catch (RuntimeException ex) {
+                System.err.println("+++ @" + getClass().getSimpleName() + " / error in beat: " + ex);
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private class SchedulerThread extends Thread {
+
+        private volatile boolean fActive = true;
+
+        SchedulerThread() {
+            setDaemon(true);
+            setName(EventScheduler.class.getSimpleName());
+        }
+
+        void terminate() {
+            fActive = false;
+            LockSupport.unpark(this);
+        }
+
+        public void run() {
+            while (fActive) {
+                update();
+                /* wake up several times per lookahead so that a late wake-up does not cause late events */
+                final long mInterval = (long) (get_lookahead() * 1.0E9 / 4);
+                LockSupport.parkNanos(Math.max(Math.min(mInterval, 10000000L), 1000000L));
+            }
+        }
+    }
+}
@@ -37,8 +37,6 @@ package wellen;
  *   Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
  */
 
-import java.lang.reflect.Array;
-
 /**
  * implements the Fast Fourier Transform (FFT).
  * <p>
@@ -108,9 +106,7 @@ public class FFT extends FourierTransform {
      * @param pSignal signal
      */
     public static void perform_forward_transform(float[] pSignal) {
-        float[] mSignalCopy = new float[pSignal.length];
-        System.arraycopy(pSignal, 0, mSignalCopy, 0, Array.getLength(pSignal));
-        instance().forward(mSignalCopy);
+        instance().forward(pSignal);
     }
 
     /**
@@ -183,9 +179,11 @@ public class FFT extends FourierTransform {
             throw new IllegalArgumentException(
                     "FFT.forward: The length of the passed sample buffer must be equal to timeSize().");
         }
-        doWindow(buffer);
+        // window a copy of the samples so that the passed buffer is left unaltered
+        System.arraycopy(buffer, 0, section, 0, timeSize);
+        doWindow(section);
         // copy samples to real/imag in bit-reversed order
-        bitReverseSamples(buffer);
+        bitReverseSamples(section);
         // perform the fft
         fft();
         // fill the spectrum buffer with amplitudes
@@ -217,18 +215,22 @@ public class FFT extends FourierTransform {
         spectrum = new float[timeSize / 2 + 1];
         real = new float[timeSize];
         imag = new float[timeSize];
+        section = new float[timeSize];
     }
 
-    // bit reverse real[] and imag[]
+    // bit reverse real[] and imag[] in place
     private void bitReverseComplex() {
-        float[] revReal = new float[real.length];
-        float[] revImag = new float[imag.length];
         for (int i = 0; i < real.length; i++) {
-            revReal[i] = real[reverse[i]];
-            revImag[i] = imag[reverse[i]];
+            final int j = reverse[i];
+            if (i < j) {
+                float tmp = real[i];
+                real[i] = real[j];
+                real[j] = tmp;
+                tmp = imag[i];
+                imag[i] = imag[j];
+                imag[j] = tmp;
+            }
         }
-        real = revReal;
-        imag = revImag;
     }
 
     // copies the values in the samples array into the real array
@@ -404,6 +406,7 @@ abstract class FourierTransform {
     protected int octaves;
     protected float[] real;
     protected int sampleRate;
+    protected float[] section;
     protected float[] spectrum;
     protected int timeSize;
     protected int whichAverage;
@@ -734,8 +737,7 @@ abstract class FourierTransform {
         }
 
         // copy the section of samples we want to analyze
-        float[] section = new float[timeSize];
-        System.arraycopy(buffer, startAt, section, 0, section.length);
+        System.arraycopy(buffer, startAt, section, 0, timeSize);
         forward(section);
     }
 
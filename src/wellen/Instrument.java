@@ -238,6 +238,15 @@ public abstract class Instrument {
 
     public abstract void note_off();
 
+    /**
+     * turn off a specific note. monophonic instruments ignore the note and turn off the last played note.
+     *
+     * @param note pitch of note to turn off
+     */
+    public void note_off(int note) {
+        note_off();
+    }
+
     public abstract void note_on(int note, int velocity);
 
     public void set_volume(float volume) {
@@ -259,6 +268,71 @@ public abstract class Instrument {
         return Wellen.clamp127(velocity) / 127.0f;
     }
 
+    /**
+     * set a parameter by ID. this is used to dispatch parameter events e.g from {@link wellen.EventQueue}.
+     *
+     * @param parameter parameter ID e.g {@link Wellen#INSTRUMENT_PARAMETER_ATTACK}
+     * @param value     value of parameter
+     */
+    public void set_parameter(int parameter, float value) {
+        switch (parameter) {
+            case INSTRUMENT_PARAMETER_ATTACK:
+                set_attack(value);
+                break;
+            case INSTRUMENT_PARAMETER_DECAY:
+                set_decay(value);
+                break;
+            case INSTRUMENT_PARAMETER_SUSTAIN:
+                set_sustain(value);
+                break;
+            case INSTRUMENT_PARAMETER_RELEASE:
+                set_release(value);
+                break;
+            case INSTRUMENT_PARAMETER_AMPLITUDE:
+                set_amplitude(value);
+                break;
+            case INSTRUMENT_PARAMETER_FREQUENCY:
+                set_frequency(value);
+                break;
+            case INSTRUMENT_PARAMETER_VOLUME:
+                set_volume(value);
+                break;
+            case INSTRUMENT_PARAMETER_PAN:
+                set_pan(value);
+                break;
+            case INSTRUMENT_PARAMETER_FILTER_FREQUENCY:
+                set_filter_frequency(value);
+                break;
+            case INSTRUMENT_PARAMETER_FILTER_RESONANCE:
+                set_filter_resonance(value);
+                break;
+            case INSTRUMENT_PARAMETER_OSCILLATOR_TYPE:
+                set_oscillator_type((int) value);
+                break;
+            case INSTRUMENT_PARAMETER_FREQ_LFO_AMP:
+                set_frequency_LFO_amplitude(value);
+                break;
+            case INSTRUMENT_PARAMETER_FREQ_LFO_FREQ:
+                set_frequency_LFO_frequency(value);
+                break;
+            case INSTRUMENT_PARAMETER_AMP_LFO_AMP:
+                set_amplitude_LFO_amplitude(value);
+                break;
+            case INSTRUMENT_PARAMETER_AMP_LFO_FREQ:
+                set_amplitude_LFO_frequency(value);
+                break;
+            case INSTRUMENT_PARAMETER_SUB_AMPLITUDE:
+                set_sub_amplitude(value);
+                break;
+            case INSTRUMENT_PARAMETER_SUB_RATIO:
+                set_sub_ratio(value);
+                break;
+            case INSTRUMENT_PARAMETER_NOISE_AMPLITUDE:
+                set_noise_amplitude(value);
+                break;
+        }
+    }
+
     public void preset(int preset_type) {
         switch (preset_type) {
             case INSTRUMENT_PRESET_FAT:
@@ -20,15 +20,27 @@
 package wellen;
 
 import wellen.dsp.ADSR;
+import wellen.dsp.DSPNodeActivity;
+import wellen.dsp.DSPNodeBlockAdapter;
+import wellen.dsp.DSPNodeOutputBlock;
 import wellen.dsp.DSPNodeOutputSignal;
 import wellen.dsp.FilterMoogLadderLowPass;
 import wellen.dsp.Signal;
 import wellen.dsp.Wavetable;
+import wellen.dsp.WavetableBank;
 
 /**
  * implementation of {@link wellen.Instrument} for the internal tone engine.
+ * <p>
+ * instruments can either be rendered per sample via <code>output_signal()</code> or as a block via
+ * <code>render(float[][], int, int)</code>. subclasses that override <code>output_signal()</code> are rendered per
+ * sample by <code>render(float[][], int, int)</code> to preserve their custom behavior.
+ * <p>
+ * an instrument reports itself as idle once its envelopes have finished ( see <code>is_idle()</code> ). the tone engine
+ * skips idle instruments, i.e oscillators, LFOs and filters of an idle instrument are not advanced until the next
+ * <code>note_on(int, int)</code>.
  */
-public class InstrumentDSP extends Instrument implements DSPNodeOutputSignal {
+public class InstrumentDSP extends Instrument implements DSPNodeOutputSignal, DSPNodeOutputBlock, DSPNodeActivity {
 
     public static final float DEFAULT_FREQUENCY      = 220.0f;
     public static final int   DEFAULT_WAVETABLE_SIZE = 512;
@@ -54,6 +66,7 @@ public class InstrumentDSP extends Instrument implements DSPNodeOutputSignal {
     private         float                   fLPFEnvelopCutoffMax;
     private         float                   fLPFEnvelopResonanceMin;
     private         float                   fLPFEnvelopResonanceMax;
+    private final   boolean                 fRendersPerSample;
 
     public InstrumentDSP(int ID, int sampling_rate, int wavetable_size) {
         super(ID);
@@ -69,13 +82,13 @@ public class InstrumentDSP extends Instrument implements DSPNodeOutputSignal {
         enable_ADSR(true);
 
         /* setup sub VCO */
-        fSubVCO = new Wavetable(wavetable_size, fSamplingRate);
+        fSubVCO = createWavetable(wavetable_size);
         fSubVCO.set_interpolation(Wellen.WAVESHAPE_INTERPOLATE_LINEAR);
         fSubVCO.set_amplitude(1.0f);
         set_sub_oscillator_type(Wellen.WAVEFORM_SINE);
 
         /* setup main VCO */
-        fVCO = new Wavetable(wavetable_size, fSamplingRate);
+        fVCO = createWavetable(wavetable_size);
         fVCO.set_interpolation(Wellen.WAVESHAPE_INTERPOLATE_LINEAR);
         set_oscillator_type(Wellen.WAVEFORM_SINE);
 
@@ -84,16 +97,14 @@ public class InstrumentDSP extends Instrument implements DSPNodeOutputSignal {
         set_frequency(DEFAULT_FREQUENCY);
 
         /* setup LFO for frequency */
-        fFrequencyLFO = new Wavetable(wavetable_size, fSamplingRate);
-        Wavetable.sine(fFrequencyLFO.get_wavetable());
+        fFrequencyLFO = createWavetable(wavetable_size);
         fFrequencyLFO.set_interpolation(Wellen.WAVESHAPE_INTERPOLATE_LINEAR);
         fFrequencyLFO.set_frequency(0);
         fFrequencyLFO.set_amplitude(0);
         enable_frequency_LFO(false);
 
         /* setup LFO for amplitude */
-        fAmplitudeLFO = new Wavetable(wavetable_size, fSamplingRate);
-        Wavetable.sine(fAmplitudeLFO.get_wavetable());
+        fAmplitudeLFO = createWavetable(wavetable_size);
         fAmplitudeLFO.set_interpolation(Wellen.WAVESHAPE_INTERPOLATE_LINEAR);
         fAmplitudeLFO.set_frequency(0);
         fAmplitudeLFO.set_amplitude(0);
@@ -118,6 +129,8 @@ public class InstrumentDSP extends Instrument implements DSPNodeOutputSignal {
         fLPFEnvelopCutoffMax    = 2000.0f;
         fLPFEnvelopResonanceMin = 0.2f;
         fLPFEnvelopResonanceMax = 0.8f;
+
+        fRendersPerSample = DSPNodeBlockAdapter.overrides(this, InstrumentDSP.class, "output_signal");
     }
 
     public InstrumentDSP(int ID, int sampling_rate) {
@@ -137,6 +150,59 @@ public class InstrumentDSP extends Instrument implements DSPNodeOutputSignal {
 
     @Override
     public Signal output_signal() {
+        final float  mSample = nextSample();
+        final Signal mSignal = new Signal(get_channels());
+        for (int i = 0; i < get_channels(); i++) {
+            mSignal.signal[i] = mSample;
+        }
+        return mSignal;
+    }
+
+    /**
+     * renders the instrument into every channel of <code>output_signal</code>. if the number of channels of the
+     * instrument is 0 the block is filled with zeros.
+     *
+     * @param output_signal buffers to render into with one buffer per channel
+     * @param offset        index of the first sample to render
+     * @param length        number of samples to render
+     */
+    @Override
+    public void render(float[][] output_signal, int offset, int length) {
+        if (fRendersPerSample) {
+            for (int i = offset; i < offset + length; i++) {
+                DSPNodeBlockAdapter.write(output_signal(), output_signal, i);
+            }
+            return;
+        }
+        final boolean mMute = get_channels() == 0;
+        for (int i = offset; i < offset + length; i++) {
+            final float mSample = nextSample();
+            final float mOutput = mMute ? 0.0f : mSample;
+            for (float[] mChannel : output_signal) {
+                mChannel[i] = mOutput;
+            }
+        }
+    }
+
+    /**
+     * an instrument is idle if its ADSR envelope is enabled and has finished its release stage. if the LPF envelopes
+     * are enabled they must have finished as well. subclasses that override <code>output_signal()</code> are never
+     * idle unless they override this method as well.
+     *
+     * @return <code>true</code> if instrument is silent until the next <code>note_on(int, int)</code>
+     */
+    @Override
+    public boolean is_idle() {
+        if (fRendersPerSample || !fEnableADSR || !fADSR.is_idle()) {
+            return false;
+        }
+        if (fEnableLPF && fEnableLPFEnvelopeCutoff && !fLPFCutoffEnvelope.is_idle()) {
+            return false;
+        }
+        return !fEnableLPF || !fEnableLPFEnvelopeResonance || fLPFResonanceEnvelope.is_idle();
+    }
+
+    private float nextSample() {
         if (fEnableFrequencyLFO) {
             final float mLFOFreq = fFrequencyLFO.output();
             fVCO.set_frequency(getVCOFreq() + mLFOFreq);
@@ -181,12 +247,7 @@ public class InstrumentDSP extends Instrument implements DSPNodeOutputSignal {
         mSample *= mADSRAmp;
         mSample *= fInstrumentVolume;
         mSample = Wellen.clamp(mSample, -1.0f, 1.0f);
-
-        final Signal mSignal = new Signal(get_channels());
-        for (int i = 0; i < get_channels(); i++) {
-            mSignal.signal[i] = mSample;
-        }
-        return mSignal;
+        return mSample;
     }
 
     @Override
@@ -221,7 +282,7 @@ public class InstrumentDSP extends Instrument implements DSPNodeOutputSignal {
     @Override
     public void set_oscillator_type(int oscillator) {
         fVCOType = oscillator;
-        Wavetable.fill(fVCO.get_wavetable(), oscillator);
+        setWaveform(fVCO, oscillator);
     }
 
     @Override
@@ -436,7 +497,7 @@ public class InstrumentDSP extends Instrument implements DSPNodeOutputSignal {
     @Override
     public void set_sub_oscillator_type(int oscillator) {
         fSubVCOType = oscillator;
-        Wavetable.fill(fSubVCO.get_wavetable(), fSubVCOType);
+        setWaveform(fSubVCO, fSubVCOType);
     }
 
     public int get_sub_oscillator_type() {
@@ -484,4 +545,26 @@ public class InstrumentDSP extends Instrument implements DSPNodeOutputSignal {
     public void set_channels(int num_channels) {
         fNumChannels = num_channels;
     }
-}
\ No newline at end of file
+
+    /* oscillators share the band-limited wavetables of a {@link WavetableBank} instead of owning a wavetable */
+    private Wavetable createWavetable(int pWavetableSize) {
+        final WavetableBank mBank = WavetableBank.get(Wellen.WAVEFORM_SINE, pWavetableSize);
+        if (mBank != null) {
+            return new Wavetable(mBank, fSamplingRate);
+        }
+        final Wavetable mWavetable = new Wavetable(pWavetableSize, fSamplingRate);
+        Wavetable.sine(mWavetable.get_wavetable());
+        return mWavetable;
+    }
+
+    private static void setWaveform(Wavetable pWavetable, int pWaveform) {
+        final WavetableBank mBank = WavetableBank.get(pWaveform, pWavetable.get_wavetable_bank() != null ?
+                                                                 pWavetable.get_wavetable_bank().get_size() :
+                                                                 pWavetable.get_wavetable().length);
+        if (mBank != null) {
+            pWavetable.set_wavetable_bank(mBank);
+        } else {
+            pWavetable.set_waveform(pWaveform);
+        }
+    }
+}
@@ -163,7 +163,7 @@ public class InstrumentDSPLibrary {
             mLowerVCO.set_interpolation(Wellen.WAVESHAPE_INTERPOLATE_LINEAR);
             mVeryLowVCO = new Wavetable(DEFAULT_WAVETABLE_SIZE);
             mVeryLowVCO.set_interpolation(Wellen.WAVESHAPE_INTERPOLATE_LINEAR);
-            Wavetable.fill(fVCO.get_wavetable(), Wellen.WAVEFORM_TRIANGLE);
+            fVCO.set_waveform(Wellen.WAVEFORM_TRIANGLE);
             Wavetable.fill(mLowerVCO.get_wavetable(), Wellen.WAVEFORM_SINE);
             Wavetable.fill(mVeryLowVCO.get_wavetable(), Wellen.WAVEFORM_SQUARE);
         }
@@ -0,0 +1,549 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package wellen;
+
+import wellen.dsp.ADSR;
+import wellen.dsp.Signal;
+import wellen.dsp.Wavetable;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * polyphonic implementation of {@link wellen.InstrumentDSP}. the instrument holds a preallocated pool of voices, each
+ * voice being an {@link wellen.InstrumentDSP} with its own oscillators, envelopes and filter. parameters set on the
+ * instrument are applied to all voices. <code>note_on(int, int)</code> assigns a note to a free voice or, if all voices
+ * are sounding, steals a voice according to the voice stealing strategy ( see <code>set_voice_stealing(int)</code> ).
+ * <code>note_off(int)</code> releases all voices playing that note while <code>note_off()</code> releases all voices.
+ * <p>
+ * only active voices are rendered. allocating and releasing voices does not allocate memory. the instrument can be
+ * added to a {@link wellen.ToneEngineDSP} with <code>replace_instrument(Instrument)</code>:
+ * <pre><code>
+ * Tone.replace_instrument(new InstrumentDSPPolyphonic(0, 16));
+ * Tone.instrument(0);
+ * Tone.note_on(60, 100);
+ * Tone.note_on(64, 100);
+ * Tone.note_off(60);
+ * </code></pre>
+ * note that the signals of all voices are summed without limiting.
+ */
+public class InstrumentDSPPolyphonic extends InstrumentDSP {
+
+    public static final int DEFAULT_NUMBER_OF_VOICES = 8;
+
+    private final InstrumentDSP[] fVoices;
+    private final int[]           fVoiceNotes;
+    private final boolean[]       fVoiceHeld;
+    private final long[]          fVoiceAge;
+    private       long            fNoteCounter   = 0;
+    private       int             fVoiceStealing = Wellen.VOICE_STEALING_OLDEST;
+    private       float           fVolume        = 1.0f;
+    private final float[][]       fVoiceBuffer   = new float[1][Wellen.DEFAULT_AUDIOBLOCK_SIZE];
+
+    /**
+     * @param ID               ID of instrument
+     * @param sampling_rate    sampling rate in Hz
+     * @param wavetable_size   size of oscillator wavetables
+     * @param number_of_voices number of voices that can sound simultaneously
+     */
+    public InstrumentDSPPolyphonic(int ID, int sampling_rate, int wavetable_size, int number_of_voices) {
+        super(ID, sampling_rate, wavetable_size);
+        fVoices     = new InstrumentDSP[Math.max(number_of_voices, 1)];
+        fVoiceNotes = new int[fVoices.length];
+        fVoiceHeld  = new boolean[fVoices.length];
+        fVoiceAge   = new long[fVoices.length];
+        for (int i = 0; i < fVoices.length; i++) {
+            fVoices[i]     = new InstrumentDSP(ID, sampling_rate, wavetable_size);
+            fVoiceNotes[i] = Wellen.NO_VALUE;
+        }
+    }
+
+    /**
+     * @param ID               ID of instrument
+     * @param number_of_voices number of voices that can sound simultaneously
+     */
+    public InstrumentDSPPolyphonic(int ID, int number_of_voices) {
+        this(ID, Wellen.DEFAULT_SAMPLING_RATE, DEFAULT_WAVETABLE_SIZE, number_of_voices);
+    }
+
+    /**
+     * @param ID ID of instrument
+     */
+    public InstrumentDSPPolyphonic(int ID) {
+        this(ID, DEFAULT_NUMBER_OF_VOICES);
+    }
+
+    /**
+     * @param voice_stealing strategy to select a voice if all voices are sounding. {@link Wellen#VOICE_STEALING_OLDEST}
+     *                       steals the voice that was started first ( preferring released voices ),
+     *                       {@link Wellen#VOICE_STEALING_QUIETEST} steals the voice with the lowest envelope level and
+     *                       {@link Wellen#VOICE_STEALING_SAME_NOTE} retriggers a voice already playing the same note
+     *                       before falling back to the oldest voice.
+     */
+    public void set_voice_stealing(int voice_stealing) {
+        fVoiceStealing = voice_stealing;
+    }
+
+    public int get_voice_stealing() {
+        return fVoiceStealing;
+    }
+
+    public int get_number_of_voices() {
+        return fVoices.length;
+    }
+
+    /**
+     * @return number of voices that are currently not idle
+     */
+    public int get_number_of_active_voices() {
+        int mActiveVoices = 0;
+        for (InstrumentDSP mVoice : fVoices) {
+            if (!mVoice.is_idle()) {
+                mActiveVoices++;
+            }
+        }
+        return mActiveVoices;
+    }
+
+    /**
+     * @param index index of voice
+     * @return voice at index
+     */
+    public InstrumentDSP get_voice(int index) {
+        return fVoices[index];
+    }
+
+    @Override
+    public void note_on(int note, int velocity) {
+        final int mVoice = findVoice(note);
+        final InstrumentDSP mInstrumentVoice = fVoices[mVoice];
+        updateVoiceEnvelopes(mInstrumentVoice);
+        mInstrumentVoice.note_on(note, velocity);
+        fVoiceNotes[mVoice] = note;
+        fVoiceHeld[mVoice]  = true;
+        fVoiceAge[mVoice]   = fNoteCounter++;
+        fIsPlaying          = true;
+    }
+
+    /**
+     * releases all voices playing note
+     *
+     * @param note pitch of note to turn off
+     */
+    @Override
+    public void note_off(int note) {
+        for (int i = 0; i < fVoices.length; i++) {
+            if (fVoiceHeld[i] && fVoiceNotes[i] == note) {
+                fVoices[i].note_off();
+                fVoiceHeld[i] = false;
+            }
+        }
+        updatePlaying();
+    }
+
+    /**
+     * releases all voices
+     */
+    @Override
+    public void note_off() {
+        for (int i = 0; i < fVoices.length; i++) {
+            if (fVoiceHeld[i]) {
+                fVoices[i].note_off();
+                fVoiceHeld[i] = false;
+            }
+        }
+        fIsPlaying = false;
+    }
+
+    /**
+     * @return <code>true</code> if all voices are idle
+     */
+    @Override
+    public boolean is_idle() {
+        for (InstrumentDSP mVoice : fVoices) {
+            if (!mVoice.is_idle()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * renders the sum of all active voices into every channel of <code>output_signal</code>. blocks longer than
+     * {@link Wellen#DEFAULT_AUDIOBLOCK_SIZE} are rendered in several passes, so rendering never allocates memory.
+     *
+     * @param output_signal buffers to render into with one buffer per channel
+     * @param offset        index of the first sample to render
+     * @param length        number of samples to render
+     */
+    @Override
+    public void render(float[][] output_signal, int offset, int length) {
+        for (float[] mChannel : output_signal) {
+            Arrays.fill(mChannel, offset, offset + length, 0.0f);
+        }
+        final boolean mMute = get_channels() == 0 || output_signal.length == 0;
+        for (InstrumentDSP mVoice : fVoices) {
+            if (mVoice.is_idle()) {
+                continue;
+            }
+            for (int i = 0; i < length; i += fVoiceBuffer[0].length) {
+                final int mLength = Math.min(fVoiceBuffer[0].length, length - i);
+                mVoice.render(fVoiceBuffer, 0, mLength);
+                if (!mMute) {
+                    mixVoice(output_signal[0], offset + i, mLength);
+                }
+            }
+        }
+        for (int j = 1; j < output_signal.length; j++) {
+            System.arraycopy(output_signal[0], offset, output_signal[j], offset, length);
+        }
+    }
+
+    @Override
+    public Signal output_signal() {
+        float mSample = 0.0f;
+        for (InstrumentDSP mVoice : fVoices) {
+            if (!mVoice.is_idle()) {
+                mSample += mVoice.output_signal().signal[0];
+            }
+        }
+        mSample *= fVolume;
+        final Signal mSignal = new Signal(get_channels());
+        Arrays.fill(mSignal.signal, mSample);
+        return mSignal;
+    }
+
+    /**
+     * @param volume volume of instrument applied to the sum of all voices. note that the volume of each voice is set
+     *               by the velocity of its note.
+     */
+    @Override
+    public void set_volume(float volume) {
+        fVolume = volume;
+    }
+
+    @Override
+    public float get_volume() {
+        return fVolume;
+    }
+
+    @Override
+    public void set_attack(float attack) {
+        super.set_attack(attack);
+        forEachVoice(mVoice -> mVoice.set_attack(attack));
+    }
+
+    @Override
+    public void set_decay(float decay) {
+        super.set_decay(decay);
+        forEachVoice(mVoice -> mVoice.set_decay(decay));
+    }
+
+    @Override
+    public void set_sustain(float sustain) {
+        super.set_sustain(sustain);
+        forEachVoice(mVoice -> mVoice.set_sustain(sustain));
+    }
+
+    @Override
+    public void set_release(float release) {
+        super.set_release(release);
+        forEachVoice(mVoice -> mVoice.set_release(release));
+    }
+
+    @Override
+    public void set_oscillator_type(int oscillator) {
+        super.set_oscillator_type(oscillator);
+        forEachVoice(mVoice -> mVoice.set_oscillator_type(oscillator));
+    }
+
+    @Override
+    public void set_frequency_LFO_amplitude(float amplitude) {
+        super.set_frequency_LFO_amplitude(amplitude);
+        forEachVoice(mVoice -> mVoice.set_frequency_LFO_amplitude(amplitude));
+    }
+
+    @Override
+    public void set_frequency_LFO_frequency(float frequency) {
+        super.set_frequency_LFO_frequency(frequency);
+        forEachVoice(mVoice -> mVoice.set_frequency_LFO_frequency(frequency));
+    }
+
+    @Override
+    public void set_amplitude_LFO_amplitude(float amplitude) {
+        super.set_amplitude_LFO_amplitude(amplitude);
+        forEachVoice(mVoice -> mVoice.set_amplitude_LFO_amplitude(amplitude));
+    }
+
+    @Override
+    public void set_amplitude_LFO_frequency(float frequency) {
+        super.set_amplitude_LFO_frequency(frequency);
+        forEachVoice(mVoice -> mVoice.set_amplitude_LFO_frequency(frequency));
+    }
+
+    @Override
+    public void set_filter_resonance(float resonance) {
+        super.set_filter_resonance(resonance);
+        forEachVoice(mVoice -> mVoice.set_filter_resonance(resonance));
+    }
+
+    @Override
+    public void set_filter_frequency(float frequency) {
+        super.set_filter_frequency(frequency);
+        forEachVoice(mVoice -> mVoice.set_filter_frequency(frequency));
+    }
+
+    @Override
+    public void set_amplitude(float amplitude) {
+        super.set_amplitude(amplitude);
+        forEachVoice(mVoice -> mVoice.set_amplitude(amplitude));
+    }
+
+    @Override
+    public void set_amplitude(float amplitude, int interpolation_duration_in_samples) {
+        super.set_amplitude(amplitude, interpolation_duration_in_samples);
+        forEachVoice(mVoice -> mVoice.set_amplitude(amplitude, interpolation_duration_in_samples));
+    }
+
+    /**
+     * sets the frequency of all voices. frequencies of voices are set by <code>note_on(int, int)</code>.
+     *
+     * @param frequency frequency in Hz
+     */
+    @Override
+    public void set_frequency(float frequency) {
+        super.set_frequency(frequency);
+        forEachVoice(mVoice -> mVoice.set_frequency(frequency));
+    }
+
+    @Override
+    public void set_frequency(float frequency, int interpolation_duration_in_samples) {
+        super.set_frequency(frequency, interpolation_duration_in_samples);
+        forEachVoice(mVoice -> mVoice.set_frequency(frequency, interpolation_duration_in_samples));
+    }
+
+    @Override
+    public void pitch_bend(float frequency_offset) {
+        super.pitch_bend(frequency_offset);
+        forEachVoice(mVoice -> mVoice.pitch_bend(frequency_offset));
+    }
+
+    @Override
+    public void set_LPF_envelope_cutoff_min(float value) {
+        super.set_LPF_envelope_cutoff_min(value);
+        forEachVoice(mVoice -> mVoice.set_LPF_envelope_cutoff_min(value));
+    }
+
+    @Override
+    public void set_LPF_envelope_cutoff_max(float value) {
+        super.set_LPF_envelope_cutoff_max(value);
+        forEachVoice(mVoice -> mVoice.set_LPF_envelope_cutoff_max(value));
+    }
+
+    @Override
+    public void set_LPF_envelope_resonance_min(float value) {
+        super.set_LPF_envelope_resonance_min(value);
+        forEachVoice(mVoice -> mVoice.set_LPF_envelope_resonance_min(value));
+    }
+
+    @Override
+    public void set_LPF_envelope_resonance_max(float value) {
+        super.set_LPF_envelope_resonance_max(value);
+        forEachVoice(mVoice -> mVoice.set_LPF_envelope_resonance_max(value));
+    }
+
+    @Override
+    public void set_sub_ratio(float frequency_ratio) {
+        super.set_sub_ratio(frequency_ratio);
+        forEachVoice(mVoice -> mVoice.set_sub_ratio(frequency_ratio));
+    }
+
+    @Override
+    public void set_sub_amplitude(float amplitude) {
+        super.set_sub_amplitude(amplitude);
+        forEachVoice(mVoice -> mVoice.set_sub_amplitude(amplitude));
+    }
+
+    @Override
+    public void set_sub_oscillator_type(int oscillator) {
+        super.set_sub_oscillator_type(oscillator);
+        forEachVoice(mVoice -> mVoice.set_sub_oscillator_type(oscillator));
+    }
+
+    @Override
+    public void enable_oscillator(boolean enable) {
+        super.enable_oscillator(enable);
+        forEachVoice(mVoice -> mVoice.enable_oscillator(enable));
+    }
+
+    @Override
+    public void enable_ADSR(boolean enable) {
+        super.enable_ADSR(enable);
+        forEachVoice(mVoice -> mVoice.enable_ADSR(enable));
+    }
+
+    @Override
+    public void enable_amplitude_LFO(boolean enable) {
+        super.enable_amplitude_LFO(enable);
+        forEachVoice(mVoice -> mVoice.enable_amplitude_LFO(enable));
+    }
+
+    @Override
+    public void enable_frequency_LFO(boolean enable) {
+        super.enable_frequency_LFO(enable);
+        forEachVoice(mVoice -> mVoice.enable_frequency_LFO(enable));
+    }
+
+    @Override
+    public void enable_LPF(boolean enable_LPF) {
+        super.enable_LPF(enable_LPF);
+        forEachVoice(mVoice -> mVoice.enable_LPF(enable_LPF));
+    }
+
+    @Override
+    public void enable_LPF_envelope_cutoff(boolean enable) {
+        super.enable_LPF_envelope_cutoff(enable);
+        forEachVoice(mVoice -> mVoice.enable_LPF_envelope_cutoff(enable));
+    }
+
+    @Override
+    public void enable_LPF_envelope_resonance(boolean enable) {
+        super.enable_LPF_envelope_resonance(enable);
+        forEachVoice(mVoice -> mVoice.enable_LPF_envelope_resonance(enable));
+    }
+
+    @Override
+    public void enable_sub_oscillator(boolean enable) {
+        super.enable_sub_oscillator(enable);
+        forEachVoice(mVoice -> mVoice.enable_sub_oscillator(enable));
+    }
+
+    @Override
+    public void enable_noise(boolean enable) {
+        super.enable_noise(enable);
+        forEachVoice(mVoice -> mVoice.enable_noise(enable));
+    }
+
+    /**
+     * @return oscillator of the instrument itself, which is not rendered. changes to it have no effect on the voices,
+     *         use <code>get_voice(int).get_VCO()</code> to access the oscillator of a voice.
+     */
+    @Override
+    public Wavetable get_VCO() {
+        return super.get_VCO();
+    }
+
+    /**
+     * @return sub oscillator of the instrument itself, which is not rendered. changes to it have no effect on the
+     *         voices, use <code>get_voice(int).get_sub_VCO()</code> to access the sub oscillator of a voice.
+     */
+    @Override
+    public Wavetable get_sub_VCO() {
+        return super.get_sub_VCO();
+    }
+
+    @Override
+    public void set_noise_amplitude(float amplitude) {
+        super.set_noise_amplitude(amplitude);
+        forEachVoice(mVoice -> mVoice.set_noise_amplitude(amplitude));
+    }
+
+    /*
+     * parameters set on the instrument are forwarded to all voices. setters called from the constructor of
+     * `InstrumentDSP` run before the voices are created and only apply to the instrument itself.
+     */
+    private void forEachVoice(Consumer<InstrumentDSP> pAction) {
+        if (fVoices == null) {
+            return;
+        }
+        for (InstrumentDSP mVoice : fVoices) {
+            pAction.accept(mVoice);
+        }
+    }
+
+    private int findVoice(int pNote) {
+        if (fVoiceStealing == Wellen.VOICE_STEALING_SAME_NOTE) {
+            for (int i = 0; i < fVoices.length; i++) {
+                if (fVoiceNotes[i] == pNote && !fVoices[i].is_idle()) {
+                    return i;
+                }
+            }
+        }
+        /* use the idle voice that was triggered least recently */
+        int mVoice = Wellen.NO_VALUE;
+        for (int i = 0; i < fVoices.length; i++) {
+            if (fVoices[i].is_idle() && (mVoice == Wellen.NO_VALUE || fVoiceAge[i] < fVoiceAge[mVoice])) {
+                mVoice = i;
+            }
+        }
+        if (mVoice != Wellen.NO_VALUE) {
+            return mVoice;
+        }
+        if (fVoiceStealing == Wellen.VOICE_STEALING_QUIETEST) {
+            mVoice = 0;
+            for (int i = 1; i < fVoices.length; i++) {
+                if (getLevel(i) < getLevel(mVoice)) {
+                    mVoice = i;
+                }
+            }
+            return mVoice;
+        }
+        /* steal oldest voice, prefer voices that are already released */
+        mVoice = 0;
+        for (int i = 1; i < fVoices.length; i++) {
+            final boolean mIsReleasedOlder = !fVoiceHeld[i] && fVoiceHeld[mVoice];
+            final boolean mIsSameStateOlder = fVoiceHeld[i] == fVoiceHeld[mVoice] && fVoiceAge[i] < fVoiceAge[mVoice];
+            if (mIsReleasedOlder || mIsSameStateOlder) {
+                mVoice = i;
+            }
+        }
+        return mVoice;
+    }
+
+    private void mixVoice(float[] pOutput, int pOffset, int pLength) {
+        final float[] mVoiceBuffer = fVoiceBuffer[0];
+        for (int j = 0; j < pLength; j++) {
+            pOutput[pOffset + j] += mVoiceBuffer[j] * fVolume;
+        }
+    }
+
+    private float getLevel(int pVoice) {
+        final InstrumentDSP mVoice = fVoices[pVoice];
+        final float mEnvelope = mVoice.fEnableADSR ? mVoice.fADSR.get_current_value() : 1.0f;
+        return mEnvelope * mVoice.get_volume();
+    }
+
+    private void updatePlaying() {
+        fIsPlaying = false;
+        for (boolean mHeld : fVoiceHeld) {
+            fIsPlaying |= mHeld;
+        }
+    }
+
+    /* settings of the LPF envelopes of the instrument are copied to a voice before it is triggered */
+    private void updateVoiceEnvelopes(InstrumentDSP pVoice) {
+        pVoice.always_interpolate_frequency_amplitude_changes = always_interpolate_frequency_amplitude_changes;
+        copyEnvelope(get_LPF_envelope_cutoff(), pVoice.get_LPF_envelope_cutoff());
+        copyEnvelope(get_LPF_envelope_resonance(), pVoice.get_LPF_envelope_resonance());
+    }
+
+    private static void copyEnvelope(ADSR pSource, ADSR pDestination) {
+        pDestination.set_adsr(pSource.get_attack(), pSource.get_decay(), pSource.get_sustain(), pSource.get_release());
+    }
+}
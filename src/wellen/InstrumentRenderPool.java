@@ -0,0 +1,283 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package wellen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * fixed pool of worker threads that render the instruments of a {@link wellen.ToneEngineDSP} in parallel. each
+ * instrument renders into its own scratch buffer. instruments are split into <code>number of workers + 1</code>
+ * partitions, partition <code>p</code> holding every instrument <code>i</code> with <code>i % (number of workers + 1)
+ * == p</code>. the calling audio thread and the workers claim partitions until none are left. the tone engine sums the
+ * scratch buffers in instrument order afterwards, so the result is identical to serial rendering. instruments that are
+ * idle at the beginning of a segment are not rendered.
+ * <p>
+ * workers spin for a short while after each audio block before parking, so that handoffs within consecutive audio
+ * blocks usually do not involve the scheduler. since the audio thread renders every partition that no worker has
+ * claimed, the pool may be shut down at any time, even while a segment is rendered. after shutdown the calling thread
+ * renders all partitions itself.
+ * <p>
+ * scratch buffers are allocated ahead of time by the thread that creates the pool or replaces an instrument ( see
+ * {@link #prepare(ArrayList, int)} ). the audio thread only allocates if it is passed a block that is longer than the
+ * block the buffers were prepared for.
+ */
+class InstrumentRenderPool {
+
+    private static final int                      SPIN_ITERATIONS    = 20000;
+    private final        AtomicBoolean            fClaimed           = new AtomicBoolean(false);
+    private final        AtomicInteger            fNextPartition     = new AtomicInteger();
+    private final        AtomicInteger            fPendingPartitions = new AtomicInteger();
+    private volatile     boolean[]                fPreparedActive    = new boolean[0];
+    private volatile     float[][][][]            fPreparedBuffers   = new float[0][][][];
+    private              boolean[]                fActive;
+    private              float[][][][]            fBuffers;
+    private final        Worker[]                 fWorkers;
+    private volatile     int                      fGeneration        = 0;
+    private volatile     boolean                  fRunning           = true;
+    private              ArrayList<InstrumentDSP> fInstruments;
+    private              int                      fLength;
+    private              int                      fOffset;
+    private              boolean                  fStereo;
+
+    /**
+     * @param number_of_workers number of worker threads in addition to the calling audio thread
+     * @param instruments       instruments to prepare scratch buffers for
+     * @param block_length      length of audio block to prepare scratch buffers for
+     */
+    InstrumentRenderPool(int number_of_workers, ArrayList<InstrumentDSP> instruments, int block_length) {
+        prepare(instruments, block_length);
+        fWorkers = new Worker[Math.max(number_of_workers, 0)];
+        for (int i = 0; i < fWorkers.length; i++) {
+            fWorkers[i] = new Worker();
+            fWorkers[i].setName("wellen-render-" + (i + 1));
+            fWorkers[i].setDaemon(true);
+            fWorkers[i].setPriority(Thread.MAX_PRIORITY);
+            fWorkers[i].start();
+        }
+    }
+
+    /**
+     * @return number of worker threads in addition to the calling audio thread
+     */
+    int number_of_workers() {
+        return fWorkers.length;
+    }
+
+    /**
+     * claims the pool for its first and only owner. a pool is either claimed by the audio thread before it is used for
+     * the first time or by the thread that replaces it before it was ever used.
+     *
+     * @return <code>true</code> if the pool was not claimed before
+     */
+    boolean claim() {
+        return fClaimed.compareAndSet(false, true);
+    }
+
+    /**
+     * render a segment of all instruments into their scratch buffers. this method blocks until all workers are done.
+     *
+     * @param instruments  instruments to render
+     * @param stereo       render multi-channel instruments as stereo ( otherwise all channels are rendered )
+     * @param offset       first sample of segment
+     * @param length       number of samples in segment
+     * @param block_length length of complete audio block
+     */
+    void render(ArrayList<InstrumentDSP> instruments, boolean stereo, int offset, int length, int block_length) {
+        if (!isPrepared(instruments, block_length)) {
+            prepare(instruments, block_length);
+        }
+        /* buffers are taken once per segment so that a concurrent `prepare` does not affect the current segment */
+        fBuffers     = fPreparedBuffers;
+        fActive      = fPreparedActive;
+        fStereo      = stereo;
+        /* decide once per segment so that workers and tone engine agree on which instruments were rendered. an
+         * instrument that was replaced after its buffer was taken is rendered from the next segment on. */
+        for (int i = 0; i < fActive.length; i++) {
+            final InstrumentDSP mInstrument = instruments.get(i);
+            fActive[i] = !mInstrument.is_idle() && fBuffers[i].length > getChannels(mInstrument);
+        }
+        fInstruments = instruments;
+        fOffset      = offset;
+        fLength      = length;
+        fPendingPartitions.set(fWorkers.length + 1);
+        fNextPartition.set(0);
+        fGeneration++;
+        for (Worker mWorker : fWorkers) {
+            if (mWorker.fParked) {
+                LockSupport.unpark(mWorker);
+            }
+        }
+        renderPartitions();
+        while (fPendingPartitions.get() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @param instrument_index index of instrument
+     * @return scratch buffer of instrument that was filled in the last call to <code>render</code>
+     */
+    float[][] buffer(int instrument_index) {
+        final InstrumentDSP mInstrument = fInstruments.get(instrument_index);
+        return fBuffers[instrument_index][getChannels(mInstrument)];
+    }
+
+    /**
+     * @param instrument_index index of instrument
+     * @return <code>true</code> if instrument was rendered in the last call to <code>render</code>. the scratch buffer
+     *         of an instrument that was not rendered is undefined.
+     */
+    boolean is_active(int instrument_index) {
+        return fActive[instrument_index];
+    }
+
+    /**
+     * stop all worker threads. this method does not wait for the threads to terminate.
+     */
+    void shutdown() {
+        fRunning = false;
+        for (Worker mWorker : fWorkers) {
+            LockSupport.unpark(mWorker);
+        }
+    }
+
+    private int getChannels(InstrumentDSP pInstrument) {
+        final int mChannels = pInstrument.get_channels();
+        if (fStereo) {
+            return mChannels == 1 ? 1 : Wellen.SIGNAL_STEREO;
+        }
+        return Math.max(mChannels, 1);
+    }
+
+    /**
+     * allocate scratch buffers for all instruments. buffers that are already large enough are kept. the new buffers are
+     * used from the next segment on, so this method may be called while the pool is rendering.
+     *
+     * @param instruments  instruments to prepare scratch buffers for
+     * @param block_length length of audio block to prepare scratch buffers for
+     */
+    synchronized void prepare(ArrayList<InstrumentDSP> instruments, int block_length) {
+        final float[][][][] mBuffers = Arrays.copyOf(fPreparedBuffers, instruments.size());
+        for (int i = 0; i < mBuffers.length; i++) {
+            final int mChannels = getRequiredChannels(instruments.get(i));
+            if (!isPrepared(mBuffers[i], mChannels, block_length)) {
+                /* views of 0 to n channels over the same channel arrays */
+                final float[][] mChannelBuffers = new float[mChannels][block_length];
+                mBuffers[i] = new float[mChannels + 1][][];
+                for (int j = 0; j <= mChannels; j++) {
+                    mBuffers[i][j] = Arrays.copyOf(mChannelBuffers, j);
+                }
+            }
+        }
+        if (fPreparedActive.length != mBuffers.length) {
+            fPreparedActive = new boolean[mBuffers.length];
+        }
+        fPreparedBuffers = mBuffers;
+    }
+
+    private boolean isPrepared(ArrayList<InstrumentDSP> pInstruments, int pLength) {
+        final float[][][][] mBuffers = fPreparedBuffers;
+        if (mBuffers.length != pInstruments.size()) {
+            return false;
+        }
+        for (int i = 0; i < mBuffers.length; i++) {
+            if (!isPrepared(mBuffers[i], getRequiredChannels(pInstruments.get(i)), pLength)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPrepared(float[][][] pBuffer, int pChannels, int pLength) {
+        return pBuffer != null && pBuffer.length > pChannels && pBuffer[1][0].length >= pLength;
+    }
+
+    private static int getRequiredChannels(InstrumentDSP pInstrument) {
+        return Math.max(pInstrument.get_channels(), Wellen.SIGNAL_STEREO);
+    }
+
+    /*
+     * claim and render partitions until all partitions of the current segment are claimed. a partition is always
+     * finished by the thread that claimed it.
+     */
+    private void renderPartitions() {
+        final int mPartitions = fWorkers.length + 1;
+        int mPartition;
+        while ((mPartition = fNextPartition.getAndIncrement()) < mPartitions) {
+            try {
+                renderPartition(mPartition);
+            } finally {
+                fPendingPartitions.decrementAndGet();
+            }
+        }
+    }
+
+    private void renderPartition(int pPartition) {
+        final int mStride = fWorkers.length + 1;
+        for (int i = pPartition; i < fInstruments.size(); i += mStride) {
+            if (fActive[i]) {
+                final InstrumentDSP mInstrument = fInstruments.get(i);
+                mInstrument.render(fBuffers[i][getChannels(mInstrument)], fOffset, fLength);
+            }
+        }
+    }
+
+    private class Worker extends Thread {
+
+        private final    int     fInitialGeneration;
+        private volatile boolean fParked = false;
+
+        Worker() {
+            fInitialGeneration = fGeneration;
+        }
+
+        @Override
+        public void run() {
+            int mGeneration = fInitialGeneration;
+            while (fRunning) {
+                int mSpin = 0;
+                while (fGeneration == mGeneration && fRunning) {
+                    if (mSpin < SPIN_ITERATIONS) {
+                        mSpin++;
+                        Thread.onSpinWait();
+                    } else {
+                        fParked = true;
+                        if (fGeneration == mGeneration && fRunning) {
+                            LockSupport.park(this);
+                        }
+                        fParked = false;
+                    }
+                }
+                if (fGeneration == mGeneration) {
+                    break;
+                }
+                mGeneration = fGeneration;
+                try {
+                    renderPartitions();
+                } catch (RuntimeException e) {
+                    System.err.println("+++ WARNING @" + getClass().getSimpleName() + " / " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,529 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * converts between normalized float samples and interleaved PCM bytes. a codec is created once for a sample format (
+ * encoding, bits per sample and byte order ) and converts whole blocks: each format has its own specialized
+ * implementation whose inner loop runs over the frames of one channel without branching on the format. 16- and 32-bit
+ * samples are accessed through {@link VarHandle} views on the byte array.
+ * <p>
+ * integer samples are scaled symmetrically by <code>2^(bits - 1) - 1</code> and clamped to [-1, 1] before
+ * encoding, float samples are passed through unchanged. 8-bit samples are either signed ( {@link Wellen#ENCODING_PCM_SIGNED} ) or unsigned with an offset of 128 (
+ * {@link Wellen#ENCODING_PCM_UNSIGNED} and WAV files ).
+ */
+public abstract class PCMCodec {
+
+    private static final VarHandle SHORT_LE      = MethodHandles.byteArrayViewVarHandle(short[].class,
+                                                                                          ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle SHORT_BE      = MethodHandles.byteArrayViewVarHandle(short[].class,
+                                                                                          ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT_LE        = MethodHandles.byteArrayViewVarHandle(int[].class,
+                                                                                        ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_BE        = MethodHandles.byteArrayViewVarHandle(int[].class,
+                                                                                        ByteOrder.BIG_ENDIAN);
+    private static final VarHandle FLOAT_LE      = MethodHandles.byteArrayViewVarHandle(float[].class,
+                                                                                          ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle FLOAT_BE      = MethodHandles.byteArrayViewVarHandle(float[].class,
+                                                                                          ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BUFFER_SHORT_LE = MethodHandles.byteBufferViewVarHandle(short[].class,
+                                                                                            ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_SHORT_BE = MethodHandles.byteBufferViewVarHandle(short[].class,
+                                                                                            ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BUFFER_INT_LE   = MethodHandles.byteBufferViewVarHandle(int[].class,
+                                                                                          ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_INT_BE   = MethodHandles.byteBufferViewVarHandle(int[].class,
+                                                                                          ByteOrder.BIG_ENDIAN);
+    private static final VarHandle BUFFER_FLOAT_LE = MethodHandles.byteBufferViewVarHandle(float[].class,
+                                                                                            ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_FLOAT_BE = MethodHandles.byteBufferViewVarHandle(float[].class,
+                                                                                            ByteOrder.BIG_ENDIAN);
+    private static final float     SCALE_8_BIT   = 127.0f;
+    private static final float     SCALE_16_BIT  = 32767.0f;
+    private static final float     SCALE_24_BIT  = 8388607.0f;
+    private static final float     SCALE_32_BIT  = 2147483647.0f;
+    private final        int       fBytesPerSample;
+    private final        byte      fSilence;
+
+    PCMCodec(int pBytesPerSample, byte pSilence) {
+        fBytesPerSample = pBytesPerSample;
+        fSilence        = pSilence;
+    }
+
+    /**
+     * create codec for an audio line format.
+     *
+     * @param encoding        {@link Wellen#ENCODING_PCM_SIGNED}, {@link Wellen#ENCODING_PCM_UNSIGNED} or
+     *                        {@link Wellen#ENCODING_PCM_FLOAT}
+     * @param bits_per_sample 8, 16, 24 or 32 for PCM, 32 for float
+     * @param is_big_endian   byte order of samples with more than 8 bits
+     * @return codec or <code>null</code> if format is not supported
+     */
+    public static PCMCodec create(int encoding, int bits_per_sample, boolean is_big_endian) {
+        if (encoding == Wellen.ENCODING_PCM_FLOAT) {
+            if (bits_per_sample != 32) {
+                return null;
+            }
+            return is_big_endian ? new Float32BE() : new Float32LE();
+        }
+        if (encoding != Wellen.ENCODING_PCM_SIGNED && encoding != Wellen.ENCODING_PCM_UNSIGNED) {
+            return null;
+        }
+        switch (bits_per_sample) {
+            case 8:
+                return new Int8(encoding == Wellen.ENCODING_PCM_UNSIGNED);
+            case 16:
+                return is_big_endian ? new Int16BE() : new Int16LE();
+            case 24:
+                return is_big_endian ? new Int24BE() : new Int24LE();
+            case 32:
+                return is_big_endian ? new Int32BE() : new Int32LE();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * create codec for samples in a WAV file. WAV samples are little endian, 8-bit samples are unsigned.
+     *
+     * @param format          {@link Wellen#WAV_FORMAT_PCM} or {@link Wellen#WAV_FORMAT_IEEE_FLOAT_32BIT}
+     * @param bits_per_sample bits per sample
+     * @return codec or <code>null</code> if format is not supported
+     */
+    public static PCMCodec create_wav(int format, int bits_per_sample) {
+        if (format == Wellen.WAV_FORMAT_IEEE_FLOAT_32BIT) {
+            return create(Wellen.ENCODING_PCM_FLOAT, bits_per_sample, false);
+        }
+        if (format == Wellen.WAV_FORMAT_PCM) {
+            return create(bits_per_sample == 8 ? Wellen.ENCODING_PCM_UNSIGNED : Wellen.ENCODING_PCM_SIGNED,
+                          bits_per_sample,
+                          false);
+        }
+        return null;
+    }
+
+    /**
+     * @return number of bytes per sample
+     */
+    public int get_bytes_per_sample() {
+        return fBytesPerSample;
+    }
+
+    /**
+     * decode interleaved samples into one buffer per channel. channels missing in <code>destination</code> are
+     * skipped.
+     *
+     * @param source             interleaved samples
+     * @param source_offset      index of first byte
+     * @param destination        buffers with one array per channel
+     * @param destination_offset index of first frame in destination buffers
+     * @param frames             number of frames to decode
+     * @param channels           number of interleaved channels in source
+     */
+    public void decode(byte[] source,
+                       int source_offset,
+                       float[][] destination,
+                       int destination_offset,
+                       int frames,
+                       int channels) {
+        final int mStride = channels * fBytesPerSample;
+        for (int c = 0; c < channels && c < destination.length; c++) {
+            decodeChannel(source,
+                          source_offset + c * fBytesPerSample,
+                          mStride,
+                          destination[c],
+                          destination_offset,
+                          frames);
+        }
+    }
+
+    /**
+     * decode consecutive samples of a single channel.
+     *
+     * @param source             samples
+     * @param source_offset      index of first byte
+     * @param destination        decoded samples
+     * @param destination_offset index of first sample in destination
+     * @param samples            number of samples to decode
+     */
+    public void decode(byte[] source, int source_offset, float[] destination, int destination_offset, int samples) {
+        decodeChannel(source, source_offset, fBytesPerSample, destination, destination_offset, samples);
+    }
+
+    /**
+     * encode one buffer per channel into interleaved samples. channels missing in <code>source</code> are encoded as
+     * silence.
+     *
+     * @param source             buffers with one array per channel
+     * @param source_offset      index of first frame in source buffers
+     * @param destination        interleaved samples
+     * @param destination_offset index of first byte
+     * @param frames             number of frames to encode
+     * @param channels           number of interleaved channels in destination
+     */
+    public void encode(float[][] source,
+                       int source_offset,
+                       byte[] destination,
+                       int destination_offset,
+                       int frames,
+                       int channels) {
+        final int mStride = channels * fBytesPerSample;
+        for (int c = 0; c < channels; c++) {
+            final int mOffset = destination_offset + c * fBytesPerSample;
+            if (c < source.length) {
+                encodeChannel(source[c], source_offset, destination, mOffset, mStride, frames);
+            } else {
+                for (int i = 0; i < frames; i++) {
+                    for (int b = 0; b < fBytesPerSample; b++) {
+                        destination[mOffset + i * mStride + b] = fSilence;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * encode consecutive samples of a single channel.
+     *
+     * @param source             samples
+     * @param source_offset      index of first sample
+     * @param destination        encoded samples
+     * @param destination_offset index of first byte
+     * @param samples            number of samples to encode
+     */
+    public void encode(float[] source, int source_offset, byte[] destination, int destination_offset, int samples) {
+        encodeChannel(source, source_offset, destination, destination_offset, fBytesPerSample, samples);
+    }
+
+    /**
+     * decode a single sample from a buffer ( e.g a memory mapped file ). the byte order of the buffer is ignored.
+     *
+     * @param buffer   buffer with encoded samples
+     * @param position index of first byte of sample
+     * @return decoded sample
+     */
+    public abstract float decode(ByteBuffer buffer, int position);
+
+    abstract void decodeChannel(byte[] pSource,
+                                int pSourceOffset,
+                                int pStride,
+                                float[] pDestination,
+                                int pDestinationOffset,
+                                int pFrames);
+
+    abstract void encodeChannel(float[] pSource,
+                                int pSourceOffset,
+                                byte[] pDestination,
+                                int pDestinationOffset,
+                                int pStride,
+                                int pFrames);
+
+    private static float clamp(float pSample) {
+        return Math.min(Math.max(pSample, -1.0f), 1.0f);
+    }
+
+    private static final class Int8 extends PCMCodec {
+
+        private final int fOffset;
+
+        Int8(boolean pUnsigned) {
+            super(1, (byte) (pUnsigned ? 128 : 0));
+            fOffset = pUnsigned ? 128 : 0;
+        }
+
+        @Override
+        public float decode(ByteBuffer buffer, int position) {
+            return (((buffer.get(position) + fOffset) << 24) >> 24) * (1.0f / SCALE_8_BIT);
+        }
+
+        @Override
+        void decodeChannel(byte[] pSource, int pSourceOffset, int pStride, float[] pDestination,
+                           int pDestinationOffset, int pFrames) {
+            final int mOffset = fOffset;
+            for (int i = 0; i < pFrames; i++) {
+                final int v = ((pSource[pSourceOffset + i * pStride] + mOffset) << 24) >> 24;
+                pDestination[pDestinationOffset + i] = v * (1.0f / SCALE_8_BIT);
+            }
+        }
+
+        @Override
+        void encodeChannel(float[] pSource, int pSourceOffset, byte[] pDestination, int pDestinationOffset,
+                           int pStride, int pFrames) {
+            final int mOffset = fOffset;
+            for (int i = 0; i < pFrames; i++) {
+                final int v = (int) (clamp(pSource[pSourceOffset + i]) * SCALE_8_BIT);
+                pDestination[pDestinationOffset + i * pStride] = (byte) (v + mOffset);
+            }
+        }
+    }
+
+    private static final class Int16LE extends PCMCodec {
+
+        Int16LE() {
+            super(2, (byte) 0);
+        }
+
+        @Override
+        public float decode(ByteBuffer buffer, int position) {
+            return (short) BUFFER_SHORT_LE.get(buffer, position) * (1.0f / SCALE_16_BIT);
+        }
+
+        @Override
+        void decodeChannel(byte[] pSource, int pSourceOffset, int pStride, float[] pDestination,
+                           int pDestinationOffset, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                final short v = (short) SHORT_LE.get(pSource, pSourceOffset + i * pStride);
+                pDestination[pDestinationOffset + i] = v * (1.0f / SCALE_16_BIT);
+            }
+        }
+
+        @Override
+        void encodeChannel(float[] pSource, int pSourceOffset, byte[] pDestination, int pDestinationOffset,
+                           int pStride, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                final short v = (short) (clamp(pSource[pSourceOffset + i]) * SCALE_16_BIT);
+                SHORT_LE.set(pDestination, pDestinationOffset + i * pStride, v);
+            }
+        }
+    }
+
+    private static final class Int16BE extends PCMCodec {
+
+        Int16BE() {
+            super(2, (byte) 0);
+        }
+
+        @Override
+        public float decode(ByteBuffer buffer, int position) {
+            return (short) BUFFER_SHORT_BE.get(buffer, position) * (1.0f / SCALE_16_BIT);
+        }
+
+        @Override
+        void decodeChannel(byte[] pSource, int pSourceOffset, int pStride, float[] pDestination,
+                           int pDestinationOffset, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                final short v = (short) SHORT_BE.get(pSource, pSourceOffset + i * pStride);
+                pDestination[pDestinationOffset + i] = v * (1.0f / SCALE_16_BIT);
+            }
+        }
+
+        @Override
+        void encodeChannel(float[] pSource, int pSourceOffset, byte[] pDestination, int pDestinationOffset,
+                           int pStride, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                final short v = (short) (clamp(pSource[pSourceOffset + i]) * SCALE_16_BIT);
+                SHORT_BE.set(pDestination, pDestinationOffset + i * pStride, v);
+            }
+        }
+    }
+
+    private static final class Int24LE extends PCMCodec {
+
+        Int24LE() {
+            super(3, (byte) 0);
+        }
+
+        @Override
+        public float decode(ByteBuffer buffer, int position) {
+            final int v = (buffer.get(position + 2) << 16) | ((buffer.get(position + 1) & 0xFF) << 8) | (buffer.get(
+            position) & 0xFF);
+            return v * (1.0f / SCALE_24_BIT);
+        }
+
+        @Override
+        void decodeChannel(byte[] pSource, int pSourceOffset, int pStride, float[] pDestination,
+                           int pDestinationOffset, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                final int p = pSourceOffset + i * pStride;
+                final int v = (pSource[p + 2] << 16) | ((pSource[p + 1] & 0xFF) << 8) | (pSource[p] & 0xFF);
+                pDestination[pDestinationOffset + i] = v * (1.0f / SCALE_24_BIT);
+            }
+        }
+
+        @Override
+        void encodeChannel(float[] pSource, int pSourceOffset, byte[] pDestination, int pDestinationOffset,
+                           int pStride, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                final int p = pDestinationOffset + i * pStride;
+                final int v = (int) (clamp(pSource[pSourceOffset + i]) * SCALE_24_BIT);
+                pDestination[p]     = (byte) v;
+                pDestination[p + 1] = (byte) (v >> 8);
+                pDestination[p + 2] = (byte) (v >> 16);
+            }
+        }
+    }
+
+    private static final class Int24BE extends PCMCodec {
+
+        Int24BE() {
+            super(3, (byte) 0);
+        }
+
+        @Override
+        public float decode(ByteBuffer buffer, int position) {
+            final int v = (buffer.get(position) << 16) | ((buffer.get(position + 1) & 0xFF) << 8) | (buffer.get(
+            position + 2) & 0xFF);
+            return v * (1.0f / SCALE_24_BIT);
+        }
+
+        @Override
+        void decodeChannel(byte[] pSource, int pSourceOffset, int pStride, float[] pDestination,
+                           int pDestinationOffset, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                final int p = pSourceOffset + i * pStride;
+                final int v = (pSource[p] << 16) | ((pSource[p + 1] & 0xFF) << 8) | (pSource[p + 2] & 0xFF);
+                pDestination[pDestinationOffset + i] = v * (1.0f / SCALE_24_BIT);
+            }
+        }
+
+        @Override
+        void encodeChannel(float[] pSource, int pSourceOffset, byte[] pDestination, int pDestinationOffset,
+                           int pStride, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                final int p = pDestinationOffset + i * pStride;
+                final int v = (int) (clamp(pSource[pSourceOffset + i]) * SCALE_24_BIT);
+                pDestination[p]     = (byte) (v >> 16);
+                pDestination[p + 1] = (byte) (v >> 8);
+                pDestination[p + 2] = (byte) v;
+            }
+        }
+    }
+
+    private static final class Int32LE extends PCMCodec {
+
+        Int32LE() {
+            super(4, (byte) 0);
+        }
+
+        @Override
+        public float decode(ByteBuffer buffer, int position) {
+            return (int) BUFFER_INT_LE.get(buffer, position) * (1.0f / SCALE_32_BIT);
+        }
+
+        @Override
+        void decodeChannel(byte[] pSource, int pSourceOffset, int pStride, float[] pDestination,
+                           int pDestinationOffset, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                final int v = (int) INT_LE.get(pSource, pSourceOffset + i * pStride);
+                pDestination[pDestinationOffset + i] = v * (1.0f / SCALE_32_BIT);
+            }
+        }
+
+        @Override
+        void encodeChannel(float[] pSource, int pSourceOffset, byte[] pDestination, int pDestinationOffset,
+                           int pStride, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                final int v = (int) (clamp(pSource[pSourceOffset + i]) * SCALE_32_BIT);
+                INT_LE.set(pDestination, pDestinationOffset + i * pStride, v);
+            }
+        }
+    }
+
+    private static final class Int32BE extends PCMCodec {
+
+        Int32BE() {
+            super(4, (byte) 0);
+        }
+
+        @Override
+        public float decode(ByteBuffer buffer, int position) {
+            return (int) BUFFER_INT_BE.get(buffer, position) * (1.0f / SCALE_32_BIT);
+        }
+
+        @Override
+        void decodeChannel(byte[] pSource, int pSourceOffset, int pStride, float[] pDestination,
+                           int pDestinationOffset, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                final int v = (int) INT_BE.get(pSource, pSourceOffset + i * pStride);
+                pDestination[pDestinationOffset + i] = v * (1.0f / SCALE_32_BIT);
+            }
+        }
+
+        @Override
+        void encodeChannel(float[] pSource, int pSourceOffset, byte[] pDestination, int pDestinationOffset,
+                           int pStride, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                final int v = (int) (clamp(pSource[pSourceOffset + i]) * SCALE_32_BIT);
+                INT_BE.set(pDestination, pDestinationOffset + i * pStride, v);
+            }
+        }
+    }
+
+    private static final class Float32LE extends PCMCodec {
+
+        Float32LE() {
+            super(4, (byte) 0);
+        }
+
+        @Override
+        public float decode(ByteBuffer buffer, int position) {
+            return (float) BUFFER_FLOAT_LE.get(buffer, position);
+        }
+
+        @Override
+        void decodeChannel(byte[] pSource, int pSourceOffset, int pStride, float[] pDestination,
+                           int pDestinationOffset, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                pDestination[pDestinationOffset + i] = (float) FLOAT_LE.get(pSource, pSourceOffset + i * pStride);
+            }
+        }
+
+        @Override
+        void encodeChannel(float[] pSource, int pSourceOffset, byte[] pDestination, int pDestinationOffset,
+                           int pStride, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                FLOAT_LE.set(pDestination, pDestinationOffset + i * pStride, pSource[pSourceOffset + i]);
+            }
+        }
+    }
+
+    private static final class Float32BE extends PCMCodec {
+
+        Float32BE() {
+            super(4, (byte) 0);
+        }
+
+        @Override
+        public float decode(ByteBuffer buffer, int position) {
+            return (float) BUFFER_FLOAT_BE.get(buffer, position);
+        }
+
+        @Override
+        void decodeChannel(byte[] pSource, int pSourceOffset, int pStride, float[] pDestination,
+                           int pDestinationOffset, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                pDestination[pDestinationOffset + i] = (float) FLOAT_BE.get(pSource, pSourceOffset + i * pStride);
+            }
+        }
+
+        @Override
+        void encodeChannel(float[] pSource, int pSourceOffset, byte[] pDestination, int pDestinationOffset,
+                           int pStride, int pFrames) {
+            for (int i = 0; i < pFrames; i++) {
+                FLOAT_BE.set(pDestination, pDestinationOffset + i * pStride, pSource[pSourceOffset + i]);
+            }
+        }
+    }
+}
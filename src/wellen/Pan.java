@@ -19,6 +19,7 @@
 
 package wellen;
 
+import wellen.dsp.DSPNodeProcessBlock;
 import wellen.dsp.DSPNodeProcessSignal;
 import wellen.dsp.Signal;
 
@@ -32,11 +33,13 @@ import static wellen.Wellen.SIGNAL_RIGHT;
 /**
  * position a mono signal somewhere in a stereo space.
  */
-public class Pan implements DSPNodeProcessSignal {
+public class Pan implements DSPNodeProcessSignal, DSPNodeProcessBlock {
 
     private int mPanType;
     private float mPanning;
     private float mPanningNormalized;
+    private float mGainLeft;
+    private float mGainRight;
 
     public Pan() {
         set_pan_type(PAN_LINEAR);
@@ -45,6 +48,7 @@ public class Pan implements DSPNodeProcessSignal {
 
     public void set_pan_type(int pPanType) {
         mPanType = pPanType;
+        updateGains();
     }
 
     public float get_panning() {
@@ -59,25 +63,47 @@ public class Pan implements DSPNodeProcessSignal {
     public void set_panning(float pPanning) {
         mPanning = (pPanning > 1.0f) ? 1.0f : ((pPanning < -1.0f) ? -1.0f : pPanning);
         mPanningNormalized = (mPanning + 1.0f) * 0.5f;
+        updateGains();
     }
 
-    public Signal process(float pSignal) {
-        final Signal mSignal = Signal.create_stereo(pSignal);
-        switch (mPanType) {
-            case PAN_LINEAR:
-                mSignal.signal[SIGNAL_LEFT] *= 1.0f - mPanningNormalized;
-                mSignal.signal[SIGNAL_RIGHT] *= mPanningNormalized;
-                break;
-            case PAN_SQUARE_LAW:
-                mSignal.signal[SIGNAL_LEFT] *= Math.sqrt(1.0f - mPanningNormalized);
-                mSignal.signal[SIGNAL_RIGHT] *= Math.sqrt(mPanningNormalized);
-                break;
-            case PAN_SINE_LAW:
-                mSignal.signal[SIGNAL_LEFT] *= Math.sin((1.0f - mPanningNormalized) * HALF_PI);
-                mSignal.signal[SIGNAL_RIGHT] *= Math.sin(mPanningNormalized * HALF_PI);
-                break;
+    /**
+     * @return gain applied to the left channel for the current panning value and pan type
+     */
+    public float get_gain_left() {
+        return mGainLeft;
+    }
+
+    /**
+     * @return gain applied to the right channel for the current panning value and pan type
+     */
+    public float get_gain_right() {
+        return mGainRight;
+    }
+
+    /**
+     * position the first channel of a signal in stereo space. the result is written into the first two channels. signals
+     * with less than 2 channels are left unchanged.
+     *
+     * @param signal buffers to process with one buffer per channel
+     * @param offset index of the first sample to process
+     * @param length number of samples to process
+     */
+    @Override
+    public void process(float[][] signal, int offset, int length) {
+        if (signal.length < 2) {
+            return;
+        }
+        final float[] mLeft  = signal[SIGNAL_LEFT];
+        final float[] mRight = signal[SIGNAL_RIGHT];
+        for (int i = offset; i < offset + length; i++) {
+            final float mSample = mLeft[i];
+            mLeft[i]  = mSample * mGainLeft;
+            mRight[i] = mSample * mGainRight;
         }
-        return mSignal;
+    }
+
+    public Signal process(float pSignal) {
+        return applyPanning(Signal.create_stereo(pSignal));
     }
 
     /**
@@ -104,20 +130,28 @@ public class Pan implements DSPNodeProcessSignal {
     }
 
     private Signal applyPanning(Signal mSignal) {
+        mSignal.signal[SIGNAL_LEFT] *= mGainLeft;
+        mSignal.signal[SIGNAL_RIGHT] *= mGainRight;
+        return mSignal;
+    }
+
+    private void updateGains() {
         switch (mPanType) {
             case PAN_LINEAR:
-                mSignal.signal[SIGNAL_LEFT] *= 1.0f - mPanningNormalized;
-                mSignal.signal[SIGNAL_RIGHT] *= mPanningNormalized;
+                mGainLeft = 1.0f - mPanningNormalized;
+                mGainRight = mPanningNormalized;
                 break;
             case PAN_SQUARE_LAW:
-                mSignal.signal[SIGNAL_LEFT] *= Math.sqrt(1.0f - mPanningNormalized);
-                mSignal.signal[SIGNAL_RIGHT] *= Math.sqrt(mPanningNormalized);
+                mGainLeft = (float) Math.sqrt(1.0f - mPanningNormalized);
+                mGainRight = (float) Math.sqrt(mPanningNormalized);
                 break;
             case PAN_SINE_LAW:
-                mSignal.signal[SIGNAL_LEFT] *= Math.sin((1.0f - mPanningNormalized) * HALF_PI);
-                mSignal.signal[SIGNAL_RIGHT] *= Math.sin(mPanningNormalized * HALF_PI);
+                mGainLeft = (float) Math.sin((1.0f - mPanningNormalized) * HALF_PI);
+                mGainRight = (float) Math.sin(mPanningNormalized * HALF_PI);
                 break;
+            default:
+                mGainLeft = 1.0f;
+                mGainRight = 1.0f;
         }
-        return mSignal;
     }
 }
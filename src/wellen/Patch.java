@@ -19,6 +19,9 @@
 
 package wellen;
 
+import wellen.dsp.DSPNodeActivity;
+import wellen.dsp.DSPNodeBlockAdapter;
+import wellen.dsp.DSPNodeOutputBlock;
 import wellen.dsp.DSPNodeOutputSignal;
 import wellen.dsp.Signal;
 
@@ -30,8 +33,12 @@ import static wellen.Wellen.SIGNAL_STEREO;
 /**
  * a {@link Patch} allows to compose complex DSP configurations. a {@link Patch} may be added to other {@link Patch}es.
  * NOTE this class is not tested yet …
+ * <p>
+ * a {@link Patch} may also be rendered as a block via <code>void&nbsp;render(float[][],&nbsp;int,&nbsp;int)</code>.
+ * child patches that override <code>Signal&nbsp;output_signal()</code> but not
+ * <code>render(float[][],&nbsp;int,&nbsp;int)</code> are still rendered per sample.
  */
-public class Patch implements DSPNodeOutputSignal {
+public class Patch implements DSPNodeOutputSignal, DSPNodeOutputBlock, DSPNodeActivity {
 
     public static boolean VERBOSE = false;
     private static int oPatchUID;
@@ -39,6 +46,9 @@ public class Patch implements DSPNodeOutputSignal {
     private final Pan fPan;
     private float fVolume;
     private final ArrayList<Patch> mPatchs = new ArrayList<>();
+    private final boolean fRendersPerSample;
+    private final boolean fRendersChildrenOnly;
+    private final ChildMixer fChildMixer = new ChildMixer();
 
     public Patch() {
         this(1.0f);
@@ -48,6 +58,20 @@ public class Patch implements DSPNodeOutputSignal {
         fVolume = volume;
         fPan = new Pan();
         ID = oPatchUID++;
+        fRendersPerSample = DSPNodeBlockAdapter.overrides(this, Patch.class, "output_signal") &&
+                            !DSPNodeBlockAdapter.overrides(this,
+                                                           Patch.class,
+                                                           "render",
+                                                           float[][].class,
+                                                           int.class,
+                                                           int.class);
+        fRendersChildrenOnly = !DSPNodeBlockAdapter.overrides(this, Patch.class, "output_signal") &&
+                               !DSPNodeBlockAdapter.overrides(this,
+                                                              Patch.class,
+                                                              "render",
+                                                              float[][].class,
+                                                              int.class,
+                                                              int.class);
     }
 
     private static void addSignalAndVolume(Signal pSignalSum, Patch pPatch, Signal pSignal) {
@@ -88,6 +112,9 @@ public class Patch implements DSPNodeOutputSignal {
     public Signal output_signal_update() {
         final Signal mSignalSum = new Signal();
         for (Patch mPatch : mPatchs) {
+            if (mPatch.is_idle()) {
+                continue;
+            }
             Signal mPatchOutputSignal = mPatch.output_signal();
             if (mPatchOutputSignal.num_channels() == SIGNAL_MONO) {
                 /* position mono signal in stereo space */
@@ -112,6 +139,72 @@ public class Patch implements DSPNodeOutputSignal {
         return mSignalSum;
     }
 
+    /**
+     * callback method that renders a block of audio signals from child patches into the first two channels of
+     * <code>output_signal</code>. this method can be overridden to implement custom behavior, however, if doing so make
+     * sure to also call <code>render_update(float[][],&nbsp;int,&nbsp;int)</code> to collect signals from child
+     * patches.
+     *
+     * @param output_signal buffers to render into with one buffer per channel
+     * @param offset        index of the first sample to render
+     * @param length        number of samples to render
+     */
+    @Override
+    public void render(float[][] output_signal, int offset, int length) {
+        if (fRendersPerSample) {
+            for (int i = offset; i < offset + length; i++) {
+                DSPNodeBlockAdapter.write(output_signal(), output_signal, i);
+            }
+        } else {
+            render_update(output_signal, offset, length);
+        }
+    }
+
+    /**
+     * accumulates a block of signals from child patches and if applicable maps mono signals into stereo space. the
+     * result is written into the first two channels of <code>output_signal</code>, additional channels are cleared.
+     *
+     * @param output_signal buffers to render into with one buffer per channel
+     * @param offset        index of the first sample to render
+     * @param length        number of samples to render
+     */
+    public void render_update(float[][] output_signal, int offset, int length) {
+        fChildMixer.clear(output_signal, offset, length);
+        for (Patch mPatch : mPatchs) {
+            if (mPatch.is_idle()) {
+                /* idle patches are silent, skip rendering and mixing */
+                continue;
+            }
+            fChildMixer.mix(output_signal,
+                            offset,
+                            length,
+                            mPatch,
+                            mPatch.fRendersPerSample,
+                            mPatch.pan(),
+                            mPatch.get_volume());
+        }
+    }
+
+    /**
+     * a patch that only collects the signals of its child patchs is idle if all of its children are idle. a patch that
+     * overrides <code>output_signal()</code> or <code>render(float[][],&nbsp;int,&nbsp;int)</code> is never idle
+     * unless it also overrides this method, e.g to report the state of an instrument or sampler it plays.
+     *
+     * @return <code>true</code> if patch is silent until one of its children is triggered again
+     */
+    @Override
+    public boolean is_idle() {
+        if (!fRendersChildrenOnly) {
+            return false;
+        }
+        for (int i = 0; i < mPatchs.size(); i++) {
+            if (!mPatchs.get(i).is_idle()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public Pan pan() {
         return fPan;
     }
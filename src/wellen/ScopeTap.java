@@ -0,0 +1,230 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * passes snapshots of an audio signal from the audio thread to a reader thread ( e.g the drawing thread ) without locks
+ * or allocation. the tap keeps the most recent <code>history_size</code> samples of each channel and publishes them
+ * through a triple buffer: the audio thread writes into a back buffer and atomically swaps it with a middle buffer, the
+ * reader swaps the middle buffer with its front buffer if a new snapshot is available. a snapshot is therefore always
+ * consistent and never overwritten while it is read.
+ * <p>
+ * the tap supports a single writer and a single reader. the writer calls <code>write(...)</code> for each channel of an
+ * audio block followed by <code>publish(...)</code>, the reader calls <code>update()</code> once per frame to acquire
+ * the latest snapshot and reads it with <code>get(...)</code> or <code>get_latest(...)</code>. readers that can not
+ * call <code>update()</code> explicitly use <code>read(...)</code>, which acquires a new snapshot only when a channel is
+ * read a second time. a tap can also be registered as audioblock callback e.g with
+ * <code>ToneEngineDSP.register_audioblock_callback(...)</code>.
+ */
+public class ScopeTap implements ToneEngineDSP.AudioOutputCallback {
+
+    private static final int FRESH = 4;
+    private static final int INDEX = 3;
+
+    private       int           fBack            = 1;
+    private final int           fChannels;
+    private       int           fFront           = 0;
+    private final float[][]     fHistory;
+    private       int           fHistoryPosition = 0;
+    private final int           fHistorySize;
+    private final AtomicInteger fMiddle          = new AtomicInteger(2);
+    private       int           fReadMask        = ~0;
+    private final int[]         fSlotChannelMask = new int[3];
+    private final long[]        fSlotSampleTime  = new long[3];
+    private final float[][][]   fSlots;
+    private       int           fWriterChannelMask;
+    private       long          fWriterSampleTime;
+
+    /**
+     * @param channels     number of channels ( at most 32 )
+     * @param history_size number of most recent samples per channel kept in each snapshot
+     */
+    public ScopeTap(int channels, int history_size) {
+        fChannels    = Math.max(1, Math.min(channels, 32));
+        fHistorySize = Math.max(1, history_size);
+        fHistory     = new float[fChannels][fHistorySize];
+        fSlots       = new float[3][fChannels][fHistorySize];
+    }
+
+    /**
+     * write a block of samples of one channel. the samples become visible to the reader with the next call to
+     * <code>publish(...)</code>. all channels of a block must be written with the same length.
+     *
+     * @param channel channel index
+     * @param signal  samples
+     * @param offset  index of first sample in <code>signal</code>
+     * @param length  number of samples
+     */
+    public void write(int channel, float[] signal, int offset, int length) {
+        if (channel < 0 || channel >= fChannels || signal == null) {
+            return;
+        }
+        if (length > fHistorySize) {
+            offset += length - fHistorySize;
+            length = fHistorySize;
+        }
+        final float[] mHistory = fHistory[channel];
+        final int     mFirst   = Math.min(length, fHistorySize - fHistoryPosition);
+        System.arraycopy(signal, offset, mHistory, fHistoryPosition, mFirst);
+        System.arraycopy(signal, offset + mFirst, mHistory, 0, length - mFirst);
+        fWriterChannelMask |= 1 << channel;
+    }
+
+    /**
+     * publish the channels written since the last call as new snapshot.
+     *
+     * @param length number of samples per channel written since the last call
+     */
+    public void publish(int length) {
+        fHistoryPosition = (int) ((fHistoryPosition + (long) length) % fHistorySize);
+        fWriterSampleTime += length;
+        final float[][] mSlot = fSlots[fBack];
+        for (int c = 0; c < fChannels; c++) {
+            if ((fWriterChannelMask & (1 << c)) != 0) {
+                final int mFirst = fHistorySize - fHistoryPosition;
+                System.arraycopy(fHistory[c], fHistoryPosition, mSlot[c], 0, mFirst);
+                System.arraycopy(fHistory[c], 0, mSlot[c], mFirst, fHistoryPosition);
+            }
+        }
+        fSlotChannelMask[fBack] = fWriterChannelMask;
+        fSlotSampleTime[fBack]  = fWriterSampleTime;
+        fWriterChannelMask      = 0;
+        fBack                   = fMiddle.getAndSet(fBack | FRESH) & INDEX;
+    }
+
+    /**
+     * write a block of samples for all channels and publish it. missing channels are not part of the snapshot.
+     *
+     * @param signals samples with one array per channel
+     */
+    public void write(float[][] signals) {
+        if (signals.length == 0 || signals[0] == null) {
+            return;
+        }
+        final int mLength = signals[0].length;
+        for (int c = 0; c < signals.length && c < fChannels; c++) {
+            write(c, signals[c], 0, mLength);
+        }
+        publish(mLength);
+    }
+
+    /**
+     * write a block of samples for the first channel and publish it.
+     *
+     * @param signal samples
+     */
+    public void write(float[] signal) {
+        write(0, signal, 0, signal.length);
+        publish(signal.length);
+    }
+
+    @Override
+    public void audioblock(float[][] output_signals) {
+        write(output_signals);
+    }
+
+    /**
+     * acquire the most recently published snapshot. must only be called from the reader thread.
+     *
+     * @return <code>true</code> if a new snapshot was acquired
+     */
+    public boolean update() {
+        fReadMask = 0;
+        if ((fMiddle.get() & FRESH) == 0) {
+            return false;
+        }
+        fFront = fMiddle.getAndSet(fFront) & INDEX;
+        return true;
+    }
+
+    /**
+     * @param channel channel index
+     * @return most recent <code>history_size</code> samples of channel in acquired snapshot ( oldest first ) or
+     *         <code>null</code> if channel is not part of the snapshot. the array is owned by the tap and remains
+     *         unchanged until the next call to <code>update()</code>.
+     */
+    public float[] get(int channel) {
+        if (channel < 0 || channel >= fChannels || (fSlotChannelMask[fFront] & (1 << channel)) == 0) {
+            return null;
+        }
+        return fSlots[fFront][channel];
+    }
+
+    /**
+     * read a channel without calling <code>update()</code> explicitly. a new snapshot is acquired only if
+     * <code>channel</code> was already read since the last snapshot was acquired. channels read one after another ( e.g
+     * left and then right ) therefore come from the same snapshot, while reading the first channel again in the next
+     * frame acquires the latest snapshot. must only be called from the reader thread and once per frame for each
+     * channel, not once per sample.
+     *
+     * @param channel channel index
+     * @return see <code>get(int)</code>
+     */
+    public float[] read(int channel) {
+        if (channel < 0 || channel >= fChannels) {
+            return null;
+        }
+        if ((fReadMask & (1 << channel)) != 0) {
+            update();
+        }
+        fReadMask |= 1 << channel;
+        return get(channel);
+    }
+
+    /**
+     * copy the most recent samples of a channel in acquired snapshot into <code>destination</code> ( oldest first ).
+     *
+     * @param channel     channel index
+     * @param destination array to copy samples into
+     * @return number of samples copied
+     */
+    public int get_latest(int channel, float[] destination) {
+        final float[] mSnapshot = get(channel);
+        if (mSnapshot == null) {
+            return 0;
+        }
+        final int mLength = Math.min(destination.length, fHistorySize);
+        System.arraycopy(mSnapshot, fHistorySize - mLength, destination, 0, mLength);
+        return mLength;
+    }
+
+    /**
+     * @return number of samples written to tap up to the end of acquired snapshot
+     */
+    public long get_sample_time() {
+        return fSlotSampleTime[fFront];
+    }
+
+    /**
+     * @return number of channels
+     */
+    public int get_channels() {
+        return fChannels;
+    }
+
+    /**
+     * @return number of samples per channel in each snapshot
+     */
+    public int get_history_size() {
+        return fHistorySize;
+    }
+}
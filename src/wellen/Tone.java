@@ -124,6 +124,13 @@ public abstract class Tone {
         }
     }
 
+    /**
+     * @return tone engine or <code>null</code> if no tone engine was created yet
+     */
+    static ToneEngine getStartedInstance() {
+        return mInstance;
+    }
+
     public static ToneEngine instance() {
         if (mInstance == null) {
             mInstance = ToneEngine.create();
@@ -23,8 +23,7 @@ import processing.core.PApplet;
 import wellen.dsp.Sampler;
 
 import java.util.ArrayList;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * the underlying engine that is used by {@link wellen.Tone} to handle instruments.
@@ -36,10 +35,9 @@ public abstract class ToneEngine {
     public static final int INSTRUMENT_WITH_OSCILLATOR = 1;
     public static final int INSTRUMENT_WITH_OSCILLATOR_ADSR = 2;
     public static final int INSTRUMENT_WITH_OSCILLATOR_ADSR_FILTER_LFO = 3;
-    private final Timer mTimer;
+    private NoteOffScheduler mNoteOffScheduler;
 
     ToneEngine() {
-        mTimer = new Timer();
     }
 
     public static ToneEngine create() {
@@ -73,7 +71,12 @@ public abstract class ToneEngine {
     }
 
     public void stop() {
-        mTimer.cancel();
+        synchronized (this) {
+            if (mNoteOffScheduler != null) {
+                mNoteOffScheduler.terminate();
+                mNoteOffScheduler = null;
+            }
+        }
     }
 
     /**
@@ -84,9 +87,30 @@ public abstract class ToneEngine {
      * @param duration duration in seconds before the note is turned off again
      */
     public final void note_on(int note, int velocity, float duration) {
-        TimerTask mTask = new NoteOffTask(note, instrument().ID());
-        mTimer.schedule(mTask, (long) (duration * 1000));
+        final int mInstrument = instrument().ID();
         note_on(note, velocity);
+        note_off_after(mInstrument, note, duration);
+    }
+
+    /**
+     * turn off a note after a duration. the note-off is passed to a single scheduler thread that keeps pending
+     * note-offs in a preallocated {@link EventQueue}. engines that render audio themselves override this method to
+     * schedule the note-off on their own sample clock.
+     *
+     * @param instrument_ID ID of instrument
+     * @param note          pitch of note to turn off
+     * @param duration      duration in seconds before the note is turned off
+     */
+    protected void note_off_after(int instrument_ID, int note, float duration) {
+        NoteOffScheduler mScheduler;
+        synchronized (this) {
+            if (mNoteOffScheduler == null) {
+                mNoteOffScheduler = new NoteOffScheduler();
+                mNoteOffScheduler.start();
+            }
+            mScheduler = mNoteOffScheduler;
+        }
+        mScheduler.schedule(System.nanoTime() + (long) (duration * 1.0E9), instrument_ID, note);
     }
 
     /**
@@ -141,20 +165,47 @@ public abstract class ToneEngine {
 
     public abstract boolean remove_sample(Sampler sampler);
 
-    private class NoteOffTask extends TimerTask {
+    private class NoteOffScheduler extends Thread {
 
-        final int instrument;
-        final int note;
+        private static final long       MAX_WAIT_NANOS = 10000000L;
+        private final        EventQueue fQueue         = new EventQueue(ToneEngineDSP.EVENT_QUEUE_CAPACITY);
+        private volatile     boolean    fActive        = true;
 
-        public NoteOffTask(int pNote, int pInstrument) {
-            note = pNote;
-            instrument = pInstrument;
+        NoteOffScheduler() {
+            setDaemon(true);
+            setName(ToneEngine.class.getSimpleName() + "-note-off");
+        }
+
+        void schedule(long pTimeNanos, int pInstrument, int pNote) {
+            if (!fQueue.offer(pTimeNanos, Wellen.EVENT_NOTE_OFF, pInstrument, pNote, 0, 0)) {
+                System.err.println("+++ WARNING @" + ToneEngine.class.getSimpleName() + " / note-off queue is full. " +
+                                   "note-off is dropped.");
+            }
+            LockSupport.unpark(this);
+        }
+
+        void terminate() {
+            fActive = false;
+            LockSupport.unpark(this);
         }
 
         public void run() {
-            int mCurrentInstrument = instrument().ID();
-            instrument(instrument);
-            note_off(note);
+            while (fActive) {
+                fQueue.collect();
+                final long mNow = System.nanoTime();
+                while (fQueue.has_event_before(mNow + 1)) {
+                    noteOff(fQueue.instrument(), fQueue.data_a());
+                    fQueue.pop();
+                }
+                final long mWait = fQueue.pending() > 0 ? fQueue.time() - mNow : MAX_WAIT_NANOS;
+                LockSupport.parkNanos(Math.max(Math.min(mWait, MAX_WAIT_NANOS), 0));
+            }
+        }
+
+        private void noteOff(int pInstrument, int pNote) {
+            final int mCurrentInstrument = instrument().ID();
+            instrument(pInstrument);
+            note_off(pNote);
             instrument(mCurrentInstrument);
         }
     }
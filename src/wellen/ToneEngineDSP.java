@@ -23,6 +23,7 @@ import processing.core.PApplet;
 import wellen.dsp.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -31,16 +32,33 @@ import static wellen.Wellen.clamp;
 
 /**
  * implementation of {@link wellen.ToneEngine} using internal DSP audio processing.
+ * <p>
+ * note events, pitch bends, control changes and parameter changes can be passed to the audio thread through a
+ * lock-free {@link wellen.EventQueue}. each event is timestamped in samples and applied at its exact sample offset
+ * inside an audio block. events sent with <code>note_on(...)</code> etc. from other threads are timestamped with the
+ * current playback position plus a latency of one audio block which keeps their relative timing intact. events can
+ * also be scheduled at an absolute sample time with <code>schedule_note_on(...)</code> etc. ( see
+ * <code>get_sample_time()</code> ). queueing is enabled by default if the tone engine owns an audio device and can be
+ * toggled with <code>USE_EVENT_QUEUE</code>.
+ * <p>
+ * {@link wellen.Transport}s added with <code>add_transport(Transport)</code> are advanced by the sample counter of the
+ * tone engine. their ticks fire on the audio thread at the exact sample offset inside the audio block, and events sent
+ * from a tick listener are applied at that offset. events sent while an {@link wellen.EventScheduler} evaluates a tick
+ * are always queued and timestamped with the sample time of that tick.
  */
-public class ToneEngineDSP extends ToneEngine implements AudioBufferRenderer, DSPNodeOutput, DSPNodeOutputSignal {
+public class ToneEngineDSP extends ToneEngine implements AudioBufferRenderer, DSPNodeOutput, DSPNodeOutputSignal,
+                                                         DSPNodeOutputBlock {
 
     public static boolean                            VERBOSE             = true;
     public        boolean                            USE_AMP_FRACTION    = false;
+    public        boolean                            USE_EVENT_QUEUE;
+    public static final int                          EVENT_QUEUE_CAPACITY = 1024;
     private final AudioBufferManager                 fAudioPlayer;
     private       AudioOutputCallback                fAudioblockCallback = null;
-    private       int                                fCurrentBufferCounter;
-    private       float[]                            fCurrentBufferLeft;
-    private       float[]                            fCurrentBufferRight;
+    private final ScopeTap                           fScopeTap;
+    private final float[]                            fScopeBufferLeft;
+    private final float[]                            fScopeBufferRight;
+    private       int                                fScopeBufferCounter = 0;
     private       int                                fCurrentInstrumentID;
     private final CopyOnWriteArrayList<EffectStereo> fEffects;
     private final Gain                               fGain;
@@ -49,12 +67,36 @@ public class ToneEngineDSP extends ToneEngine implements AudioBufferRenderer, DS
     private final Pan                                fPan;
     private final Reverb                             fReverb;
     private       boolean                            fReverbEnabled;
+    private       float[][][]                        fInstrumentBuffers  = new float[0][][];
+    private final float[][]                          fRenderBuffer;
+    private final float[]                            fSampleLeft         = new float[1];
+    private final float[]                            fSampleRight        = new float[1];
+    private final EventQueue                         fEventQueue         = new EventQueue(EVENT_QUEUE_CAPACITY);
+    private final int                                fSamplingRate;
+    private final int                                fAudioblockSize;
+    private       long                               fSampleCounter      = 0;
+    private volatile int                             fClockVersion       = 0;
+    private volatile long                            fClockSample        = 0;
+    private volatile long                            fClockNanos         = System.nanoTime();
+    private volatile InstrumentRenderPool            fRenderPoolRequested = null;
+    private volatile InstrumentRenderPool            fRenderPool         = null;
+    private volatile Transport[]                     fTransports         = new Transport[0];
+    private volatile EventScheduler[]                fSchedulers         = new EventScheduler[0];
+    private volatile Thread                          fTickThread         = null;
+    private       long                               fTickTime           = 0;
 
     public ToneEngineDSP(int sampling_rate,
                          int audioblock_size,
                          int output_device_ID,
                          int number_of_output_channels,
                          int number_of_instruments) {
+        fSamplingRate        = sampling_rate;
+        fAudioblockSize      = audioblock_size;
+        fScopeTap            = new ScopeTap(Wellen.SIGNAL_STEREO, audioblock_size);
+        fScopeBufferLeft     = new float[audioblock_size];
+        fScopeBufferRight    = new float[audioblock_size];
+        getInstrumentBuffer(Wellen.SIGNAL_STEREO, audioblock_size);
+        fRenderBuffer        = new float[Wellen.SIGNAL_STEREO][audioblock_size];
         fInstruments         = new ArrayList<>();
         fEffects             = new CopyOnWriteArrayList<>();
         fNumberOfInstruments = number_of_instruments;
@@ -70,6 +112,7 @@ public class ToneEngineDSP extends ToneEngine implements AudioBufferRenderer, DS
         fPan           = new Pan();
         fPan.set_pan_type(Wellen.PAN_SINE_LAW);
 
+        USE_EVENT_QUEUE = output_device_ID != NO_AUDIO_DEVICE && number_of_output_channels > 0;
         if (output_device_ID != NO_AUDIO_DEVICE && number_of_output_channels > 0) {
             AudioDeviceConfiguration mConfig = new AudioDeviceConfiguration();
             mConfig.sample_rate               = sampling_rate;
@@ -96,6 +139,26 @@ public class ToneEngineDSP extends ToneEngine implements AudioBufferRenderer, DS
                                  number_of_instruments);
     }
 
+    /**
+     * create a tone engine for offline rendering with {@link wellen.AudioDeviceImplOffline}. the tone engine does not
+     * own an audio device but queues events so that they are applied relative to the virtual sample clock of the
+     * offline device.
+     *
+     * @param sampling_rate         sampling rate
+     * @param audioblock_size       audio block size ( must match block size of offline device )
+     * @param number_of_instruments number of instruments
+     * @return tone engine without audio device
+     */
+    public static ToneEngineDSP create_offline(int sampling_rate, int audioblock_size, int number_of_instruments) {
+        final ToneEngineDSP mToneEngine = new ToneEngineDSP(sampling_rate,
+                                                            audioblock_size,
+                                                            Wellen.NO_AUDIO_DEVICE,
+                                                            2,
+                                                            number_of_instruments);
+        mToneEngine.USE_EVENT_QUEUE = true;
+        return mToneEngine;
+    }
+
     public static ToneEngineDSP no_output() {
         return new ToneEngineDSP(Wellen.DEFAULT_SAMPLING_RATE,
                                  Wellen.DEFAULT_AUDIOBLOCK_SIZE,
@@ -110,6 +173,51 @@ public class ToneEngineDSP extends ToneEngine implements AudioBufferRenderer, DS
         if (fAudioPlayer != null) {
             fAudioPlayer.exit();
         }
+        enable_parallel_rendering(false);
+        /* the audio thread is gone, so the pool it claimed is shut down here. the pool keeps rendering inline if an
+         * audio block is still in flight. */
+        final InstrumentRenderPool mRenderPool = fRenderPool;
+        if (mRenderPool != null) {
+            mRenderPool.shutdown();
+        }
+    }
+
+    /**
+     * enable or disable rendering instruments in parallel on all available processors. see
+     * <code>enable_parallel_rendering(int)</code>.
+     *
+     * @param state enable or disable parallel rendering
+     */
+    public void enable_parallel_rendering(boolean state) {
+        enable_parallel_rendering(state ? Runtime.getRuntime().availableProcessors() - 1 : 0);
+    }
+
+    /**
+     * render instruments in parallel on a fixed pool of worker threads. the audio thread renders a share of the
+     * instruments itself and waits for the workers to finish before the instruments are mixed in a fixed order, so the
+     * output is identical to serial rendering. parallel rendering only pays off with many or expensive instruments.
+     * the change takes effect with the next audio block.
+     *
+     * @param number_of_worker_threads number of worker threads in addition to the audio thread. <code>0</code>
+     *                                 disables parallel rendering.
+     */
+    public void enable_parallel_rendering(int number_of_worker_threads) {
+        final InstrumentRenderPool mPreviousRenderPool = fRenderPoolRequested;
+        fRenderPoolRequested = number_of_worker_threads > 0 ? new InstrumentRenderPool(number_of_worker_threads,
+                                                                                       fInstruments,
+                                                                                       fAudioblockSize) : null;
+        /* a pool that was never picked up by the audio thread is shut down here, all others by the audio thread */
+        if (mPreviousRenderPool != null && mPreviousRenderPool.claim()) {
+            mPreviousRenderPool.shutdown();
+        }
+    }
+
+    /**
+     * @return number of worker threads used for parallel rendering or <code>0</code> if parallel rendering is disabled
+     */
+    public int get_parallel_rendering_threads() {
+        final InstrumentRenderPool mRenderPool = fRenderPoolRequested;
+        return mRenderPool == null ? 0 : mRenderPool.number_of_workers();
     }
 
     /**
@@ -131,28 +239,258 @@ public class ToneEngineDSP extends ToneEngine implements AudioBufferRenderer, DS
         if (USE_AMP_FRACTION) {
             velocity /= fNumberOfInstruments;
         }
-        fInstruments.get(getInstrumentID()).note_on(note, velocity);
+        if (useEventQueue()) {
+            queueEvent(getEventTime(), Wellen.EVENT_NOTE_ON, getInstrumentID(), note, velocity, 0);
+        } else {
+            fInstruments.get(getInstrumentID()).note_on(note, velocity);
+        }
     }
 
+    /**
+     * turns off a note of the current instrument. monophonic instruments ignore the note and turn off the last played
+     * note.
+     *
+     * @param note pitch of note to turn off
+     */
     @Override
     public void note_off(int note) {
-        note_off();
+        if (useEventQueue()) {
+            queueEvent(getEventTime(), Wellen.EVENT_NOTE_OFF, getInstrumentID(), note, 0, 0);
+        } else {
+            fInstruments.get(getInstrumentID()).note_off(note);
+        }
     }
 
     @Override
     public void note_off() {
-        fInstruments.get(getInstrumentID()).note_off();
+        if (useEventQueue()) {
+            queueEvent(getEventTime(), Wellen.EVENT_NOTE_OFF, getInstrumentID(), Wellen.NO_VALUE, 0, 0);
+        } else {
+            fInstruments.get(getInstrumentID()).note_off();
+        }
     }
 
+    /**
+     * handles CC 7 ( channel volume ) and CC 10 ( pan ) for the current instrument. all other control changes are
+     * ignored.
+     *
+     * @param CC    control change number
+     * @param value value ranging from 0 to 127
+     */
     @Override
     public void control_change(int CC, int value) {
+        if (useEventQueue()) {
+            queueEvent(getEventTime(), Wellen.EVENT_CONTROLCHANGE, getInstrumentID(), CC, value, 0);
+        } else {
+            applyControlChange(fInstruments.get(getInstrumentID()), CC, value);
+        }
     }
 
     @Override
     public void pitch_bend(int value) {
         final float mRange = 110;
         final float mValue = mRange * ((float) (PApplet.constrain(value, 0, 16383) - 8192) / 8192.0f);
-        fInstruments.get(getInstrumentID()).pitch_bend(mValue);
+        if (useEventQueue()) {
+            queueEvent(getEventTime(), Wellen.EVENT_PITCHBEND, getInstrumentID(), value, 0, mValue);
+        } else {
+            fInstruments.get(getInstrumentID()).pitch_bend(mValue);
+        }
+    }
+
+    /**
+     * set a parameter of an instrument. if <code>USE_EVENT_QUEUE</code> is enabled the parameter is applied by the
+     * audio thread.
+     *
+     * @param instrument_ID ID of instrument
+     * @param parameter     parameter ID e.g {@link Wellen#INSTRUMENT_PARAMETER_ATTACK}
+     * @param value         value of parameter
+     */
+    public void set_parameter(int instrument_ID, int parameter, float value) {
+        if (useEventQueue()) {
+            queueEvent(getEventTime(), Wellen.EVENT_PARAMETER, instrument_ID, parameter, 0, value);
+        } else {
+            getInstrument(instrument_ID).set_parameter(parameter, value);
+        }
+    }
+
+    /**
+     * @param sample_time   absolute time in samples ( see <code>get_sample_time()</code> )
+     * @param instrument_ID ID of instrument
+     * @param note          pitch of note ranging from 0 to 127
+     * @param velocity      volume of note ranging from 0 to 127
+     * @return <code>true</code> if event was queued
+     */
+    public boolean schedule_note_on(long sample_time, int instrument_ID, int note, int velocity) {
+        if (USE_AMP_FRACTION) {
+            velocity /= fNumberOfInstruments;
+        }
+        return queueEvent(sample_time, Wellen.EVENT_NOTE_ON, instrument_ID, note, velocity, 0);
+    }
+
+    /**
+     * @param sample_time   absolute time in samples ( see <code>get_sample_time()</code> )
+     * @param instrument_ID ID of instrument
+     * @return <code>true</code> if event was queued
+     */
+    public boolean schedule_note_off(long sample_time, int instrument_ID) {
+        return queueEvent(sample_time, Wellen.EVENT_NOTE_OFF, instrument_ID, Wellen.NO_VALUE, 0, 0);
+    }
+
+    /**
+     * @param sample_time   absolute time in samples ( see <code>get_sample_time()</code> )
+     * @param instrument_ID ID of instrument
+     * @param note          pitch of note to turn off
+     * @return <code>true</code> if event was queued
+     */
+    public boolean schedule_note_off(long sample_time, int instrument_ID, int note) {
+        return queueEvent(sample_time, Wellen.EVENT_NOTE_OFF, instrument_ID, note, 0, 0);
+    }
+
+    /**
+     * @param sample_time   absolute time in samples ( see <code>get_sample_time()</code> )
+     * @param instrument_ID ID of instrument
+     * @param CC            control change number
+     * @param value         value ranging from 0 to 127
+     * @return <code>true</code> if event was queued
+     */
+    public boolean schedule_control_change(long sample_time, int instrument_ID, int CC, int value) {
+        return queueEvent(sample_time, Wellen.EVENT_CONTROLCHANGE, instrument_ID, CC, value, 0);
+    }
+
+    /**
+     * @param sample_time   absolute time in samples ( see <code>get_sample_time()</code> )
+     * @param instrument_ID ID of instrument
+     * @param value         pitch bend value ranging from 0 to 16383 with 8192 being the center
+     * @return <code>true</code> if event was queued
+     */
+    public boolean schedule_pitch_bend(long sample_time, int instrument_ID, int value) {
+        final float mRange = 110;
+        final float mValue = mRange * ((float) (PApplet.constrain(value, 0, 16383) - 8192) / 8192.0f);
+        return queueEvent(sample_time, Wellen.EVENT_PITCHBEND, instrument_ID, value, 0, mValue);
+    }
+
+    /**
+     * @param sample_time   absolute time in samples ( see <code>get_sample_time()</code> )
+     * @param instrument_ID ID of instrument
+     * @param parameter     parameter ID e.g {@link Wellen#INSTRUMENT_PARAMETER_ATTACK}
+     * @param value         value of parameter
+     * @return <code>true</code> if event was queued
+     */
+    public boolean schedule_parameter(long sample_time, int instrument_ID, int parameter, float value) {
+        return queueEvent(sample_time, Wellen.EVENT_PARAMETER, instrument_ID, parameter, 0, value);
+    }
+
+    /**
+     * estimates the current playback position in samples. the position is derived from the start of the audio block
+     * currently being processed and the time that has passed since then. if the tone engine does not own an audio
+     * device the position is the start of the current audio block. this method may be called from any thread.
+     *
+     * @return current position in samples
+     */
+    public long get_sample_time() {
+        long mSample;
+        long mNanos;
+        int  mVersion;
+        do {
+            mVersion = fClockVersion;
+            mSample  = fClockSample;
+            mNanos   = fClockNanos;
+        } while ((mVersion & 1) != 0 || mVersion != fClockVersion);
+        if (fAudioPlayer == null) {
+            /* without a real-time audio device ( e.g offline rendering ) the clock only advances with samples */
+            return mSample;
+        }
+        final long mElapsed = (System.nanoTime() - mNanos) * fSamplingRate / 1000000000L;
+        return mSample + Math.max(0, Math.min(mElapsed, fAudioblockSize));
+    }
+
+    /**
+     * @return queue used to pass events to the audio thread
+     */
+    public EventQueue get_event_queue() {
+        return fEventQueue;
+    }
+
+    /**
+     * add a transport that is advanced by the sample counter of the tone engine. the transport should use the same
+     * sampling rate as the tone engine.
+     *
+     * @param transport transport to advance while rendering
+     */
+    public synchronized void add_transport(Transport transport) {
+        final Transport[] mTransports = Arrays.copyOf(fTransports, fTransports.length + 1);
+        mTransports[fTransports.length] = transport;
+        fTransports = mTransports;
+    }
+
+    /**
+     * @param transport transport to remove
+     * @return <code>true</code> if transport was removed
+     */
+    public synchronized boolean remove_transport(Transport transport) {
+        for (int i = 0; i < fTransports.length; i++) {
+            if (fTransports[i] == transport) {
+                final Transport[] mTransports = new Transport[fTransports.length - 1];
+                System.arraycopy(fTransports, 0, mTransports, 0, i);
+                System.arraycopy(fTransports, i + 1, mTransports, i, mTransports.length - i);
+                fTransports = mTransports;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of samples per audio block
+     */
+    public int get_audioblock_size() {
+        return fAudioblockSize;
+    }
+
+    /**
+     * @return sampling rate of tone engine
+     */
+    public int get_sampling_rate() {
+        return fSamplingRate;
+    }
+
+    synchronized void addScheduler(EventScheduler pScheduler) {
+        final EventScheduler[] mSchedulers = Arrays.copyOf(fSchedulers, fSchedulers.length + 1);
+        mSchedulers[fSchedulers.length] = pScheduler;
+        fSchedulers = mSchedulers;
+    }
+
+    synchronized void removeScheduler(EventScheduler pScheduler) {
+        for (int i = 0; i < fSchedulers.length; i++) {
+            if (fSchedulers[i] == pScheduler) {
+                final EventScheduler[] mSchedulers = new EventScheduler[fSchedulers.length - 1];
+                System.arraycopy(fSchedulers, 0, mSchedulers, 0, i);
+                System.arraycopy(fSchedulers, i + 1, mSchedulers, i, mSchedulers.length - i);
+                fSchedulers = mSchedulers;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the tone engine renders audio to an audio device of its own
+     */
+    public boolean has_audio_device() {
+        return fAudioPlayer != null;
+    }
+
+    /**
+     * schedules the note-off on the sample clock of the tone engine, relative to the time the preceding note-on is
+     * applied.
+     *
+     * @param instrument_ID ID of instrument
+     * @param note          pitch of note to turn off
+     * @param duration      duration in seconds before the note is turned off
+     */
+    @Override
+    protected void note_off_after(int instrument_ID, int note, float duration) {
+        final long mTime = useEventQueue() || isFiringTicks() ? getEventTime() : fSampleCounter;
+        queueEvent(mTime + (long) (duration * fSamplingRate), Wellen.EVENT_NOTE_OFF, instrument_ID, note, 0, 0);
     }
 
     @Override
@@ -179,6 +517,13 @@ public class ToneEngineDSP extends ToneEngine implements AudioBufferRenderer, DS
     @Override
     public void replace_instrument(Instrument instrument) {
         if (instrument instanceof InstrumentDSP) {
+            final ArrayList<InstrumentDSP> mInstruments = new ArrayList<>(fInstruments);
+            mInstruments.set(instrument.ID(), (InstrumentDSP) instrument);
+            /* scratch buffers for the new instrument are allocated here rather than on the audio thread */
+            final InstrumentRenderPool mRenderPool = fRenderPoolRequested;
+            if (mRenderPool != null) {
+                mRenderPool.prepare(mInstruments, fAudioblockSize);
+            }
             fInstruments.set(instrument.ID(), (InstrumentDSP) instrument);
         } else {
             System.err.println("+++ WARNING @" + getClass().getSimpleName() + ".replace_instrument(Instrument) / " +
@@ -186,14 +531,35 @@ public class ToneEngineDSP extends ToneEngine implements AudioBufferRenderer, DS
         }
     }
 
+    /**
+     * left and right buffer requested one after another come from the same snapshot. a new snapshot is acquired when
+     * a buffer is requested again, i.e usually once per frame ( see {@link ScopeTap#read(int)} ). buffers should be
+     * requested from a single thread ( e.g the drawing thread ) and once per frame rather than once per sample.
+     *
+     * @return snapshot of most recent audio block of left ( or mono ) channel. the array remains unchanged until the
+     *         next snapshot is acquired.
+     */
     @Override
     public float[] get_buffer_left() {
-        return fCurrentBufferLeft;
+        return fScopeTap.read(0);
     }
 
+    /**
+     * see <code>get_buffer_left()</code>
+     *
+     * @return snapshot of most recent audio block of right channel or <code>null</code> if output is mono. the array
+     *         remains unchanged until the next snapshot is acquired.
+     */
     @Override
     public float[] get_buffer_right() {
-        return fCurrentBufferRight;
+        return fScopeTap.read(1);
+    }
+
+    /**
+     * @return tap that provides snapshots of the output of the tone engine
+     */
+    public ScopeTap get_scope_tap() {
+        return fScopeTap;
     }
 
     @Override
@@ -213,6 +579,7 @@ public class ToneEngineDSP extends ToneEngine implements AudioBufferRenderer, DS
 
     @Override
     public float output() {
+        advanceSample();
         float mSignal = getNextInstrumentSampleMono();
 
         if (fReverbEnabled) {
@@ -221,22 +588,26 @@ public class ToneEngineDSP extends ToneEngine implements AudioBufferRenderer, DS
 
         mSignal *= fGain.get_gain();
 
-        if (fCurrentBufferLeft == null) {
-            fCurrentBufferLeft = new float[Wellen.DEFAULT_AUDIOBLOCK_SIZE];
+        fScopeBufferLeft[fScopeBufferCounter] = mSignal;
+        fScopeBufferCounter++;
+        if (fScopeBufferCounter == fScopeBufferLeft.length) {
+            fScopeTap.write(0, fScopeBufferLeft, 0, fScopeBufferCounter);
+            fScopeTap.publish(fScopeBufferCounter);
+            fScopeBufferCounter = 0;
         }
-        fCurrentBufferLeft[fCurrentBufferCounter] = mSignal;
-        fCurrentBufferCounter++;
-        fCurrentBufferCounter %= fCurrentBufferLeft.length;
 
         return mSignal;
     }
 
     @Override
     public Signal output_signal() {
+        advanceSample();
         Signal mSignalSum = getNextInstrumentSampleStereo();
 
-        float[] pSignalLeft  = new float[]{mSignalSum.left()};
-        float[] pSignalRight = new float[]{mSignalSum.right()};
+        final float[] pSignalLeft  = fSampleLeft;
+        final float[] pSignalRight = fSampleRight;
+        pSignalLeft[0]  = mSignalSum.left();
+        pSignalRight[0] = mSignalSum.right();
         for (EffectStereo mEffect : fEffects) {
             mEffect.out(pSignalLeft, pSignalRight);
         }
@@ -250,58 +621,65 @@ public class ToneEngineDSP extends ToneEngine implements AudioBufferRenderer, DS
         mSignalSum.left(pSignalLeft[0]);
         mSignalSum.right(pSignalRight[0]);
 
-        if (fCurrentBufferLeft == null) {
-            fCurrentBufferLeft = new float[Wellen.DEFAULT_AUDIOBLOCK_SIZE];
-        }
-        if (fCurrentBufferRight == null) {
-            fCurrentBufferRight = new float[Wellen.DEFAULT_AUDIOBLOCK_SIZE];
+        fScopeBufferLeft[fScopeBufferCounter]  = mSignalSum.left();
+        fScopeBufferRight[fScopeBufferCounter] = mSignalSum.right();
+        fScopeBufferCounter++;
+        if (fScopeBufferCounter == fScopeBufferLeft.length) {
+            fScopeTap.write(0, fScopeBufferLeft, 0, fScopeBufferCounter);
+            fScopeTap.write(1, fScopeBufferRight, 0, fScopeBufferCounter);
+            fScopeTap.publish(fScopeBufferCounter);
+            fScopeBufferCounter = 0;
         }
-        fCurrentBufferLeft[fCurrentBufferCounter]  = mSignalSum.left();
-        fCurrentBufferRight[fCurrentBufferCounter] = mSignalSum.right();
-        fCurrentBufferCounter++;
-        fCurrentBufferCounter %= fCurrentBufferLeft.length;
 
         return mSignalSum;
     }
 
     public void audioblock(float[] signal) {
-        for (int i = 0; i < signal.length; i++) {
-            signal[i] = getNextInstrumentSampleMono();
-            signal[i] += getNextSampleBankMono();
-        }
-
-
-        if (fReverbEnabled) {
-            fReverb.process(signal, signal, signal, signal);
-        }
-
-        fGain.out(signal, null);
-
-        fCurrentBufferLeft = signal;
+        renderMono(signal, signal.length);
     }
 
     public void audioblock(float[] signal_left, float[] signal_right) {
-        for (int i = 0; i < signal_left.length; i++) {
-            final Signal mSignalSum = getNextInstrumentSampleStereo();
-            mSignalSum.add(getNextSampleBankStereo());
+        renderStereo(signal_left, signal_right, signal_left.length);
+    }
 
-            signal_left[i]  = mSignalSum.left();
-            signal_right[i] = mSignalSum.right();
+    /**
+     * renders a block of the tone engine's output into caller-owned buffers. a single buffer is rendered as mono signal,
+     * two or more buffers are rendered as stereo signal with additional channels being cleared. ranges that do not
+     * cover the complete buffers are rendered into a preallocated buffer in segments of at most one audio block.
+     *
+     * @param output_signal buffers to render into with one buffer per channel
+     * @param offset        index of the first sample to render
+     * @param length        number of samples to render
+     */
+    @Override
+    public void render(float[][] output_signal, int offset, int length) {
+        if (output_signal.length == 0) {
+            return;
         }
-
-        synchronized (fEffects) {
-            for (EffectStereo mEffect : fEffects) {
-                mEffect.out(signal_left, signal_right);
+        if (offset == 0 && length == output_signal[0].length) {
+            if (output_signal.length == 1) {
+                audioblock(output_signal[0]);
+            } else {
+                audioblock(output_signal[0], output_signal[1]);
+            }
+        } else {
+            int mRendered = 0;
+            while (mRendered < length) {
+                final int mLength = Math.min(fAudioblockSize, length - mRendered);
+                if (output_signal.length == 1) {
+                    renderMono(fRenderBuffer[0], mLength);
+                    System.arraycopy(fRenderBuffer[0], 0, output_signal[0], offset + mRendered, mLength);
+                } else {
+                    renderStereo(fRenderBuffer[0], fRenderBuffer[1], mLength);
+                    System.arraycopy(fRenderBuffer[0], 0, output_signal[0], offset + mRendered, mLength);
+                    System.arraycopy(fRenderBuffer[1], 0, output_signal[1], offset + mRendered, mLength);
+                }
+                mRendered += mLength;
             }
         }
-
-        fGain.out(signal_left, signal_right);
-
-        if (fReverbEnabled) {
-            fReverb.process(signal_left, signal_right, signal_left, signal_right);
+        for (int j = 2; j < output_signal.length; j++) {
+            Arrays.fill(output_signal[j], offset, offset + length, 0.0f);
         }
-        fCurrentBufferLeft  = signal_left;
-        fCurrentBufferRight = signal_right;
     }
 
     public float get_gain() {
@@ -331,25 +709,356 @@ public class ToneEngineDSP extends ToneEngine implements AudioBufferRenderer, DS
     private float getNextSampleBankMono() {
         float mSignal = 0;
         for (Sampler s : fSampleBank) {
-            mSignal += s.output();
+            if (!s.is_idle()) {
+                mSignal += s.output();
+            }
         }
         mSignal = clamp(mSignal);
         return mSignal;
     }
 
-    private Signal getNextSampleBankStereo() {
-        final Signal mSignalSum = new Signal();
-        for (Sampler s : fSampleBank) {
-            final float mSignal = clamp(s.output());
-            mSignalSum.left_add(mSignal);
-            mSignalSum.right_add(mSignal);
+    private InstrumentDSP getInstrument(int pInstrumentID) {
+        return fInstruments.get(Math.max(pInstrumentID, 0) % fInstruments.size());
+    }
+
+    private long getEventTime() {
+        if (isFiringTicks()) {
+            /* events sent from a tick listener on the audio thread are applied at the tick */
+            return fTickTime;
+        }
+        final EventScheduler mScheduler = getDispatchingScheduler();
+        if (mScheduler != null) {
+            /* events sent while a scheduler evaluates a tick ahead of time are applied at the tick */
+            return mScheduler.get_event_time();
+        }
+        return get_sample_time() + fAudioblockSize;
+    }
+
+    private boolean useEventQueue() {
+        return USE_EVENT_QUEUE || getDispatchingScheduler() != null;
+    }
+
+    /**
+     * @return <code>true</code> if the calling thread is the audio thread firing ticks of the transports
+     */
+    private boolean isFiringTicks() {
+        return fTickThread == Thread.currentThread();
+    }
+
+    /**
+     * @return scheduler that evaluates a tick on the calling thread or <code>null</code>
+     */
+    private EventScheduler getDispatchingScheduler() {
+        final EventScheduler[] mSchedulers = fSchedulers;
+        if (mSchedulers.length == 0) {
+            return null;
+        }
+        final Thread mThread = Thread.currentThread();
+        for (EventScheduler mScheduler : mSchedulers) {
+            if (mScheduler.getDispatchThread() == mThread) {
+                return mScheduler;
+            }
+        }
+        return null;
+    }
+
+    private boolean queueEvent(long pTime, int pEvent, int pInstrument, int pDataA, int pDataB, float pValue) {
+        final boolean mQueued = fEventQueue.offer(pTime, pEvent, pInstrument, pDataA, pDataB, pValue);
+        if (!mQueued && VERBOSE) {
+            System.err.println("+++ WARNING @" + getClass().getSimpleName() + " / event queue is full. event is " +
+                               "dropped.");
+        }
+        return mQueued;
+    }
+
+    private void beginBlock() {
+        final InstrumentRenderPool mRenderPool = fRenderPoolRequested;
+        if (fRenderPool != mRenderPool && (mRenderPool == null || mRenderPool.claim())) {
+            if (fRenderPool != null) {
+                fRenderPool.shutdown();
+            }
+            fRenderPool = mRenderPool;
+        }
+        fClockVersion++;
+        fClockSample = fSampleCounter;
+        fClockNanos  = System.nanoTime();
+        fClockVersion++;
+        fEventQueue.collect();
+    }
+
+    private void advanceSample() {
+        if (fSampleCounter % fAudioblockSize == 0) {
+            beginBlock();
+        }
+        fireTicks(0);
+        dispatchEvents(0, 1);
+        advanceTransports(1);
+        fSampleCounter++;
+    }
+
+    /**
+     * fires ticks of all transports that are due at <code>pOffset</code> and collects events sent by tick listeners.
+     */
+    private void fireTicks(int pOffset) {
+        final Transport[] mTransports = fTransports;
+        if (mTransports.length == 0) {
+            return;
+        }
+        fTickTime   = fSampleCounter + pOffset;
+        fTickThread = Thread.currentThread();
+        int mFired = 0;
+        try {
+            for (Transport mTransport : mTransports) {
+                mFired += mTransport.fire_due_ticks();
+            }
+        } finally {
+            fTickThread = null;
+        }
+        if (mFired > 0) {
+            fEventQueue.collect();
+        }
+    }
+
+    /**
+     * @return offset of the next tick of any transport if it comes before <code>pEnd</code>, <code>pEnd</code> otherwise
+     */
+    private int nextTick(int pOffset, int pEnd) {
+        int mEnd = pEnd;
+        for (Transport mTransport : fTransports) {
+            final int mSamples = mTransport.samples_until_next_tick();
+            if (mSamples < mEnd - pOffset) {
+                mEnd = pOffset + mSamples;
+            }
+        }
+        return mEnd;
+    }
+
+    private void advanceTransports(int pSamples) {
+        for (Transport mTransport : fTransports) {
+            mTransport.advance(pSamples);
+        }
+    }
+
+    /**
+     * applies all events that are due at <code>pOffset</code> and returns the offset of the next event within the
+     * current block or <code>pLength</code> if there is none.
+     */
+    private int dispatchEvents(int pOffset, int pLength) {
+        while (fEventQueue.has_event_before(fSampleCounter + pOffset + 1)) {
+            dispatchEvent();
+            fEventQueue.pop();
+        }
+        if (fEventQueue.has_event_before(fSampleCounter + pLength)) {
+            return (int) (fEventQueue.time() - fSampleCounter);
+        }
+        return pLength;
+    }
+
+    private void dispatchEvent() {
+        final InstrumentDSP mInstrument = getInstrument(fEventQueue.instrument());
+        switch (fEventQueue.event()) {
+            case Wellen.EVENT_NOTE_ON:
+                mInstrument.note_on(fEventQueue.data_a(), fEventQueue.data_b());
+                break;
+            case Wellen.EVENT_NOTE_OFF:
+                if (fEventQueue.data_a() == Wellen.NO_VALUE) {
+                    mInstrument.note_off();
+                } else {
+                    mInstrument.note_off(fEventQueue.data_a());
+                }
+                break;
+            case Wellen.EVENT_CONTROLCHANGE:
+                applyControlChange(mInstrument, fEventQueue.data_a(), fEventQueue.data_b());
+                break;
+            case Wellen.EVENT_PITCHBEND:
+                mInstrument.pitch_bend(fEventQueue.value());
+                break;
+            case Wellen.EVENT_PARAMETER:
+                mInstrument.set_parameter(fEventQueue.data_a(), fEventQueue.value());
+                break;
+        }
+    }
+
+    private static void applyControlChange(Instrument pInstrument, int pCC, int pValue) {
+        final int mValue = Wellen.clamp127(pValue);
+        if (pCC == 7) {
+            pInstrument.set_volume(mValue / 127.0f);
+        } else if (pCC == 10) {
+            pInstrument.set_pan((mValue - 64) / 64.0f);
+        }
+    }
+
+    /*
+     * instrument buffers always cover the full audio block, because instruments render into the same range of their
+     * buffer as the segment of the audio block. buffers are preallocated for the configured audio block size and only
+     * grow if a caller passes a larger block.
+     */
+    private float[][] getInstrumentBuffer(int pChannels, int pLength) {
+        if (fInstrumentBuffers.length <= pChannels || fInstrumentBuffers[1][0].length < pLength) {
+            final int mChannels = Math.max(pChannels, Math.max(fInstrumentBuffers.length - 1, Wellen.SIGNAL_STEREO));
+            final float[][] mBuffers = new float[mChannels][pLength];
+            fInstrumentBuffers = new float[mChannels + 1][][];
+            for (int j = 0; j <= mChannels; j++) {
+                fInstrumentBuffers[j] = Arrays.copyOf(mBuffers, j);
+            }
+        }
+        return fInstrumentBuffers[pChannels];
+    }
+
+    /*
+     * renders the first `pLength` samples of the buffers. buffers may be longer than `pLength` when a partial block is
+     * rendered into the preallocated render buffer.
+     */
+    private void renderMono(float[] pSignal, int pLength) {
+        beginBlock();
+        Arrays.fill(pSignal, 0, pLength, 0.0f);
+        int mOffset = 0;
+        while (mOffset < pLength) {
+            fireTicks(mOffset);
+            final int mEnd = nextTick(mOffset, dispatchEvents(mOffset, pLength));
+            renderInstrumentsMono(pSignal, mOffset, mEnd - mOffset, pLength);
+            advanceTransports(mEnd - mOffset);
+            mOffset = mEnd;
+        }
+        fSampleCounter += pLength;
+        for (int i = 0; i < pLength; i++) {
+            pSignal[i] = clamp(pSignal[i]);
+            pSignal[i] += getNextSampleBankMono();
+        }
+
+        if (fReverbEnabled) {
+            fReverb.process(pSignal, pSignal, pSignal, pSignal, 0, pLength);
+        }
+
+        BlockKernels.gain(pSignal, fGain.get_gain(), 0, pLength);
+
+        fScopeTap.write(0, pSignal, 0, pLength);
+        fScopeTap.publish(pLength);
+    }
+
+    /*
+     * effects only process complete arrays. when a partial block is rendered they process the complete render buffer
+     * with its unused tail being silent.
+     */
+    private void renderStereo(float[] pSignalLeft, float[] pSignalRight, int pLength) {
+        beginBlock();
+        Arrays.fill(pSignalLeft, 0.0f);
+        Arrays.fill(pSignalRight, 0.0f);
+        int mOffset = 0;
+        while (mOffset < pLength) {
+            fireTicks(mOffset);
+            final int mEnd = nextTick(mOffset, dispatchEvents(mOffset, pLength));
+            renderInstrumentsStereo(pSignalLeft, pSignalRight, mOffset, mEnd - mOffset, pLength);
+            advanceTransports(mEnd - mOffset);
+            mOffset = mEnd;
+        }
+        fSampleCounter += pLength;
+        for (int k = 0; k < fSampleBank.size(); k++) {
+            final Sampler mSampler = fSampleBank.get(k);
+            if (mSampler.is_idle()) {
+                continue;
+            }
+            for (int i = 0; i < pLength; i++) {
+                final float mSignal = clamp(mSampler.output());
+                pSignalLeft[i] += mSignal;
+                pSignalRight[i] += mSignal;
+            }
+        }
+
+        synchronized (fEffects) {
+            for (EffectStereo mEffect : fEffects) {
+                mEffect.out(pSignalLeft, pSignalRight);
+            }
+        }
+
+        BlockKernels.gain(pSignalLeft, fGain.get_gain(), 0, pLength);
+        BlockKernels.gain(pSignalRight, fGain.get_gain(), 0, pLength);
+
+        if (fReverbEnabled) {
+            fReverb.process(pSignalLeft, pSignalRight, pSignalLeft, pSignalRight, 0, pLength);
+        }
+        fScopeTap.write(0, pSignalLeft, 0, pLength);
+        fScopeTap.write(1, pSignalRight, 0, pLength);
+        fScopeTap.publish(pLength);
+    }
+
+    private void renderInstrumentsMono(float[] pSignal, int pOffset, int pLength, int pBlockLength) {
+        if (pLength <= 0) {
+            return;
+        }
+        final int mBlockLength = pBlockLength;
+        if (fRenderPool != null) {
+            fRenderPool.render(fInstruments, false, pOffset, pLength, mBlockLength);
+        }
+        for (int k = 0; k < fInstruments.size(); k++) {
+            final InstrumentDSP mInstrument = fInstruments.get(k);
+            if (fRenderPool != null ? !fRenderPool.is_active(k) : mInstrument.is_idle()) {
+                continue;
+            }
+            final int           mChannels   = mInstrument.get_channels();
+            final float[][]     mBuffer;
+            if (fRenderPool != null) {
+                mBuffer = fRenderPool.buffer(k);
+            } else {
+                mBuffer = getInstrumentBuffer(Math.max(mChannels, 1), mBlockLength);
+                mInstrument.render(mBuffer, pOffset, pLength);
+            }
+            /* if instrument has multiple channels accumulate them into one */
+            for (int j = 0; j < mChannels; j++) {
+                BlockKernels.add(pSignal, mBuffer[j], pOffset, pLength);
+            }
+        }
+    }
+
+    private void renderInstrumentsStereo(float[] pSignalLeft,
+                                         float[] pSignalRight,
+                                         int pOffset,
+                                         int pLength,
+                                         int pBlockLength) {
+        if (pLength <= 0) {
+            return;
+        }
+        final int mBlockLength = pBlockLength;
+        if (fRenderPool != null) {
+            fRenderPool.render(fInstruments, true, pOffset, pLength, mBlockLength);
+        }
+        for (int k = 0; k < fInstruments.size(); k++) {
+            final InstrumentDSP mInstrument = fInstruments.get(k);
+            if (fRenderPool != null ? !fRenderPool.is_active(k) : mInstrument.is_idle()) {
+                continue;
+            }
+            final int           mChannels   = mInstrument.get_channels();
+            if (mChannels > 2 && VERBOSE) {
+                System.err.println("+++ @WARNING " + getClass().getSimpleName() + ".audioblock(stereo) /" + " " + "instruments with " + "more than 2 channels are " + "not supported in " + "this tone engine. all extra channels are " + "ignored.");
+            }
+            final float[][] mBuffer;
+            if (fRenderPool != null) {
+                mBuffer = fRenderPool.buffer(k);
+            } else {
+                mBuffer = getInstrumentBuffer(mChannels == 1 ? 1 : Wellen.SIGNAL_STEREO, mBlockLength);
+                mInstrument.render(mBuffer, pOffset, pLength);
+            }
+            if (mChannels == 1) {
+                /* convert mono instrument to stereo (default) */
+                fPan.set_panning(mInstrument.get_pan());
+                final float   mGainLeft  = fPan.get_gain_left();
+                final float   mGainRight = fPan.get_gain_right();
+                BlockKernels.mix(pSignalLeft, mBuffer[0], mGainLeft, pOffset, pLength);
+                BlockKernels.mix(pSignalRight, mBuffer[0], mGainRight, pOffset, pLength);
+            } else if (mChannels > 1) {
+                /* stereo -- more than 2 channels are ignored */
+                BlockKernels.add(pSignalLeft, mBuffer[0], pOffset, pLength);
+                BlockKernels.add(pSignalRight, mBuffer[1], pOffset, pLength);
+            }
         }
-        return mSignalSum;
     }
 
     private float getNextInstrumentSampleMono() {
         float mSignal = 0;
         for (InstrumentDSP mInstrument : fInstruments) {
+            if (mInstrument.is_idle()) {
+                continue;
+            }
             final Signal mSignals = mInstrument.output_signal();
             /* if instrument has multiple channels accumulate them into one */
             for (int j = 0; j < mSignals.signal.length; j++) {
@@ -363,6 +1072,9 @@ public class ToneEngineDSP extends ToneEngine implements AudioBufferRenderer, DS
     private Signal getNextInstrumentSampleStereo() {
         final Signal mSignalSum = new Signal();
         for (InstrumentDSP mInstrument : fInstruments) {
+            if (mInstrument.is_idle()) {
+                continue;
+            }
             Signal mSignal = mInstrument.output_signal();
             if (mInstrument.get_channels() == 1) {
                 /* convert mono instrument to stereo (default) */
@@ -19,6 +19,9 @@
 
 package wellen;
 
+import wellen.dsp.DSPNodeActivity;
+import wellen.dsp.DSPNodeBlockAdapter;
+import wellen.dsp.DSPNodeOutputBlock;
 import wellen.dsp.DSPNodeOutputSignal;
 import wellen.dsp.Signal;
 
@@ -50,8 +53,14 @@ import static wellen.Wellen.SIGNAL_STEREO;
  * positioned via panning ( see {@link Track} <code>pan()</code> ). if a {@link Track} outputs a stereo signal the
  * output ignores panning and just uses the signal unchanged. if a {@link Track} outputs more than channels than a
  * stereo signal all additional channels are ignored.
+ * <p>
+ * a {@link Track} may also be rendered as a block via <code>void&nbsp;render(float[][],&nbsp;int,&nbsp;int)</code>
+ * which does not create any objects per sample. child tracks that override <code>Signal&nbsp;output_signal()</code>
+ * but not <code>render(float[][],&nbsp;int,&nbsp;int)</code> are still rendered per sample. if
+ * <code>render(float[][],&nbsp;int,&nbsp;int)</code> is overridden make sure to call
+ * <code>render_update(float[][],&nbsp;int,&nbsp;int)</code> to collect signals from child tracks.
  */
-public class Track implements DSPNodeOutputSignal, Loopable {
+public class Track implements DSPNodeOutputSignal, DSPNodeOutputBlock, DSPNodeActivity, Loopable {
 
     public static boolean VERBOSE = false;
     @SuppressWarnings("SpellCheckingInspection")
@@ -72,6 +81,9 @@ public class Track implements DSPNodeOutputSignal, Loopable {
     private float fVolume;
     private int mBeat = SIGNAL_PROCESSING_IGNORE_IN_OUTPOINTS;
     private final ArrayList<Track> mTracks = new ArrayList<>();
+    private final boolean fRendersPerSample;
+    private final boolean fRendersChildrenOnly;
+    private final ChildMixer fChildMixer = new ChildMixer();
 
     public Track() {
         this(1.0f, NO_INPOINT, NO_OUTPOINT);
@@ -84,6 +96,20 @@ public class Track implements DSPNodeOutputSignal, Loopable {
         fLoop = NO_LOOP;
         fPan = new Pan();
         ID = oTrackUID++;
+        fRendersPerSample = DSPNodeBlockAdapter.overrides(this, Track.class, "output_signal") &&
+                            !DSPNodeBlockAdapter.overrides(this,
+                                                           Track.class,
+                                                           "render",
+                                                           float[][].class,
+                                                           int.class,
+                                                           int.class);
+        fRendersChildrenOnly = !DSPNodeBlockAdapter.overrides(this, Track.class, "output_signal") &&
+                               !DSPNodeBlockAdapter.overrides(this,
+                                                              Track.class,
+                                                              "render",
+                                                              float[][].class,
+                                                              int.class,
+                                                              int.class);
     }
 
     public static void println(String s) {
@@ -249,6 +275,9 @@ public class Track implements DSPNodeOutputSignal, Loopable {
     public Signal output_signal_update() {
         final Signal mSignalSum = new Signal();
         for (Track mTrack : mTracks) {
+            if (mTrack.is_idle()) {
+                continue;
+            }
             if (mBeat == SIGNAL_PROCESSING_IGNORE_IN_OUTPOINTS || evaluate_in_outpoints(mTrack, mBeat)) {
                 Signal mTrackOutputSignal = mTrack.output_signal();
                 if (mTrackOutputSignal.num_channels() == SIGNAL_MONO) {
@@ -276,6 +305,73 @@ public class Track implements DSPNodeOutputSignal, Loopable {
         return mSignalSum;
     }
 
+    /**
+     * callback method that renders a block of audio signals from child tracks into the first two channels of
+     * <code>output_signal</code>. this method can be overridden to implement custom behavior, however, if doing so make
+     * sure to call <code>render_update(float[][],&nbsp;int,&nbsp;int)</code> to collect signals from child tracks.
+     *
+     * @param output_signal buffers to render into with one buffer per channel
+     * @param offset        index of the first sample to render
+     * @param length        number of samples to render
+     */
+    @Override
+    public void render(float[][] output_signal, int offset, int length) {
+        if (fRendersPerSample) {
+            for (int i = offset; i < offset + length; i++) {
+                DSPNodeBlockAdapter.write(output_signal(), output_signal, i);
+            }
+        } else {
+            render_update(output_signal, offset, length);
+        }
+    }
+
+    /**
+     * accumulates a block of signals from child tracks and if applicable maps mono signals into stereo space. the
+     * result is written into the first two channels of <code>output_signal</code>, additional channels are cleared.
+     *
+     * @param output_signal buffers to render into with one buffer per channel
+     * @param offset        index of the first sample to render
+     * @param length        number of samples to render
+     */
+    public void render_update(float[][] output_signal, int offset, int length) {
+        fChildMixer.clear(output_signal, offset, length);
+        for (Track mTrack : mTracks) {
+            if (mTrack.is_idle()) {
+                /* idle tracks are silent, skip rendering and mixing */
+                continue;
+            }
+            if (mBeat == SIGNAL_PROCESSING_IGNORE_IN_OUTPOINTS || evaluate_in_outpoints(mTrack, mBeat)) {
+                fChildMixer.mix(output_signal,
+                                offset,
+                                length,
+                                mTrack,
+                                mTrack.fRendersPerSample,
+                                mTrack.pan(),
+                                mTrack.get_volume());
+            }
+        }
+    }
+
+    /**
+     * a track that only collects the signals of its child tracks is idle if all of its children are idle. a track that
+     * overrides <code>output_signal()</code> or <code>render(float[][],&nbsp;int,&nbsp;int)</code> is never idle
+     * unless it also overrides this method, e.g to report the state of an instrument or sampler it plays.
+     *
+     * @return <code>true</code> if track is silent until one of its children is triggered again
+     */
+    @Override
+    public boolean is_idle() {
+        if (!fRendersChildrenOnly) {
+            return false;
+        }
+        for (int i = 0; i < mTracks.size(); i++) {
+            if (!mTracks.get(i).is_idle()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public Pan pan() {
         return fPan;
     }
@@ -0,0 +1,266 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen;
+
+import java.util.Arrays;
+
+/**
+ * musical clock that derives ticks from a sample counter instead of a system timer. the owner of the sample counter (
+ * e.g {@link ToneEngineDSP} or {@link wellen.dsp.DSP} ) advances the transport while rendering audio, so that ticks
+ * never drift against the audio clock and listeners are called on the audio thread.
+ * <p>
+ * the tempo is a fractional value in beats per minute and each beat is divided into a number of ticks. every second
+ * tick can be delayed by a swing amount. the position of the transport is kept in fractional ticks ( see
+ * {@link #get_position()} ) which provides a sub-tick resolution e.g for synchronizing modulations.
+ * <p>
+ * a host drives the transport with three calls per rendered span of samples:
+ * <pre>
+ *     transport.fire_due_ticks();
+ *     final int mSamples = Math.min(transport.samples_until_next_tick(), length);
+ *     // render mSamples samples
+ *     transport.advance(mSamples);
+ * </pre>
+ * or with {@link #process(int)} if ticks only need to be resolved to the start of a block.
+ */
+public class Transport {
+
+    private static final double         EPSILON = 1.0E-9;
+    private final        int            fSamplingRate;
+    private volatile     float          fBPM;
+    private volatile     BeatListener[] fListeners;
+    private              long           fNextTick;
+    private              double         fPosition;
+    private volatile     boolean        fRunning;
+    private              long           fSamplePosition;
+    private volatile     float          fSwing;
+    private volatile     int            fTicksPerBeat;
+    private volatile     double         fTicksPerSample;
+
+    /**
+     * @param sampling_rate sampling rate of the sample counter that drives the transport
+     */
+    public Transport(int sampling_rate) {
+        fSamplingRate = sampling_rate;
+        fListeners    = new BeatListener[0];
+        fTicksPerBeat = 1;
+        fRunning      = true;
+    }
+
+    public Transport() {
+        this(Wellen.DEFAULT_SAMPLING_RATE);
+    }
+
+    /**
+     * @param listener listener that is called with the tick count of each tick. listeners are called on the thread that
+     *                 advances the transport and should not block.
+     */
+    public synchronized void add(BeatListener listener) {
+        final BeatListener[] mListeners = Arrays.copyOf(fListeners, fListeners.length + 1);
+        mListeners[fListeners.length] = listener;
+        fListeners = mListeners;
+    }
+
+    public synchronized boolean remove(BeatListener listener) {
+        for (int i = 0; i < fListeners.length; i++) {
+            if (fListeners[i] == listener) {
+                final BeatListener[] mListeners = new BeatListener[fListeners.length - 1];
+                System.arraycopy(fListeners, 0, mListeners, 0, i);
+                System.arraycopy(fListeners, i + 1, mListeners, i, mListeners.length - i);
+                fListeners = mListeners;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param BPM tempo in beats per minute. 0 pauses the transport at its current position.
+     */
+    public void set_bpm(float BPM) {
+        fBPM = Math.max(BPM, 0);
+        updateTicksPerSample();
+    }
+
+    public float get_bpm() {
+        return fBPM;
+    }
+
+    /**
+     * @param ticks_per_beat number of ticks per beat e.g 4 for sixteenth notes in a 4/4 measure
+     */
+    public void set_ticks_per_beat(int ticks_per_beat) {
+        fTicksPerBeat = Math.max(ticks_per_beat, 1);
+        updateTicksPerSample();
+    }
+
+    public int get_ticks_per_beat() {
+        return fTicksPerBeat;
+    }
+
+    /**
+     * @param swing delay of every second tick as a fraction of a tick ( <code>[0, 1)</code> ). 0 plays straight ticks,
+     *              <code>1/3</code> plays a triplet feel.
+     */
+    public void set_swing(float swing) {
+        fSwing = Wellen.clamp(swing, 0.0f, 0.99f);
+    }
+
+    public float get_swing() {
+        return fSwing;
+    }
+
+    /**
+     * @return sampling rate of the sample counter that drives the transport
+     */
+    public int get_sampling_rate() {
+        return fSamplingRate;
+    }
+
+    public void start() {
+        fRunning = true;
+    }
+
+    public void stop() {
+        fRunning = false;
+    }
+
+    public boolean is_running() {
+        return fRunning;
+    }
+
+    /**
+     * move transport back to its first tick. must not be called while the transport is advanced on another thread.
+     */
+    public void reset() {
+        fPosition       = 0;
+        fNextTick       = 0;
+        fSamplePosition = 0;
+    }
+
+    /**
+     * @return number of the most recently fired tick or <code>-1</code> if no tick has fired yet
+     */
+    public int get_tick_count() {
+        return (int) (fNextTick - 1);
+    }
+
+    /**
+     * @return number of the current beat or <code>-1</code> if no tick has fired yet
+     */
+    public int get_beat_count() {
+        return (int) Math.floorDiv(fNextTick - 1, (long) fTicksPerBeat);
+    }
+
+    /**
+     * @return position of transport in fractional ticks
+     */
+    public double get_position() {
+        return fPosition;
+    }
+
+    /**
+     * @return position of transport in fractional beats
+     */
+    public double get_beat_position() {
+        return fPosition / fTicksPerBeat;
+    }
+
+    /**
+     * @return number of samples the transport has advanced while running
+     */
+    public long get_sample_position() {
+        return fSamplePosition;
+    }
+
+    /**
+     * @return number of samples until the next tick is due. <code>0</code> if a tick is due now and
+     *         <code>Integer.MAX_VALUE</code> if the transport is stopped or the tempo is 0.
+     */
+    public int samples_until_next_tick() {
+        final double mTicksPerSample = fTicksPerSample;
+        if (!fRunning || mTicksPerSample <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        final double mSamples = (getTickPosition(fNextTick) - fPosition) / mTicksPerSample;
+        if (mSamples <= EPSILON) {
+            return 0;
+        }
+        return (int) Math.min(Math.ceil(mSamples - EPSILON), Integer.MAX_VALUE);
+    }
+
+    /**
+     * call listeners of all ticks that are due at the current position.
+     *
+     * @return number of fired ticks
+     */
+    public int fire_due_ticks() {
+        int mFired = 0;
+        while (samples_until_next_tick() == 0) {
+            fireTick((int) fNextTick);
+            fNextTick++;
+            mFired++;
+        }
+        return mFired;
+    }
+
+    /**
+     * move transport forward without firing ticks. a host must not advance past the next tick ( see
+     * {@link #samples_until_next_tick()} ) without calling {@link #fire_due_ticks()}.
+     *
+     * @param samples number of samples
+     */
+    public void advance(int samples) {
+        if (fRunning) {
+            fPosition += samples * fTicksPerSample;
+            fSamplePosition += samples;
+        }
+    }
+
+    /**
+     * advance transport by a block of samples and fire all ticks within the block when they become due. listeners of
+     * ticks inside the block are called before this method returns, i.e ticks are resolved to the start of the block.
+     *
+     * @param length number of samples in block
+     */
+    public void process(int length) {
+        int mOffset = 0;
+        while (mOffset < length) {
+            fire_due_ticks();
+            final int mSamples = Math.min(samples_until_next_tick(), length - mOffset);
+            advance(mSamples);
+            mOffset += mSamples;
+        }
+    }
+
+    private double getTickPosition(long pTick) {
+        return (pTick & 1) == 1 ? pTick + fSwing : pTick;
+    }
+
+    private void updateTicksPerSample() {
+        fTicksPerSample = fBPM / 60.0 * fTicksPerBeat / fSamplingRate;
+    }
+
+    private void fireTick(int pTick) {
+        final BeatListener[] mListeners = fListeners;
+        for (BeatListener mListener : mListeners) {
+            mListener.beat(pTick);
+        }
+    }
+}
@@ -2,27 +2,28 @@ package wellen;
 
 import processing.core.PApplet;
 
-import java.util.ArrayList;
+import java.io.ByteArrayOutputStream;
 
 /**
- * parses sample data to WAV file format ( as bytes ) and vice versa.
+ * parses sample data to WAV file format ( as bytes ) and vice versa. for large files or files that are written
+ * incrementally use {@link WAVReader} and {@link WAVWriter} which stream samples from and to a file.
  */
 public class WAVConverter {
 
     // @TODO(write header could also support `WAVE_FORMAT_PCM_32BIT_FLOAT`)
     // @TODO(currently fixed to little endianness)
 
-    public static        boolean         VERBOSE        = false;
-    private static final String          WAV_CHUNK_DATA = "data";
-    private static final String          WAV_CHUNK_FMT_ = "fmt ";
-    private static final String          WAV_CHUNK_RIFF = "RIFF";
-    private static final String          WAV_CHUNK_WAVE = "WAVE";
-    private final        int             mBitsPerSample;
-    private final        int             mChannels;
-    private final        int             mCompressionFormat;
-    private final        ArrayList<Byte> mData;
-    private final        ArrayList<Byte> mHeader;
-    private final        int             mSampleRate;
+    public static        boolean               VERBOSE        = false;
+    private static final String                WAV_CHUNK_DATA = "data";
+    private static final String                WAV_CHUNK_FMT_ = "fmt ";
+    private static final String                WAV_CHUNK_RIFF = "RIFF";
+    private static final String                WAV_CHUNK_WAVE = "WAVE";
+    private final        int                   mBitsPerSample;
+    private final        int                   mChannels;
+    private final        int                   mCompressionFormat;
+    private final        ByteArrayOutputStream mData;
+    private final        ByteArrayOutputStream mHeader;
+    private final        int                   mSampleRate;
 
     public WAVConverter(Info pInfo) {
         this(pInfo.channels, pInfo.bits_per_sample, pInfo.sample_rate, pInfo.format);
@@ -33,8 +34,8 @@ public class WAVConverter {
         mBitsPerSample     = pBitsPerSample;
         mSampleRate        = pSampleRate;
         mCompressionFormat = pCompressionFormat;
-        mData              = new ArrayList<>();
-        mHeader            = new ArrayList<>();
+        mData              = new ByteArrayOutputStream();
+        mHeader            = new ByteArrayOutputStream();
     }
 
     public static Info convert_bytes_to_samples(byte[] pHeader) {
@@ -115,24 +116,9 @@ public class WAVConverter {
         }
 
         mWAVStruct.samples = new float[mWAVStruct.channels][mDataSize];
-        final int mBytesPerSample = mWAVStruct.bits_per_sample / 8;
-        final int mStride         = mWAVStruct.channels * mBytesPerSample;
-        for (int j = 0; j < mWAVStruct.channels; j++) {
-            byte[] mByteSamples = new byte[mBytesPerSample * mDataSize];
-            int    c            = 0;
-            for (int i = 0; i < mInterlacedByteBuffer.length; i += mStride) {
-                for (int l = 0; l < mBytesPerSample; l++) {
-                    byte b = mInterlacedByteBuffer[i + j * mBytesPerSample + l];
-                    mByteSamples[c] = b;
-                    c++;
-                }
-            }
-            float[] mFloatSamples = mWAVStruct.samples[j];
-            if (mWAVStruct.format == Wellen.WAV_FORMAT_PCM) {
-                Wellen.bytes_to_floats(mByteSamples, mFloatSamples, mWAVStruct.bits_per_sample);
-            } else if (mWAVStruct.format == Wellen.WAV_FORMAT_IEEE_FLOAT_32BIT) {
-                Wellen.bytes_to_floatIEEEs(mByteSamples, mFloatSamples, true);
-            }
+        final PCMCodec mCodec = PCMCodec.create_wav(mWAVStruct.format, mWAVStruct.bits_per_sample);
+        if (mCodec != null) {
+            mCodec.decode(mInterlacedByteBuffer, 0, mWAVStruct.samples, 0, mDataSize, mWAVStruct.channels);
         }
         return mWAVStruct;
     }
@@ -226,24 +212,22 @@ public class WAVConverter {
         return sb.toString();
     }
 
-    private static void write___byte(ArrayList<Byte> pBuffer, int b) {
-        pBuffer.add((byte) b);
+    private static void write___byte(ByteArrayOutputStream pBuffer, int b) {
+        pBuffer.write(b);
     }
 
-    private static void write__bytes(ArrayList<Byte> pBuffer, byte[] b) {
-        for (byte value : b) {
-            pBuffer.add(value);
-        }
+    private static void write__bytes(ByteArrayOutputStream pBuffer, byte[] b) {
+        pBuffer.write(b, 0, b.length);
     }
 
-    private static void write__int16(ArrayList<Byte> pBuffer, int s) {
+    private static void write__int16(ByteArrayOutputStream pBuffer, int s) {
         int b0, b1;
         b0 = (s >>> 0) & 0xff;
         b1 = (s >>> 8) & 0xff;
         write_bytes2(pBuffer, b0, b1);
     }
 
-    private static void write__int32(ArrayList<Byte> pBuffer, int i) {
+    private static void write__int32(ByteArrayOutputStream pBuffer, int i) {
         int b0, b1, b2, b3;
         b0 = (i >>> 0) & 0xff;
         b1 = (i >>> 8) & 0xff;
@@ -252,48 +236,35 @@ public class WAVConverter {
         write_bytes4(pBuffer, b0, b1, b2, b3);
     }
 
-    private static void write_bytes2(ArrayList<Byte> pBuffer, int b0, int b1) {
+    private static void write_bytes2(ByteArrayOutputStream pBuffer, int b0, int b1) {
         write___byte(pBuffer, b0);
         write___byte(pBuffer, b1);
     }
 
-    private static void write_bytes4(ArrayList<Byte> pBuffer, int b0, int b1, int b2, int b3) {
+    private static void write_bytes4(ByteArrayOutputStream pBuffer, int b0, int b1, int b2, int b3) {
         write_bytes2(pBuffer, b0, b1);
         write_bytes2(pBuffer, b2, b3);
     }
 
-    private static void write_string(ArrayList<Byte> pBuffer, String s) {
+    private static void write_string(ByteArrayOutputStream pBuffer, String s) {
         final byte[] b = s.getBytes();
-        for (byte value : b) {
-            pBuffer.add(value);
-        }
+        pBuffer.write(b, 0, b.length);
     }
 
     public void appendData(float[][] pFloatBuffer) {
-        int     mNumberOfFrames         = findSingleBufferLength(pFloatBuffer);
-        float[] mInterleavedFloatBuffer = new float[mNumberOfFrames * mChannels];
-        for (int i = 0; i < mNumberOfFrames; i++) {
-            for (int mChannel = 0; mChannel < mChannels; mChannel++) {
-                mInterleavedFloatBuffer[i * mChannels + mChannel] = pFloatBuffer[mChannel][i];
-            }
-        }
-        byte[] mByteBuffer;
-        if (mCompressionFormat == Wellen.WAV_FORMAT_PCM) {
-            mByteBuffer = new byte[mNumberOfFrames * mChannels * mBitsPerSample / 8];
-            Wellen.floats_to_bytes(mByteBuffer, mInterleavedFloatBuffer, mBitsPerSample);
-        } else if (mCompressionFormat == Wellen.WAV_FORMAT_IEEE_FLOAT_32BIT) {
-            mByteBuffer = Wellen.floatIEEEs_to_bytes(mInterleavedFloatBuffer);
-        } else {
+        final int      mNumberOfFrames = findSingleBufferLength(pFloatBuffer);
+        final PCMCodec mCodec          = PCMCodec.create_wav(mCompressionFormat, mBitsPerSample);
+        if (mCodec == null) {
             System.err.println("+++ ERROR @" + WAVConverter.class.getSimpleName() + " / data format not supported.");
-            mByteBuffer = null;
-        }
-        if (mByteBuffer != null) {
-            write__bytes(mData, mByteBuffer);
+            return;
         }
+        final byte[] mByteBuffer = new byte[mNumberOfFrames * mChannels * mCodec.get_bytes_per_sample()];
+        mCodec.encode(pFloatBuffer, 0, mByteBuffer, 0, mNumberOfFrames, mChannels);
+        write__bytes(mData, mByteBuffer);
     }
 
     public void writeHeader() {
-        mHeader.clear();
+        mHeader.reset();
         /* RIFF Chunk */
         write_string(mHeader, WAV_CHUNK_RIFF);
         write__int32(mHeader, mData.size()); // file length ( without header )
@@ -313,13 +284,11 @@ public class WAVConverter {
     }
 
     public byte[] getByteData() {
-        byte[] mBuffer = new byte[mHeader.size() + mData.size()];
-        for (int i = 0; i < mHeader.size(); i++) {
-            mBuffer[i] = mHeader.get(i);
-        }
-        for (int i = 0; i < mData.size(); i++) {
-            mBuffer[i + mHeader.size()] = mData.get(i);
-        }
+        final byte[] mHeaderBytes = mHeader.toByteArray();
+        final byte[] mDataBytes   = mData.toByteArray();
+        final byte[] mBuffer      = new byte[mHeaderBytes.length + mDataBytes.length];
+        System.arraycopy(mHeaderBytes, 0, mBuffer, 0, mHeaderBytes.length);
+        System.arraycopy(mDataBytes, 0, mBuffer, mHeaderBytes.length, mDataBytes.length);
         return mBuffer;
     }
 
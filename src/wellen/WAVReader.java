@@ -0,0 +1,256 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package wellen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * reads samples from a WAV file in chunks. only the header is parsed when the file is opened, samples are read and
+ * decoded on demand with <code>read(...)</code> into caller-owned buffers. supported formats are PCM with 8, 16, 24 or
+ * 32 bits per sample and IEEE float with 32 bits per sample.
+ */
+public class WAVReader implements AutoCloseable {
+
+    private static final int CHUNK_SIZE_FRAMES = 4096;
+
+    private final int         fBitsPerSample;
+    private final ByteBuffer  fBuffer;
+    private final PCMCodec    fCodec;
+    private final int         fBytesPerFrame;
+    private final int         fBytesPerSample;
+    private final FileChannel fChannel;
+    private final int         fChannels;
+    private final long        fDataOffset;
+    private final int         fFormat;
+    private final long        fLength;
+    private       long        fPosition = 0;
+    private final int         fSampleRate;
+
+    /**
+     * @param file_path path to WAV file
+     * @throws IOException if file can not be read or has an unsupported format
+     */
+    public WAVReader(String file_path) throws IOException {
+        this(new File(file_path));
+    }
+
+    /**
+     * @param file WAV file
+     * @throws IOException if file can not be read or has an unsupported format
+     */
+    public WAVReader(File file) throws IOException {
+        fChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            final ByteBuffer mChunkHeader = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+            if (readFully(mChunkHeader, 0, 12) < 12 || !readChunkID(mChunkHeader, 0).equals("RIFF") || !readChunkID(
+            mChunkHeader,
+            8).equals("WAVE")) {
+                throw new IOException("not a WAV file: " + file);
+            }
+            long mOffset        = 12;
+            int  mFormat        = -1;
+            int  mChannels      = 0;
+            int  mSampleRate    = 0;
+            int  mBitsPerSample = 0;
+            long mDataOffset    = -1;
+            long mDataSize      = 0;
+            while (readFully(mChunkHeader, mOffset, 8) == 8) {
+                final String mChunkID   = readChunkID(mChunkHeader, 0);
+                final long   mChunkSize = mChunkHeader.getInt(4) & 0xFFFFFFFFL;
+                if (mChunkID.equals("fmt ")) {
+                    readFully(mChunkHeader, mOffset + 8, 16);
+                    mFormat        = mChunkHeader.getShort(0) & 0xFFFF;
+                    mChannels      = mChunkHeader.getShort(2) & 0xFFFF;
+                    mSampleRate    = mChunkHeader.getInt(4);
+                    mBitsPerSample = mChunkHeader.getShort(14) & 0xFFFF;
+                } else if (mChunkID.equals("data")) {
+                    mDataOffset = mOffset + 8;
+                    /* size of data chunk may be 0 or invalid if file was not closed properly */
+                    mDataSize = mChunkSize == 0 || mChunkSize > fChannel.size() - mDataOffset ?
+                                fChannel.size() - mDataOffset : mChunkSize;
+                    break;
+                }
+                /* chunks are padded to an even number of bytes */
+                mOffset += 8 + mChunkSize + (mChunkSize & 1);
+            }
+            if (mFormat < 0 || mDataOffset < 0) {
+                throw new IOException("no `fmt ` or `data` chunk found in " + file);
+            }
+            if (!is_supported(mFormat, mBitsPerSample) || mChannels < 1) {
+                throw new IOException("unsupported WAV format " + mFormat + " ( " + mBitsPerSample + " bit, " + mChannels + " channels ) in " + file);
+            }
+            fFormat         = mFormat;
+            fChannels       = mChannels;
+            fSampleRate     = mSampleRate;
+            fBitsPerSample  = mBitsPerSample;
+            fBytesPerSample = mBitsPerSample / 8;
+            fBytesPerFrame  = mChannels * fBytesPerSample;
+            fDataOffset     = mDataOffset;
+            fLength         = mDataSize / fBytesPerFrame;
+            fCodec          = PCMCodec.create_wav(mFormat, mBitsPerSample);
+            fBuffer         = ByteBuffer.allocate(CHUNK_SIZE_FRAMES * fBytesPerFrame);
+        } catch (IOException e) {
+            fChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * read samples from the current position into a buffer.
+     *
+     * @param samples buffer with at least as many channels as the file
+     * @return number of frames read or -1 if the end of the file is reached
+     * @throws IOException if file can not be read
+     */
+    public int read(float[][] samples) throws IOException {
+        return read(samples, 0, samples[0].length);
+    }
+
+    /**
+     * read samples from the current position into a buffer.
+     *
+     * @param samples buffer with at least as many channels as the file
+     * @param offset  index of first frame in buffer
+     * @param length  maximum number of frames to read
+     * @return number of frames read or -1 if the end of the file is reached
+     * @throws IOException if file can not be read
+     */
+    public int read(float[][] samples, int offset, int length) throws IOException {
+        if (fPosition >= fLength) {
+            return -1;
+        }
+        final int mFrames = (int) Math.min(length, fLength - fPosition);
+        int       mRead   = 0;
+        while (mRead < mFrames) {
+            final int mChunk = Math.min(mFrames - mRead, CHUNK_SIZE_FRAMES);
+            final int mBytes = readFully(fBuffer, fDataOffset + fPosition * fBytesPerFrame, mChunk * fBytesPerFrame);
+            final int mChunkFrames = mBytes / fBytesPerFrame;
+            if (mChunkFrames == 0) {
+                break;
+            }
+            fCodec.decode(fBuffer.array(), 0, samples, offset + mRead, mChunkFrames, fChannels);
+            mRead += mChunkFrames;
+            fPosition += mChunkFrames;
+        }
+        return mRead;
+    }
+
+    /**
+     * read all samples from the current position to the end of the file.
+     *
+     * @return samples with one buffer per channel
+     * @throws IOException if file can not be read
+     */
+    public float[][] read_all() throws IOException {
+        final float[][] mSamples = new float[fChannels][(int) Math.min(fLength - fPosition, Integer.MAX_VALUE)];
+        read(mSamples, 0, mSamples[0].length);
+        return mSamples;
+    }
+
+    /**
+     * @param frame position in frames to continue reading from
+     */
+    public void seek(long frame) {
+        fPosition = Math.max(0, Math.min(frame, fLength));
+    }
+
+    /**
+     * @return current position in frames
+     */
+    public long get_position() {
+        return fPosition;
+    }
+
+    /**
+     * @return number of frames ( i.e samples per channel )
+     */
+    public long get_length() {
+        return fLength;
+    }
+
+    public int get_channels() {
+        return fChannels;
+    }
+
+    public int get_sample_rate() {
+        return fSampleRate;
+    }
+
+    public int get_bits_per_sample() {
+        return fBitsPerSample;
+    }
+
+    /**
+     * @return format of samples either {@link Wellen#WAV_FORMAT_PCM} or {@link Wellen#WAV_FORMAT_IEEE_FLOAT_32BIT}
+     */
+    public int get_format() {
+        return fFormat;
+    }
+
+    /**
+     * @return position of first sample in file in bytes
+     */
+    public long get_data_offset() {
+        return fDataOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fChannel.close();
+    }
+
+    /**
+     * @param format          WAV format
+     * @param bits_per_sample bits per sample
+     * @return <code>true</code> if format can be read and written
+     */
+    public static boolean is_supported(int format, int bits_per_sample) {
+        if (format == Wellen.WAV_FORMAT_IEEE_FLOAT_32BIT) {
+            return bits_per_sample == 32;
+        }
+        return format == Wellen.WAV_FORMAT_PCM && (bits_per_sample == 8 || bits_per_sample == 16 || bits_per_sample == 24 || bits_per_sample == 32);
+    }
+
+    private int readFully(ByteBuffer pBuffer, long pPosition, int pLength) throws IOException {
+        pBuffer.clear();
+        pBuffer.limit(pLength);
+        int mRead = 0;
+        while (pBuffer.hasRemaining()) {
+            final int n = fChannel.read(pBuffer, pPosition + mRead);
+            if (n < 0) {
+                break;
+            }
+            mRead += n;
+        }
+        return mRead;
+    }
+
+    private static String readChunkID(ByteBuffer pBuffer, int pOffset) {
+        final char[] mID = new char[4];
+        for (int i = 0; i < mID.length; i++) {
+            mID[i] = (char) pBuffer.get(pOffset + i);
+        }
+        return new String(mID);
+    }
+}
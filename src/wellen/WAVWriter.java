@@ -0,0 +1,177 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package wellen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * writes samples to a WAV file incrementally. samples are encoded in chunks into a preallocated buffer and written to
+ * the file with each call to <code>append(...)</code>. the sizes in the header are updated when the writer is closed.
+ * supported formats are PCM with 8, 16, 24 or 32 bits per sample and IEEE float with 32 bits per sample.
+ */
+public class WAVWriter implements AutoCloseable {
+
+    private static final int CHUNK_SIZE_FRAMES = 4096;
+    private static final int HEADER_SIZE       = 44;
+
+    private final ByteBuffer  fBuffer;
+    private final PCMCodec    fCodec;
+    private final int         fBytesPerFrame;
+    private final FileChannel fChannel;
+    private final int         fChannels;
+    private       boolean     fClosed = false;
+    private       long        fFrames = 0;
+
+    /**
+     * create a writer for 16 bit PCM samples.
+     *
+     * @param file_path   path to WAV file ( an existing file is overwritten )
+     * @param channels    number of channels
+     * @param sample_rate sample rate
+     * @throws IOException if file can not be created
+     */
+    public WAVWriter(String file_path, int channels, int sample_rate) throws IOException {
+        this(new File(file_path), channels, 16, sample_rate, Wellen.WAV_FORMAT_PCM);
+    }
+
+    /**
+     * @param file            WAV file ( an existing file is overwritten )
+     * @param channels        number of channels
+     * @param bits_per_sample bits per sample ( 8, 16, 24 or 32 for PCM, 32 for IEEE float )
+     * @param sample_rate     sample rate
+     * @param format          format of samples either {@link Wellen#WAV_FORMAT_PCM} or
+     *                        {@link Wellen#WAV_FORMAT_IEEE_FLOAT_32BIT}
+     * @throws IOException if file can not be created or format is not supported
+     */
+    public WAVWriter(File file, int channels, int bits_per_sample, int sample_rate, int format) throws IOException {
+        if (!WAVReader.is_supported(format, bits_per_sample) || channels < 1) {
+            throw new IOException("unsupported WAV format " + format + " ( " + bits_per_sample + " bit, " + channels + " channels )");
+        }
+        fChannels       = channels;
+        fBytesPerFrame  = channels * (bits_per_sample / 8);
+        fCodec          = PCMCodec.create_wav(format, bits_per_sample);
+        fBuffer         = ByteBuffer.allocate(Math.max(CHUNK_SIZE_FRAMES * fBytesPerFrame, HEADER_SIZE)).order(
+        ByteOrder.LITTLE_ENDIAN);
+        fChannel        = FileChannel.open(file.toPath(),
+                                           StandardOpenOption.CREATE,
+                                           StandardOpenOption.WRITE,
+                                           StandardOpenOption.TRUNCATE_EXISTING);
+        /* header with sizes that are patched on close */
+        fBuffer.clear();
+        fBuffer.put(new byte[]{'R', 'I', 'F', 'F'});
+        fBuffer.putInt(0);
+        fBuffer.put(new byte[]{'W', 'A', 'V', 'E'});
+        fBuffer.put(new byte[]{'f', 'm', 't', ' '});
+        fBuffer.putInt(16);
+        fBuffer.putShort((short) format);
+        fBuffer.putShort((short) channels);
+        fBuffer.putInt(sample_rate);
+        fBuffer.putInt(sample_rate * fBytesPerFrame);
+        fBuffer.putShort((short) fBytesPerFrame);
+        fBuffer.putShort((short) bits_per_sample);
+        fBuffer.put(new byte[]{'d', 'a', 't', 'a'});
+        fBuffer.putInt(0);
+        write();
+    }
+
+    /**
+     * append samples to file.
+     *
+     * @param samples buffer with one array per channel
+     * @throws IOException if samples can not be written
+     */
+    public void append(float[][] samples) throws IOException {
+        append(samples, 0, samples[0].length);
+    }
+
+    /**
+     * append samples to file. channels missing in <code>samples</code> are written as silence.
+     *
+     * @param samples buffer with one array per channel
+     * @param offset  index of first frame in buffer
+     * @param length  number of frames to write
+     * @throws IOException if samples can not be written
+     */
+    public void append(float[][] samples, int offset, int length) throws IOException {
+        if (fClosed) {
+            throw new IOException("writer is closed");
+        }
+        int mWritten = 0;
+        while (mWritten < length) {
+            final int mChunk = Math.min(length - mWritten, CHUNK_SIZE_FRAMES);
+            fBuffer.clear();
+            fCodec.encode(samples, offset + mWritten, fBuffer.array(), 0, mChunk, fChannels);
+            fBuffer.position(mChunk * fBytesPerFrame);
+            write();
+            mWritten += mChunk;
+        }
+        fFrames += length;
+    }
+
+    /**
+     * @return number of frames ( i.e samples per channel ) written so far
+     */
+    public long get_frames_written() {
+        return fFrames;
+    }
+
+    /**
+     * update sizes in header and close file.
+     *
+     * @throws IOException if header can not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (fClosed) {
+            return;
+        }
+        fClosed = true;
+        try {
+            final long mDataSize = fFrames * fBytesPerFrame;
+            fBuffer.clear();
+            if ((mDataSize & 1) == 1) {
+                /* chunks are padded to an even number of bytes */
+                fBuffer.put((byte) 0);
+                write();
+            }
+            fBuffer.clear();
+            fBuffer.putInt((int) (HEADER_SIZE - 8 + mDataSize + (mDataSize & 1)));
+            fBuffer.flip();
+            fChannel.write(fBuffer, 4);
+            fBuffer.clear();
+            fBuffer.putInt((int) mDataSize);
+            fBuffer.flip();
+            fChannel.write(fBuffer, HEADER_SIZE - 4);
+        } finally {
+            fChannel.close();
+        }
+    }
+
+    private void write() throws IOException {
+        fBuffer.flip();
+        while (fBuffer.hasRemaining()) {
+            fChannel.write(fBuffer);
+        }
+    }
+}
@@ -30,6 +30,8 @@ import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.Mixer;
 import javax.sound.sampled.SourceDataLine;
 import javax.sound.sampled.TargetDataLine;
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -56,6 +58,7 @@ public class Wellen {
     public static final int     DEFAULT_AUDIO_DEVICE                  = -1;
     public static final int     DEFAULT_BITS_PER_SAMPLE               = BITS_PER_SAMPLE_16;
     public static final int     DEFAULT_ENCODING                      = ENCODING_PCM_SIGNED;
+    public static final boolean DEFAULT_DOUBLE_BUFFERING              = true;
     public static final boolean ENDIANESS_BIG_ENDIAN                  = true;
     public static final boolean ENDIANESS_LITTLE_ENDIAN               = false;
     public static final boolean DEFAULT_ENDIANESS                     = ENDIANESS_LITTLE_ENDIAN; // TODO `ENDIANESS_LITTLE_ENDIAN` work on MacOS, check this on more systems
@@ -68,6 +71,11 @@ public class Wellen {
     public static final int     DEFAULT_INTERPOLATE_AMP_FREQ_DURATION = Wellen.millis_to_samples(5);
     public static final float   DEFAULT_SUSTAIN                       = 0.5f;
     public static final int     DEFAULT_WAVETABLE_SIZE                = 512;
+    public static final float   DEFAULT_MAX_ECHO_LENGTH               = 2.0f;
+    public static final int     DELAY_INTERPOLATE_ALLPASS             = 2;
+    public static final int     DELAY_INTERPOLATE_HERMITE             = 3;
+    public static final int     DELAY_INTERPOLATE_LINEAR              = 1;
+    public static final int     DELAY_INTERPOLATE_NONE                = 0;
     public static final int     DISTORTION_BIT_CRUSHING               = 8;
     public static final int     DISTORTION_FOLDBACK                   = 1;
     public static final int     DISTORTION_FOLDBACK_SINGLE            = 2;
@@ -84,6 +92,7 @@ public class Wellen {
     public static final int     EVENT_NOTE_ON                         = 0;
     public static final int     EVENT_PITCHBEND                       = 3;
     public static final int     EVENT_PROGRAMCHANGE                   = 4;
+    public static final int     EVENT_PARAMETER                       = 5;
     public static final int     EVENT_UNDEFINED                       = -1;
     public static final int     EVENT_VELOCITY                        = 2;
     public static final int     FILTER_MODE_BAND_PASS                 = 2;
@@ -127,6 +136,7 @@ public class Wellen {
     public static final int     SIGNAL_MONO                           = 1;
     public static final int     SIGNAL_PROCESSING_IGNORE_IN_OUTPOINTS = -3;
     public static final int     SIGNAL_RIGHT                          = 1;
+    public static final float   SIGNAL_SILENCE_THRESHOLD              = 1.0E-5f;
     public static final int     SIGNAL_STEREO                         = 2;
     public static final int     SIG_INT16_BIG_ENDIAN                  = 2;
     public static final int     SIG_INT16_LITTLE_ENDIAN               = 3;
@@ -146,12 +156,33 @@ public class Wellen {
     public static final float   TWO_PI                                = PApplet.TWO_PI;
     public static final int     VERSION_MAJOR                         = 0;
     public static final int     VERSION_MINOR                         = 14;
+    public static final int     VOICE_STEALING_OLDEST                 = 0;
+    public static final int     VOICE_STEALING_QUIETEST               = 1;
+    public static final int     VOICE_STEALING_SAME_NOTE              = 2;
     public static final int     WAVEFORM_NOISE                        = 4;
     public static final int     INSTRUMENT_PRESET_SIMPLE              = 0;
     public static final int     INSTRUMENT_PRESET_SUB_SINE            = 1;
     public static final int     INSTRUMENT_PRESET_FAT                 = 2;
     public static final int     INSTRUMENT_PRESET_NOISE               = 3;
     public static final int     DEFAULT_INSTRUMENT_PRESET             = INSTRUMENT_PRESET_SIMPLE;
+    public static final int     INSTRUMENT_PARAMETER_ATTACK           = 0;
+    public static final int     INSTRUMENT_PARAMETER_DECAY            = 1;
+    public static final int     INSTRUMENT_PARAMETER_SUSTAIN          = 2;
+    public static final int     INSTRUMENT_PARAMETER_RELEASE          = 3;
+    public static final int     INSTRUMENT_PARAMETER_AMPLITUDE        = 4;
+    public static final int     INSTRUMENT_PARAMETER_FREQUENCY        = 5;
+    public static final int     INSTRUMENT_PARAMETER_VOLUME           = 6;
+    public static final int     INSTRUMENT_PARAMETER_PAN              = 7;
+    public static final int     INSTRUMENT_PARAMETER_FILTER_FREQUENCY = 8;
+    public static final int     INSTRUMENT_PARAMETER_FILTER_RESONANCE = 9;
+    public static final int     INSTRUMENT_PARAMETER_OSCILLATOR_TYPE  = 10;
+    public static final int     INSTRUMENT_PARAMETER_FREQ_LFO_AMP     = 11;
+    public static final int     INSTRUMENT_PARAMETER_FREQ_LFO_FREQ    = 12;
+    public static final int     INSTRUMENT_PARAMETER_AMP_LFO_AMP      = 13;
+    public static final int     INSTRUMENT_PARAMETER_AMP_LFO_FREQ     = 14;
+    public static final int     INSTRUMENT_PARAMETER_SUB_AMPLITUDE    = 15;
+    public static final int     INSTRUMENT_PARAMETER_SUB_RATIO        = 16;
+    public static final int     INSTRUMENT_PARAMETER_NOISE_AMPLITUDE  = 17;
     /**
      * @deprecated use WAVEFORM_ instead
      */
@@ -195,6 +226,9 @@ public class Wellen {
     public static final int     WAVESHAPE_TRIANGLE                    = 1;
     public static final int     WAV_FORMAT_IEEE_FLOAT_32BIT           = 3;
     public static final int     WAV_FORMAT_PCM                        = 1;
+    public static final int     WINDOW_HAMMING                        = 1;
+    public static final int     WINDOW_HANN                           = 2;
+    public static final int     WINDOW_NONE                           = 0;
 
     public static final int ENVELOPE_FORM_RECTANGULAR          = 0;
     public static final int ENVELOPE_FORM_TRIANGLE             = 1;
@@ -271,21 +305,9 @@ public class Wellen {
      * @param pBitsPerFloat number of bits per float ( usually 8, 16, 24, or 32-bits )
      */
     public static void bytes_to_floats(byte[] pBytes, float[] pFloats, int pBitsPerFloat) {
-        final int    mBytesPerFloat = pBitsPerFloat / 8;
-        final double mScale         = 1.0 / ((1 << (pBitsPerFloat - 1)) - 1);
-        for (int i = 0; i < pFloats.length; i++) {
-            long f = 0;
-
-            for (int j = 0; j < mBytesPerFloat; j++) {
-                int b = pBytes[i * mBytesPerFloat + j] & 0xFF;
-                f |= (long) b << (j * 8);
-            }
-
-            if (f >= (1L << (pBitsPerFloat - 1))) {
-                f -= 1L << pBitsPerFloat;
-            }
-
-            pFloats[i] = (float) (f * mScale);
+        final PCMCodec mCodec = PCMCodec.create(ENCODING_PCM_SIGNED, pBitsPerFloat, false);
+        if (mCodec != null) {
+            mCodec.decode(pBytes, 0, pFloats, 0, pFloats.length);
         }
     }
 
@@ -438,6 +460,36 @@ public class Wellen {
         g.popMatrix();
     }
 
+    /**
+     * draw all channels of the most recent snapshot of a {@link ScopeTap}.
+     *
+     * @param g       graphics context to draw into
+     * @param pWidth  visual width of the drawn buffers
+     * @param pHeight visual height of the drawn buffers
+     * @param pTap    tap to read snapshot from
+     */
+    public static void draw_buffers(PGraphics g, float pWidth, float pHeight, ScopeTap pTap) {
+        pTap.update();
+        int mCountValidBuffers = 0;
+        for (int i = 0; i < pTap.get_channels(); i++) {
+            if (pTap.get(i) != null) {
+                mCountValidBuffers++;
+            }
+        }
+        if (mCountValidBuffers == 0) {
+            return;
+        }
+        final float mFraction = 1.0f / mCountValidBuffers;
+        g.pushMatrix();
+        for (int i = 0; i < pTap.get_channels(); i++) {
+            if (pTap.get(i) != null) {
+                draw_buffer(g, pWidth, pHeight * mFraction, pTap.get(i));
+                g.translate(0, pHeight * mFraction);
+            }
+        }
+        g.popMatrix();
+    }
+
     public static void draw_tone(PGraphics g, float pWidth, float pHeight) {
         draw_buffer(g, pWidth, pHeight, Tone.get_buffer());
     }
@@ -509,28 +561,24 @@ public class Wellen {
                                + "float* 32 " + "bits" + " per sample are required.");
             pBitsPerSignal = 32;
         }
-        final byte[] mWAVBytes = WAVConverter.convert_samples_to_bytes(pBuffer,
-                                                                       pBuffer.length,
-                                                                       pBitsPerSignal,
-                                                                       pSignalRate,
-                                                                       pCompressionType);
-        p.saveBytes(pFilepath, mWAVBytes);
+        /* `savePath` resolves relative paths against the sketch folder and creates missing folders */
+        try (WAVWriter mWriter = new WAVWriter(new File(p.savePath(pFilepath)),
+                                               pBuffer.length,
+                                               pBitsPerSignal,
+                                               pSignalRate,
+                                               pCompressionType)) {
+            mWriter.append(pBuffer);
+        } catch (IOException e) {
+            System.err.println("+++ ERROR @" + Wellen.class.getSimpleName() + ".exportWAV / " + e.getMessage());
+        }
     }
 
     public static void exportWAV(PApplet p, String pFilepath, float[][] pBuffer, int pBitsPerSignal, int pSignalRate) {
-        final byte[] mWAVBytes = WAVConverter.convert_samples_to_bytes(pBuffer,
-                                                                       pBuffer.length,
-                                                                       pBitsPerSignal,
-                                                                       pSignalRate);
-        p.saveBytes(pFilepath, mWAVBytes);
+        exportWAV(p, pFilepath, pBuffer, pBitsPerSignal, pSignalRate, WAV_FORMAT_PCM);
     }
 
     public static void exportWAV(PApplet p, String pFilepath, float[] pBuffer, int pBitsPerSignal, int pSignalRate) {
-        final byte[] mWAVBytes = WAVConverter.convert_samples_to_bytes(new float[][]{pBuffer},
-                                                                       1,
-                                                                       pBitsPerSignal,
-                                                                       pSignalRate);
-        p.saveBytes(pFilepath, mWAVBytes);
+        exportWAV(p, pFilepath, new float[][]{pBuffer}, pBitsPerSignal, pSignalRate, WAV_FORMAT_PCM);
     }
 
     public static void exportWAVInfo(PApplet p, String pFilepath, WAVConverter.Info pWAVInfo) {
@@ -613,15 +661,9 @@ public class Wellen {
     }
 
     public static void floats_to_bytes(byte[] pBytes, float[] pFloats, int pBitsPerFloat) {
-        final int mBytesPerFloat = pBitsPerFloat / 8;
-        for (int i = 0; i < pFloats.length; i++) {
-            final float f      = pFloats[i];
-            final int   mScale = (1 << (pBitsPerFloat - 1)) - 1;
-            final long  y      = (long) (mScale * f);
-            for (int j = 0; j < mBytesPerFloat; j++) {
-                final int mBitShift = j * 8;
-                pBytes[i * mBytesPerFloat + j] = (byte) ((y >>> mBitShift) & 0xFF);
-            }
+        final PCMCodec mCodec = PCMCodec.create(ENCODING_PCM_SIGNED, pBitsPerFloat, false);
+        if (mCodec != null) {
+            mCodec.encode(pFloats, 0, pBytes, 0, pFloats.length);
         }
     }
 
@@ -645,11 +687,34 @@ public class Wellen {
     }
 
     public static float[][] importWAV(PApplet p, String pFilepath) {
+        /* stream samples from local files, fall back to `loadBytes` for all other locations ( e.g URLs ) */
+        final File mFile = findFile(p, pFilepath);
+        if (mFile != null) {
+            try (WAVReader mReader = new WAVReader(mFile)) {
+                return mReader.read_all();
+            } catch (IOException e) {
+                System.err.println("+++ WARNING @" + Wellen.class.getSimpleName() + ".importWAV / " + e.getMessage());
+            }
+        }
         byte[]            mWAVBytes  = p.loadBytes(pFilepath);
         WAVConverter.Info mWAVStruct = WAVConverter.convert_bytes_to_samples(mWAVBytes);
         return mWAVStruct.samples;
     }
 
+    private static File findFile(PApplet p, String pFilepath) {
+        final File mFile = new File(pFilepath);
+        if (mFile.isAbsolute()) {
+            return mFile.exists() ? mFile : null;
+        }
+        for (String mPath : new String[]{p.dataPath(pFilepath), p.sketchPath(pFilepath)}) {
+            final File mCandidate = new File(mPath);
+            if (mCandidate.exists()) {
+                return mCandidate;
+            }
+        }
+        return null;
+    }
+
     public static WAVConverter.Info importWAVInfo(PApplet p, String pFilepath) {
         byte[]            mWAVBytes = p.loadBytes(pFilepath);
         WAVConverter.Info mWAVInfo  = WAVConverter.convert_bytes_to_samples(mWAVBytes);
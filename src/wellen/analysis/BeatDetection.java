@@ -87,9 +87,8 @@ public class BeatDetection {
     public static final double DEFAULT_THRESHOLD = 8;
     private float dfMinus1;
     private float dfMinus2;
-    private final float[] fCurrentMagnitudes;
-    private final FFT fFFT;
     private final float[] fPriorMagnitudes;
+    private final STFT fSTFT;
     private final float fSampleRate;
     private double fSensitivity;
     private double fThreshold;
@@ -111,19 +110,23 @@ public class BeatDetection {
      * Create a new percussion onset detector.
      *
      * @param sample_rate The sample rate in Hz (used to calculate timestamps)
-     * @param buffer_size The size of the buffer in samples.
+     * @param buffer_size The size of the analyzed frames in samples, must be a power of two. the frame size is
+     *                    independent of the size of the blocks passed to {@link #process(float[])}.
      * @param sensitivity Sensitivity of the peak detector applied to broadband detection function (%). In [0-100].
      * @param threshold   Energy rise within a frequency bin necessary to count toward broadband total (dB). In [0-20].
      */
     public BeatDetection(float sample_rate, int buffer_size, double sensitivity, double threshold) {
-        fFFT = new FFT(buffer_size / 2);
+        fSTFT = new STFT(buffer_size, buffer_size, Wellen.WINDOW_NONE, sample_rate);
         fThreshold = threshold;
         fSensitivity = sensitivity;
-        fPriorMagnitudes = new float[buffer_size / 2];
-        fCurrentMagnitudes = new float[buffer_size / 2];
+        fPriorMagnitudes = new float[buffer_size / 2 + 1];
         fSampleRate = sample_rate;
     }
 
+    /**
+     * @return time in seconds of the end of the frame in which an onset was detected during the last call to
+     *         {@link #process(float[])} or <code>-1</code> if no onset was detected
+     */
     public float get_time_stamp() {
         return fTimeStamp;
     }
@@ -154,35 +157,42 @@ public class BeatDetection {
         fThreshold = pfThreshold;
     }
 
+    /**
+     * analyze signal. the signal is collected into frames of <code>buffer_size</code> samples, onset detection runs
+     * once per completed frame. this method does not allocate memory.
+     *
+     * @param signal_buffer signal to analyze
+     * @return unaltered signal
+     */
     public float[] process(float[] signal_buffer) {
-        float[] mSignalBuffer = new float[signal_buffer.length];
-        System.arraycopy(signal_buffer, 0, mSignalBuffer, 0, signal_buffer.length);
-
-        fFFT.forwardTransform(mSignalBuffer);
-        fFFT.modulus(mSignalBuffer, fCurrentMagnitudes);
-        // fFFT.forward(audioFloatBuffer);
-        // fCurrentMagnitudes = fFFT.getSpectrum();
+        fTimeStamp = -1.0f;
+        for (float mSample : signal_buffer) {
+            if (fSTFT.write(mSample)) {
+                detect();
+            }
+        }
+        return signal_buffer;
+    }
 
+    private void detect() {
+        final float[] mCurrentMagnitudes = fSTFT.get_magnitudes();
         int mBinsOverThreshold = 0;
-        for (int i = 0; i < fCurrentMagnitudes.length; i++) {
+        for (int i = 0; i < mCurrentMagnitudes.length; i++) {
             if (fPriorMagnitudes[i] > 0) {
-                double diff = 10 * Math.log10(fCurrentMagnitudes[i] / fPriorMagnitudes[i]);
+                double diff = 10 * Math.log10(mCurrentMagnitudes[i] / fPriorMagnitudes[i]);
                 if (diff >= fThreshold) {
                     mBinsOverThreshold++;
                 }
             }
-            fPriorMagnitudes[i] = fCurrentMagnitudes[i];
+            fPriorMagnitudes[i] = mCurrentMagnitudes[i];
         }
 
-        fTimeStamp = -1.0f;
-        if (dfMinus2 < dfMinus1 && dfMinus1 >= mBinsOverThreshold && dfMinus1 > ((100.0f - fSensitivity) * signal_buffer.length) / 200) {
-            final float mTimeStamp = (float) signal_buffer.length / fSampleRate;
-            fTimeStamp = mTimeStamp;
+        if (dfMinus2 < dfMinus1 && dfMinus1 >= mBinsOverThreshold && dfMinus1 > ((100.0f - fSensitivity) * fSTFT.get_frame_size()) / 200) {
+            /* the detection function peaked in the previous frame */
+            fTimeStamp = (fSTFT.get_frame_counter() - 1) * fSTFT.get_hop_size() / fSampleRate;
         }
 
         dfMinus2 = dfMinus1;
         dfMinus1 = mBinsOverThreshold;
-
-        return signal_buffer;
     }
 }
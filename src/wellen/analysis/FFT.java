@@ -21,6 +21,7 @@ package wellen.analysis;
  *
  */
 
+import java.util.HashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -39,15 +40,62 @@ public final class FFT {
      */
     private final FloatFFT fft;
     private final int fftSize;
+    private static final HashMap<Integer, FFT> PLANS = new HashMap<>();
+    private static final HashMap<Integer, FFT> SINGLE_THREADED_PLANS = new HashMap<>();
 
     /**
      * @param size size of buffer
      */
     public FFT(final int size) {
-        fft = new FloatFFT(size);
+        this(size, true);
+    }
+
+    /**
+     * @param size          size of buffer
+     * @param multithreaded split large transforms across threads. transforms that are split allocate tasks, so FFTs
+     *                      used on the audio thread should be single threaded.
+     */
+    public FFT(final int size, final boolean multithreaded) {
+        fft = new FloatFFT(size, multithreaded);
         fftSize = size;
     }
 
+    /**
+     * returns a shared FFT of the given size. twiddle factors and bit reversal tables are computed once per size. the
+     * transforms keep no state between calls, so a shared FFT may be used by multiple objects and threads.
+     *
+     * @param size size of buffer
+     * @return shared FFT
+     */
+    public static FFT plan(final int size) {
+        return plan(size, true);
+    }
+
+    /**
+     * @param size          size of buffer
+     * @param multithreaded split large transforms across threads
+     * @return shared FFT
+     * @see #plan(int)
+     */
+    public static FFT plan(final int size, final boolean multithreaded) {
+        final HashMap<Integer, FFT> mPlans = multithreaded ? PLANS : SINGLE_THREADED_PLANS;
+        synchronized (mPlans) {
+            FFT mFFT = mPlans.get(size);
+            if (mFFT == null) {
+                mFFT = new FFT(size, multithreaded);
+                mPlans.put(size, mFFT);
+            }
+            return mFFT;
+        }
+    }
+
+    /**
+     * @return size of buffer
+     */
+    public int size() {
+        return fftSize;
+    }
+
     /**
      * Computes forward DFT.
      *
@@ -442,6 +490,7 @@ public final class FFT {
         private int nc;
         private int nw;
         private final Plans plan;
+        private final boolean useThreads;
         private float[] w;
         private float[] wtable;
         private float[] wtable_r;
@@ -449,13 +498,15 @@ public final class FFT {
         /**
          * Creates new instance of FloatFFT.
          *
-         * @param n size of data
+         * @param n          size of data
+         * @param useThreads split large transforms across threads
          */
-        public FloatFFT(int n) {
+        public FloatFFT(int n, boolean useThreads) {
             if (n < 1) {
                 throw new IllegalArgumentException("n must be greater than 0");
             }
             this.n = n;
+            this.useThreads = useThreads;
 
             if (!ConcurrencyUtils.isPowerOf2(n)) {
                 if (getReminder(n, factors) >= 211) {
@@ -503,6 +554,10 @@ public final class FFT {
             }
         }
 
+        private int getNumberOfThreads() {
+            return useThreads ? ConcurrencyUtils.getNumberOfThreads() : 1;
+        }
+
         private static int getReminder(int n, int factors[]) {
             int reminder = n;
 
@@ -734,7 +789,7 @@ public final class FFT {
             switch (plan) {
                 case SPLIT_RADIX:
                     realForward(a, offa);
-                    int nthreads = ConcurrencyUtils.getNumberOfThreads();
+                    int nthreads = getNumberOfThreads();
                     if ((nthreads > 1) && (n / 2 > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
                         Future<?>[] futures = new Future[nthreads];
                         int k = n / 2 / nthreads;
@@ -915,7 +970,7 @@ public final class FFT {
             switch (plan) {
                 case SPLIT_RADIX:
                     realInverse2(a, offa, scale);
-                    int nthreads = ConcurrencyUtils.getNumberOfThreads();
+                    int nthreads = getNumberOfThreads();
                     if ((nthreads > 1) && (n / 2 > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
                         Future<?>[] futures = new Future[nthreads];
                         int k = n / 2 / nthreads;
@@ -4720,7 +4775,7 @@ public final class FFT {
 
         private void bluestein_complex(final float[] a, final int offa, final int isign) {
             final float[] ak = new float[2 * nBluestein];
-            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            int nthreads = getNumberOfThreads();
             if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
                 nthreads = 2;
                 if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
@@ -4884,7 +4939,7 @@ public final class FFT {
 
         private void bluestein_real_forward(final float[] a, final int offa) {
             final float[] ak = new float[2 * nBluestein];
-            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            int nthreads = getNumberOfThreads();
             if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
                 nthreads = 2;
                 if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
@@ -4977,7 +5032,7 @@ public final class FFT {
 
         private void bluestein_real_full(final float[] a, final int offa, final int isign) {
             final float[] ak = new float[2 * nBluestein];
-            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            int nthreads = getNumberOfThreads();
             if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
                 nthreads = 2;
                 if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
@@ -5186,7 +5241,7 @@ public final class FFT {
 
             cftbsub(2 * nBluestein, ak, 0, ip, nw, w);
 
-            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            int nthreads = getNumberOfThreads();
             if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
                 nthreads = 2;
                 if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
@@ -5251,7 +5306,7 @@ public final class FFT {
 
         private void bluestein_real_inverse2(final float[] a, final int offa) {
             final float[] ak = new float[2 * nBluestein];
-            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            int nthreads = getNumberOfThreads();
             if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
                 nthreads = 2;
                 if ((nthreads >= 4) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_4Threads())) {
@@ -5612,7 +5667,7 @@ public final class FFT {
             if (n > 8) {
                 if (n > 32) {
                     cftb1st(n, a, offa, w, nw - (n >> 2));
-                    if ((ConcurrencyUtils.getNumberOfThreads() > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
+                    if ((getNumberOfThreads() > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
                         cftrec4_th(n, a, offa, nw, w);
                     } else if (n > 512) {
                         cftrec4(n, a, offa, nw, w);
@@ -6339,7 +6394,7 @@ y13i, y14r, y14i, y15r, y15i;
             if (n > 8) {
                 if (n > 32) {
                     cftf1st(n, a, offa, w, nw - (n >> 2));
-                    if ((ConcurrencyUtils.getNumberOfThreads() > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
+                    if ((getNumberOfThreads() > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
                         cftrec4_th(n, a, offa, nw, w);
                     } else if (n > 512) {
                         cftrec4(n, a, offa, nw, w);
@@ -7014,7 +7069,7 @@ y13i, y14r, y14i, y15r, y15i;
             } else {
                 n2 = n;
             }
-            int nthreads = ConcurrencyUtils.getNumberOfThreads();
+            int nthreads = getNumberOfThreads();
             if ((nthreads > 1) && (n2 >= ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
                 final int k = n2 / nthreads;
                 Future<?>[] futures = new Future[nthreads];
@@ -20,23 +20,32 @@
 package wellen.analysis;
 
 import processing.core.PGraphics;
-import wellen.FFT;
+import wellen.ScopeTap;
 import wellen.Wellen;
 
-import java.lang.reflect.Array;
-
 import static processing.core.PApplet.map;
 import static processing.core.PApplet.pow;
 
 public class FrequencyDistribution {
-    private final wellen.FFT fFFT;
     private final PGraphics fGraphics;
+    private final STFT fSTFT;
+    private final ScopeTap fScopeTap;
+    private final float[] fSignal;
     private float fMaximumFrequency = 8800;
 
     public FrequencyDistribution(PGraphics graphics) {
+        this(graphics, Wellen.DEFAULT_AUDIOBLOCK_SIZE);
+    }
+
+    /**
+     * @param graphics   graphics to draw into
+     * @param frame_size number of samples analyzed per frame, must be a power of two
+     */
+    public FrequencyDistribution(PGraphics graphics, int frame_size) {
         fGraphics = graphics;
-        fFFT = new wellen.FFT(Wellen.DEFAULT_AUDIOBLOCK_SIZE, Wellen.DEFAULT_SAMPLING_RATE);
-        fFFT.window(FFT.HAMMING);
+        fSTFT = new STFT(frame_size, frame_size, Wellen.WINDOW_HAMMING, Wellen.DEFAULT_SAMPLING_RATE);
+        fScopeTap = new ScopeTap(1, frame_size);
+        fSignal = new float[frame_size];
         fGraphics.beginDraw();
         fGraphics.stroke(0);
         fGraphics.noFill();
@@ -44,13 +53,17 @@ public class FrequencyDistribution {
     }
 
     public void draw() {
+        if (fScopeTap.update()) {
+            fScopeTap.get_latest(0, fSignal);
+            fSTFT.analyze(fSignal);
+        }
         fGraphics.beginDraw();
         fGraphics.background(255);
-        final int LAST_FREQ_INDEX = fFFT.freqToIndex(fMaximumFrequency) + 1;
+        final int LAST_FREQ_INDEX = fSTFT.frequency_to_bin(fMaximumFrequency) + 1;
         fGraphics.beginShape();
         for (int i = 0; i < LAST_FREQ_INDEX; i++) {
             float x = pow(map(i, 0, LAST_FREQ_INDEX, 0, 1), 0.5f) * fGraphics.width;
-            float y = map(fFFT.getSpectrum()[i], 0.0f, 100.0f, fGraphics.height, 0);
+            float y = map(fSTFT.get_magnitudes()[i], 0.0f, 100.0f, fGraphics.height, 0);
             fGraphics.vertex(x, y);
         }
         fGraphics.endShape();
@@ -65,10 +78,15 @@ public class FrequencyDistribution {
         fMaximumFrequency = maximum_frequency;
     }
 
+    /**
+     * pass signal to analysis. the signal is handed to the drawing thread through a {@link ScopeTap} and analyzed in
+     * <code>draw()</code>, so this method may be called from the audio thread without blocking or allocating.
+     *
+     * @param pSignal signal to analyze
+     * @return unaltered signal
+     */
     public float[] process(float[] pSignal) {
-        float[] mSignalCopy = new float[pSignal.length];
-        System.arraycopy(pSignal, 0, mSignalCopy, 0, Array.getLength(pSignal));
-        fFFT.forward(mSignalCopy);
+        fScopeTap.write(pSignal);
         return pSignal;
     }
 }
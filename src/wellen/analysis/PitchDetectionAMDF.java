@@ -0,0 +1,135 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package wellen.analysis;
+
+import wellen.Wellen;
+
+/**
+ * detects the pitch of a signal with the Average Magnitude Difference Function (AMDF). the difference between the
+ * signal and a lagged version of itself is summed up for each lag within the range of expected periods. the first
+ * pronounced minimum is taken as the period of the signal. this detector does not provide a probability.
+ * <p>
+ * Fair Use Disclaimer: this implementation was taken, with modifications, from a project called <a
+ * href="https://github.com/JorenSix/TarsosDSP">TarsosDSP</a> by Joren Six released under the GPL-3.0 license. the
+ * original code was written by Eder de Souza for the <a href="http://jaudio.sf.net">jAudio</a> framework. the
+ * implementation was changed to not allocate memory while processing and to only compute the lags that are needed.
+ */
+public class PitchDetectionAMDF implements PitchDetector {
+
+    private static final float DEFAULT_MAX_FREQUENCY = 1000.0f;
+    private static final float DEFAULT_MIN_FREQUENCY = 82.0f;
+    private static final float DEFAULT_RATIO         = 5.0f;
+    private static final float DEFAULT_SENSITIVITY   = 0.1f;
+
+    private final float[] fAMD;
+    private final int     fMaxPeriod;
+    private final int     fMinPeriod;
+    private final float   fSampleRate;
+    private       float   fPitch;
+    private       boolean fPitched;
+
+    public PitchDetectionAMDF() {
+        this(Wellen.DEFAULT_SAMPLING_RATE, Wellen.DEFAULT_AUDIOBLOCK_SIZE);
+    }
+
+    /**
+     * @param sample_rate sample rate of signal
+     * @param buffer_size size of buffers passed to <code>process</code>
+     */
+    public PitchDetectionAMDF(float sample_rate, int buffer_size) {
+        this(sample_rate, buffer_size, DEFAULT_MIN_FREQUENCY, DEFAULT_MAX_FREQUENCY);
+    }
+
+    /**
+     * @param sample_rate   sample rate of signal
+     * @param buffer_size   size of buffers passed to <code>process</code>
+     * @param min_frequency lowest detectable frequency in Hz ( limited by buffer size )
+     * @param max_frequency highest detectable frequency in Hz
+     */
+    public PitchDetectionAMDF(float sample_rate, int buffer_size, float min_frequency, float max_frequency) {
+        fSampleRate = sample_rate;
+        fAMD        = new float[buffer_size];
+        fMaxPeriod  = Math.min(Math.round(sample_rate / min_frequency + 0.5f), buffer_size - 2);
+        fMinPeriod  = Math.max(Math.min(Math.round(sample_rate / max_frequency + 0.5f), fMaxPeriod), 1);
+    }
+
+    @Override
+    public float[] process(float[] signal) {
+        final int mLength   = Math.min(signal.length, fAMD.length);
+        final int mMaxShift = Math.min(fMaxPeriod + 1, mLength - 1);
+        for (int i = fMinPeriod; i <= mMaxShift; i++) {
+            float mSum = 0;
+            for (int j = 0; j < mLength - i; j++) {
+                mSum += Math.abs(signal[j] - signal[j + i]);
+            }
+            fAMD[i] = mSum;
+        }
+
+        float mMinValue = Float.POSITIVE_INFINITY;
+        float mMaxValue = Float.NEGATIVE_INFINITY;
+        for (int i = fMinPeriod; i < fMaxPeriod; i++) {
+            mMinValue = Math.min(mMinValue, fAMD[i]);
+            mMaxValue = Math.max(mMaxValue, fAMD[i]);
+        }
+        final float mCutoff = DEFAULT_SENSITIVITY * (mMaxValue - mMinValue) + mMinValue;
+        int         j       = fMinPeriod;
+        while (j < mMaxShift && fAMD[j] > mCutoff) {
+            j++;
+        }
+
+        final float mSearchLength = fMinPeriod / 2.0f;
+        int         mMinPosition  = j;
+        mMinValue = fAMD[j];
+        int i = j;
+        while (i < j + mSearchLength && i < mMaxShift) {
+            i++;
+            if (fAMD[i] < mMinValue) {
+                mMinValue    = fAMD[i];
+                mMinPosition = i;
+            }
+        }
+
+        if (fAMD[mMinPosition] * DEFAULT_RATIO < mMaxValue) {
+            fPitch   = fSampleRate / mMinPosition;
+            fPitched = true;
+        } else {
+            fPitch   = -1;
+            fPitched = false;
+        }
+        return signal;
+    }
+
+    @Override
+    public float get_pitch() {
+        return fPitch;
+    }
+
+    /**
+     * @return always -1 as AMDF does not provide a probability
+     */
+    @Override
+    public float get_probability() {
+        return -1;
+    }
+
+    @Override
+    public boolean is_pitched() {
+        return fPitched;
+    }
+}
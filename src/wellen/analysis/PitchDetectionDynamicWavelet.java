@@ -0,0 +1,258 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package wellen.analysis;
+
+import wellen.Wellen;
+
+import java.util.Arrays;
+
+/*
+ * dywapitchtrack.c
+ *
+ * Dynamic Wavelet Algorithm Pitch Tracking library
+ * Released under the MIT open source licence
+ *
+ * Copyright (c) 2010 Antoine Schmitt
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+/**
+ * detects the pitch of a signal with a dynamic wavelet algorithm. the signal is repeatedly downsampled with a fast
+ * lifting wavelet transform while the distances between the extrema of the signal are compared across levels. the
+ * algorithm is described in a paper by Eric Larson and Ross Maddox: <a
+ * href="http://online.physics.uiuc.edu/courses/phys498pom/NSF_REU_Reports/2005_reu/Real-Time_Time-Domain_Pitch_Tracking_Using_Wavelets.pdf">Real-Time
+ * Time-Domain Pitch Tracking Using Wavelets</a>. it has a very low latency and works particularly well on human voice.
+ * this detector does not provide a probability.
+ * <p>
+ * Fair Use Disclaimer: this implementation was taken, with modifications, from a project called <a
+ * href="https://github.com/JorenSix/TarsosDSP">TarsosDSP</a> by Joren Six released under the GPL-3.0 license which is
+ * based on <code>dywapitchtrack</code> by Antoine Schmitt. the implementation was changed to downsample into a
+ * preallocated buffer so that it does not allocate memory while processing.
+ */
+public class PitchDetectionDynamicWavelet implements PitchDetector {
+
+    private static final int   DIFFERENCE_LEVELS      = 3;
+    private static final float MAX_FREQUENCY          = 3000.0f;
+    private static final int   MAX_FLWT_LEVELS        = 6;
+    private static final float MAXIMA_THRESHOLD_RATIO = 0.75f;
+
+    private       int[]   fDistances;
+    private       float[] fDownsampled;
+    private       int[]   fMaxs;
+    private       int[]   fMins;
+    private       float   fPitch;
+    private       boolean fPitched;
+    private final float   fSampleRate;
+
+    public PitchDetectionDynamicWavelet() {
+        this(Wellen.DEFAULT_SAMPLING_RATE, Wellen.DEFAULT_AUDIOBLOCK_SIZE);
+    }
+
+    /**
+     * @param sample_rate sample rate of signal
+     * @param buffer_size size of buffers passed to <code>process</code>
+     */
+    public PitchDetectionDynamicWavelet(float sample_rate, int buffer_size) {
+        fSampleRate = sample_rate;
+        allocate(buffer_size);
+    }
+
+    @Override
+    public float[] process(float[] signal) {
+        if (fDistances.length != signal.length) {
+            allocate(signal.length);
+        }
+        float   mPitch      = -1.0f;
+        float[] mBuffer     = signal;
+        int     mNumSamples = signal.length;
+
+        /* compute DC and maximum amplitude */
+        double mDC       = 0.0;
+        double mMaxValue = 0.0;
+        double mMinValue = 0.0;
+        for (float v : signal) {
+            mDC += v;
+            mMaxValue = Math.max(mMaxValue, v);
+            mMinValue = Math.min(mMinValue, v);
+        }
+        mDC /= signal.length;
+        mMaxValue -= mDC;
+        mMinValue -= mDC;
+        final double mAmplitudeMax       = Math.max(mMaxValue, -mMinValue);
+        final double mAmplitudeThreshold = mAmplitudeMax * MAXIMA_THRESHOLD_RATIO;
+
+        int    mLevel        = 0;
+        double mModeDistance = -1.0;
+        while (mNumSamples >= 2) {
+            final int mDelta = (int) (fSampleRate / ((1 << mLevel) * MAX_FREQUENCY));
+
+            /* find first maxima and minima after zero crossings that exceed the threshold and are further apart than
+            delta */
+            int     mNumMins      = 0;
+            int     mNumMaxs      = 0;
+            int     mLastMinIndex = -1000000;
+            int     mLastMaxIndex = -1000000;
+            boolean mFindMax      = false;
+            boolean mFindMin      = false;
+            double  mPreviousDV   = -1000;
+            for (int i = 2; i < mNumSamples; i++) {
+                final double si  = mBuffer[i] - mDC;
+                final double si1 = mBuffer[i - 1] - mDC;
+                if (si1 <= 0 && si > 0) {
+                    mFindMax = true;
+                }
+                if (si1 >= 0 && si < 0) {
+                    mFindMin = true;
+                }
+                final double dv = si - si1;
+                if (mPreviousDV > -1000) {
+                    if (mFindMin && mPreviousDV < 0 && dv >= 0) {
+                        if (Math.abs(si) >= mAmplitudeThreshold && i > mLastMinIndex + mDelta) {
+                            fMins[mNumMins++] = i;
+                            mLastMinIndex     = i;
+                            mFindMin          = false;
+                        }
+                    }
+                    if (mFindMax && mPreviousDV > 0 && dv <= 0) {
+                        if (Math.abs(si) >= mAmplitudeThreshold && i > mLastMaxIndex + mDelta) {
+                            fMaxs[mNumMaxs++] = i;
+                            mLastMaxIndex     = i;
+                            mFindMax          = false;
+                        }
+                    }
+                }
+                mPreviousDV = dv;
+            }
+            if (mNumMins == 0 && mNumMaxs == 0) {
+                break;
+            }
+
+            /* histogram of distances between minima */
+            Arrays.fill(fDistances, 0);
+            for (int i = 0; i < mNumMins; i++) {
+                for (int j = 1; j < DIFFERENCE_LEVELS; j++) {
+                    if (i + j < mNumMins) {
+                        fDistances[Math.abs(fMins[i] - fMins[i + j])]++;
+                    }
+                }
+            }
+
+            int mBestDistance = -1;
+            int mBestValue    = -1;
+            for (int i = 0; i < mNumSamples; i++) {
+                int mSummed = 0;
+                for (int j = -mDelta; j <= mDelta; j++) {
+                    if (i + j >= 0 && i + j < mNumSamples) {
+                        mSummed += fDistances[i + j];
+                    }
+                }
+                if (mSummed == mBestValue) {
+                    if (i == 2 * mBestDistance) {
+                        mBestDistance = i;
+                    }
+                } else if (mSummed > mBestValue) {
+                    mBestValue    = mSummed;
+                    mBestDistance = i;
+                }
+            }
+
+            /* average distances around the best distance to get the mode distance */
+            double mDistanceAverage   = 0.0;
+            double mNumberOfDistances = 0;
+            for (int j = -mDelta; j <= mDelta; j++) {
+                if (mBestDistance + j >= 0 && mBestDistance + j < signal.length) {
+                    final int mCount = fDistances[mBestDistance + j];
+                    if (mCount > 0) {
+                        mNumberOfDistances += mCount;
+                        mDistanceAverage += (mBestDistance + j) * mCount;
+                    }
+                }
+            }
+            mDistanceAverage /= mNumberOfDistances;
+
+            /* two consecutive similar mode distances yield the pitch */
+            if (mModeDistance > -1.0) {
+                final double mSimilarity = Math.abs(mDistanceAverage * 2 - mModeDistance);
+                if (mSimilarity <= 2 * mDelta) {
+                    mPitch = (float) (fSampleRate / ((1 << (mLevel - 1)) * mModeDistance));
+                    break;
+                }
+            }
+            mModeDistance = mDistanceAverage;
+
+            mLevel++;
+            if (mLevel >= MAX_FLWT_LEVELS) {
+                break;
+            }
+
+            /* downsample into preallocated buffer ( in place after the first level ) */
+            for (int i = 0; i < mNumSamples / 2; i++) {
+                fDownsampled[i] = (mBuffer[2 * i] + mBuffer[2 * i + 1]) / 2.0f;
+            }
+            mBuffer = fDownsampled;
+            mNumSamples /= 2;
+        }
+
+        fPitch   = mPitch;
+        fPitched = mPitch != -1.0f;
+        return signal;
+    }
+
+    @Override
+    public float get_pitch() {
+        return fPitch;
+    }
+
+    /**
+     * @return always -1 as the dynamic wavelet algorithm does not provide a probability
+     */
+    @Override
+    public float get_probability() {
+        return -1;
+    }
+
+    @Override
+    public boolean is_pitched() {
+        return fPitched;
+    }
+
+    private void allocate(int pBufferSize) {
+        fDistances   = new int[pBufferSize];
+        fMins        = new int[pBufferSize];
+        fMaxs        = new int[pBufferSize];
+        fDownsampled = new float[pBufferSize / 2];
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package wellen.analysis;
+
+import wellen.Wellen;
+
+/**
+ * detects the pitch of a signal with the McLeod Pitch Method (MPM) described in the article <a
+ * href="http://miracle.otago.ac.nz/tartini/papers/A_Smarter_Way_to_Find_Pitch.pdf">Philip McLeod + Geoff Wyvill: A
+ * Smarter Way to Find Pitch</a>. it uses a normalized version of the squared difference function coupled with a peak
+ * picking algorithm. the probability reflects the clarity of the highest peak.
+ * <p>
+ * Fair Use Disclaimer: this implementation was taken, with modifications, from a project called <a
+ * href="https://github.com/JorenSix/TarsosDSP">TarsosDSP</a> by Joren Six released under the GPL-3.0 license. the
+ * implementation was changed to store peaks in preallocated arrays so that it does not allocate memory while
+ * processing.
+ */
+public class PitchDetectionMcLeod implements PitchDetector {
+
+    /**
+     * choose the first peak that is higher than 97% of the highest peak detected.
+     */
+    private static final float DEFAULT_CUTOFF     = 0.97f;
+    /**
+     * pitch estimates below this frequency are considered invalid.
+     */
+    private static final float LOWER_PITCH_CUTOFF = 80.0f;
+    /**
+     * peaks below this value are not considered.
+     */
+    private static final float SMALL_CUTOFF       = 0.5f;
+
+    private final float[] fAmplitudeEstimates;
+    private final float   fCutoff;
+    private final int[]   fMaxPositions;
+    private final float[] fNSDF;
+    private final float[] fPeriodEstimates;
+    private final float   fSampleRate;
+    private       int     fNumberOfEstimates;
+    private       int     fNumberOfMaxPositions;
+    private       float   fPitch;
+    private       boolean fPitched;
+    private       float   fProbability;
+    private       float   fTurningPointX;
+    private       float   fTurningPointY;
+
+    public PitchDetectionMcLeod() {
+        this(Wellen.DEFAULT_SAMPLING_RATE, Wellen.DEFAULT_AUDIOBLOCK_SIZE);
+    }
+
+    /**
+     * @param sample_rate sample rate of signal
+     * @param buffer_size size of buffers passed to <code>process</code>
+     */
+    public PitchDetectionMcLeod(float sample_rate, int buffer_size) {
+        this(sample_rate, buffer_size, DEFAULT_CUTOFF);
+    }
+
+    /**
+     * @param sample_rate sample rate of signal
+     * @param buffer_size size of buffers passed to <code>process</code>
+     * @param cutoff      relative height of the chosen peak compared to the highest peak ( e.g 0.93 )
+     */
+    public PitchDetectionMcLeod(float sample_rate, int buffer_size, float cutoff) {
+        fSampleRate = sample_rate;
+        fCutoff     = cutoff;
+        fNSDF       = new float[buffer_size];
+        /* there is at most one maximum between two zero crossings */
+        fMaxPositions       = new int[buffer_size / 2 + 1];
+        fAmplitudeEstimates = new float[fMaxPositions.length];
+        fPeriodEstimates    = new float[fMaxPositions.length];
+    }
+
+    @Override
+    public float[] process(float[] signal) {
+        fNumberOfMaxPositions = 0;
+        fNumberOfEstimates    = 0;
+
+        normalizedSquareDifference(signal);
+        peakPicking();
+
+        float mHighestAmplitude = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < fNumberOfMaxPositions; i++) {
+            final int tau = fMaxPositions[i];
+            mHighestAmplitude = Math.max(mHighestAmplitude, fNSDF[tau]);
+            if (fNSDF[tau] > SMALL_CUTOFF) {
+                parabolicInterpolation(tau);
+                fAmplitudeEstimates[fNumberOfEstimates] = fTurningPointY;
+                fPeriodEstimates[fNumberOfEstimates]    = fTurningPointX;
+                fNumberOfEstimates++;
+                mHighestAmplitude = Math.max(mHighestAmplitude, fTurningPointY);
+            }
+        }
+
+        float mPitch = -1;
+        if (fNumberOfEstimates > 0) {
+            final float mActualCutoff = fCutoff * mHighestAmplitude;
+            int         mPeriodIndex  = 0;
+            for (int i = 0; i < fNumberOfEstimates; i++) {
+                if (fAmplitudeEstimates[i] >= mActualCutoff) {
+                    mPeriodIndex = i;
+                    break;
+                }
+            }
+            final float mPitchEstimate = fSampleRate / fPeriodEstimates[mPeriodIndex];
+            if (mPitchEstimate > LOWER_PITCH_CUTOFF) {
+                mPitch = mPitchEstimate;
+            }
+        }
+        fProbability = mHighestAmplitude;
+        fPitch       = mPitch;
+        fPitched     = mPitch != -1;
+        return signal;
+    }
+
+    @Override
+    public float get_pitch() {
+        return fPitch;
+    }
+
+    @Override
+    public float get_probability() {
+        return fProbability;
+    }
+
+    @Override
+    public boolean is_pitched() {
+        return fPitched;
+    }
+
+    /**
+     * normalized square difference function. see section 4 in the MPM article.
+     */
+    private void normalizedSquareDifference(float[] pSignal) {
+        final int mLength = Math.min(pSignal.length, fNSDF.length);
+        for (int tau = 0; tau < mLength; tau++) {
+            float mACF      = 0;
+            float mDivisorM = 0;
+            for (int i = 0; i < mLength - tau; i++) {
+                mACF += pSignal[i] * pSignal[i + tau];
+                mDivisorM += pSignal[i] * pSignal[i] + pSignal[i + tau] * pSignal[i + tau];
+            }
+            fNSDF[tau] = 2 * mACF / mDivisorM;
+        }
+    }
+
+    /**
+     * finds the x and y value of the top of a parabola through three neighboring values of the NSDF.
+     */
+    private void parabolicInterpolation(int tau) {
+        final float mNSDFa  = fNSDF[tau - 1];
+        final float mNSDFb  = fNSDF[tau];
+        final float mNSDFc  = fNSDF[tau + 1];
+        final float mBottom = mNSDFc + mNSDFa - 2 * mNSDFb;
+        if (mBottom == 0.0f) {
+            fTurningPointX = tau;
+            fTurningPointY = mNSDFb;
+        } else {
+            final float mDelta = mNSDFa - mNSDFc;
+            fTurningPointX = tau + mDelta / (2 * mBottom);
+            fTurningPointY = mNSDFb - mDelta * mDelta / (8 * mBottom);
+        }
+    }
+
+    /**
+     * finds the highest value between each pair of positive zero crossings including the highest value between the
+     * last positive zero crossing and the end ( if any ). the first maximum ( which is at zero ) is ignored. based on
+     * the GPL'ed code of <a href="http://tartini.net">Tartini</a> by Philip McLeod.
+     */
+    private void peakPicking() {
+        int pos        = 0;
+        int mCurMaxPos = 0;
+
+        /* find the first negative zero crossing */
+        while (pos < (fNSDF.length - 1) / 3 && fNSDF[pos] > 0) {
+            pos++;
+        }
+        /* loop over all the values below zero */
+        while (pos < fNSDF.length - 1 && fNSDF[pos] <= 0.0f) {
+            pos++;
+        }
+        /* can happen if output[0] is NAN */
+        if (pos == 0) {
+            pos = 1;
+        }
+
+        while (pos < fNSDF.length - 1) {
+            if (fNSDF[pos] > fNSDF[pos - 1] && fNSDF[pos] >= fNSDF[pos + 1]) {
+                if (mCurMaxPos == 0 || fNSDF[pos] > fNSDF[mCurMaxPos]) {
+                    mCurMaxPos = pos;
+                }
+            }
+            pos++;
+            /* a negative zero crossing */
+            if (pos < fNSDF.length - 1 && fNSDF[pos] <= 0) {
+                if (mCurMaxPos > 0) {
+                    addMaxPosition(mCurMaxPos);
+                    mCurMaxPos = 0;
+                }
+                while (pos < fNSDF.length - 1 && fNSDF[pos] <= 0.0f) {
+                    pos++;
+                }
+            }
+        }
+        if (mCurMaxPos > 0) {
+            addMaxPosition(mCurMaxPos);
+        }
+    }
+
+    private void addMaxPosition(int pPosition) {
+        if (fNumberOfMaxPositions < fMaxPositions.length) {
+            fMaxPositions[fNumberOfMaxPositions++] = pPosition;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package wellen.analysis;
+
+/**
+ * common interface of pitch detectors that estimate the pitch of a signal from one buffer of samples at a time.
+ */
+public interface PitchDetector {
+
+    /**
+     * analyze a buffer of samples. the buffer is not modified.
+     *
+     * @param signal buffer of samples
+     * @return the unmodified buffer
+     */
+    float[] process(float[] signal);
+
+    /**
+     * @return detected pitch in Hz or -1 if no pitch was detected
+     */
+    float get_pitch();
+
+    /**
+     * @return probability of detected pitch. the exact meaning depends on the detector and may be -1 if a detector
+     *         does not provide a probability.
+     */
+    float get_probability();
+
+    /**
+     * @return <code>true</code> if the last buffer was considered to be pitched
+     */
+    boolean is_pitched();
+}
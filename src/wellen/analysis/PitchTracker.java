@@ -0,0 +1,245 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package wellen.analysis;
+
+import wellen.Wellen;
+
+/**
+ * tracks the pitch of a continuous signal. incoming samples are collected in a ring buffer and analyzed every
+ * <code>hop size</code> samples over a window of the last <code>window size</code> samples. window size and hop size
+ * are independent of the audio block size, so analysis windows may span multiple audio blocks and several analyses may
+ * take place within a single audio block. a smaller hop size reduces the latency of the pitch estimate at the expense
+ * of more computation.
+ * <p>
+ * the pitch detection algorithm can be selected from {@link #YIN}, {@link #FAST_YIN}, {@link #MCLEOD}, {@link #AMDF}
+ * and {@link #DYNAMIC_WAVELET}. apart from changing the algorithm, no memory is allocated while processing.
+ */
+public class PitchTracker {
+
+    public static final int YIN             = 0;
+    public static final int FAST_YIN        = 1;
+    public static final int MCLEOD          = 2;
+    public static final int AMDF            = 3;
+    public static final int DYNAMIC_WAVELET = 4;
+
+    private       int           fAlgorithm;
+    private       long          fAnalysisTime  = -1;
+    private       PitchCallback fCallback      = null;
+    private       PitchDetector fDetector;
+    private       int           fHopSize;
+    private       float         fPitch         = -1;
+    private       boolean       fPitched       = false;
+    private       float         fProbability   = 0;
+    private final float[]       fRingBuffer;
+    private       long          fSampleCounter = 0;
+    private final float         fSampleRate;
+    private       int           fSamplesUntilHop;
+    private final float[]       fWindow;
+    private       int           fWriteIndex    = 0;
+
+    /**
+     * create a pitch tracker with YIN, a window of 2048 samples and a hop size of one audio block.
+     */
+    public PitchTracker() {
+        this(Wellen.DEFAULT_SAMPLING_RATE, 2048, Wellen.DEFAULT_AUDIOBLOCK_SIZE, YIN);
+    }
+
+    /**
+     * @param sample_rate sample rate of signal
+     * @param window_size number of samples analyzed at a time
+     * @param hop_size    number of samples between two analyses
+     * @param algorithm   pitch detection algorithm e.g {@link #YIN}
+     */
+    public PitchTracker(float sample_rate, int window_size, int hop_size, int algorithm) {
+        fSampleRate = sample_rate;
+        fRingBuffer = new float[window_size];
+        fWindow     = new float[window_size];
+        set_hop_size(hop_size);
+        set_algorithm(algorithm);
+        fSamplesUntilHop = window_size;
+    }
+
+    /**
+     * add samples to the tracker and analyze the signal for each completed hop.
+     *
+     * @param signal samples to add
+     * @return number of analyses that took place
+     */
+    public int process(float[] signal) {
+        return process(signal, 0, signal.length);
+    }
+
+    /**
+     * add samples to the tracker and analyze the signal for each completed hop.
+     *
+     * @param signal samples to add
+     * @param offset index of first sample
+     * @param length number of samples
+     * @return number of analyses that took place
+     */
+    public int process(float[] signal, int offset, int length) {
+        int mAnalyses  = 0;
+        int mIndex     = offset;
+        int mRemaining = length;
+        while (mRemaining > 0) {
+            final int mChunk = Math.min(Math.min(mRemaining, fSamplesUntilHop), fRingBuffer.length - fWriteIndex);
+            System.arraycopy(signal, mIndex, fRingBuffer, fWriteIndex, mChunk);
+            fWriteIndex = (fWriteIndex + mChunk) % fRingBuffer.length;
+            fSampleCounter += mChunk;
+            fSamplesUntilHop -= mChunk;
+            mIndex += mChunk;
+            mRemaining -= mChunk;
+            if (fSamplesUntilHop == 0) {
+                analyze();
+                fSamplesUntilHop = fHopSize;
+                mAnalyses++;
+            }
+        }
+        return mAnalyses;
+    }
+
+    /**
+     * @param algorithm pitch detection algorithm e.g {@link #YIN}
+     */
+    public void set_algorithm(int algorithm) {
+        switch (algorithm) {
+            case FAST_YIN:
+                final PitchDetection mFastYin = new PitchDetection(fSampleRate, fWindow.length);
+                mFastYin.enable_FFT(true);
+                fDetector = mFastYin;
+                break;
+            case MCLEOD:
+                fDetector = new PitchDetectionMcLeod(fSampleRate, fWindow.length);
+                break;
+            case AMDF:
+                fDetector = new PitchDetectionAMDF(fSampleRate, fWindow.length);
+                break;
+            case DYNAMIC_WAVELET:
+                fDetector = new PitchDetectionDynamicWavelet(fSampleRate, fWindow.length);
+                break;
+            case YIN:
+            default:
+                algorithm = YIN;
+                fDetector = new PitchDetection(fSampleRate, fWindow.length);
+        }
+        fAlgorithm = algorithm;
+    }
+
+    /**
+     * @return pitch detection algorithm
+     */
+    public int get_algorithm() {
+        return fAlgorithm;
+    }
+
+    /**
+     * @return pitch detector used by the tracker
+     */
+    public PitchDetector get_detector() {
+        return fDetector;
+    }
+
+    /**
+     * @param hop_size number of samples between two analyses. the value is constrained to the range of 1 to window
+     *                 size.
+     */
+    public void set_hop_size(int hop_size) {
+        fHopSize = Math.max(1, Math.min(hop_size, fWindow.length));
+        if (fSamplesUntilHop > fHopSize) {
+            fSamplesUntilHop = fHopSize;
+        }
+    }
+
+    /**
+     * @return number of samples between two analyses
+     */
+    public int get_hop_size() {
+        return fHopSize;
+    }
+
+    /**
+     * @return number of samples analyzed at a time
+     */
+    public int get_window_size() {
+        return fWindow.length;
+    }
+
+    /**
+     * @return detected pitch in Hz or -1 if no pitch was detected
+     */
+    public float get_pitch() {
+        return fPitch;
+    }
+
+    /**
+     * @return probability of detected pitch
+     */
+    public float get_probability() {
+        return fProbability;
+    }
+
+    /**
+     * @return <code>true</code> if the last analyzed window was considered to be pitched
+     */
+    public boolean is_pitched() {
+        return fPitched;
+    }
+
+    /**
+     * @return number of samples processed when the last analysis took place or -1 if no analysis has taken place yet
+     */
+    public long get_analysis_time() {
+        return fAnalysisTime;
+    }
+
+    /**
+     * @param callback callback that is called after each analysis ( or <code>null</code> )
+     */
+    public void set_callback(PitchCallback callback) {
+        fCallback = callback;
+    }
+
+    public interface PitchCallback {
+
+        /**
+         * called from within <code>process</code> after each analysis.
+         *
+         * @param pitch         detected pitch in Hz or -1 if no pitch was detected
+         * @param probability   probability of detected pitch
+         * @param is_pitched    <code>true</code> if analyzed window was considered to be pitched
+         * @param analysis_time number of samples processed when the analysis took place
+         */
+        void pitch(float pitch, float probability, boolean is_pitched, long analysis_time);
+    }
+
+    private void analyze() {
+        /* unroll ring buffer into window with the oldest sample first */
+        final int mOldest = fWriteIndex;
+        System.arraycopy(fRingBuffer, mOldest, fWindow, 0, fRingBuffer.length - mOldest);
+        System.arraycopy(fRingBuffer, 0, fWindow, fRingBuffer.length - mOldest, mOldest);
+        fDetector.process(fWindow);
+        fPitch        = fDetector.get_pitch();
+        fProbability  = fDetector.get_probability();
+        fPitched      = fDetector.is_pitched();
+        fAnalysisTime = fSampleCounter;
+        if (fCallback != null) {
+            fCallback.pitch(fPitch, fProbability, fPitched, fAnalysisTime);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package wellen.analysis;
+
+import wellen.Wellen;
+
+/**
+ * short-time fourier transform ( STFT ) of a continuous signal. samples are written into a ring buffer of
+ * <code>frame_size</code> samples. every <code>hop_size</code> samples the most recent frame is windowed and
+ * transformed with a real-input FFT. magnitudes ( and optionally phases ) of the frame are stored in preallocated
+ * arrays. frame size and hop size are independent of the audio block size, analyzing a frame does not allocate
+ * memory.
+ * <p>
+ * magnitudes are not normalized, i.e a full scale sine wave with a window of type {@link Wellen#WINDOW_NONE} results
+ * in a magnitude of <code>frame_size / 2</code> at its frequency.
+ */
+public class STFT {
+
+    private final FFT     fFFT;
+    private final float[] fFrame;
+    private final int     fFrameSize;
+    private final float[] fMagnitudes;
+    private final float[] fPhases;
+    private final float[] fRingBuffer;
+    private final float   fSampleRate;
+    private final float[] fWindow;
+    private boolean       fComputePhases;
+    private long          fFrameCounter;
+    private int           fHopSize;
+    private int           fSamplesSinceFrame;
+    private int           fWindowType;
+    private int           fWritePosition;
+
+    /**
+     * @param frame_size  number of samples per frame, must be a power of two
+     * @param hop_size    number of samples between two frames. <code>frame_size / 2</code> results in an overlap of 50%.
+     * @param window      {@link Wellen#WINDOW_NONE}, {@link Wellen#WINDOW_HAMMING} or {@link Wellen#WINDOW_HANN}
+     * @param sample_rate sample rate in Hz
+     */
+    public STFT(int frame_size, int hop_size, int window, float sample_rate) {
+        if (frame_size < 2 || (frame_size & (frame_size - 1)) != 0) {
+            throw new IllegalArgumentException("STFT: frame size must be a power of two.");
+        }
+        fFrameSize  = frame_size;
+        fSampleRate = sample_rate;
+        fFFT        = FFT.plan(frame_size, false);
+        fFrame      = new float[frame_size];
+        fRingBuffer = new float[frame_size];
+        fWindow     = new float[frame_size];
+        fMagnitudes = new float[frame_size / 2 + 1];
+        fPhases     = new float[frame_size / 2 + 1];
+        set_hop_size(hop_size);
+        set_window(window);
+    }
+
+    /**
+     * create STFT with a hamming window and 50% overlap
+     *
+     * @param frame_size number of samples per frame, must be a power of two
+     */
+    public STFT(int frame_size) {
+        this(frame_size, frame_size / 2, Wellen.WINDOW_HAMMING, Wellen.DEFAULT_SAMPLING_RATE);
+    }
+
+    /**
+     * @param window {@link Wellen#WINDOW_NONE}, {@link Wellen#WINDOW_HAMMING} or {@link Wellen#WINDOW_HANN}
+     */
+    public void set_window(int window) {
+        fWindowType = window;
+        for (int i = 0; i < fFrameSize; i++) {
+            switch (window) {
+                case Wellen.WINDOW_HAMMING:
+                    fWindow[i] = (float) (0.54 - 0.46 * Math.cos(2 * Math.PI * i / (fFrameSize - 1)));
+                    break;
+                case Wellen.WINDOW_HANN:
+                    fWindow[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / (fFrameSize - 1)));
+                    break;
+                default:
+                    fWindow[i] = 1.0f;
+            }
+        }
+    }
+
+    /**
+     * @return window type
+     */
+    public int get_window() {
+        return fWindowType;
+    }
+
+    /**
+     * @param hop_size number of samples between two frames, clamped to <code>[1, frame_size]</code>
+     */
+    public void set_hop_size(int hop_size) {
+        fHopSize = Math.max(1, Math.min(hop_size, fFrameSize));
+    }
+
+    /**
+     * @return number of samples between two frames
+     */
+    public int get_hop_size() {
+        return fHopSize;
+    }
+
+    /**
+     * @return number of samples per frame
+     */
+    public int get_frame_size() {
+        return fFrameSize;
+    }
+
+    /**
+     * @param compute_phases compute phases of each frame in addition to magnitudes
+     */
+    public void enable_phases(boolean compute_phases) {
+        fComputePhases = compute_phases;
+    }
+
+    /**
+     * write a single sample.
+     *
+     * @param sample sample to write
+     * @return <code>true</code> if a new frame was analyzed
+     */
+    public boolean write(float sample) {
+        fRingBuffer[fWritePosition] = sample;
+        fWritePosition = (fWritePosition + 1) & (fFrameSize - 1);
+        fSamplesSinceFrame++;
+        if (fSamplesSinceFrame >= fHopSize) {
+            fSamplesSinceFrame = 0;
+            analyze();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * write a block of samples. if more than one frame completes within the block only the results of the last frame
+     * are kept.
+     *
+     * @param signal samples to write
+     * @return number of frames analyzed
+     */
+    public int write(float[] signal) {
+        return write(signal, 0, signal.length);
+    }
+
+    /**
+     * write a block of samples. if more than one frame completes within the block only the results of the last frame
+     * are kept.
+     *
+     * @param signal samples to write
+     * @param offset index of first sample to write
+     * @param length number of samples to write
+     * @return number of frames analyzed
+     */
+    public int write(float[] signal, int offset, int length) {
+        int mFrames = 0;
+        int i = offset;
+        final int mEnd = offset + length;
+        while (i < mEnd) {
+            /* copy samples up to the end of the next frame */
+            final int mFrames2Next = fHopSize - fSamplesSinceFrame;
+            final int mCount = Math.min(mFrames2Next, mEnd - i);
+            for (int j = 0; j < mCount; j++) {
+                fRingBuffer[fWritePosition] = signal[i + j];
+                fWritePosition = (fWritePosition + 1) & (fFrameSize - 1);
+            }
+            i += mCount;
+            fSamplesSinceFrame += mCount;
+            if (fSamplesSinceFrame >= fHopSize) {
+                fSamplesSinceFrame = 0;
+                mFrames++;
+                if (mEnd - i < fHopSize) {
+                    analyze();
+                } else {
+                    fFrameCounter++;
+                }
+            }
+        }
+        return mFrames;
+    }
+
+    /**
+     * analyze a complete frame directly, bypassing the ring buffer.
+     *
+     * @param frame samples to analyze, must be at least <code>frame_size</code> long. the samples are not altered.
+     */
+    public void analyze(float[] frame) {
+        for (int i = 0; i < fFrameSize; i++) {
+            fFrame[i] = frame[i] * fWindow[i];
+        }
+        transform();
+    }
+
+    /**
+     * @return number of frames analyzed since creation
+     */
+    public long get_frame_counter() {
+        return fFrameCounter;
+    }
+
+    /**
+     * @return magnitudes of the last frame with <code>frame_size / 2 + 1</code> bins from 0 Hz to the nyquist frequency.
+     *         the array is reused for every frame.
+     */
+    public float[] get_magnitudes() {
+        return fMagnitudes;
+    }
+
+    /**
+     * @return phases of the last frame in radians. phases are only computed if enabled with
+     *         {@link #enable_phases(boolean)}. the array is reused for every frame.
+     */
+    public float[] get_phases() {
+        return fPhases;
+    }
+
+    /**
+     * @param bin index of frequency bin
+     * @return center frequency of bin in Hz
+     */
+    public float bin_to_frequency(int bin) {
+        return bin * fSampleRate / fFrameSize;
+    }
+
+    /**
+     * @param frequency frequency in Hz
+     * @return index of frequency bin closest to frequency
+     */
+    public int frequency_to_bin(float frequency) {
+        final int mBin = Math.round(frequency * fFrameSize / fSampleRate);
+        return Math.max(0, Math.min(mBin, fMagnitudes.length - 1));
+    }
+
+    private void analyze() {
+        /* oldest sample is at the write position */
+        final int mFirst = fFrameSize - fWritePosition;
+        for (int i = 0; i < mFirst; i++) {
+            fFrame[i] = fRingBuffer[fWritePosition + i] * fWindow[i];
+        }
+        for (int i = mFirst; i < fFrameSize; i++) {
+            fFrame[i] = fRingBuffer[i - mFirst] * fWindow[i];
+        }
+        transform();
+    }
+
+    private void transform() {
+        fFFT.forwardTransform(fFrame);
+        final int mNyquist = fFrameSize / 2;
+        fMagnitudes[0]        = Math.abs(fFrame[0]);
+        fMagnitudes[mNyquist] = Math.abs(fFrame[1]);
+        for (int i = 1; i < mNyquist; i++) {
+            final float mReal = fFrame[2 * i];
+            final float mImaginary = fFrame[2 * i + 1];
+            fMagnitudes[i] = (float) Math.sqrt(mReal * mReal + mImaginary * mImaginary);
+        }
+        if (fComputePhases) {
+            fPhases[0]        = fFrame[0] < 0 ? (float) Math.PI : 0.0f;
+            fPhases[mNyquist] = fFrame[1] < 0 ? (float) Math.PI : 0.0f;
+            for (int i = 1; i < mNyquist; i++) {
+                fPhases[i] = (float) Math.atan2(fFrame[2 * i + 1], fFrame[2 * i]);
+            }
+        }
+        fFrameCounter++;
+    }
+}
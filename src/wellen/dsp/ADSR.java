@@ -39,7 +39,7 @@ import wellen.Wellen;
  *                |Press          |Release
  *  </code></pre>
  */
-public class ADSR implements DSPNodeOutput {
+public class ADSR implements DSPNodeOutput, DSPNodeActivity {
 
     /*
      *       [ NODE_ADSR           ]
@@ -121,6 +121,22 @@ public class ADSR implements DSPNodeOutput {
         return mAmp;
     }
 
+    /**
+     * @return current envelope value without advancing the envelope
+     */
+    public float get_current_value() {
+        return mAmp;
+    }
+
+    /**
+     * @return <code>true</code> if envelope has finished its release stage ( or was never started ) and its value is 0
+     */
+    @Override
+    public boolean is_idle() {
+        final boolean mIsSteady = mState == ENVELOPE_STATE.IDLE || mState == ENVELOPE_STATE.SUSTAIN;
+        return mIsSteady && mAmp <= Wellen.SIGNAL_SILENCE_THRESHOLD;
+    }
+
     /**
      *
      */
@@ -19,10 +19,10 @@
 
 package wellen.dsp;
 
+import wellen.BeatListener;
+import wellen.CallbackBinder;
 import wellen.Wellen;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 
 /**
@@ -32,28 +32,14 @@ public class BeatDSP implements DSPNodeInput {
 
     private static final String METHOD_NAME = "beat";
     private int fBeat;
-    private final Object fListener;
     private final ArrayList<Trigger.Listener> fListeners;
-    private final Method fMethod;
+    private final BeatListener fBeatListener;
     private final int fSamplingRate;
     private int fTickCounter;
     private float fTickInterval;
 
     public BeatDSP(Object pListener, int pSamplingRate) {
-        Method mMethod;
-        if (pListener != null) {
-            try {
-                mMethod = pListener.getClass().getDeclaredMethod(METHOD_NAME, Integer.TYPE);
-            } catch (NoSuchMethodException | SecurityException ex) {
-                mMethod = null;
-                System.err.println("+++ @" + getClass().getSimpleName() + " / could not find `" + METHOD_NAME +
-                                           "(int)`");
-            }
-        } else {
-            mMethod = null;
-        }
-        fMethod = mMethod;
-        fListener = pListener;
+        fBeatListener = CallbackBinder.bind_listener(BeatListener.class, pListener, METHOD_NAME, this);
         fSamplingRate = pSamplingRate;
         fBeat = -1;
         fListeners = new ArrayList<>();
@@ -129,10 +115,11 @@ public class BeatDSP implements DSPNodeInput {
 
     private void fireEvent() {
         fBeat++;
-        if (fMethod != null) {
+        if (fBeatListener != null) {
             try {
-                fMethod.invoke(fListener, fBeat);
-            } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+                fBeatListener.beat(fBeat);
+            } catch (RuntimeException ex) {
+                System.err.println("+++ @" + getClass().getSimpleName() + " / error in beat: " + ex);
                 ex.printStackTrace();
             }
         }
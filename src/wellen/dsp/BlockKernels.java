@@ -0,0 +1,154 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen.dsp;
+
+/**
+ * block processing kernels for gain, mixing, clamping and waveshaping. sample format conversion lives in
+ * {@link wellen.PCMCodec}.
+ * <p>
+ * every kernel is a single counted loop over independent samples without branches, calls or aliasing between
+ * iterations. this is the form the JIT compiler turns into SIMD instructions ( e.g SSE, AVX or NEON ) on its own, so
+ * the kernels run vectorized wherever the JVM supports it and as plain scalar loops everywhere else ( e.g on android ).
+ * for parallel filter banks see {@link FilterBiquadBank}.
+ */
+public final class BlockKernels {
+
+    private BlockKernels() {
+    }
+
+    /**
+     * multiply samples by a constant gain.
+     *
+     * @param buffer buffer to process in place
+     * @param gain   gain factor
+     */
+    public static void gain(float[] buffer, float gain) {
+        gain(buffer, gain, 0, buffer.length);
+    }
+
+    /**
+     * multiply a range of samples by a constant gain.
+     *
+     * @param buffer buffer to process in place
+     * @param gain   gain factor
+     * @param offset index of the first sample
+     * @param length number of samples
+     */
+    public static void gain(float[] buffer, float gain, int offset, int length) {
+        final int mEnd = offset + length;
+        for (int i = offset; i < mEnd; i++) {
+            buffer[i] *= gain;
+        }
+    }
+
+    /**
+     * add a range of samples from one buffer to another.
+     *
+     * @param destination buffer to accumulate into
+     * @param source      buffer to add
+     * @param offset      index of the first sample in both buffers
+     * @param length      number of samples
+     */
+    public static void add(float[] destination, float[] source, int offset, int length) {
+        final int mEnd = offset + length;
+        for (int i = offset; i < mEnd; i++) {
+            destination[i] += source[i];
+        }
+    }
+
+    /**
+     * add a range of samples from one buffer scaled by a gain to another.
+     *
+     * @param destination buffer to accumulate into
+     * @param source      buffer to add
+     * @param gain        gain applied to source samples
+     * @param offset      index of the first sample in both buffers
+     * @param length      number of samples
+     */
+    public static void mix(float[] destination, float[] source, float gain, int offset, int length) {
+        final int mEnd = offset + length;
+        for (int i = offset; i < mEnd; i++) {
+            destination[i] += source[i] * gain;
+        }
+    }
+
+    /**
+     * limit samples to the range [-1, 1].
+     *
+     * @param buffer buffer to process in place
+     */
+    public static void clamp(float[] buffer) {
+        clamp(buffer, -1.0f, 1.0f, 0, buffer.length);
+    }
+
+    /**
+     * limit a range of samples to the range [min, max].
+     *
+     * @param buffer buffer to process in place
+     * @param min    lower limit
+     * @param max    upper limit
+     * @param offset index of the first sample
+     * @param length number of samples
+     */
+    public static void clamp(float[] buffer, float min, float max, int offset, int length) {
+        final int mEnd = offset + length;
+        for (int i = offset; i < mEnd; i++) {
+            buffer[i] = Math.min(Math.max(buffer[i], min), max);
+        }
+    }
+
+    /**
+     * hard clipping waveshaper: <code>output_gain * clamp(amount * (x + bias))</code>.
+     *
+     * @param buffer      buffer to process in place
+     * @param amount      drive
+     * @param bias        offset added before the drive
+     * @param output_gain gain applied after clipping
+     * @param offset      index of the first sample
+     * @param length      number of samples
+     */
+    public static void hard_clip(float[] buffer, float amount, float bias, float output_gain, int offset, int length) {
+        final int mEnd = offset + length;
+        for (int i = offset; i < mEnd; i++) {
+            final float mSample = amount * (buffer[i] + bias);
+            buffer[i] = output_gain * Math.min(Math.max(mSample, -1.0f), 1.0f);
+        }
+    }
+
+    /**
+     * cubic soft clipping waveshaper: <code>x - x^3 / 3</code> with <code>x = amount * (x + bias)</code> clamped to
+     * [-1, 1], scaled by <code>output_gain</code>.
+     *
+     * @param buffer      buffer to process in place
+     * @param amount      drive
+     * @param bias        offset added before the drive
+     * @param output_gain gain applied after shaping
+     * @param offset      index of the first sample
+     * @param length      number of samples
+     */
+    public static void cubic(float[] buffer, float amount, float bias, float output_gain, int offset, int length) {
+        final float ONE_THIRD = 1.0f / 3.0f;
+        final int mEnd = offset + length;
+        for (int i = offset; i < mEnd; i++) {
+            final float mSample = Math.min(Math.max((buffer[i] + bias) * amount, -1.0f), 1.0f);
+            buffer[i] = (mSample - mSample * mSample * mSample * ONE_THIRD) * output_gain;
+        }
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package wellen.dsp;
+
+import wellen.WAVReader;
+import wellen.Wellen;
+import wellen.analysis.FFT;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * applies an impulse response ( e.g a recording of a room ) to a signal with partitioned FFT convolution.
+ * <p>
+ * the impulse response is split into two segments. the head of the impulse response is convolved with uniform
+ * partitions of <code>block_size</code> samples, which sets the latency of the reverb to <code>block_size</code>
+ * samples. the tail of the impulse response is convolved with larger partitions of
+ * <code>TAIL_PARTITION_FACTOR * block_size</code> samples. the tail is computed once every tail partition and can
+ * optionally be handed to a background worker thread, which then has a full tail partition of time to deliver its
+ * result. all buffers are allocated at construction, processing a block does not allocate memory.
+ * <p>
+ * a mono impulse response is applied to both channels. a stereo impulse response applies its left channel to the left
+ * signal and its right channel to the right signal.
+ */
+public class ConvolutionReverb implements DSPNodeProcessBlock, EffectStereo {
+
+    public static final int TAIL_PARTITION_FACTOR = 8;
+    private static final int NUMBER_OF_CHANNELS = 2;
+    private final int               fBlockSize;
+    private final float[][]         fHeadInput;
+    private final float[][]         fHeadOutput;
+    private final Convolver         fHead;
+    private final int               fImpulseResponseLength;
+    private final Convolver         fTail;
+    private final int               fTailBlockSize;
+    private final float[][]         fTailInput;
+    private final Worker            fWorker;
+    private float                   fDry;
+    private int                     fPosition;
+    private float[][]               fTailOutput;
+    private float[][]               fTailPending;
+    private int                     fTailPosition;
+    private float                   fWet;
+
+    /**
+     * @param impulse_response  impulse response with one or two channels
+     * @param block_size        partition size and latency in samples, rounded up to a power of two
+     * @param use_worker_thread compute the tail of long impulse responses on a background thread
+     */
+    public ConvolutionReverb(float[][] impulse_response, int block_size, boolean use_worker_thread) {
+        int mBlockSize = 1;
+        while (mBlockSize < block_size) {
+            mBlockSize <<= 1;
+        }
+        fBlockSize             = mBlockSize;
+        fTailBlockSize         = mBlockSize * TAIL_PARTITION_FACTOR;
+        fImpulseResponseLength = impulse_response.length > 0 ? impulse_response[0].length : 0;
+        fHeadInput             = new float[NUMBER_OF_CHANNELS][fBlockSize];
+        fHeadOutput            = new float[NUMBER_OF_CHANNELS][fBlockSize];
+        fDry                   = 1.0f;
+        fWet                   = 1.0f;
+
+        /* the tail starts after two tail partitions, which leaves one partition of slack for computing it */
+        final int mHeadLength = 2 * fTailBlockSize;
+        if (fImpulseResponseLength > mHeadLength) {
+            fHead        = new Convolver(impulse_response, 0, mHeadLength, fBlockSize);
+            fTail        = new Convolver(impulse_response, mHeadLength, fImpulseResponseLength, fTailBlockSize);
+            fTailInput   = new float[NUMBER_OF_CHANNELS][fTailBlockSize];
+            fTailOutput  = new float[NUMBER_OF_CHANNELS][fTailBlockSize];
+            fTailPending = new float[NUMBER_OF_CHANNELS][fTailBlockSize];
+            fWorker      = use_worker_thread ? new Worker(fTail, fTailBlockSize) : null;
+        } else {
+            fHead        = new Convolver(impulse_response, 0, fImpulseResponseLength, fBlockSize);
+            fTail        = null;
+            fTailInput   = null;
+            fTailOutput  = null;
+            fTailPending = null;
+            fWorker      = null;
+        }
+    }
+
+    /**
+     * @param impulse_response impulse response with one or two channels
+     */
+    public ConvolutionReverb(float[][] impulse_response) {
+        this(impulse_response, Wellen.DEFAULT_AUDIOBLOCK_SIZE, false);
+    }
+
+    /**
+     * load impulse response from a WAV file. the impulse response is resampled if its sample rate differs from
+     * <code>sample_rate</code> and normalized to unit energy.
+     *
+     * @param file_path         path to WAV file
+     * @param sample_rate       sample rate of the signal processed by the reverb
+     * @param block_size        partition size and latency in samples
+     * @param use_worker_thread compute the tail of long impulse responses on a background thread
+     * @return reverb with loaded impulse response
+     * @throws IOException if the file can not be read
+     */
+    public static ConvolutionReverb load(String file_path,
+                                         float sample_rate,
+                                         int block_size,
+                                         boolean use_worker_thread) throws IOException {
+        final float[][] mImpulseResponse;
+        final int mSampleRate;
+        try (WAVReader mReader = new WAVReader(file_path)) {
+            mImpulseResponse = mReader.read_all();
+            mSampleRate      = mReader.get_sample_rate();
+        }
+        return new ConvolutionReverb(normalize(resample(mImpulseResponse, mSampleRate / sample_rate)),
+                                     block_size,
+                                     use_worker_thread);
+    }
+
+    /**
+     * @return latency in samples
+     */
+    public int get_latency() {
+        return fBlockSize;
+    }
+
+    /**
+     * @return length of impulse response in samples
+     */
+    public int get_impulse_response_length() {
+        return fImpulseResponseLength;
+    }
+
+    /**
+     * @param wet level of reverberated signal
+     */
+    public void set_wet(float wet) {
+        fWet = wet;
+    }
+
+    /**
+     * @return level of reverberated signal
+     */
+    public float get_wet() {
+        return fWet;
+    }
+
+    /**
+     * @param dry level of original signal
+     */
+    public void set_dry(float dry) {
+        fDry = dry;
+    }
+
+    /**
+     * @return level of original signal
+     */
+    public float get_dry() {
+        return fDry;
+    }
+
+    /**
+     * stop background worker thread. the reverb keeps working and computes the tail on the audio thread afterwards.
+     */
+    public void stop() {
+        if (fWorker != null) {
+            fWorker.stop();
+        }
+    }
+
+    @Override
+    public void out(float[] output_signalLeft, float[] output_signalRight) {
+        process(output_signalLeft, output_signalRight, 0, output_signalLeft.length);
+    }
+
+    /**
+     * process stereo signal in place. mono signals are processed with the left channel of the impulse response.
+     *
+     * @param signal buffers to process with one buffer per channel
+     * @param offset index of the first sample to process
+     * @param length number of samples to process
+     */
+    @Override
+    public void process(float[][] signal, int offset, int length) {
+        if (signal.length == 1) {
+            process(signal[0], null, offset, length);
+        } else if (signal.length > 1) {
+            process(signal[0], signal[1], offset, length);
+        }
+    }
+
+    /**
+     * process stereo signal in place.
+     *
+     * @param signal_left  left channel
+     * @param signal_right right channel, may be <code>null</code>
+     * @param offset       index of the first sample to process
+     * @param length       number of samples to process
+     */
+    public void process(float[] signal_left, float[] signal_right, int offset, int length) {
+        int i = offset;
+        final int mEnd = offset + length;
+        while (i < mEnd) {
+            final int mFrames = Math.min(fBlockSize - fPosition, mEnd - i);
+            exchange(signal_left, 0, i, mFrames);
+            if (signal_right != null) {
+                exchange(signal_right, 1, i, mFrames);
+            }
+            fPosition += mFrames;
+            i += mFrames;
+            if (fPosition == fBlockSize) {
+                fPosition = 0;
+                processBlock();
+            }
+        }
+    }
+
+    private void exchange(float[] pSignal, int pChannel, int pOffset, int pFrames) {
+        final float[] mInput = fHeadInput[pChannel];
+        final float[] mOutput = fHeadOutput[pChannel];
+        for (int j = 0; j < pFrames; j++) {
+            final float mSample = pSignal[pOffset + j];
+            mInput[fPosition + j] = mSample;
+            pSignal[pOffset + j]  = mSample * fDry + mOutput[fPosition + j] * fWet;
+        }
+    }
+
+    private void processBlock() {
+        fHead.process(fHeadInput, fHeadOutput);
+        if (fTail == null) {
+            return;
+        }
+        for (int c = 0; c < NUMBER_OF_CHANNELS; c++) {
+            System.arraycopy(fHeadInput[c], 0, fTailInput[c], fTailPosition, fBlockSize);
+            final float[] mHeadOutput = fHeadOutput[c];
+            final float[] mTailOutput = fTailOutput[c];
+            for (int j = 0; j < fBlockSize; j++) {
+                mHeadOutput[j] += mTailOutput[fTailPosition + j];
+            }
+        }
+        fTailPosition += fBlockSize;
+        if (fTailPosition == fTailBlockSize) {
+            fTailPosition = 0;
+            final float[][] mOutput = fTailOutput;
+            if (fWorker != null) {
+                fTailOutput = fWorker.exchange(fTailInput, mOutput);
+            } else {
+                fTailOutput  = fTailPending;
+                fTailPending = mOutput;
+                fTail.process(fTailInput, fTailPending);
+            }
+        }
+    }
+
+    private static float[][] resample(float[][] pSignal, float pRatio) {
+        if (pRatio == 1.0f || pSignal.length == 0) {
+            return pSignal;
+        }
+        final int mLength = (int) (pSignal[0].length / pRatio);
+        final float[][] mResampled = new float[pSignal.length][mLength];
+        for (int c = 0; c < pSignal.length; c++) {
+            for (int i = 0; i < mLength; i++) {
+                final float mPosition = i * pRatio;
+                final int j = (int) mPosition;
+                final float a = pSignal[c][j];
+                final float b = j + 1 < pSignal[c].length ? pSignal[c][j + 1] : 0.0f;
+                mResampled[c][i] = a + (b - a) * (mPosition - j);
+            }
+        }
+        return mResampled;
+    }
+
+    private static float[][] normalize(float[][] pSignal) {
+        double mEnergy = 0;
+        for (float[] mChannel : pSignal) {
+            for (float mSample : mChannel) {
+                mEnergy += mSample * mSample;
+            }
+        }
+        if (mEnergy > 0) {
+            final float mScale = (float) (1.0 / Math.sqrt(mEnergy / pSignal.length));
+            for (float[] mChannel : pSignal) {
+                BlockKernels.gain(mChannel, mScale);
+            }
+        }
+        return pSignal;
+    }
+
+    /*
+     * uniformly partitioned overlap-save convolution with a frequency domain delay line. spectra are stored in the
+     * packed format of {@link FFT}: <code>[ re(0), re(N/2), re(1), im(1), re(2), im(2), ... ]</code>.
+     */
+    private static class Convolver {
+
+        private final float[]     fAccumulator;
+        private final FFT         fFFT;
+        private final float[][][] fFilters;
+        private final float[][][] fInputSpectra;
+        private final float[][]   fPreviousInput;
+        private final int         fSize;
+        private int               fSpectrumPosition;
+
+        Convolver(float[][] pImpulseResponse, int pStart, int pEnd, int pSize) {
+            fSize = pSize;
+            final int mFFTSize = pSize * 2;
+            final int mPartitions = Math.max(1, (pEnd - pStart + pSize - 1) / pSize);
+            fFFT           = FFT.plan(mFFTSize, false);
+            fAccumulator   = new float[mFFTSize];
+            fFilters       = new float[NUMBER_OF_CHANNELS][mPartitions][mFFTSize];
+            fInputSpectra  = new float[NUMBER_OF_CHANNELS][mPartitions][mFFTSize];
+            fPreviousInput = new float[NUMBER_OF_CHANNELS][pSize];
+            for (int c = 0; c < NUMBER_OF_CHANNELS; c++) {
+                if (pImpulseResponse.length == 0) {
+                    continue;
+                }
+                final float[] mChannel = pImpulseResponse[Math.min(c, pImpulseResponse.length - 1)];
+                for (int p = 0; p < mPartitions; p++) {
+                    final int mStart = pStart + p * pSize;
+                    final int mLength = Math.max(0, Math.min(pSize, pEnd - mStart));
+                    System.arraycopy(mChannel, mStart, fFilters[c][p], 0, mLength);
+                    fFFT.forwardTransform(fFilters[c][p]);
+                }
+            }
+        }
+
+        void process(float[][] pInput, float[][] pOutput) {
+            final int mPartitions = fFilters[0].length;
+            fSpectrumPosition = (fSpectrumPosition + 1) % mPartitions;
+            for (int c = 0; c < NUMBER_OF_CHANNELS; c++) {
+                /* transform the last two input blocks */
+                final float[] mSpectrum = fInputSpectra[c][fSpectrumPosition];
+                System.arraycopy(fPreviousInput[c], 0, mSpectrum, 0, fSize);
+                System.arraycopy(pInput[c], 0, mSpectrum, fSize, fSize);
+                System.arraycopy(pInput[c], 0, fPreviousInput[c], 0, fSize);
+                fFFT.forwardTransform(mSpectrum);
+
+                /* multiply and accumulate input spectra with filter partitions */
+                Arrays.fill(fAccumulator, 0.0f);
+                for (int p = 0; p < mPartitions; p++) {
+                    final int mSpectrumIndex = (fSpectrumPosition - p + mPartitions) % mPartitions;
+                    multiplyAccumulate(fInputSpectra[c][mSpectrumIndex], fFilters[c][p], fAccumulator);
+                }
+                fFFT.backwardsTransform(fAccumulator);
+                System.arraycopy(fAccumulator, fSize, pOutput[c], 0, fSize);
+            }
+        }
+
+        private static void multiplyAccumulate(float[] a, float[] b, float[] pAccumulator) {
+            pAccumulator[0] += a[0] * b[0];
+            pAccumulator[1] += a[1] * b[1];
+            for (int i = 2; i < pAccumulator.length; i += 2) {
+                final float mReal = a[i] * b[i] - a[i + 1] * b[i + 1];
+                final float mImaginary = a[i] * b[i + 1] + a[i + 1] * b[i];
+                pAccumulator[i] += mReal;
+                pAccumulator[i + 1] += mImaginary;
+            }
+        }
+    }
+
+    /*
+     * computes the tail convolution on a background thread. the audio thread hands over one tail partition of input and
+     * collects the result of the previous partition, which the worker had a full tail partition of time to compute.
+     * threads are coordinated with park and unpark, which unlike locks and semaphores never allocate. a pending job is
+     * claimed by whichever thread moves it to running first, so a job published while the worker stops is never lost.
+     */
+    private static class Worker implements Runnable {
+
+        private static final int JOB_IDLE    = 0;
+        private static final int JOB_PENDING = 1;
+        private static final int JOB_RUNNING = 2;
+        private final Convolver     fConvolver;
+        private final float[][]     fInput;
+        private final AtomicInteger fJob;
+        private final Thread        fThread;
+        private float[][]           fOutput;
+        private volatile boolean    fRunning;
+        private volatile Thread     fWaiting;
+
+        Worker(Convolver pConvolver, int pBlockSize) {
+            fConvolver = pConvolver;
+            fInput     = new float[NUMBER_OF_CHANNELS][pBlockSize];
+            fOutput    = new float[NUMBER_OF_CHANNELS][pBlockSize];
+            fJob       = new AtomicInteger(JOB_IDLE);
+            fRunning   = true;
+            fThread    = new Thread(this, ConvolutionReverb.class.getSimpleName());
+            fThread.setDaemon(true);
+            fThread.setPriority(Thread.MAX_PRIORITY);
+            fThread.start();
+        }
+
+        void stop() {
+            fRunning = false;
+            LockSupport.unpark(fThread);
+        }
+
+        /*
+         * wait for the previous job, swap the output buffer with its result and start the next job. once the worker is
+         * stopped the job is computed on the calling thread.
+         */
+        float[][] exchange(float[][] pInput, float[][] pOutput) {
+            if (fJob.get() != JOB_IDLE) {
+                fWaiting = Thread.currentThread();
+                while (fJob.get() != JOB_IDLE) {
+                    LockSupport.park(this);
+                }
+                fWaiting = null;
+            }
+            final float[][] mResult = fOutput;
+            fOutput = pOutput;
+            for (int c = 0; c < NUMBER_OF_CHANNELS; c++) {
+                System.arraycopy(pInput[c], 0, fInput[c], 0, fInput[c].length);
+            }
+            if (fRunning) {
+                fJob.set(JOB_PENDING);
+                LockSupport.unpark(fThread);
+                /* the worker may have stopped without seeing the job */
+                if (!fRunning) {
+                    runJob();
+                }
+            } else {
+                fConvolver.process(fInput, fOutput);
+            }
+            return mResult;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                while (fJob.get() != JOB_PENDING && fRunning) {
+                    LockSupport.park(this);
+                }
+                if (fJob.get() == JOB_PENDING) {
+                    runJob();
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void runJob() {
+            if (fJob.compareAndSet(JOB_PENDING, JOB_RUNNING)) {
+                fConvolver.process(fInput, fOutput);
+                fJob.set(JOB_IDLE);
+                final Thread mWaiting = fWaiting;
+                if (mWaiting != null) {
+                    LockSupport.unpark(mWaiting);
+                }
+            }
+        }
+    }
+}
@@ -23,15 +23,22 @@ import processing.core.PGraphics;
 import wellen.AudioBufferManager;
 import wellen.AudioBufferRenderer;
 import wellen.AudioDeviceConfiguration;
+import wellen.CallbackBinder;
+import wellen.ScopeTap;
+import wellen.ToneEngineDSP;
+import wellen.Transport;
 import wellen.Wellen;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 
 /**
  * handles audio signal processing. after <code>start(...)</code> is called the processing continously calls
  * <code>audioblock(...)</code> requesting blocks of audio samples.
+ * <p>
+ * the callback method is resolved once when the DSP is created and bound to a typed interface, so no reflection or
+ * boxing is involved while processing. a callback may also implement one of the typed interfaces directly ( e.g
+ * {@link DSP.MonoSampleCallback} or {@link DSP.StereoCallback} ).
  */
 public class DSP implements AudioBufferRenderer {
 
@@ -39,23 +46,24 @@ public class DSP implements AudioBufferRenderer {
     private static final int INPUT_RIGHT = 3;
     private static final String METHOD_NAME = "audioblock";
     private static final String METHOD_NAME_PER_SAMPLE = "audio";
-    private final boolean fProcessPerSample;
-    private static final int NUM_CACHED_BUFFERS = 4;
+    private static final int NUM_SCOPE_CHANNELS = 4;
     private static final int OUTPUT_LEFT = 0;
     private static final int OUTPUT_RIGHT = 1;
     private static AudioBufferManager fAudioBufferManager;
     private static DSP fInstance = null;
     /**
-     * enable to create a copy of a cached buffer for each call to <code>audioblock(...)</code>. this is useful if the
-     * processing of the audio signal is not thread-safe.
+     * @deprecated buffers returned by <code>get_output_buffer_left()</code> etc. are always consistent snapshots
+     * provided by a {@link ScopeTap} and are never overwritten while they are read. this flag has no effect.
      */
+    @Deprecated
     public boolean COPY_CACHED_BUFFER = false;
-    private final float[][] fCachedBuffers = new float[NUM_CACHED_BUFFERS][];
-    private final Object fListener;
-    private Method fMethod = null;
+    private final ScopeTap fScopeTap;
+    private ToneEngineDSP.AudioOutputCallback fAudioblockCallback = null;
+    private final MultiChannelCallback fCallback;
     /* --- UTILITIES --- */
     private final int fNumberInputChannels;
     private final int fNumberOutputChannels;
+    private volatile Transport[] fTransports = new Transport[0];
 
     /**
      * @param callback                  object which implements the <code>audioblock(...)</code> method
@@ -63,59 +71,25 @@ public class DSP implements AudioBufferRenderer {
      * @param number_of_input_channels  number of input channels
      */
     public DSP(Object callback, int number_of_output_channels, int number_of_input_channels) {
-        fListener = callback;
+        this(callback, number_of_output_channels, number_of_input_channels, Wellen.DEFAULT_AUDIOBLOCK_SIZE);
+    }
+
+    /**
+     * @param callback                  object which implements the <code>audioblock(...)</code> method
+     * @param number_of_output_channels number of output channels
+     * @param number_of_input_channels  number of input channels
+     * @param audioblock_size           number of samples kept in snapshots of input and output buffers
+     */
+    public DSP(Object callback, int number_of_output_channels, int number_of_input_channels, int audioblock_size) {
+        fScopeTap = new ScopeTap(NUM_SCOPE_CHANNELS, audioblock_size);
         fNumberOutputChannels = number_of_output_channels;
         fNumberInputChannels = number_of_input_channels;
-        boolean mProcessPerSample = false;
-        try {
-            if (fNumberOutputChannels == 1 && fNumberInputChannels == 1) {
-                fMethod = callback.getClass().getDeclaredMethod(METHOD_NAME_PER_SAMPLE, float.class);
-                mProcessPerSample = true;
-            } else if (fNumberOutputChannels == 1 && fNumberInputChannels == 0) {
-                fMethod = callback.getClass().getDeclaredMethod(METHOD_NAME_PER_SAMPLE);
-                mProcessPerSample = true;
-            }
-            if (fMethod != null) {
-                if (fNumberOutputChannels > 1 || fNumberInputChannels > 1 || fMethod.getReturnType() != float.class) {
-                    System.err.println("+++ @" + DSP.class.getSimpleName() + " / did find callback `float " + METHOD_NAME_PER_SAMPLE + "(...)` but with wrong signature.");
-                    System.err.println("    hint: check the callback method parameters, " + "they must match the " +
-                                               "number of input channels.");
-                    System.err.println("    also check the return type which needs to be " + "`float`. default is " + "`float " + METHOD_NAME_PER_SAMPLE + "()` ( = NO INPUT, MONO OUTPUT ).");
-                    System.exit(-1);
-                }
-            }
-        } catch (NoSuchMethodException | SecurityException ignored) {
-        }
-        if (!mProcessPerSample) {
-            try {
-                if (fNumberOutputChannels == 2 && fNumberInputChannels == 2) {
-                    fMethod = callback.getClass()
-                                      .getDeclaredMethod(METHOD_NAME,
-                                                         float[].class,
-                                                         float[].class,
-                                                         float[].class,
-                                                         float[].class);
-                } else if (fNumberOutputChannels == 2 && fNumberInputChannels == 0) {
-                    fMethod = callback.getClass().getDeclaredMethod(METHOD_NAME, float[].class, float[].class);
-                } else if (fNumberOutputChannels == 2 && fNumberInputChannels == 1) {
-                    fMethod = callback.getClass()
-                                      .getDeclaredMethod(METHOD_NAME, float[].class, float[].class, float[].class);
-                } else if (fNumberOutputChannels == 1 && fNumberInputChannels == 1) {
-                    fMethod = callback.getClass().getDeclaredMethod(METHOD_NAME, float[].class, float[].class);
-                } else if (fNumberOutputChannels == 1 && fNumberInputChannels == 0) {
-                    fMethod = callback.getClass().getDeclaredMethod(METHOD_NAME, float[].class);
-                } else {
-                    fMethod = callback.getClass().getDeclaredMethod(METHOD_NAME, float[][].class, float[][].class);
-                }
-            } catch (NoSuchMethodException | SecurityException ex) {
-                System.err.println("+++ @" + DSP.class.getSimpleName() + " / could not find callback `" + METHOD_NAME + "(...)` or `" + METHOD_NAME_PER_SAMPLE + "(...)`.");
-                System.err.println("    hint: check the callback method parameters, they " + "must match the number " + "of input and output channels. " + "also check the return type");
-                System.err.print("    default is ( NO INPUT, MONO OUTPUT ): ");
-                System.err.println("`void " + METHOD_NAME + "(float[])` or `float " + METHOD_NAME_PER_SAMPLE + "()`");
-            }
-        }
-        fProcessPerSample = mProcessPerSample;
-        if (fMethod == null) {
+        fCallback = bindCallback(callback);
+        if (fCallback == null) {
+            System.err.println("+++ @" + DSP.class.getSimpleName() + " / could not find callback `" + METHOD_NAME + "(...)` or `" + METHOD_NAME_PER_SAMPLE + "(...)`.");
+            System.err.println("    hint: check the callback method parameters, they " + "must match the number " + "of input and output channels. " + "also check the return type");
+            System.err.print("    default is ( NO INPUT, MONO OUTPUT ): ");
+            System.err.println("`void " + METHOD_NAME + "(float[])` or `float " + METHOD_NAME_PER_SAMPLE + "()`");
             System.exit(-1);
         }
     }
@@ -167,13 +141,59 @@ public class DSP implements AudioBufferRenderer {
      * @param height visual height of the drawn buffer
      */
     public static void draw_buffers(PGraphics g, float width, float height) {
-        Wellen.draw_buffers(g,
-                            width,
-                            height,
-                            DSP.get_output_buffer_left(),
-                            DSP.get_output_buffer_right(),
-                            DSP.get_input_buffer_left(),
-                            DSP.get_input_buffer_right());
+        if (fInstance != null) {
+            Wellen.draw_buffers(g, width, height, fInstance.fScopeTap);
+        }
+    }
+
+    /**
+     * @return tap that provides snapshots of output ( channel 0 + 1 ) and input buffers ( channel 2 + 3 ) or
+     *         <code>null</code> if DSP is not started
+     */
+    public static ScopeTap get_scope_tap() {
+        return fInstance == null ? null : fInstance.fScopeTap;
+    }
+
+    /**
+     * add a transport that is advanced by the audio device. ticks fire on the audio thread before
+     * <code>audioblock(...)</code> is called, i.e ticks are resolved to the start of the audio block.
+     *
+     * @param transport transport to advance while processing
+     * @return <code>true</code> if transport was added, <code>false</code> if DSP is not started
+     */
+    public static boolean add_transport(Transport transport) {
+        if (fInstance == null) {
+            return false;
+        }
+        synchronized (fInstance) {
+            final Transport[] mTransports = Arrays.copyOf(fInstance.fTransports, fInstance.fTransports.length + 1);
+            mTransports[fInstance.fTransports.length] = transport;
+            fInstance.fTransports = mTransports;
+        }
+        return true;
+    }
+
+    /**
+     * @param transport transport to remove
+     * @return <code>true</code> if transport was removed
+     */
+    public static boolean remove_transport(Transport transport) {
+        if (fInstance == null) {
+            return false;
+        }
+        synchronized (fInstance) {
+            final Transport[] mTransports = fInstance.fTransports;
+            for (int i = 0; i < mTransports.length; i++) {
+                if (mTransports[i] == transport) {
+                    final Transport[] mRemaining = new Transport[mTransports.length - 1];
+                    System.arraycopy(mTransports, 0, mRemaining, 0, i);
+                    System.arraycopy(mTransports, i + 1, mRemaining, i, mRemaining.length - i);
+                    fInstance.fTransports = mRemaining;
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
@@ -184,38 +204,50 @@ public class DSP implements AudioBufferRenderer {
     }
 
     /**
-     * @return reference to left input buffer
+     * see <code>get_output_buffer_left()</code>
+     *
+     * @return snapshot of left input buffer
      */
     public static float[] get_input_buffer_left() {
-        return fInstance == null ? null : fInstance.fCachedBuffers[INPUT_LEFT];
+        return fInstance == null ? null : fInstance.getScopeBuffer(INPUT_LEFT);
     }
 
     /**
-     * @return reference to right input buffer
+     * see <code>get_output_buffer_left()</code>
+     *
+     * @return snapshot of right input buffer
      */
     public static float[] get_input_buffer_right() {
-        return fInstance == null ? null : fInstance.fCachedBuffers[INPUT_RIGHT];
+        return fInstance == null ? null : fInstance.getScopeBuffer(INPUT_RIGHT);
     }
 
     /**
-     * @return reference to output buffer
+     * see <code>get_output_buffer_left()</code>
+     *
+     * @return snapshot of output buffer
      */
     public static float[] get_output_buffer() {
         return get_output_buffer_left();
     }
 
     /**
-     * @return reference to left output buffer
+     * buffers requested one after another come from the same snapshot. a new snapshot is acquired when a buffer is
+     * requested again, i.e usually once per frame ( see {@link ScopeTap#read(int)} ). buffers should be requested from
+     * a single thread ( e.g the drawing thread ) and once per frame rather than once per sample.
+     *
+     * @return snapshot of left output buffer
      */
     public static float[] get_output_buffer_left() {
-        return fInstance == null ? null : fInstance.fCachedBuffers[OUTPUT_LEFT];
+        return fInstance == null ? null : fInstance.getScopeBuffer(OUTPUT_LEFT);
     }
 
     /**
-     * @return reference to right output buffer
+     * see <code>get_output_buffer_left()</code>
+     *
+     * @return snapshot of right output buffer
      */
     public static float[] get_output_buffer_right() {
-        return fInstance == null ? null : fInstance.fCachedBuffers[OUTPUT_RIGHT];
+        return fInstance == null ? null : fInstance.getScopeBuffer(OUTPUT_RIGHT);
     }
 
     /**
@@ -347,7 +379,7 @@ public class DSP implements AudioBufferRenderer {
                             int sampling_rate,
                             int audio_block_size) {
         if (fInstance == null) {
-            fInstance = new DSP(callback, number_of_output_channels, number_of_input_channels);
+            fInstance = new DSP(callback, number_of_output_channels, number_of_input_channels, audio_block_size);
             AudioDeviceConfiguration mConfig = new AudioDeviceConfiguration();
             mConfig.sample_rate = sampling_rate;
             mConfig.sample_buffer_size = audio_block_size;
@@ -369,7 +401,8 @@ public class DSP implements AudioBufferRenderer {
         if (fInstance == null) {
             fInstance = new DSP(callback,
                                 configuration.number_of_output_channels,
-                                configuration.number_of_input_channels);
+                                configuration.number_of_input_channels,
+                                configuration.sample_buffer_size);
             fAudioBufferManager = new AudioBufferManager(fInstance, configuration);
         }
         return fInstance;
@@ -388,49 +421,183 @@ public class DSP implements AudioBufferRenderer {
 
     public void audioblock(float[][] output_signal, float[][] input_signal) {
         try {
-            Arrays.fill(fCachedBuffers, null);
-            if (fNumberOutputChannels == 1 && fNumberInputChannels == 0) {
-                if (fProcessPerSample) {
-                    for (int i = 0; i < output_signal[0].length; i++) {
-                        output_signal[0][i] = (Float) fMethod.invoke(fListener);
-                    }
-                } else {
-                    //noinspection PrimitiveArrayArgumentToVarargsMethod
-                    fMethod.invoke(fListener, output_signal[0]);
+            final Transport[] mTransports = fTransports;
+            if (mTransports.length > 0 && output_signal.length > 0) {
+                for (Transport mTransport : mTransports) {
+                    mTransport.process(output_signal[0].length);
                 }
-                fCachedBuffers[OUTPUT_LEFT] = COPY_CACHED_BUFFER ? Wellen.copy(output_signal[0]) : output_signal[0];
-            } else if (fNumberOutputChannels == 1 && fNumberInputChannels == 1) {
-                if (fProcessPerSample) {
-                    for (int i = 0; i < output_signal[0].length; i++) {
-                        output_signal[0][i] = (Float) fMethod.invoke(fListener, input_signal[0][i]);
-                    }
-                } else {
-                    fMethod.invoke(fListener, output_signal[0], input_signal[0]);
-                }
-                fCachedBuffers[OUTPUT_LEFT] = COPY_CACHED_BUFFER ? Wellen.copy(output_signal[0]) : output_signal[0];
-                fCachedBuffers[INPUT_LEFT] = COPY_CACHED_BUFFER ? Wellen.copy(input_signal[0]) : input_signal[0];
-            } else if (fNumberOutputChannels == 2 && fNumberInputChannels == 0) {
-                fMethod.invoke(fListener, output_signal[0], output_signal[1]);
-                fCachedBuffers[OUTPUT_LEFT] = COPY_CACHED_BUFFER ? Wellen.copy(output_signal[0]) : output_signal[0];
-                fCachedBuffers[OUTPUT_RIGHT] = COPY_CACHED_BUFFER ? Wellen.copy(output_signal[1]) : output_signal[1];
-            } else if (fNumberOutputChannels == 2 && fNumberInputChannels == 1) {
-                fMethod.invoke(fListener, output_signal[0], output_signal[1], input_signal[0]);
-                fCachedBuffers[OUTPUT_LEFT] = COPY_CACHED_BUFFER ? Wellen.copy(output_signal[0]) : output_signal[0];
-                fCachedBuffers[OUTPUT_RIGHT] = COPY_CACHED_BUFFER ? Wellen.copy(output_signal[1]) : output_signal[1];
-                fCachedBuffers[INPUT_LEFT] = COPY_CACHED_BUFFER ? Wellen.copy(input_signal[0]) : input_signal[0];
-            } else if (fNumberOutputChannels == 2 && fNumberInputChannels == 2) {
-                fMethod.invoke(fListener, output_signal[0], output_signal[1], input_signal[0], input_signal[1]);
-                fCachedBuffers[OUTPUT_LEFT] = COPY_CACHED_BUFFER ? Wellen.copy(output_signal[0]) : output_signal[0];
-                fCachedBuffers[OUTPUT_RIGHT] = COPY_CACHED_BUFFER ? Wellen.copy(output_signal[1]) : output_signal[1];
-                fCachedBuffers[INPUT_LEFT] = COPY_CACHED_BUFFER ? Wellen.copy(input_signal[0]) : input_signal[0];
-                fCachedBuffers[INPUT_RIGHT] = COPY_CACHED_BUFFER ? Wellen.copy(input_signal[1]) : input_signal[1];
-            } else {
-                fMethod.invoke(fListener, output_signal, input_signal);
             }
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException |
-                 NullPointerException ex) {
-            System.err.println("+++ @" + DSP.class.getSimpleName() + " / error in audioblock: " + ex.getCause());
+            fCallback.audioblock(output_signal, input_signal);
+        } catch (RuntimeException ex) {
+            System.err.println("+++ @" + DSP.class.getSimpleName() + " / error in audioblock: " + ex);
             ex.printStackTrace();
         }
+        if ((fNumberOutputChannels == 1 && fNumberInputChannels <= 1) || (fNumberOutputChannels == 2 && fNumberInputChannels <= 2)) {
+            final int mLength = output_signal[0].length;
+            fScopeTap.write(OUTPUT_LEFT, output_signal[0], 0, mLength);
+            if (fNumberOutputChannels == 2) {
+                fScopeTap.write(OUTPUT_RIGHT, output_signal[1], 0, mLength);
+            }
+            if (fNumberInputChannels > 0) {
+                fScopeTap.write(INPUT_LEFT, input_signal[0], 0, mLength);
+            }
+            if (fNumberInputChannels == 2) {
+                fScopeTap.write(INPUT_RIGHT, input_signal[1], 0, mLength);
+            }
+            fScopeTap.publish(mLength);
+        }
+        if (fAudioblockCallback != null) {
+            fAudioblockCallback.audioblock(output_signal);
+        }
+    }
+
+    /**
+     * register a callback that receives the output signal after each call to <code>audioblock(...)</code> e.g an
+     * {@link wellen.AudioRecorder}.
+     *
+     * @param audioblock_callback callback or <code>null</code> to remove callback
+     */
+    public void register_audioblock_callback(ToneEngineDSP.AudioOutputCallback audioblock_callback) {
+        fAudioblockCallback = audioblock_callback;
+    }
+
+    private float[] getScopeBuffer(int pChannel) {
+        return fScopeTap.read(pChannel);
+    }
+
+    /**
+     * resolves the callback once into a typed interface. the callback either implements one of the typed callback
+     * interfaces matching the number of channels or declares a matching <code>audioblock(...)</code> or
+     * <code>audio(...)</code> method which is bound with {@link CallbackBinder}.
+     */
+    private MultiChannelCallback bindCallback(Object pCallback) {
+        if (pCallback == null) {
+            return null;
+        }
+        if (fNumberOutputChannels == 1 && fNumberInputChannels == 0) {
+            checkPerSampleSignature(pCallback);
+            final MonoSampleCallback mSampleCallback = bind(MonoSampleCallback.class, pCallback, METHOD_NAME_PER_SAMPLE);
+            if (mSampleCallback != null) {
+                return (output_signal, input_signal) -> {
+                    final float[] mOutput = output_signal[0];
+                    for (int i = 0; i < mOutput.length; i++) {
+                        mOutput[i] = mSampleCallback.audio();
+                    }
+                };
+            }
+            final MonoCallback mCallback = bind(MonoCallback.class, pCallback, METHOD_NAME);
+            return mCallback == null ? null : (output_signal, input_signal) -> mCallback.audioblock(output_signal[0]);
+        } else if (fNumberOutputChannels == 1 && fNumberInputChannels == 1) {
+            checkPerSampleSignature(pCallback, float.class);
+            final MonoInputSampleCallback mSampleCallback = bind(MonoInputSampleCallback.class,
+                                                                 pCallback,
+                                                                 METHOD_NAME_PER_SAMPLE);
+            if (mSampleCallback != null) {
+                return (output_signal, input_signal) -> {
+                    final float[] mOutput = output_signal[0];
+                    final float[] mInput = input_signal[0];
+                    for (int i = 0; i < mOutput.length; i++) {
+                        mOutput[i] = mSampleCallback.audio(mInput[i]);
+                    }
+                };
+            }
+            final MonoInputCallback mCallback = bind(MonoInputCallback.class, pCallback, METHOD_NAME);
+            return mCallback == null ? null : (output_signal, input_signal) -> mCallback.audioblock(output_signal[0],
+                                                                                                   input_signal[0]);
+        } else if (fNumberOutputChannels == 2 && fNumberInputChannels == 0) {
+            final StereoCallback mCallback = bind(StereoCallback.class, pCallback, METHOD_NAME);
+            return mCallback == null ? null : (output_signal, input_signal) -> mCallback.audioblock(output_signal[0],
+                                                                                                   output_signal[1]);
+        } else if (fNumberOutputChannels == 2 && fNumberInputChannels == 1) {
+            final StereoMonoInputCallback mCallback = bind(StereoMonoInputCallback.class, pCallback, METHOD_NAME);
+            return mCallback == null ? null : (output_signal, input_signal) -> mCallback.audioblock(output_signal[0],
+                                                                                                   output_signal[1],
+                                                                                                   input_signal[0]);
+        } else if (fNumberOutputChannels == 2 && fNumberInputChannels == 2) {
+            final StereoInputCallback mCallback = bind(StereoInputCallback.class, pCallback, METHOD_NAME);
+            return mCallback == null ? null : (output_signal, input_signal) -> mCallback.audioblock(output_signal[0],
+                                                                                                   output_signal[1],
+                                                                                                   input_signal[0],
+                                                                                                   input_signal[1]);
+        } else {
+            return bind(MultiChannelCallback.class, pCallback, METHOD_NAME);
+        }
+    }
+
+    private static <T> T bind(Class<T> pInterface, Object pCallback, String pMethodName) {
+        if (pInterface.isInstance(pCallback)) {
+            return pInterface.cast(pCallback);
+        }
+        return CallbackBinder.bind(pInterface, pCallback, pMethodName);
+    }
+
+    private static void checkPerSampleSignature(Object pCallback, Class<?>... pParameterTypes) {
+        final Method mMethod = CallbackBinder.find_method(pCallback, METHOD_NAME_PER_SAMPLE, pParameterTypes);
+        if (mMethod != null && mMethod.getReturnType() != float.class) {
+            System.err.println("+++ @" + DSP.class.getSimpleName() + " / did find callback `float " + METHOD_NAME_PER_SAMPLE + "(...)` but with wrong signature.");
+            System.err.println("    hint: check the callback method parameters, " + "they must match the " +
+                                       "number of input channels.");
+            System.err.println("    also check the return type which needs to be " + "`float`. default is " + "`float " + METHOD_NAME_PER_SAMPLE + "()` ( = NO INPUT, MONO OUTPUT ).");
+            System.exit(-1);
+        }
+    }
+
+    /**
+     * callback for mono output processed per sample. <code>float audio()</code>
+     */
+    public interface MonoSampleCallback {
+        float audio();
+    }
+
+    /**
+     * callback for mono input and output processed per sample. <code>float audio(float)</code>
+     */
+    public interface MonoInputSampleCallback {
+        float audio(float input_signal);
+    }
+
+    /**
+     * callback for mono output. <code>void audioblock(float[])</code>
+     */
+    public interface MonoCallback {
+        void audioblock(float[] output_signal);
+    }
+
+    /**
+     * callback for mono input and output. <code>void audioblock(float[], float[])</code>
+     */
+    public interface MonoInputCallback {
+        void audioblock(float[] output_signal, float[] input_signal);
+    }
+
+    /**
+     * callback for stereo output. <code>void audioblock(float[], float[])</code>
+     */
+    public interface StereoCallback {
+        void audioblock(float[] output_signal_left, float[] output_signal_right);
+    }
+
+    /**
+     * callback for stereo output and mono input. <code>void audioblock(float[], float[], float[])</code>
+     */
+    public interface StereoMonoInputCallback {
+        void audioblock(float[] output_signal_left, float[] output_signal_right, float[] input_signal);
+    }
+
+    /**
+     * callback for stereo input and output. <code>void audioblock(float[], float[], float[], float[])</code>
+     */
+    public interface StereoInputCallback {
+        void audioblock(float[] output_signal_left,
+                        float[] output_signal_right,
+                        float[] input_signal_left,
+                        float[] input_signal_right);
+    }
+
+    /**
+     * callback for any number of input and output channels. <code>void audioblock(float[][], float[][])</code>
+     */
+    public interface MultiChannelCallback {
+        void audioblock(float[][] output_signal, float[][] input_signal);
     }
 }
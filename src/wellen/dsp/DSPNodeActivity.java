@@ -0,0 +1,36 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package wellen.dsp;
+
+/**
+ * interface implemented by nodes that can report whether they currently produce a signal. a node is idle if its output
+ * is silent ( i.e below {@link wellen.Wellen#SIGNAL_SILENCE_THRESHOLD} ) and stays silent until it is triggered again
+ * ( e.g by <code>start()</code>, <code>play()</code> or <code>note_on(int, int)</code> ).
+ * <p>
+ * mixers like {@link wellen.ToneEngineDSP}, {@link wellen.Track} or {@link wellen.Patch} query their children once per
+ * audio block and skip rendering and mixing of idle children. a node that is idle may therefore not be advanced at all
+ * until it is triggered again.
+ */
+public interface DSPNodeActivity {
+
+    /**
+     * @return <code>true</code> if node is silent and stays silent until it is triggered again
+     */
+    boolean is_idle();
+}
@@ -0,0 +1,180 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen.dsp;
+
+/**
+ * adapters that plug existing per-sample nodes into block-based processing chains ( see
+ * {@link wellen.dsp.DSPNodeOutputBlock} and {@link wellen.dsp.DSPNodeProcessBlock} ).
+ * <p>
+ * note that adapters still call the per-sample methods of the wrapped node. nodes that create a {@link Signal} per
+ * sample will continue to do so.
+ */
+public class DSPNodeBlockAdapter {
+
+    private DSPNodeBlockAdapter() {
+    }
+
+    /**
+     * @param node mono output node. the signal is written into every channel.
+     * @return block adapter for node
+     */
+    public static DSPNodeOutputBlock output(DSPNodeOutput node) {
+        return new OutputAdapter(node);
+    }
+
+    /**
+     * @param node multi-channel output node. channels not provided by the node are filled with the first channel for
+     *             mono signals and with zeros otherwise.
+     * @return block adapter for node
+     */
+    public static DSPNodeOutputBlock output_signal(DSPNodeOutputSignal node) {
+        return new OutputSignalAdapter(node);
+    }
+
+    /**
+     * @param node mono processing node. the first channel is processed and the result is written into every channel.
+     * @return block adapter for node
+     */
+    public static DSPNodeProcessBlock process(DSPNodeProcess node) {
+        return new ProcessAdapter(node);
+    }
+
+    /**
+     * @param node multi-channel processing node
+     * @return block adapter for node
+     */
+    public static DSPNodeProcessBlock process_signal(DSPNodeProcessSignal node) {
+        return new ProcessSignalAdapter(node);
+    }
+
+    /**
+     * render a single sample of a per-sample node into a block
+     *
+     * @param signal        signal produced by the node
+     * @param output_signal buffers to render into
+     * @param index         index of sample to write
+     */
+    public static void write(Signal signal, float[][] output_signal, int index) {
+        final int mChannels = signal.num_channels();
+        for (int j = 0; j < output_signal.length; j++) {
+            if (j < mChannels) {
+                output_signal[j][index] = signal.signal[j];
+            } else if (mChannels == 1) {
+                output_signal[j][index] = signal.signal[0];
+            } else {
+                output_signal[j][index] = 0.0f;
+            }
+        }
+    }
+
+    /**
+     * checks if a subclass overrides a method of a base class. this is used to detect whether a node still relies on
+     * its per-sample method or if it can be rendered as a block.
+     *
+     * @param object      object to check
+     * @param base_class  class declaring the original method
+     * @param method_name name of method
+     * @param parameters  parameter types of method
+     * @return <code>true</code> if method is declared by a class derived from <code>base_class</code>
+     */
+    public static boolean overrides(Object object, Class<?> base_class, String method_name, Class<?>... parameters) {
+        try {
+            return object.getClass().getMethod(method_name, parameters).getDeclaringClass() != base_class;
+        } catch (NoSuchMethodException | SecurityException e) {
+            return false;
+        }
+    }
+
+    private static class OutputAdapter implements DSPNodeOutputBlock {
+        private final DSPNodeOutput fNode;
+
+        OutputAdapter(DSPNodeOutput pNode) {
+            fNode = pNode;
+        }
+
+        @Override
+        public void render(float[][] output_signal, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                final float mSample = fNode.output();
+                for (float[] mChannel : output_signal) {
+                    mChannel[i] = mSample;
+                }
+            }
+        }
+    }
+
+    private static class OutputSignalAdapter implements DSPNodeOutputBlock {
+        private final DSPNodeOutputSignal fNode;
+
+        OutputSignalAdapter(DSPNodeOutputSignal pNode) {
+            fNode = pNode;
+        }
+
+        @Override
+        public void render(float[][] output_signal, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                write(fNode.output_signal(), output_signal, i);
+            }
+        }
+    }
+
+    private static class ProcessAdapter implements DSPNodeProcessBlock {
+        private final DSPNodeProcess fNode;
+
+        ProcessAdapter(DSPNodeProcess pNode) {
+            fNode = pNode;
+        }
+
+        @Override
+        public void process(float[][] signal, int offset, int length) {
+            if (signal.length == 0) {
+                return;
+            }
+            for (int i = offset; i < offset + length; i++) {
+                final float mSample = fNode.process(signal[0][i]);
+                for (float[] mChannel : signal) {
+                    mChannel[i] = mSample;
+                }
+            }
+        }
+    }
+
+    private static class ProcessSignalAdapter implements DSPNodeProcessBlock {
+        private final DSPNodeProcessSignal fNode;
+        private       Signal               fSignal;
+
+        ProcessSignalAdapter(DSPNodeProcessSignal pNode) {
+            fNode = pNode;
+        }
+
+        @Override
+        public void process(float[][] signal, int offset, int length) {
+            if (fSignal == null || fSignal.num_channels() != signal.length) {
+                fSignal = new Signal(signal.length);
+            }
+            for (int i = offset; i < offset + length; i++) {
+                for (int j = 0; j < signal.length; j++) {
+                    fSignal.signal[j] = signal[j][i];
+                }
+                write(fNode.process_signal(fSignal), signal, i);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen.dsp;
+
+/**
+ * interface implemented by classes that render blocks of ( multi-channel ) output signals into caller-owned buffers.
+ * in contrast to {@link wellen.dsp.DSPNodeOutputSignal} no objects are created per sample.
+ * <p>
+ * the number of channels to render is defined by the length of <code>output_signal</code>. a node writes
+ * <code>length</code> samples into each channel starting at <code>offset</code> and overwrites the previous content.
+ * mono nodes write the same signal into every channel. existing per-sample nodes can be wrapped with
+ * {@link wellen.dsp.DSPNodeBlockAdapter}.
+ */
+public interface DSPNodeOutputBlock {
+
+    /**
+     * @param output_signal buffers to render into with one buffer per channel
+     * @param offset        index of the first sample to render
+     * @param length        number of samples to render
+     */
+    void render(float[][] output_signal, int offset, int length);
+}
@@ -0,0 +1,38 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen.dsp;
+
+/**
+ * interface implemented by classes that process blocks of ( multi-channel ) signals in place. in contrast to
+ * {@link wellen.dsp.DSPNodeProcessSignal} no objects are created per sample.
+ * <p>
+ * the number of channels to process is defined by the length of <code>signal</code>. a node processes
+ * <code>length</code> samples of each channel starting at <code>offset</code>. existing per-sample nodes can be wrapped
+ * with {@link wellen.dsp.DSPNodeBlockAdapter}.
+ */
+public interface DSPNodeProcessBlock {
+
+    /**
+     * @param signal buffers to process with one buffer per channel. results are written back into the buffers.
+     * @param offset index of the first sample to process
+     * @param length number of samples to process
+     */
+    void process(float[][] signal, int offset, int length);
+}
@@ -22,15 +22,29 @@ package wellen.dsp;
 import wellen.Wellen;
 
 /**
- * a delay line.
+ * a feedback delay ( echo ). the delay is built on a {@link FractionalDelayLine} that is allocated once for the maximum
+ * echo length. changing the echo length glides smoothly to the new length without allocating memory.
  */
-public class Delay implements DSPNodeProcess, DSPNodeProcessSignal {
+public class Delay implements DSPNodeProcess, DSPNodeProcessSignal, DSPNodeProcessBlock {
 
-    private int fBufferPosition;
-    private float fDecayRate;
-    private float[] fEchoBuffer;
-    private float fNewEchoLength;
-    private final float fSampleRate;
+    private final FractionalDelayLine fDelayLine;
+    private final float               fSampleRate;
+    private float                     fDecayRate;
+
+    /**
+     * @param echo_length     in seconds
+     * @param decay_rate      the decay of the echo, a value between 0 and 1. 1 meaning no decay, 0 means immediate
+     *                        decay
+     * @param sample_rate     the sample rate in Hz.
+     * @param max_echo_length maximum echo length in seconds. the delay buffer is allocated for this length.
+     */
+    public Delay(float echo_length, float decay_rate, float sample_rate, float max_echo_length) {
+        fSampleRate = sample_rate;
+        fDelayLine  = new FractionalDelayLine((int) Math.ceil(sample_rate * Math.max(echo_length, max_echo_length)));
+        set_decay_rate(decay_rate);
+        set_echo_length(echo_length);
+        fDelayLine.set_smoothing(Wellen.DEFAULT_INTERPOLATE_AMP_FREQ_DURATION);
+    }
 
     /**
      * @param echo_length in seconds
@@ -38,10 +52,7 @@ public class Delay implements DSPNodeProcess, DSPNodeProcessSignal {
      * @param decay_rate  the decay of the echo, a value between 0 and 1. 1 meaning no decay, 0 means immediate decay
      */
     public Delay(float echo_length, float decay_rate, float sample_rate) {
-        fSampleRate = sample_rate;
-        set_decay_rate(decay_rate);
-        set_echo_length(echo_length);
-        adaptyEchoLength();
+        this(echo_length, decay_rate, sample_rate, Wellen.DEFAULT_MAX_ECHO_LENGTH);
     }
 
     /**
@@ -52,17 +63,55 @@ public class Delay implements DSPNodeProcess, DSPNodeProcessSignal {
     }
 
     /**
-     * @param echo_length A new echo buffer length in seconds.
+     * @param echo_length A new echo buffer length in seconds. the length is limited to the maximum echo length.
      */
     public void set_echo_length(float echo_length) {
-        fNewEchoLength = echo_length;
+        fDelayLine.set_delay(echo_length * fSampleRate);
+    }
+
+    /**
+     * @return current echo length in seconds
+     */
+    public float get_echo_length() {
+        return fDelayLine.get_delay() / fSampleRate;
+    }
+
+    /**
+     * @return delay line used to store the echo
+     */
+    public FractionalDelayLine delay_line() {
+        return fDelayLine;
     }
 
+    /**
+     * @param pSignal input signal
+     * @return processed mono signal
+     */
     @Override
     public Signal process_signal(Signal pSignal) {
         return Signal.create(process(pSignal.mono()));
     }
 
+    /**
+     * processes the first channel and writes the result into every channel.
+     *
+     * @param signal buffers to process with one buffer per channel
+     * @param offset index of the first sample to process
+     * @param length number of samples to process
+     */
+    @Override
+    public void process(float[][] signal, int offset, int length) {
+        if (signal.length == 0) {
+            return;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            final float mSample = process(signal[0][i]);
+            for (float[] mChannel : signal) {
+                mChannel[i] = mSample;
+            }
+        }
+    }
+
     /**
      * A decay, should be a value between zero and one.
      *
@@ -74,32 +123,8 @@ public class Delay implements DSPNodeProcess, DSPNodeProcessSignal {
 
     @Override
     public float process(float pSignal) {
-        adaptyEchoLength();
-
-        if (fBufferPosition >= fEchoBuffer.length) {
-            fBufferPosition = 0;
-        }
-        pSignal = pSignal + fEchoBuffer[fBufferPosition] * fDecayRate;
-        fEchoBuffer[fBufferPosition] = pSignal;
-        fBufferPosition++;
-
-        return 0;
-    }
-
-    private void adaptyEchoLength() {
-        if (fNewEchoLength != -1) {
-            float[] mNewEchoBuffer = new float[(int) (fSampleRate * fNewEchoLength)];
-            if (fEchoBuffer != null) {
-                for (int i = 0; i < mNewEchoBuffer.length; i++) {
-                    if (fBufferPosition >= fEchoBuffer.length) {
-                        fBufferPosition = 0;
-                    }
-                    mNewEchoBuffer[i] = fEchoBuffer[fBufferPosition];
-                    fBufferPosition++;
-                }
-            }
-            fEchoBuffer = mNewEchoBuffer;
-            fNewEchoLength = -1;
-        }
+        pSignal = pSignal + fDelayLine.read() * fDecayRate;
+        fDelayLine.write(pSignal);
+        return pSignal;
     }
 }
@@ -60,7 +60,7 @@ import java.util.ArrayList;
  * <li>envelope is done
  * </ul>
  */
-public class Envelope implements DSPNodeOutput {
+public class Envelope implements DSPNodeOutput, DSPNodeActivity {
 
     /*
      *
@@ -216,6 +216,15 @@ public class Envelope implements DSPNodeOutput {
         mEnvelopeDone = true;
     }
 
+    /**
+     * @return <code>true</code> if envelope is done and its current value is below
+     *         {@link Wellen#SIGNAL_SILENCE_THRESHOLD}
+     */
+    @Override
+    public boolean is_idle() {
+        return mEnvelopeDone && Math.abs(mValue) < Wellen.SIGNAL_SILENCE_THRESHOLD;
+    }
+
     /**
      * @return time scale in seconds
      */
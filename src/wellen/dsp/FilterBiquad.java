@@ -38,13 +38,11 @@ public class FilterBiquad implements DSPNodeProcess {
     private final float[] A = new float[BQN];
     private final float[] B = new float[BQN];
     private float Q;
-    private final float[] X = new float[BQN];
-    private final float[] Y = new float[BQN];
     private float fc;
-    private int index;
     private final float mSamplingRate;
     private int mode;
     private float peakGain;
+    private float x1, x2, y1, y2;
 
     public FilterBiquad() {
         this(Wellen.DEFAULT_SAMPLING_RATE);
@@ -95,16 +93,29 @@ public class FilterBiquad implements DSPNodeProcess {
     }
 
     public void process(float[] buffer) {
+        /* keep coefficients and history in locals for the duration of the block */
+        final float b0 = B[0];
+        final float b1 = B[1];
+        final float b2 = B[2];
+        final float a1 = A[1];
+        final float a2 = A[2];
+        float mX1 = x1;
+        float mX2 = x2;
+        float mY1 = y1;
+        float mY2 = y2;
         for (int i = 0; i < buffer.length; i++) {
-            int nm1 = buff_ix(index, -1);
-            int nm2 = buff_ix(index, -2);
-
-            X[index] = buffer[i];
-            Y[index] = B[0] * X[index] + B[1] * X[nm1] + B[2] * X[nm2] - A[1] * Y[nm1] - A[2] * Y[nm2];
-            buffer[i] = Y[index];
-
-            index = buff_ix(index, 1);
+            final float x = buffer[i];
+            final float y = b0 * x + b1 * mX1 + b2 * mX2 - a1 * mY1 - a2 * mY2;
+            mX2 = mX1;
+            mX1 = x;
+            mY2 = mY1;
+            mY1 = y;
+            buffer[i] = y;
         }
+        x1 = mX1;
+        x2 = mX2;
+        y1 = mY1;
+        y2 = mY2;
     }
 
     public void calculate() {
@@ -189,13 +200,12 @@ public class FilterBiquad implements DSPNodeProcess {
     }
 
     public float process(float inputValue) {
-        float[] buffer = {inputValue};
-        process(buffer);
-        return buffer[0];
-    }
-
-    private int buff_ix(int n, int k) {
-        return (n + k + BQN) % BQN;
+        final float y = B[0] * inputValue + B[1] * x1 + B[2] * x2 - A[1] * y1 - A[2] * y2;
+        x2 = x1;
+        x1 = inputValue;
+        y2 = y1;
+        y1 = y;
+        return y;
     }
 
     private float cos(float r) {
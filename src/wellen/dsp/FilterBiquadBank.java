@@ -0,0 +1,178 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen.dsp;
+
+import java.util.Arrays;
+
+/**
+ * bank of independent biquad filter cascades stored as structure of arrays ( one array per coefficient and state
+ * variable and stage ). {@link #process(float[])} runs every cascade on one sample, i.e the inner loop runs across
+ * independent filters rather than across time. compared to an array of filter objects this avoids a dereference and
+ * call per filter and keeps coefficients and state of neighboring filters in adjacent memory.
+ * <p>
+ * filters are computed in direct form I with normalized coefficients:
+ * <code>y = b0 * x + b1 * x1 + b2 * x2 - a1 * y1 - a2 * y2</code>.
+ */
+public class FilterBiquadBank {
+
+    private final float[][] fA1;
+    private final float[][] fA2;
+    private final float[][] fB0;
+    private final float[][] fB1;
+    private final float[][] fB2;
+    private final int       fNumberOfFilters;
+    private final float[][] fX1;
+    private final float[][] fX2;
+    private final float[][] fY1;
+    private final float[][] fY2;
+
+    /**
+     * @param number_of_filters number of parallel filter cascades
+     * @param number_of_stages  number of biquads per cascade. all biquads are initialized to pass through.
+     */
+    public FilterBiquadBank(int number_of_filters, int number_of_stages) {
+        fNumberOfFilters = number_of_filters;
+        fB0 = new float[number_of_stages][number_of_filters];
+        fB1 = new float[number_of_stages][number_of_filters];
+        fB2 = new float[number_of_stages][number_of_filters];
+        fA1 = new float[number_of_stages][number_of_filters];
+        fA2 = new float[number_of_stages][number_of_filters];
+        fX1 = new float[number_of_stages][number_of_filters];
+        fX2 = new float[number_of_stages][number_of_filters];
+        fY1 = new float[number_of_stages][number_of_filters];
+        fY2 = new float[number_of_stages][number_of_filters];
+        for (float[] mB0 : fB0) {
+            Arrays.fill(mB0, 1.0f);
+        }
+    }
+
+    /**
+     * @return number of parallel filter cascades
+     */
+    public int get_number_of_filters() {
+        return fNumberOfFilters;
+    }
+
+    /**
+     * @return number of biquads per cascade
+     */
+    public int get_number_of_stages() {
+        return fB0.length;
+    }
+
+    /**
+     * set coefficients of one biquad. coefficients are expected to be normalized by <code>a0</code>.
+     *
+     * @param filter index of filter cascade
+     * @param stage  index of biquad in cascade
+     * @param b0     feed forward coefficient
+     * @param b1     feed forward coefficient
+     * @param b2     feed forward coefficient
+     * @param a1     feedback coefficient
+     * @param a2     feedback coefficient
+     */
+    public void set_coefficients(int filter, int stage, float b0, float b1, float b2, float a1, float a2) {
+        fB0[stage][filter] = b0;
+        fB1[stage][filter] = b1;
+        fB2[stage][filter] = b2;
+        fA1[stage][filter] = a1;
+        fA2[stage][filter] = a2;
+    }
+
+    /**
+     * set coefficients of all biquads in a cascade. coefficients are expected to be normalized by <code>a0</code>.
+     *
+     * @param filter index of filter cascade
+     * @param b0     feed forward coefficient
+     * @param b1     feed forward coefficient
+     * @param b2     feed forward coefficient
+     * @param a1     feedback coefficient
+     * @param a2     feedback coefficient
+     */
+    public void set_coefficients(int filter, float b0, float b1, float b2, float a1, float a2) {
+        for (int s = 0; s < fB0.length; s++) {
+            set_coefficients(filter, s, b0, b1, b2, a1, a2);
+        }
+    }
+
+    /**
+     * copy coefficients of all biquads from one cascade to another. the filter state is not copied.
+     *
+     * @param destination index of filter cascade to copy to
+     * @param source      index of filter cascade to copy from
+     */
+    public void copy_coefficients(int destination, int source) {
+        for (int s = 0; s < fB0.length; s++) {
+            set_coefficients(destination,
+                             s,
+                             fB0[s][source],
+                             fB1[s][source],
+                             fB2[s][source],
+                             fA1[s][source],
+                             fA2[s][source]);
+        }
+    }
+
+    /**
+     * clear the history of all filters
+     */
+    public void reset() {
+        for (int s = 0; s < fB0.length; s++) {
+            Arrays.fill(fX1[s], 0.0f);
+            Arrays.fill(fX2[s], 0.0f);
+            Arrays.fill(fY1[s], 0.0f);
+            Arrays.fill(fY2[s], 0.0f);
+        }
+    }
+
+    /**
+     * run every filter cascade on one sample. sample <code>j</code> of <code>frame</code> is processed by cascade
+     * <code>j</code> and replaced by its output.
+     *
+     * @param frame one sample per filter cascade, processed in place
+     */
+    public void process(float[] frame) {
+        for (int s = 0; s < fB0.length; s++) {
+            processStage(frame, s);
+        }
+    }
+
+    private void processStage(float[] pFrame, int pStage) {
+        final float[] b0 = fB0[pStage];
+        final float[] b1 = fB1[pStage];
+        final float[] b2 = fB2[pStage];
+        final float[] a1 = fA1[pStage];
+        final float[] a2 = fA2[pStage];
+        final float[] x1 = fX1[pStage];
+        final float[] x2 = fX2[pStage];
+        final float[] y1 = fY1[pStage];
+        final float[] y2 = fY2[pStage];
+        final int mLength = Math.min(pFrame.length, fNumberOfFilters);
+        for (int j = 0; j < mLength; j++) {
+            final float x = pFrame[j];
+            final float y = b0[j] * x + b1[j] * x1[j] + b2[j] * x2[j] - a1[j] * y1[j] - a2[j] * y2[j];
+            x2[j] = x1[j];
+            x1[j] = x;
+            y2[j] = y1[j];
+            y1[j] = y;
+            pFrame[j] = y;
+        }
+    }
+}
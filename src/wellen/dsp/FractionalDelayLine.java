@@ -0,0 +1,301 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package wellen.dsp;
+
+import wellen.Wellen;
+
+import java.util.Arrays;
+
+/**
+ * delay line with a preallocated circular buffer, fractional read positions and smoothed delay time. the buffer is
+ * allocated once for the maximum delay, so changing or modulating the delay time never allocates or copies memory.
+ * <p>
+ * delays are measured in samples relative to the next sample to be written, i.e a delay of <code>1</code> reads the
+ * most recently written sample. this allows feedback structures to read before they write:
+ * <pre>
+ *     float mDelayed = delay_line.read();
+ *     delay_line.write(input + mDelayed * feedback);
+ * </pre>
+ * besides the main read position ( see {@link #set_delay(float)} ) any number of additional taps can be read with
+ * {@link #read(float)}. fractional positions are interpolated with one of {@link Wellen#DELAY_INTERPOLATE_NONE},
+ * {@link Wellen#DELAY_INTERPOLATE_LINEAR}, {@link Wellen#DELAY_INTERPOLATE_ALLPASS} or
+ * {@link Wellen#DELAY_INTERPOLATE_HERMITE}.
+ */
+public class FractionalDelayLine implements DSPNodeProcess, DSPNodeProcessBlock {
+
+    private final float[] fBuffer;
+    private final int     fMask;
+    private final int     fMaxDelay;
+    private float         fAllpassState;
+    private float         fDelay;
+    private int           fInterpolation;
+    private float         fSmoothing;
+    private float         fTargetDelay;
+    private int           fWritePosition;
+
+    /**
+     * @param max_delay_in_samples maximum delay in samples
+     */
+    public FractionalDelayLine(int max_delay_in_samples) {
+        fMaxDelay = Math.max(max_delay_in_samples, 2);
+        int mSize = 1;
+        while (mSize < fMaxDelay + 4) {
+            mSize <<= 1;
+        }
+        fBuffer        = new float[mSize];
+        fMask          = mSize - 1;
+        fInterpolation = Wellen.DELAY_INTERPOLATE_LINEAR;
+        fDelay         = 1;
+        fTargetDelay   = 1;
+        fSmoothing     = 0;
+    }
+
+    /**
+     * @return maximum delay in samples
+     */
+    public int get_max_delay() {
+        return fMaxDelay;
+    }
+
+    /**
+     * @param interpolation {@link Wellen#DELAY_INTERPOLATE_NONE}, {@link Wellen#DELAY_INTERPOLATE_LINEAR},
+     *                      {@link Wellen#DELAY_INTERPOLATE_ALLPASS} or {@link Wellen#DELAY_INTERPOLATE_HERMITE}. allpass
+     *                      interpolation has a flat magnitude response but keeps state, it is only applied to the main
+     *                      read position and works best with slowly changing delays. hermite interpolation requires a
+     *                      delay of at least 2 samples.
+     */
+    public void set_interpolation(int interpolation) {
+        fInterpolation = interpolation;
+        fAllpassState  = 0;
+    }
+
+    /**
+     * @return interpolation type
+     */
+    public int get_interpolation() {
+        return fInterpolation;
+    }
+
+    /**
+     * set delay time of main read position. if smoothing is enabled the delay time glides towards the new value.
+     *
+     * @param delay_in_samples delay in ( fractional ) samples. values are clamped to <code>[1, max_delay]</code>.
+     */
+    public void set_delay(float delay_in_samples) {
+        fTargetDelay = clampDelay(delay_in_samples);
+        if (fSmoothing == 0) {
+            fDelay = fTargetDelay;
+        }
+    }
+
+    /**
+     * @return current delay time of main read position in samples. while smoothing this differs from the value passed
+     *         to {@link #set_delay(float)}.
+     */
+    public float get_delay() {
+        return fDelay;
+    }
+
+    /**
+     * set how fast the delay time follows changes made with {@link #set_delay(float)}. smoothing removes zipper noise
+     * when sweeping the delay time and makes changes sound like a tape speed change.
+     *
+     * @param duration_in_samples time constant of smoothing in samples. 0 applies changes immediately.
+     */
+    public void set_smoothing(float duration_in_samples) {
+        fSmoothing = duration_in_samples > 0 ? (float) Math.exp(-1.0 / duration_in_samples) : 0;
+        if (fSmoothing == 0) {
+            fDelay = fTargetDelay;
+        }
+    }
+
+    /**
+     * fill buffer with zeros
+     */
+    public void clear() {
+        Arrays.fill(fBuffer, 0.0f);
+        fAllpassState = 0;
+    }
+
+    /**
+     * write a sample into the delay line and advance write position.
+     *
+     * @param sample sample to write
+     */
+    public void write(float sample) {
+        fBuffer[fWritePosition] = sample;
+        fWritePosition = (fWritePosition + 1) & fMask;
+    }
+
+    /**
+     * read sample at main read position. the delay time moves one step towards its target on each call.
+     *
+     * @return delayed sample
+     */
+    public float read() {
+        if (fDelay != fTargetDelay) {
+            fDelay = fTargetDelay + (fDelay - fTargetDelay) * fSmoothing;
+        }
+        if (fInterpolation == Wellen.DELAY_INTERPOLATE_ALLPASS) {
+            return readAllpass(fDelay);
+        }
+        return readTap(fDelay, fInterpolation);
+    }
+
+    /**
+     * read an additional tap. taps read with allpass interpolation are interpolated linearly.
+     *
+     * @param delay_in_samples delay in ( fractional ) samples. values are clamped to <code>[1, max_delay]</code>.
+     * @return delayed sample
+     */
+    public float read(float delay_in_samples) {
+        return readTap(clampDelay(delay_in_samples), fInterpolation);
+    }
+
+    /**
+     * read multiple taps at once.
+     *
+     * @param delays_in_samples delays in ( fractional ) samples
+     * @param taps              destination for delayed samples, must be at least as long as <code>delays</code>
+     */
+    public void read(float[] delays_in_samples, float[] taps) {
+        for (int i = 0; i < delays_in_samples.length; i++) {
+            taps[i] = read(delays_in_samples[i]);
+        }
+    }
+
+    /**
+     * @param signal sample to write
+     * @return sample at main read position before writing <code>signal</code>
+     */
+    @Override
+    public float process(float signal) {
+        final float mDelayed = read();
+        write(signal);
+        return mDelayed;
+    }
+
+    /**
+     * replace samples in buffer with delayed samples.
+     *
+     * @param signal samples to process
+     */
+    public void process(float[] signal) {
+        process(signal, 0, signal.length);
+    }
+
+    /**
+     * replace samples in buffer with delayed samples.
+     *
+     * @param signal samples to process
+     * @param offset index of the first sample to process
+     * @param length number of samples to process
+     */
+    public void process(float[] signal, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            signal[i] = process(signal[i]);
+        }
+    }
+
+    /**
+     * replace samples in buffer with delayed samples while modulating the delay time per sample, e.g with the output of
+     * a low frequency oscillator. modulation bypasses smoothing.
+     *
+     * @param signal           samples to process
+     * @param delay_in_samples delay time for each sample
+     * @param offset           index of the first sample to process
+     * @param length           number of samples to process
+     */
+    public void process(float[] signal, float[] delay_in_samples, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            fTargetDelay = clampDelay(delay_in_samples[i]);
+            fDelay       = fTargetDelay;
+            signal[i]    = process(signal[i]);
+        }
+    }
+
+    /**
+     * processes the first channel and writes the result into every channel.
+     *
+     * @param signal buffers to process with one buffer per channel
+     * @param offset index of the first sample to process
+     * @param length number of samples to process
+     */
+    @Override
+    public void process(float[][] signal, int offset, int length) {
+        if (signal.length == 0) {
+            return;
+        }
+        process(signal[0], offset, length);
+        for (int c = 1; c < signal.length; c++) {
+            System.arraycopy(signal[0], offset, signal[c], offset, length);
+        }
+    }
+
+    private float clampDelay(float pDelay) {
+        return Math.max(1.0f, Math.min(pDelay, fMaxDelay));
+    }
+
+    private float sample(int pDelay) {
+        return fBuffer[(fWritePosition - pDelay) & fMask];
+    }
+
+    private float readTap(float pDelay, int pInterpolation) {
+        final int mDelay = (int) pDelay;
+        final float mFraction = pDelay - mDelay;
+        switch (pInterpolation) {
+            case Wellen.DELAY_INTERPOLATE_NONE:
+                return sample(mDelay);
+            case Wellen.DELAY_INTERPOLATE_HERMITE: {
+                if (mDelay < 2) {
+                    return readTap(pDelay, Wellen.DELAY_INTERPOLATE_LINEAR);
+                }
+                final float xm1   = sample(mDelay - 1);
+                final float x0    = sample(mDelay);
+                final float x1    = sample(mDelay + 1);
+                final float x2    = sample(mDelay + 2);
+                final float c     = (x1 - xm1) * 0.5f;
+                final float v     = x0 - x1;
+                final float w     = c + v;
+                final float a     = w + v + (x2 - x0) * 0.5f;
+                final float b_neg = w + a;
+                return (((a * mFraction) - b_neg) * mFraction + c) * mFraction + x0;
+            }
+            case Wellen.DELAY_INTERPOLATE_LINEAR:
+            default: {
+                final float a = sample(mDelay);
+                final float b = sample(mDelay + 1);
+                return a + (b - a) * mFraction;
+            }
+        }
+    }
+
+    private float readAllpass(float pDelay) {
+        int mDelay = (int) pDelay;
+        float mFraction = pDelay - mDelay;
+        /* keep fractional delay in [0.618, 1.618] where the first-order allpass is well behaved */
+        if (mFraction < 0.618f && mDelay > 1) {
+            mDelay--;
+            mFraction += 1.0f;
+        }
+        final float mCoefficient = (1.0f - mFraction) / (1.0f + mFraction);
+        fAllpassState = sample(mDelay + 1) + mCoefficient * (sample(mDelay) - fAllpassState);
+        return fAllpassState;
+    }
+}
@@ -36,11 +36,9 @@ public class Gain implements EffectMono, EffectStereo {
 
     @Override
     public void out(float[] output_signalLeft, float[] output_signalRight) {
-        for (int i = 0; i < output_signalLeft.length; i++) {
-            output_signalLeft[i] *= mGain;
-            if (output_signalRight != null) {
-                output_signalRight[i] *= mGain;
-            }
+        BlockKernels.gain(output_signalLeft, mGain);
+        if (output_signalRight != null) {
+            BlockKernels.gain(output_signalRight, mGain);
         }
     }
 
@@ -0,0 +1,633 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen.dsp;
+
+import wellen.Wellen;
+
+import java.util.Arrays;
+
+/**
+ * granular synthesis engine with a fixed-capacity grain pool. grains read from a shared sample buffer ( e.g the buffer
+ * of a {@link Sampler} ) or from a live input ring that is fed with {@link #input(float)}. each grain is shaped by a
+ * window table that is computed once with {@link Wellen#fill_envelope(float[], int)}.
+ * <p>
+ * the state of all grains is stored as structure of arrays and active grains are kept packed at the beginning of the
+ * arrays, i.e spawning and retiring a grain only copies a few values and never allocates memory. grains are rendered
+ * one after another across the whole block, which keeps the inner loop free of calls and indirections.
+ * <p>
+ * grains are scheduled at sub-sample precision: the fractional part of a grain's onset is carried into its initial read
+ * position and window phase, so that grain clouds with short intervals do not jitter to the sample grid.
+ */
+public class GranularSynthesis implements DSPNodeOutput, DSPNodeOutputBlock, DSPNodeInput, DSPNodeActivity {
+
+    public  static final int       DEFAULT_NUMBER_OF_GRAINS = 1024;
+    private static final int       WINDOW_TABLE_SIZE        = 1024;
+    private        final float[]   fGrainGainLeft;
+    private        final float[]   fGrainGainRight;
+    private        final float[]   fGrainPhase;
+    private        final float[]   fGrainPhaseIncrement;
+    private        final double[]  fGrainPosition;
+    private        final float[]   fGrainStep;
+    private        final int[]     fGrainWait;
+    private        final int       fMaxNumberOfGrains;
+    private        final float     fSampleRate;
+    private        final float[][] fSingleSample;
+    private              float     fAmplitude;
+    private              float[]   fBuffer;
+    private              int       fBufferLength;
+    private              float     fDensity;
+    private              float     fDensityJitter;
+    private              float     fDuration;
+    private              float     fDurationJitter;
+    private              boolean   fLiveInput;
+    private              float[]   fLiveInputRing;
+    private              int       fLiveInputMask;
+    private              long      fLiveInputWritePosition;
+    private              double    fNextGrain;
+    private              int       fNumberOfActiveGrains;
+    private              long      fNumberOfDroppedGrains;
+    private              float     fPitch;
+    private              float     fPitchJitter;
+    private              float     fPosition;
+    private              float     fPositionJitter;
+    private              int       fRandomState;
+    private              float     fSpread;
+    private              float[]   fWindow;
+    private              int       fWindowType;
+
+    /**
+     * @param max_number_of_grains maximum number of simultaneous grains. grains spawned while the pool is full are
+     *                             dropped.
+     * @param sample_rate          sample rate in Hz
+     */
+    public GranularSynthesis(int max_number_of_grains, float sample_rate) {
+        fMaxNumberOfGrains   = Math.max(max_number_of_grains, 1);
+        fSampleRate          = sample_rate;
+        fGrainPosition       = new double[fMaxNumberOfGrains];
+        fGrainStep           = new float[fMaxNumberOfGrains];
+        fGrainPhase          = new float[fMaxNumberOfGrains];
+        fGrainPhaseIncrement = new float[fMaxNumberOfGrains];
+        fGrainGainLeft       = new float[fMaxNumberOfGrains];
+        fGrainGainRight      = new float[fMaxNumberOfGrains];
+        fGrainWait           = new int[fMaxNumberOfGrains];
+        fSingleSample        = new float[1][1];
+        fWindow              = new float[WINDOW_TABLE_SIZE + 1];
+        fRandomState         = 0x2545F491;
+        fAmplitude           = 0.25f;
+        fDensity             = 20.0f;
+        fDuration            = 0.1f;
+        fPitch               = 1.0f;
+        fPosition            = 0.0f;
+        set_envelope(Wellen.ENVELOPE_FORM_HANNING);
+    }
+
+    /**
+     * @param max_number_of_grains maximum number of simultaneous grains
+     */
+    public GranularSynthesis(int max_number_of_grains) {
+        this(max_number_of_grains, Wellen.DEFAULT_SAMPLING_RATE);
+    }
+
+    public GranularSynthesis() {
+        this(DEFAULT_NUMBER_OF_GRAINS, Wellen.DEFAULT_SAMPLING_RATE);
+    }
+
+    /**
+     * read grains from a buffer. the buffer is not copied, i.e it can be shared with other nodes.
+     *
+     * @param buffer samples to read grains from
+     */
+    public void set_source(float[] buffer) {
+        set_source(buffer, buffer == null ? 0 : buffer.length);
+    }
+
+    /**
+     * read grains from the first <code>length</code> samples of a buffer.
+     *
+     * @param buffer samples to read grains from
+     * @param length number of samples in buffer
+     */
+    public void set_source(float[] buffer, int length) {
+        fBuffer       = buffer;
+        fBufferLength = buffer == null ? 0 : Math.min(length, buffer.length);
+        fLiveInput    = false;
+    }
+
+    /**
+     * read grains from the buffer of a sampler. the buffer is shared with the sampler. if the sampler loads new data
+     * the source needs to be set again. samplers that play back from a {@link SampleSource} have no buffer and can not
+     * be used as a source.
+     *
+     * @param sampler sampler to read grains from
+     */
+    public void set_source(Sampler sampler) {
+        if (sampler.get_buffer() == null) {
+            System.err.println("+++ @" + GranularSynthesis.class.getSimpleName() + " / sampler has no buffer");
+            return;
+        }
+        set_source(sampler.get_buffer(), sampler.get_length());
+    }
+
+    /**
+     * read grains from a live input ring. samples are written into the ring with {@link #input(float)} or
+     * {@link #input(float[], int, int)}. while reading from the ring the position ( see {@link #set_position(float)} )
+     * is the normalized distance behind the most recently written sample.
+     *
+     * @param ring_length_in_samples minimum length of the ring. the actual length is the next power of two.
+     */
+    public void enable_live_input(int ring_length_in_samples) {
+        int mSize = 1;
+        while (mSize < Math.max(ring_length_in_samples, 2)) {
+            mSize <<= 1;
+        }
+        if (fLiveInputRing == null || fLiveInputRing.length != mSize) {
+            fLiveInputRing = new float[mSize];
+            fLiveInputMask = mSize - 1;
+        }
+        fLiveInput = true;
+    }
+
+    /**
+     * @return <code>true</code> if grains are read from the live input ring
+     */
+    public boolean is_live_input() {
+        return fLiveInput;
+    }
+
+    /**
+     * write a sample into the live input ring. samples are ignored if the live input ring is not enabled.
+     *
+     * @param signal sample to write
+     */
+    @Override
+    public void input(float signal) {
+        if (fLiveInputRing != null) {
+            fLiveInputRing[(int) fLiveInputWritePosition & fLiveInputMask] = signal;
+            fLiveInputWritePosition++;
+        }
+    }
+
+    /**
+     * write samples into the live input ring.
+     *
+     * @param signal samples to write
+     * @param offset index of the first sample to write
+     * @param length number of samples to write
+     */
+    public void input(float[] signal, int offset, int length) {
+        if (fLiveInputRing != null) {
+            for (int i = offset; i < offset + length; i++) {
+                fLiveInputRing[(int) fLiveInputWritePosition & fLiveInputMask] = signal[i];
+                fLiveInputWritePosition++;
+            }
+        }
+    }
+
+    /**
+     * @param envelope_form form of grain window e.g {@link Wellen#ENVELOPE_FORM_HANNING} or
+     *                      {@link Wellen#ENVELOPE_FORM_GAUSSIAN}
+     */
+    public void set_envelope(int envelope_form) {
+        final float[] mWindow = new float[WINDOW_TABLE_SIZE + 1];
+        Wellen.fill_envelope(mWindow, envelope_form);
+        fWindow     = mWindow;
+        fWindowType = envelope_form;
+    }
+
+    /**
+     * @return form of grain window
+     */
+    public int get_envelope() {
+        return fWindowType;
+    }
+
+    /**
+     * @param density number of grains spawned per second. 0 stops spawning grains.
+     */
+    public void set_density(float density) {
+        final boolean mWasStopped = fDensity <= 0;
+        fDensity = Math.max(density, 0);
+        if (mWasStopped) {
+            fNextGrain = 0;
+        }
+    }
+
+    public float get_density() {
+        return fDensity;
+    }
+
+    /**
+     * @param density_jitter random variation of the interval between grains as a fraction of the interval (
+     *                       <code>[0, 1]</code> )
+     */
+    public void set_density_jitter(float density_jitter) {
+        fDensityJitter = Wellen.clamp(density_jitter, 0, 1);
+    }
+
+    public float get_density_jitter() {
+        return fDensityJitter;
+    }
+
+    /**
+     * @param duration duration of a grain in seconds
+     */
+    public void set_duration(float duration) {
+        fDuration = Math.max(duration, 0);
+    }
+
+    public float get_duration() {
+        return fDuration;
+    }
+
+    /**
+     * @param duration_jitter random variation of grain duration as a fraction of the duration ( <code>[0, 1]</code> )
+     */
+    public void set_duration_jitter(float duration_jitter) {
+        fDurationJitter = Wellen.clamp(duration_jitter, 0, 1);
+    }
+
+    public float get_duration_jitter() {
+        return fDurationJitter;
+    }
+
+    /**
+     * @param position normalized read position of new grains ( <code>[0, 1]</code> ). for the live input ring this is
+     *                 the distance behind the most recently written sample.
+     */
+    public void set_position(float position) {
+        fPosition = Wellen.clamp(position, 0, 1);
+    }
+
+    public float get_position() {
+        return fPosition;
+    }
+
+    /**
+     * @param position_jitter random variation of read position in normalized units
+     */
+    public void set_position_jitter(float position_jitter) {
+        fPositionJitter = Math.max(position_jitter, 0);
+    }
+
+    public float get_position_jitter() {
+        return fPositionJitter;
+    }
+
+    /**
+     * @param pitch playback speed of grains. 1 plays back at original pitch, 2 one octave higher, negative values play
+     *              grains backwards.
+     */
+    public void set_pitch(float pitch) {
+        fPitch = pitch;
+    }
+
+    public float get_pitch() {
+        return fPitch;
+    }
+
+    /**
+     * @param pitch_jitter random variation of playback speed as a fraction of the speed
+     */
+    public void set_pitch_jitter(float pitch_jitter) {
+        fPitchJitter = Math.max(pitch_jitter, 0);
+    }
+
+    public float get_pitch_jitter() {
+        return fPitchJitter;
+    }
+
+    /**
+     * @param amplitude amplitude of each grain
+     */
+    public void set_amplitude(float amplitude) {
+        fAmplitude = amplitude;
+    }
+
+    public float get_amplitude() {
+        return fAmplitude;
+    }
+
+    /**
+     * @param spread random panning of grains in stereo output. 0 places all grains in the center, 1 spreads grains
+     *               across the full stereo field.
+     */
+    public void set_spread(float spread) {
+        fSpread = Wellen.clamp(spread, 0, 1);
+    }
+
+    public float get_spread() {
+        return fSpread;
+    }
+
+    /**
+     * spawn a grain with the current parameters on the next rendered sample.
+     */
+    public void trigger() {
+        trigger(0.0f);
+    }
+
+    /**
+     * spawn a grain with the current parameters.
+     *
+     * @param delay_in_samples onset of grain in ( fractional ) samples relative to the next rendered sample
+     */
+    public void trigger(float delay_in_samples) {
+        spawnGrain(Math.max(delay_in_samples, 0));
+    }
+
+    /**
+     * retire all grains immediately
+     */
+    public void clear() {
+        fNumberOfActiveGrains = 0;
+    }
+
+    /**
+     * @return number of grains currently sounding or waiting for their onset
+     */
+    public int get_number_of_active_grains() {
+        return fNumberOfActiveGrains;
+    }
+
+    /**
+     * @return maximum number of simultaneous grains
+     */
+    public int get_max_number_of_grains() {
+        return fMaxNumberOfGrains;
+    }
+
+    /**
+     * @return number of grains that were dropped because the pool was full
+     */
+    public long get_number_of_dropped_grains() {
+        return fNumberOfDroppedGrains;
+    }
+
+    /**
+     * @return <code>true</code> if no grain is sounding and no grain will be spawned automatically
+     */
+    @Override
+    public boolean is_idle() {
+        return fNumberOfActiveGrains == 0 && (fDensity <= 0 || !hasSource());
+    }
+
+    @Override
+    public float output() {
+        render(fSingleSample, 0, 1);
+        return fSingleSample[0][0];
+    }
+
+    /**
+     * renders grains into <code>output_signal</code>. a single channel receives the mono sum of all grains, with two or
+     * more channels grains are panned across the first two channels and remaining channels are filled with zeros.
+     *
+     * @param output_signal buffers to render into with one buffer per channel
+     * @param offset        index of the first sample to render
+     * @param length        number of samples to render
+     */
+    @Override
+    public void render(float[][] output_signal, int offset, int length) {
+        for (float[] mChannel : output_signal) {
+            Arrays.fill(mChannel, offset, offset + length, 0.0f);
+        }
+        if (output_signal.length == 0 || length <= 0) {
+            return;
+        }
+        scheduleGrains(length);
+        final float[] mLeft  = output_signal[0];
+        final float[] mRight = output_signal.length > 1 ? output_signal[1] : null;
+        final int     mEnd   = offset + length;
+        int           i      = 0;
+        while (i < fNumberOfActiveGrains) {
+            final int mWait = fGrainWait[i];
+            if (mWait >= length) {
+                fGrainWait[i] = mWait - length;
+                i++;
+                continue;
+            }
+            fGrainWait[i] = 0;
+            final boolean mAlive;
+            if (fLiveInput) {
+                mAlive = renderGrainRing(i, mLeft, mRight, offset + mWait, mEnd);
+            } else {
+                mAlive = renderGrainBuffer(i, mLeft, mRight, offset + mWait, mEnd);
+            }
+            if (mAlive) {
+                i++;
+            } else {
+                retireGrain(i);
+            }
+        }
+    }
+
+    private boolean renderGrainBuffer(int pGrain, float[] pLeft, float[] pRight, int pStart, int pEnd) {
+        final float[] mBuffer         = fBuffer;
+        final float[] mWindow         = fWindow;
+        final float   mStep           = fGrainStep[pGrain];
+        final float   mPhaseIncrement = fGrainPhaseIncrement[pGrain];
+        final float   mGainLeft       = fGrainGainLeft[pGrain];
+        final float   mGainRight      = fGrainGainRight[pGrain];
+        final int     mEnd            = grainEnd(pGrain, pStart, pEnd);
+        final double  mPosition       = fGrainPosition[pGrain];
+        float         mPhase          = fGrainPhase[pGrain];
+        /* read relative to an integer base below all positions of this block so that the inner loop works on
+        positive floats */
+        final int     mBase           = (int) lowestIndex(mPosition, mStep, mEnd - pStart);
+        float         mOffset         = (float) (mPosition - mBase);
+        final int     mMin            = -mBase;
+        final int     mMax            = fBufferLength - 1 - mBase;
+        final float   mLastOffset     = mOffset + mStep * (mEnd - pStart);
+        if (mMin <= 0 && Math.max(mOffset, mLastOffset) + 1 < mMax) {
+            /* grain stays inside the buffer for the whole block */
+            for (int i = pStart; i < mEnd; i++) {
+                final int   w       = (int) mPhase;
+                final float mWeight = mWindow[w] + (mWindow[w + 1] - mWindow[w]) * (mPhase - w);
+                final int   k       = mBase + (int) mOffset;
+                final float a       = mBuffer[k];
+                final float mSample = (a + (mBuffer[k + 1] - a) * (mOffset - (int) mOffset)) * mWeight;
+                pLeft[i] += mSample * mGainLeft;
+                if (pRight != null) {
+                    pRight[i] += mSample * mGainRight;
+                }
+                mOffset += mStep;
+                mPhase += mPhaseIncrement;
+            }
+        } else {
+            for (int i = pStart; i < mEnd; i++) {
+                final int   w       = (int) mPhase;
+                final float mWeight = mWindow[w] + (mWindow[w + 1] - mWindow[w]) * (mPhase - w);
+                final int   j       = (int) mOffset;
+                float       mSample = 0.0f;
+                if (j >= mMin && j < mMax) {
+                    final int   k = mBase + j;
+                    final float a = mBuffer[k];
+                    mSample = (a + (mBuffer[k + 1] - a) * (mOffset - j)) * mWeight;
+                }
+                pLeft[i] += mSample * mGainLeft;
+                if (pRight != null) {
+                    pRight[i] += mSample * mGainRight;
+                }
+                mOffset += mStep;
+                mPhase += mPhaseIncrement;
+            }
+        }
+        fGrainPosition[pGrain] = mBase + (double) mOffset;
+        fGrainPhase[pGrain]    = mPhase;
+        return mEnd == pEnd;
+    }
+
+    private boolean renderGrainRing(int pGrain, float[] pLeft, float[] pRight, int pStart, int pEnd) {
+        final float[] mRing           = fLiveInputRing;
+        final int     mMask           = fLiveInputMask;
+        final float[] mWindow         = fWindow;
+        final float   mStep           = fGrainStep[pGrain];
+        final float   mPhaseIncrement = fGrainPhaseIncrement[pGrain];
+        final float   mGainLeft       = fGrainGainLeft[pGrain];
+        final float   mGainRight      = fGrainGainRight[pGrain];
+        final int     mEnd            = grainEnd(pGrain, pStart, pEnd);
+        final double  mPosition       = fGrainPosition[pGrain];
+        float         mPhase          = fGrainPhase[pGrain];
+        /* positions in the ring grow with every input sample, so the base is kept as a long and only its position in
+        the ring is used for reading */
+        final long    mLowest         = lowestIndex(mPosition, mStep, mEnd - pStart);
+        final int     mBase           = (int) (mLowest & mMask);
+        float         mOffset         = (float) (mPosition - mLowest);
+        for (int i = pStart; i < mEnd; i++) {
+            final int   w       = (int) mPhase;
+            final float mWeight = mWindow[w] + (mWindow[w + 1] - mWindow[w]) * (mPhase - w);
+            final int   j       = (int) mOffset;
+            final int   k       = mBase + j;
+            final float a       = mRing[k & mMask];
+            final float mSample = (a + (mRing[(k + 1) & mMask] - a) * (mOffset - j)) * mWeight;
+            pLeft[i] += mSample * mGainLeft;
+            if (pRight != null) {
+                pRight[i] += mSample * mGainRight;
+            }
+            mOffset += mStep;
+            mPhase += mPhaseIncrement;
+        }
+        fGrainPosition[pGrain] = mLowest + (double) mOffset;
+        fGrainPhase[pGrain]    = mPhase;
+        return mEnd == pEnd;
+    }
+
+    private static long lowestIndex(double pPosition, float pStep, int pLength) {
+        return (long) Math.floor(pPosition + Math.min(pStep, 0.0f) * pLength) - 1;
+    }
+
+    /**
+     * @return index after the last sample of the block that the grain contributes to
+     */
+    private int grainEnd(int pGrain, int pStart, int pEnd) {
+        final float mRemaining = (WINDOW_TABLE_SIZE - fGrainPhase[pGrain]) / fGrainPhaseIncrement[pGrain];
+        if (mRemaining >= pEnd - pStart) {
+            return pEnd;
+        }
+        int mEnd = pStart + Math.max((int) Math.ceil(mRemaining), 0);
+        /* guard against rounding so that the window table is never read past its end */
+        while (mEnd > pStart && fGrainPhase[pGrain] + (mEnd - 1 - pStart) * fGrainPhaseIncrement[pGrain] >= WINDOW_TABLE_SIZE) {
+            mEnd--;
+        }
+        return mEnd;
+    }
+
+    private void scheduleGrains(int pLength) {
+        if (fDensity <= 0 || !hasSource()) {
+            return;
+        }
+        final double mInterval = fSampleRate / fDensity;
+        while (fNextGrain < pLength) {
+            spawnGrain((float) fNextGrain);
+            fNextGrain += Math.max(mInterval * (1.0f + fDensityJitter * random()), 1.0);
+        }
+        fNextGrain -= pLength;
+    }
+
+    private void spawnGrain(float pOnset) {
+        if (!hasSource()) {
+            return;
+        }
+        if (fNumberOfActiveGrains >= fMaxNumberOfGrains) {
+            fNumberOfDroppedGrains++;
+            return;
+        }
+        final float mDuration       = fDuration * fSampleRate * (1.0f + fDurationJitter * random());
+        final float mPhaseIncrement = WINDOW_TABLE_SIZE / Math.max(mDuration, 2.0f);
+        final float mStep           = fPitch * (1.0f + fPitchJitter * random());
+        final int   mWait           = (int) Math.ceil(pOnset);
+        final float mFraction       = mWait - pOnset;
+        final float mPosition       = Wellen.clamp(fPosition + fPositionJitter * random(), 0, 1);
+
+        double mStart;
+        if (fLiveInput) {
+            /* keep grains that read faster than the input behind the write position */
+            final int   mRingLength = fLiveInputRing.length;
+            final float mOvertake   = Math.max(mStep - 1.0f, 0.0f) * mDuration + 2.0f;
+            final float mDelay      = mOvertake + mPosition * Math.max(mRingLength - mOvertake - mDuration, 0.0f);
+            mStart = fLiveInputWritePosition - (double) Math.min(mDelay, mRingLength) + pOnset;
+        } else {
+            mStart = mPosition * (fBufferLength - 1);
+        }
+
+        final int i = fNumberOfActiveGrains++;
+        fGrainPosition[i]       = mStart + mFraction * mStep;
+        fGrainStep[i]           = mStep;
+        fGrainPhase[i]          = mFraction * mPhaseIncrement;
+        fGrainPhaseIncrement[i] = mPhaseIncrement;
+        fGrainWait[i]           = mWait;
+        if (fSpread > 0) {
+            final float mPan = (0.5f + 0.5f * fSpread * random()) * (float) (Math.PI * 0.5);
+            fGrainGainLeft[i]  = fAmplitude * (float) Math.cos(mPan);
+            fGrainGainRight[i] = fAmplitude * (float) Math.sin(mPan);
+        } else {
+            fGrainGainLeft[i]  = fAmplitude;
+            fGrainGainRight[i] = fAmplitude;
+        }
+    }
+
+    private void retireGrain(int pGrain) {
+        final int mLast = --fNumberOfActiveGrains;
+        if (pGrain != mLast) {
+            fGrainPosition[pGrain]       = fGrainPosition[mLast];
+            fGrainStep[pGrain]           = fGrainStep[mLast];
+            fGrainPhase[pGrain]          = fGrainPhase[mLast];
+            fGrainPhaseIncrement[pGrain] = fGrainPhaseIncrement[mLast];
+            fGrainGainLeft[pGrain]       = fGrainGainLeft[mLast];
+            fGrainGainRight[pGrain]      = fGrainGainRight[mLast];
+            fGrainWait[pGrain]           = fGrainWait[mLast];
+        }
+    }
+
+    private boolean hasSource() {
+        return fLiveInput ? fLiveInputRing != null : fBufferLength > 1;
+    }
+
+    /**
+     * @return random value in <code>[-1, 1)</code> from a xorshift generator
+     */
+    private float random() {
+        int x = fRandomState;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        fRandomState = x;
+        return x * (1.0f / 2147483648.0f);
+    }
+}
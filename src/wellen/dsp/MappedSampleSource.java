@@ -0,0 +1,423 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen.dsp;
+
+import wellen.PCMCodec;
+import wellen.WAVReader;
+import wellen.Wellen;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * streams samples from a memory-mapped WAV or raw file. samples are decoded on the fly when they are read, so the
+ * file is never loaded into the heap. only a window of the file around the current read position is mapped at a time.
+ * <p>
+ * windows are mapped and loaded into memory ahead of time on a shared background thread. whenever the read position
+ * enters a new window the next window in the direction of playback is requested, so that sequential playback in
+ * either direction never maps or touches the file on the reading ( i.e audio ) thread. only if the read position jumps
+ * outside of the current and the prepared window ( e.g when looping or rewinding ) the window is mapped on the reading
+ * thread. windows that are left behind are unmapped explicitly on the background thread, so at most the current and
+ * the prepared window are resident. where the runtime does not allow unmapping ( e.g on Android ) windows are released
+ * by the garbage collector.
+ * <p>
+ * <code>get(int)</code> must only be called from one thread at a time, usually the audio thread playing back the
+ * source. other threads, e.g to draw the samples, should use <code>peek(int)</code>.
+ * <p>
+ * files starting with a <code>RIFF</code> header are read as WAV files with either PCM ( 8, 16, 24 or 32 bit ) or
+ * IEEE float ( 32 bit ) samples. all other files are read as raw 32 bit IEEE float samples in little endian order.
+ * <p>
+ * the source should be closed with <code>close()</code> once it is not used anymore.
+ */
+public class MappedSampleSource implements SampleSource {
+
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 18;
+
+    private static final int                                  FORMAT_RAW      = -1;
+    private static final int                                  NO_REQUEST      = Integer.MIN_VALUE;
+    private static final AtomicReference<MappedSampleSource> oPendingSources = new AtomicReference<>();
+    private static final MethodHandle                         oUnmap          = findUnmap();
+    private static       Thread                               oPrefetchThread;
+    private final        int                                  fBitsPerSample;
+    private final        int                                  fBytesPerFrame;
+    private final        int                                  fBytesPerSample;
+    private final        int                                  fChannel;
+    private final        int                                  fChannels;
+    private volatile     boolean                              fClosed         = false;
+    private final        PCMCodec                             fCodec;
+    private final        long                                 fDataOffset;
+    private final        FileChannel                          fFileChannel;
+    private final        int                                  fFormat;
+    private final        int                                  fLength;
+    private              MappedSampleSource                   fNextPending;
+    private final        ByteBuffer                           fPeekBuffer;
+    private final        AtomicBoolean                        fPending        = new AtomicBoolean(false);
+    private final        AtomicReference<Window>              fPrepared       = new AtomicReference<>();
+    private final        AtomicInteger                        fRequest        = new AtomicInteger(NO_REQUEST);
+    private final        AtomicReference<Window>              fRetired        = new AtomicReference<>();
+    private final        int                                  fSampleRate;
+    private              Window                               fWindow;
+    private final        int                                  fWindowSize;
+
+    /**
+     * @param file_path path to WAV or raw file
+     * @throws IOException if file can not be read
+     */
+    public MappedSampleSource(String file_path) throws IOException {
+        this(new File(file_path), 0, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param file    WAV or raw file
+     * @param channel channel to read samples from
+     * @throws IOException if file can not be read
+     */
+    public MappedSampleSource(File file, int channel) throws IOException {
+        this(file, channel, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param file        WAV or raw file
+     * @param channel     channel to read samples from
+     * @param window_size number of samples per channel that are mapped at a time
+     * @throws IOException if file can not be read or has an unsupported format
+     */
+    public MappedSampleSource(File file, int channel, int window_size) throws IOException {
+        fFileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        fWindowSize  = Math.max(window_size, 1);
+        try {
+            if (isWAV(file)) {
+                try (WAVReader mReader = new WAVReader(file)) {
+                    fFormat        = mReader.get_format();
+                    fChannels      = mReader.get_channels();
+                    fSampleRate    = mReader.get_sample_rate();
+                    fBitsPerSample = mReader.get_bits_per_sample();
+                    fDataOffset    = mReader.get_data_offset();
+                    fBytesPerFrame = fChannels * (fBitsPerSample / 8);
+                    fLength        = (int) Math.min(mReader.get_length(), Integer.MAX_VALUE);
+                }
+            } else {
+                fFormat        = FORMAT_RAW;
+                fChannels      = 1;
+                fSampleRate    = Wellen.DEFAULT_SAMPLING_RATE;
+                fBitsPerSample = 32;
+                fDataOffset    = 0;
+                fBytesPerFrame = 4;
+                fLength        = (int) Math.min(fFileChannel.size() / fBytesPerFrame, Integer.MAX_VALUE);
+            }
+        } catch (IOException e) {
+            fFileChannel.close();
+            throw e;
+        }
+        fChannel        = Math.max(0, Math.min(channel, fChannels - 1));
+        fBytesPerSample = fBitsPerSample / 8;
+        fPeekBuffer     = ByteBuffer.allocate(fBytesPerSample);
+        fCodec          = fFormat == FORMAT_RAW ? PCMCodec.create(Wellen.ENCODING_PCM_FLOAT, 32, false) :
+                          PCMCodec.create_wav(fFormat, fBitsPerSample);
+        /* the first window is mapped on the constructing thread, the second one in the background */
+        if (fLength > 0) {
+            fWindow = mapWindow(0, false);
+            if (fWindow != null) {
+                requestWindow(fWindow.fEnd, false);
+            }
+        }
+    }
+
+    @Override
+    public int length() {
+        return fLength;
+    }
+
+    /**
+     * read a sample from the current window. this method must only be called from one thread at a time ( see
+     * <code>peek(int)</code> ).
+     *
+     * @param index index of sample ranging from 0 to <code>length() - 1</code>
+     * @return sample at index
+     */
+    @Override
+    public float get(int index) {
+        Window mWindow = fWindow;
+        if (mWindow == null || index < mWindow.fStart || index >= mWindow.fEnd) {
+            mWindow = switchWindow(index);
+            if (mWindow == null) {
+                return 0.0f;
+            }
+        }
+        final int mPosition = (index - mWindow.fStart) * fBytesPerFrame + fChannel * fBytesPerSample;
+        return fCodec.decode(mWindow.fBuffer, mPosition);
+    }
+
+    /**
+     * read a single sample directly from the file without touching the mapped windows. this method may be called from
+     * any thread while the source is played back, e.g to draw the samples.
+     *
+     * @param index index of sample ranging from 0 to <code>length() - 1</code>
+     * @return sample at index
+     */
+    @Override
+    public synchronized float peek(int index) {
+        if (index < 0 || index >= fLength) {
+            return 0.0f;
+        }
+        final long mPosition = fDataOffset + (long) index * fBytesPerFrame + (long) fChannel * fBytesPerSample;
+        fPeekBuffer.clear();
+        try {
+            while (fPeekBuffer.hasRemaining()) {
+                if (fFileChannel.read(fPeekBuffer, mPosition + fPeekBuffer.position()) < 0) {
+                    return 0.0f;
+                }
+            }
+        } catch (IOException e) {
+            return 0.0f;
+        }
+        return fCodec.decode(fPeekBuffer, 0);
+    }
+
+    /**
+     * @return sample rate stored in WAV file or default sample rate for raw files
+     */
+    public int get_sample_rate() {
+        return fSampleRate;
+    }
+
+    /**
+     * @return number of channels in file
+     */
+    public int get_channels() {
+        return fChannels;
+    }
+
+    /**
+     * @return channel samples are read from
+     */
+    public int get_channel() {
+        return fChannel;
+    }
+
+    /**
+     * @return number of samples per channel that are mapped at a time
+     */
+    public int get_window_size() {
+        return fWindowSize;
+    }
+
+    /**
+     * close the underlying file. the source must not be used afterwards. the prepared window and all windows left
+     * behind are unmapped in the background. the current window is released by the garbage collector, since it might
+     * still be read by the audio thread.
+     */
+    public void close() {
+        fClosed = true;
+        queuePending();
+        try {
+            fFileChannel.close();
+        } catch (IOException e) {
+            System.err.println("+++ WARNING @" + getClass().getSimpleName() + " / " + e.getMessage());
+        }
+    }
+
+    private Window switchWindow(int pIndex) {
+        if (pIndex < 0 || pIndex >= fLength || fClosed) {
+            return null;
+        }
+        final Window  mCurrent  = fWindow;
+        final boolean mBackward = mCurrent != null && pIndex < mCurrent.fStart;
+        Window        mNext     = fPrepared.get();
+        if (mNext == null || pIndex < mNext.fStart || pIndex >= mNext.fEnd || !fPrepared.compareAndSet(mNext, null)) {
+            /* read position left the prepared region, map on calling thread */
+            mNext = mapWindow(pIndex, mBackward);
+            if (mNext == null) {
+                return null;
+            }
+        }
+        fWindow = mNext;
+        if (mCurrent != null) {
+            retireWindow(mCurrent);
+        }
+        requestWindow(mBackward ? mNext.fStart - 1 : mNext.fEnd, mBackward);
+        return mNext;
+    }
+
+    private void requestWindow(int pIndex, boolean pBackward) {
+        if (pIndex >= 0 && pIndex < fLength) {
+            fRequest.set(pBackward ? -pIndex - 1 : pIndex);
+        }
+        queuePending();
+    }
+
+    private void retireWindow(Window pWindow) {
+        Window mHead;
+        do {
+            mHead         = fRetired.get();
+            pWindow.fNext = mHead;
+        } while (!fRetired.compareAndSet(mHead, pWindow));
+    }
+
+    private void queuePending() {
+        if (!fPending.compareAndSet(false, true)) {
+            return;
+        }
+        MappedSampleSource mHead;
+        do {
+            mHead        = oPendingSources.get();
+            fNextPending = mHead;
+        } while (!oPendingSources.compareAndSet(mHead, this));
+        LockSupport.unpark(getPrefetchThread());
+    }
+
+    /* runs on prefetch thread */
+    private void prefetch() {
+        fPending.set(false);
+        Window mRetired = fRetired.getAndSet(null);
+        while (mRetired != null) {
+            final Window mNext = mRetired.fNext;
+            unmap(mRetired);
+            mRetired = mNext;
+        }
+        if (fClosed) {
+            unmap(fPrepared.getAndSet(null));
+            return;
+        }
+        final int mRequest = fRequest.getAndSet(NO_REQUEST);
+        if (mRequest == NO_REQUEST) {
+            return;
+        }
+        final boolean mBackward = mRequest < 0;
+        final int     mIndex    = mBackward ? -mRequest - 1 : mRequest;
+        final Window  mPrepared = fPrepared.get();
+        if (mPrepared != null && mIndex >= mPrepared.fStart && mIndex < mPrepared.fEnd) {
+            return;
+        }
+        final Window mWindow = mapWindow(mIndex, mBackward);
+        if (mWindow != null) {
+            mWindow.fBuffer.load();
+            unmap(fPrepared.getAndSet(mWindow));
+        }
+    }
+
+    private Window mapWindow(int pIndex, boolean pBackward) {
+        /* place index in the first quarter of the window when reading forward and in the last quarter when reading
+        backward so that consecutive reads in either direction stay within the window */
+        int mStart = pBackward ? pIndex - fWindowSize * 3 / 4 : pIndex - fWindowSize / 4;
+        mStart = Math.max(0, Math.min(mStart, fLength - fWindowSize));
+        final int mEnd = Math.min(mStart + fWindowSize, fLength);
+        try {
+            final MappedByteBuffer mBuffer = fFileChannel.map(FileChannel.MapMode.READ_ONLY,
+                                                              fDataOffset + (long) mStart * fBytesPerFrame,
+                                                              (long) (mEnd - mStart) * fBytesPerFrame);
+            return new Window(mBuffer, mStart, mEnd);
+        } catch (IOException e) {
+            if (!fClosed) {
+                System.err.println("+++ WARNING @" + getClass().getSimpleName() + " / could not map file: " +
+                                   e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    private static void unmap(Window pWindow) {
+        if (pWindow == null || oUnmap == null) {
+            return;
+        }
+        try {
+            oUnmap.invokeExact((ByteBuffer) pWindow.fBuffer);
+        } catch (Throwable e) {
+            System.err.println("+++ WARNING @" + MappedSampleSource.class.getSimpleName() + " / could not unmap " +
+                               "window: " + e.getMessage());
+        }
+    }
+
+    private static MethodHandle findUnmap() {
+        try {
+            final Class<?> mUnsafeClass = Class.forName("sun.misc.Unsafe");
+            final Field    mField       = mUnsafeClass.getDeclaredField("theUnsafe");
+            mField.setAccessible(true);
+            return MethodHandles.lookup().findVirtual(mUnsafeClass,
+                                                      "invokeCleaner",
+                                                      MethodType.methodType(void.class, ByteBuffer.class))
+                                .bindTo(mField.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static synchronized Thread getPrefetchThread() {
+        if (oPrefetchThread == null) {
+            oPrefetchThread = new Thread(MappedSampleSource::runPrefetchThread, "wellen-mapped-prefetch");
+            oPrefetchThread.setDaemon(true);
+            oPrefetchThread.start();
+        }
+        return oPrefetchThread;
+    }
+
+    private static void runPrefetchThread() {
+        while (true) {
+            MappedSampleSource mSource = oPendingSources.getAndSet(null);
+            while (mSource != null) {
+                final MappedSampleSource mNext = mSource.fNextPending;
+                mSource.fNextPending = null;
+                try {
+                    mSource.prefetch();
+                } catch (RuntimeException e) {
+                    System.err.println("+++ WARNING @" + MappedSampleSource.class.getSimpleName() + " / " +
+                                       e.getMessage());
+                }
+                mSource = mNext;
+            }
+            LockSupport.park();
+        }
+    }
+
+    private static boolean isWAV(File pFile) throws IOException {
+        try (FileChannel mChannel = FileChannel.open(pFile.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer mHeader = ByteBuffer.allocate(4);
+            mChannel.read(mHeader, 0);
+            return mHeader.position() == 4 && mHeader.get(0) == 'R' && mHeader.get(1) == 'I' && mHeader.get(2) == 'F' && mHeader.get(
+            3) == 'F';
+        }
+    }
+
+    private static class Window {
+
+        final MappedByteBuffer fBuffer;
+        final int              fEnd;
+        Window                 fNext;
+        final int              fStart;
+
+        Window(MappedByteBuffer pBuffer, int pStart, int pEnd) {
+            fBuffer = pBuffer;
+            fStart  = pStart;
+            fEnd    = pEnd;
+        }
+    }
+}
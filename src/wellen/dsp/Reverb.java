@@ -22,7 +22,7 @@ package wellen.dsp;
 /**
  * applies reverb to a signal. {@link Reverb} uses an implementation of freeverb.
  */
-public class Reverb implements DSPNodeProcessSignal, DSPNodeProcess, EffectStereo {
+public class Reverb implements DSPNodeProcessSignal, DSPNodeProcess, DSPNodeProcessBlock, EffectStereo {
 
     /* a `FreeVerb` implementation taken from https://github.com/kmatheussen/soundengine */
 
@@ -148,6 +148,9 @@ public class Reverb implements DSPNodeProcessSignal, DSPNodeProcess, EffectStere
     private final float largest_diff = 0.01f;
     private final GlideVar roomSize;
     private final GlideVar wet;
+    private final float[] fSampleLeft = new float[1];
+    private final float[] fSampleRight = new float[1];
+
     public Reverb() {
         fslider0 = 0.5f;
         fslider1 = 0.5f;
@@ -166,6 +169,41 @@ public class Reverb implements DSPNodeProcessSignal, DSPNodeProcess, EffectStere
                         float[] output_signalRight,
                         float[] pInputSignalLeft,
                         float[] pInputSignalRight) {
+        process(output_signalLeft, output_signalRight, pInputSignalLeft, pInputSignalRight, 0, pInputSignalLeft.length);
+    }
+
+    /**
+     * process stereo signal in place. mono signals are processed like {@link #process(float)}.
+     *
+     * @param signal buffers to process with one buffer per channel
+     * @param offset index of the first sample to process
+     * @param length number of samples to process
+     */
+    @Override
+    public void process(float[][] signal, int offset, int length) {
+        if (signal.length == 1) {
+            process(signal[0], signal[0], signal[0], signal[0], offset, length);
+        } else if (signal.length > 1) {
+            process(signal[0], signal[1], signal[0], signal[1], offset, length);
+        }
+    }
+
+    /**
+     * process a range of a stereo signal. input and output buffers may be the same to process the signal in place.
+     *
+     * @param output_signalLeft  buffer to write left channel into
+     * @param output_signalRight buffer to write right channel into
+     * @param pInputSignalLeft   left input channel
+     * @param pInputSignalRight  right input channel
+     * @param offset             index of the first sample to process
+     * @param length             number of samples to process
+     */
+    public void process(float[] output_signalLeft,
+                        float[] output_signalRight,
+                        float[] pInputSignalLeft,
+                        float[] pInputSignalRight,
+                        int offset,
+                        int length) {
         fslider0 = damp.get();
         fslider1 = roomSize.get();
         fslider2 = wet.get();
@@ -175,8 +213,8 @@ public class Reverb implements DSPNodeProcessSignal, DSPNodeProcess, EffectStere
         float fSlow2 = (0.7f + (0.28f * fslider1));
         float fSlow3 = fslider2;
         float fSlow4 = (1 - fSlow3);
-        int count = pInputSignalLeft.length;
-        for (int i = 0; i < count; i++) {
+        final int count = offset + length;
+        for (int i = offset; i < count; i++) {
             fRec9_0 = ((fSlow1 * fRec8_1) + (fSlow0 * fRec9_1));
             float fTemp0 = pInputSignalRight[i];
             float fTemp1 = pInputSignalLeft[i];
@@ -321,18 +359,22 @@ public class Reverb implements DSPNodeProcessSignal, DSPNodeProcess, EffectStere
     }
 
     public float process(float pSignal) {
-        float[] mBuffer = {pSignal};
-        process(mBuffer, mBuffer, mBuffer, mBuffer);
-        return mBuffer[0];
+        fSampleLeft[0] = pSignal;
+        process(fSampleLeft, fSampleLeft, fSampleLeft, fSampleLeft, 0, 1);
+        return fSampleLeft[0];
     }
 
+    /**
+     * @param pSignal input signal. the signal is processed in place and returned.
+     * @return processed signal
+     */
     public Signal process_signal(Signal pSignal) {
-        float[] mBufferLeft = {pSignal.left()};
-        float[] mBufferRight = {pSignal.right()};
-        process(mBufferLeft, mBufferRight, mBufferLeft, mBufferRight);
-        pSignal.left(mBufferLeft[0]);
-        pSignal.right(mBufferRight[0]);
-        return new Signal(pSignal);
+        fSampleLeft[0]  = pSignal.left();
+        fSampleRight[0] = pSignal.right();
+        process(fSampleLeft, fSampleRight, fSampleLeft, fSampleRight, 0, 1);
+        pSignal.left(fSampleLeft[0]);
+        pSignal.right(fSampleRight[0]);
+        return pSignal;
     }
 
     /*
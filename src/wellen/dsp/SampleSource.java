@@ -0,0 +1,47 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package wellen.dsp;
+
+/**
+ * source of samples that can be played back by a {@link Sampler} instead of an array of samples.
+ */
+public interface SampleSource {
+
+    /**
+     * @return number of samples
+     */
+    int length();
+
+    /**
+     * @param index index of sample ranging from 0 to <code>length() - 1</code>
+     * @return sample at index
+     */
+    float get(int index);
+
+    /**
+     * read a sample from a thread other than the one playing back the source, e.g to draw it. sources that keep state
+     * while reading ( see {@link MappedSampleSource} ) override this method.
+     *
+     * @param index index of sample ranging from 0 to <code>length() - 1</code>
+     * @return sample at index
+     */
+    default float peek(int index) {
+        return get(index);
+    }
+}
@@ -35,9 +35,10 @@ import static wellen.Note.note_to_frequency;
 import static wellen.Wellen.clamp;
 
 /**
- * plays back an array of samples at different speeds.
+ * plays back an array of samples at different speeds. instead of an array a {@link SampleSource} can be used e.g to
+ * stream samples from a memory-mapped file.
  */
-public class Sampler implements DSPNodeOutput {
+public class Sampler implements DSPNodeOutput, DSPNodeActivity {
 
     public static final int NO_LOOP_POINT = -1;
     private final ArrayList<SamplerListener> fSamplerListeners;
@@ -45,6 +46,8 @@ public class Sampler implements DSPNodeOutput {
     private final float fSamplingRate;
     private float fAmplitude;
     private float[] fBuffer;
+    private int fLength;
+    private SampleSource fSource;
     private double fBufferIndex;
     private boolean fDirectionForward;
     private int fEdgeFadePadding;
@@ -86,7 +89,7 @@ public class Sampler implements DSPNodeOutput {
         fInPoint = 0;
         fOutPoint = 0;
         set_in(0);
-        set_out(fBuffer.length - 1);
+        set_out(fLength - 1);
         fFrequencyScale = 1.0f;
         set_speed(1.0f);
         set_amplitude(1.0f);
@@ -123,10 +126,11 @@ public class Sampler implements DSPNodeOutput {
      * @return instance with buffer loaded
      */
     public Sampler load(byte[] buffer, boolean little_endian) {
-        if (fBuffer == null || fBuffer.length != buffer.length / 4) {
-            fBuffer = new float[buffer.length / 4];
+        if (fBuffer == null || fLength != buffer.length / 4) {
+            set_buffer(new float[buffer.length / 4]);
+        } else {
+            set_buffer(fBuffer);
         }
-        set_buffer(fBuffer);
         Wellen.bytes_to_floatIEEEs(buffer, get_buffer(), little_endian);
         rewind();
         stop();
@@ -159,13 +163,13 @@ public class Sampler implements DSPNodeOutput {
     public void set_speed(float speed) {
         fSpeed = speed;
         fDirectionForward = speed > 0;
-        set_frequency(PApplet.abs(speed) * fSamplingRate / fBuffer.length); /* aka `step_size = speed` */
+        set_frequency(PApplet.abs(speed) * fSamplingRate / fLength); /* aka `step_size = speed` */
     }
 
     public void set_frequency(float frequency) {
         if (fFrequency != frequency) {
             fFrequency = frequency;
-            fStepSize = fFrequency / fFrequencyScale * ((float) fBuffer.length / fSamplingRate);
+            fStepSize = fFrequency / fFrequencyScale * ((float) fLength / fSamplingRate);
         }
     }
 
@@ -173,18 +177,56 @@ public class Sampler implements DSPNodeOutput {
         fAmplitude = amplitude;
     }
 
+    /**
+     * @return sample buffer or <code>null</code> if sampler plays back from a {@link SampleSource}
+     */
     public float[] get_buffer() {
         return fBuffer;
     }
 
     public void set_buffer(float[] buffer) {
+        fSource = null;
         fBuffer = buffer;
-        rewind();
-        set_speed(fSpeed);
-        set_in(0);
-        set_out(fBuffer.length - 1);
-        fLoopIn = NO_LOOP_POINT;
-        fLoopOut = NO_LOOP_POINT;
+        fLength = buffer.length;
+        resetBuffer();
+    }
+
+    /**
+     * play back samples from a source instead of a buffer e.g from a memory-mapped file ( see
+     * {@link MappedSampleSource} ). while a source is set <code>get_buffer()</code> returns <code>null</code>. in-
+     * and out points, loop points, speed and interpolation behave the same as with a buffer.
+     *
+     * @param source source of samples
+     */
+    public void set_source(SampleSource source) {
+        fSource = source;
+        fBuffer = null;
+        fLength = source.length();
+        resetBuffer();
+    }
+
+    /**
+     * @return source of samples or <code>null</code> if sampler plays back from a buffer
+     */
+    public SampleSource get_source() {
+        return fSource;
+    }
+
+    /**
+     * @return number of samples in buffer or source
+     */
+    public int get_length() {
+        return fLength;
+    }
+
+    /**
+     * @param index index of sample
+     * @return sample at index from buffer or source. samples from a source are read with
+     *         <code>SampleSource.peek(int)</code>, so this method may be called from other threads than the audio
+     *         thread e.g to draw the samples.
+     */
+    public float get_sample(int index) {
+        return fSource != null ? fSource.peek(index) : fBuffer[index];
     }
 
     public void interpolate_samples(boolean interpolate_samples) {
@@ -200,7 +242,7 @@ public class Sampler implements DSPNodeOutput {
     }
 
     public float get_position_normalized() {
-        return fBuffer.length > 0 ? (float) fBufferIndex / fBuffer.length : 0.0f;
+        return fLength > 0 ? (float) fBufferIndex / fLength : 0.0f;
     }
 
     public float get_position_fractional_part() {
@@ -211,25 +253,34 @@ public class Sampler implements DSPNodeOutput {
         return fIsPlaying;
     }
 
+    /**
+     * @return <code>true</code> if sampler has stopped or finished playing and listeners have been notified. an idle
+     *         sampler outputs 0 until <code>play()</code> is called.
+     */
+    @Override
+    public boolean is_idle() {
+        return fIsFlaggedDone;
+    }
+
     public void set_duration(float seconds) {
-        if (fBuffer == null || fBuffer.length == 0 || seconds == 0.0f) {
+        if (fLength == 0 || seconds == 0.0f) {
             return;
         }
-        final float mNormDurationSec = (fBuffer.length / fSamplingRate);
+        final float mNormDurationSec = (fLength / fSamplingRate);
         final float mSpeed = mNormDurationSec / seconds;
         set_speed(mSpeed);
     }
 
     public float get_duration() {
-        if (fBuffer == null || fBuffer.length == 0 || fSpeed == 0.0f) {
+        if (fLength == 0 || fSpeed == 0.0f) {
             return 0;
         }
-        final float mNormDurationSec = (fBuffer.length / fSamplingRate);
+        final float mNormDurationSec = (fLength / fSamplingRate);
         return mNormDurationSec / fSpeed;
     }
 
     public float output() {
-        if (fBuffer.length == 0) {
+        if (fLength == 0) {
             notifyListeners("buffer is empty");
             return 0.0f;
         }
@@ -263,13 +314,13 @@ public class Sampler implements DSPNodeOutput {
     }
 
     private float getSample(int mCurrentIndex, double mFrac) {
-        double mSample = fBuffer[mCurrentIndex];
+        double mSample = sample(mCurrentIndex);
 
         /* interpolate */
         if (fInterpolateSamples) {
             // TODO evaluate direction?
             final int mNextIndex = wrapIndex(mCurrentIndex + 1);
-            final double mNextSample = fBuffer[mNextIndex];
+            final double mNextSample = sample(mNextIndex);
             mSample = mSample * (1.0 - mFrac) + mNextSample * mFrac;
         }
         mSample *= fAmplitude;
@@ -277,7 +328,7 @@ public class Sampler implements DSPNodeOutput {
         /* fade edges */
         if (fEdgeFadePadding > 0) {
             // TODO ignores in- and outpoints
-            final int mRelativeIndex = fBuffer.length - mCurrentIndex;
+            final int mRelativeIndex = fLength - mCurrentIndex;
             if (mCurrentIndex < fEdgeFadePadding) {
                 final float mFadeInAmount = (float) mCurrentIndex / fEdgeFadePadding;
                 mSample *= mFadeInAmount;
@@ -316,7 +367,7 @@ public class Sampler implements DSPNodeOutput {
     public void set_loop_all() {
         fEvaluateLoop = true;
         fLoopIn = 0;
-        fLoopOut = fBuffer.length > 0 ? (fBuffer.length - 1) : 0;
+        fLoopOut = fLength > 0 ? (fLength - 1) : 0;
     }
 
     public void play() {
@@ -333,7 +384,7 @@ public class Sampler implements DSPNodeOutput {
     public void stop() {
         fIsPlaying = false;
         fIsFlaggedDone = true;
-        fBufferIndex = fBuffer.length > 0 ? fBuffer.length - 1 : 0;
+        fBufferIndex = fLength > 0 ? fLength - 1 : 0;
     }
 
     public void start_recording() {
@@ -390,18 +441,18 @@ public class Sampler implements DSPNodeOutput {
     }
 
     public void set_loop_in(int loop_in_point) {
-        fLoopIn = clamp(loop_in_point, NO_LOOP_POINT, fBuffer.length - 1);
+        fLoopIn = clamp(loop_in_point, NO_LOOP_POINT, fLength - 1);
     }
 
     public float get_loop_in_normalized() {
-        if (fBuffer.length < 2) {
+        if (fLength < 2) {
             return 0.0f;
         }
-        return (float) fLoopIn / (fBuffer.length - 1);
+        return (float) fLoopIn / (fLength - 1);
     }
 
     public void set_loop_in_normalized(float loop_in_point_normalized) {
-        set_loop_in((int) (loop_in_point_normalized * fBuffer.length - 1));
+        set_loop_in((int) (loop_in_point_normalized * fLength - 1));
     }
 
     public int get_loop_out() {
@@ -409,18 +460,18 @@ public class Sampler implements DSPNodeOutput {
     }
 
     public void set_loop_out(int loop_out_point) {
-        fLoopOut = clamp(loop_out_point, NO_LOOP_POINT, fBuffer.length - 1);
+        fLoopOut = clamp(loop_out_point, NO_LOOP_POINT, fLength - 1);
     }
 
     public float get_loop_out_normalized() {
-        if (fBuffer.length < 2) {
+        if (fLength < 2) {
             return 0.0f;
         }
-        return (float) fLoopOut / (fBuffer.length - 1);
+        return (float) fLoopOut / (fLength - 1);
     }
 
     public void set_loop_out_normalized(float loop_out_point_normalized) {
-        set_loop_out((int) (loop_out_point_normalized * fBuffer.length - 1));
+        set_loop_out((int) (loop_out_point_normalized * fLength - 1));
     }
 
     public void trigger() {
@@ -455,8 +506,21 @@ public class Sampler implements DSPNodeOutput {
         fFrequencyScale = frequency_scale;
     }
 
+    private float sample(int pIndex) {
+        return fSource != null ? fSource.get(pIndex) : fBuffer[pIndex];
+    }
+
+    private void resetBuffer() {
+        rewind();
+        set_speed(fSpeed);
+        set_in(0);
+        set_out(fLength - 1);
+        fLoopIn = NO_LOOP_POINT;
+        fLoopOut = NO_LOOP_POINT;
+    }
+
     private int last_index() {
-        return fBuffer.length - 1;
+        return fLength - 1;
     }
 
     private void notifyListeners(String event) {
@@ -471,13 +535,13 @@ public class Sampler implements DSPNodeOutput {
     private void validateInOutPoints() {
         if (fInPoint < 0) {
             fInPoint = 0;
-        } else if (fInPoint > fBuffer.length - 1) {
-            fInPoint = fBuffer.length - 1;
+        } else if (fInPoint > fLength - 1) {
+            fInPoint = fLength - 1;
         }
         if (fOutPoint < 0) {
             fOutPoint = 0;
-        } else if (fOutPoint > fBuffer.length - 1) {
-            fOutPoint = fBuffer.length - 1;
+        } else if (fOutPoint > fLength - 1) {
+            fOutPoint = fLength - 1;
         }
         if (fOutPoint < fInPoint) {
             fOutPoint = fInPoint;
@@ -521,9 +585,9 @@ public class Sampler implements DSPNodeOutput {
                                                     float radius_max,
                                                     int step) {
         g.beginShape();
-        for (int i = 0; i < sampler.get_buffer().length; i += step) {
-            final float r = TWO_PI * i / sampler.get_buffer().length;
-            final float mSample = map(sampler.get_buffer()[i], -1.0f, 1.0f, radius_min, radius_max);
+        for (int i = 0; i < sampler.get_length(); i += step) {
+            final float r = TWO_PI * i / sampler.get_length();
+            final float mSample = map(sampler.get_sample(i), -1.0f, 1.0f, radius_min, radius_max);
             final float x = cos(r) * mSample;
             final float y = sin(r) * mSample;
             g.vertex(x, y);
@@ -537,7 +601,7 @@ public class Sampler implements DSPNodeOutput {
                                                       PGraphics g,
                                                       float radius_min,
                                                       float radius_max) {
-        final float r = TWO_PI * fSampler.get_position() / fSampler.get_buffer().length;
+        final float r = TWO_PI * fSampler.get_position() / fSampler.get_length();
         final float x = cos(r);
         final float y = sin(r);
         g.line(x * radius_min, y * radius_min, x * radius_max, y * radius_max);
@@ -19,6 +19,7 @@
 
 package wellen.dsp;
 
+import java.util.Arrays;
 
 /**
  * superimposes a modulator signal ( e.g a human voice ) onto a carrier signal ( e.g sawtooth oscillator ).
@@ -116,16 +117,23 @@ public class Vocoder {
     private static final int VOCLIB_NOTCH = 3; /* Notch Filter */
     private static final int VOCLIB_PEQ = 4; /* Peaking band EQ filter */
     /**
-     * The filterbank used for analysis (these are applied to the modulator).
+     * The envelopes used to smooth the analysis bands. One array per envelope stage with one entry per band.
      */
-    private final band[] analysis_bands;
-    /**
-     * The envelopes used to smooth the analysis bands.
-     */
-    private final envelope[] analysis_envelopes;
+    private final float[][] analysis_envelopes;
     private final int bands;
     private final int carrier_channels;
     private final int filters_per_band;
+    /**
+     * The analysis filterbank (applied to the modulator) and the synthesis filterbank (applied to the carrier) in one
+     * bank of parallel biquads. The bank holds one filter per band for the analysis, the left
+     * and, for stereo carriers, the right synthesis channel. Each filter is a cascade of filters_per_band biquads.
+     */
+    private final FilterBiquadBank filterbank;
+    /**
+     * One sample per filter of the filterbank.
+     */
+    private final float[] filterbank_frame;
+    private float envelope_coef;
     /**
      * In octaves. 1.0 is unchanged.
      */
@@ -139,11 +147,6 @@ public class Vocoder {
      * In hertz.
      */
     private final int sample_rate;
-    /**
-     * The filterbank used for synthesis (these are applied to the carrier). The second half of the array is only used
-     * for stereo carriers.
-     */
-    private final band[] synthesis_bands;
 
     /* Initialize a instance structure.
      *
@@ -173,18 +176,9 @@ public class Vocoder {
             System.out.println("ERROR @" + Vocoder.class.getSimpleName() + " / carrier channels: " + pCarrierChannels);
         }
 
-        analysis_bands = new band[VOCLIB_MAX_BANDS];
-        for (int i = 0; i < analysis_bands.length; i++) {
-            analysis_bands[i] = new band();
-        }
-        analysis_envelopes = new envelope[VOCLIB_MAX_BANDS];
-        for (int i = 0; i < analysis_envelopes.length; i++) {
-            analysis_envelopes[i] = new envelope();
-        }
-        synthesis_bands = new band[VOCLIB_MAX_BANDS * 2];
-        for (int i = 0; i < synthesis_bands.length; i++) {
-            synthesis_bands[i] = new band();
-        }
+        filterbank_frame = new float[pBands * (1 + pCarrierChannels)];
+        filterbank = new FilterBiquadBank(filterbank_frame.length, pFiltersPerBand);
+        analysis_envelopes = new float[4][pBands];
 
         reaction_time = 0.03f;
         formant_shift = 1.0f;
@@ -220,29 +214,25 @@ public class Vocoder {
      * The function will only fail if one or more of the parameters are invalid.
      */
     public void process(float[] pCarrierBuffer, float[] pModulatorBuffer, float[] pOutputBuffer) {
-        final int frames = pOutputBuffer.length;
+        final int frames = pOutputBuffer.length / carrier_channels;
+        final float[] frame = filterbank_frame;
         if (carrier_channels == 2) {
             /* The carrier has two channels and the modulator has 1. */
             for (int i = 0, j = 0; i < frames * 2; i += 2, j++) {
                 float out_left = 0.0f;
                 float out_right = 0.0f;
 
-                /* Run the bands in parallel and accumulate the output. */
+                /* Run the bands in parallel. */
+                fill(frame, 0, bands, pModulatorBuffer[j]);
+                fill(frame, bands, bands, pCarrierBuffer[i]);
+                fill(frame, bands * 2, bands, pCarrierBuffer[i + 1]);
+                filterbank.process(frame);
+                envelope_tick(frame);
+
+                /* Accumulate the output. */
                 for (int i2 = 0; i2 < bands; ++i2) {
-                    float analysis_band = BiQuad(pModulatorBuffer[j], analysis_bands[i2].filters[0]);
-                    float synthesis_band_left = BiQuad(pCarrierBuffer[i], synthesis_bands[i2].filters[0]);
-                    float synthesis_band_right = BiQuad(pCarrierBuffer[i + 1],
-                                                        synthesis_bands[i2 + VOCLIB_MAX_BANDS].filters[0]);
-
-                    for (int i3 = 1; i3 < filters_per_band; ++i3) {
-                        analysis_band = BiQuad(analysis_band, analysis_bands[i2].filters[i3]);
-                        synthesis_band_left = BiQuad(synthesis_band_left, synthesis_bands[i2].filters[i3]);
-                        synthesis_band_right = BiQuad(synthesis_band_right,
-                                                      synthesis_bands[i2 + VOCLIB_MAX_BANDS].filters[i3]);
-                    }
-                    analysis_band = envelope_tick(analysis_envelopes[i2], analysis_band);
-                    out_left += synthesis_band_left * analysis_band;
-                    out_right += synthesis_band_right * analysis_band;
+                    out_left += frame[bands + i2] * frame[i2];
+                    out_right += frame[bands * 2 + i2] * frame[i2];
                 }
                 pOutputBuffer[i] = out_left * mRectifyVolume;
                 pOutputBuffer[i + 1] = out_right * mRectifyVolume;
@@ -252,17 +242,15 @@ public class Vocoder {
             for (int i = 0; i < frames; ++i) {
                 float out = 0.0f;
 
-                /* Run the bands in parallel and accumulate the output. */
+                /* Run the bands in parallel. */
+                fill(frame, 0, bands, pModulatorBuffer[i]);
+                fill(frame, bands, bands, pCarrierBuffer[i]);
+                filterbank.process(frame);
+                envelope_tick(frame);
+
+                /* Accumulate the output. */
                 for (int i2 = 0; i2 < bands; ++i2) {
-                    float analysis_band = BiQuad(pModulatorBuffer[i], analysis_bands[i2].filters[0]);
-                    float synthesis_band = BiQuad(pCarrierBuffer[i], synthesis_bands[i2].filters[0]);
-
-                    for (int i3 = 1; i3 < filters_per_band; ++i3) {
-                        analysis_band = BiQuad(analysis_band, analysis_bands[i2].filters[i3]);
-                        synthesis_band = BiQuad(synthesis_band, synthesis_bands[i2].filters[i3]);
-                    }
-                    analysis_band = envelope_tick(analysis_envelopes[i2], analysis_band);
-                    out += synthesis_band * analysis_band;
+                    out += frame[bands + i2] * frame[i2];
                 }
                 pOutputBuffer[i] = out * mRectifyVolume;
             }
@@ -295,13 +283,8 @@ public class Vocoder {
      * Resetting the history in the middle of a stream will cause clicks.
      */
     public void reset_history() {
-        for (int i = 0; i < bands; ++i) {
-            for (int i2 = 0; i2 < filters_per_band; ++i2) {
-                BiQuad_reset(analysis_bands[i].filters[i2]);
-                BiQuad_reset(synthesis_bands[i].filters[i2]);
-            }
-            envelope_reset(analysis_envelopes[i]);
-        }
+        filterbank.reset();
+        envelope_reset();
     }
 
     /* Set the reaction time of the vocoder in seconds.
@@ -332,28 +315,18 @@ public class Vocoder {
         return mOutputSamples[0];
     }
 
-    /* Computes a BiQuad filter on a sample. */
-    private float BiQuad(float sample, biquad b) {
-        float result;
-
-        /* compute the result. */
-        result = b.a0 * sample + b.a1 * b.x1 + b.a2 * b.x2 - b.a3 * b.y1 - b.a4 * b.y2;
-
-        /* shift x1 to x2, sample to x1. */
-        b.x2 = b.x1;
-        b.x1 = sample;
-
-        /* shift y1 to y2, result to y1. */
-        b.y2 = b.y1;
-        b.y1 = result;
-
-        return result;
+    /* Sets count samples of a frame, starting at offset, to the same value. */
+    private static void fill(float[] frame, int offset, int count, float sample) {
+        for (int i = offset; i < offset + count; i++) {
+            frame[i] = sample;
+        }
     }
 
     /* Envelope follower. */
 
-    /* sets up a BiQuad Filter. */
-    private void BiQuad_new(biquad b, int type, float dbGain, /* gain of filter */
+    /* sets up all BiQuad Filters of a band. */
+    private void BiQuad_new(int b, /* index of filter in filterbank */
+                            int type, float dbGain, /* gain of filter */
                             float freq, /* center frequency */
                             float srate, /* sampling rate */
                             float bandwidth) /* bandwidth in octaves */ {
@@ -431,38 +404,34 @@ public class Vocoder {
         }
 
         /* precompute the coefficients. */
-        b.a0 = b0 / a0;
-        b.a1 = b1 / a0;
-        b.a2 = b2 / a0;
-        b.a3 = a1 / a0;
-        b.a4 = a2 / a0;
-    }
-
-    /* Reset the filter history. */
-    private void BiQuad_reset(biquad b) {
-        b.x1 = b.x2 = 0.0f;
-        b.y1 = b.y2 = 0.0f;
+        filterbank.set_coefficients(b, b0 / a0, b1 / a0, b2 / a0, a1 / a0, a2 / a0);
     }
 
-    private void envelope_configure(envelope envelope, double time_in_seconds, double sample_rate) {
-        envelope.coef = (float) (Math.pow(0.01, 1.0 / (time_in_seconds * sample_rate)));
+    private void envelope_configure(double time_in_seconds, double sample_rate) {
+        envelope_coef = (float) (Math.pow(0.01, 1.0 / (time_in_seconds * sample_rate)));
     }
 
     /* Reset the envelope history. */
-    private void envelope_reset(envelope envelope) {
-        envelope.history[0] = 0.0f;
-        envelope.history[1] = 0.0f;
-        envelope.history[2] = 0.0f;
-        envelope.history[3] = 0.0f;
+    private void envelope_reset() {
+        for (float[] history : analysis_envelopes) {
+            Arrays.fill(history, 0.0f);
+        }
     }
 
-    private float envelope_tick(envelope envelope, float sample) {
-        final float coef = envelope.coef;
-        envelope.history[0] = ((1.0f - coef) * Math.abs(sample)) + (coef * envelope.history[0]);
-        envelope.history[1] = ((1.0f - coef) * envelope.history[0]) + (coef * envelope.history[1]);
-        envelope.history[2] = ((1.0f - coef) * envelope.history[1]) + (coef * envelope.history[2]);
-        envelope.history[3] = ((1.0f - coef) * envelope.history[2]) + (coef * envelope.history[3]);
-        return envelope.history[3];
+    /* Smooths the analysis bands ( the first bands samples of frame ) in place. */
+    private void envelope_tick(float[] frame) {
+        final float coef = envelope_coef;
+        final float[] history0 = analysis_envelopes[0];
+        final float[] history1 = analysis_envelopes[1];
+        final float[] history2 = analysis_envelopes[2];
+        final float[] history3 = analysis_envelopes[3];
+        for (int i = 0; i < bands; i++) {
+            history0[i] = ((1.0f - coef) * Math.abs(frame[i])) + (coef * history0[i]);
+            history1[i] = ((1.0f - coef) * history0[i]) + (coef * history1[i]);
+            history2[i] = ((1.0f - coef) * history1[i]) + (coef * history2[i]);
+            history3[i] = ((1.0f - coef) * history2[i]) + (coef * history3[i]);
+            frame[i] = history3[i];
+        }
     }
 
     /* Get the current formant shift of the vocoder in octaves. */
@@ -477,12 +446,7 @@ public class Vocoder {
 
     /* Initialize the vocoder envelopes. */
     private void initialize_envelopes() {
-        int i;
-
-        envelope_configure(analysis_envelopes[0], reaction_time, sample_rate);
-        for (i = 1; i < bands; ++i) {
-            analysis_envelopes[i].coef = analysis_envelopes[0].coef;
-        }
+        envelope_configure(reaction_time, sample_rate);
     }
 
     /* Initialize the vocoder filterbank. */
@@ -498,7 +462,6 @@ public class Vocoder {
         step = Math.pow((maxfreq / minfreq), (1.0 / bands));
 
         for (i = 0; i < bands; ++i) {
-            int i2;
             double bandwidth, nextfreq;
             double priorfreq = lastfreq;
             if (lastfreq > 0.0) {
@@ -509,87 +472,36 @@ public class Vocoder {
             nextfreq = lastfreq * step;
             bandwidth = (nextfreq - priorfreq) / lastfreq;
 
+            /* filter indices of this band in the filterbank. */
+            final int analysis = i;
+            final int synthesis_left = bands + i;
+            final int synthesis_right = bands * 2 + i;
+
             if (!pCarrier_only) {
-                BiQuad_new(analysis_bands[i].filters[0],
+                BiQuad_new(analysis,
                            VOCLIB_BPF,
                            0.0f,
                            (float) lastfreq,
                            (float) sample_rate,
                            (float) bandwidth);
-                for (i2 = 1; i2 < filters_per_band; ++i2) {
-                    analysis_bands[i].filters[i2].a0 = analysis_bands[i].filters[0].a0;
-                    analysis_bands[i].filters[i2].a1 = analysis_bands[i].filters[0].a1;
-                    analysis_bands[i].filters[i2].a2 = analysis_bands[i].filters[0].a2;
-                    analysis_bands[i].filters[i2].a3 = analysis_bands[i].filters[0].a3;
-                    analysis_bands[i].filters[i2].a4 = analysis_bands[i].filters[0].a4;
-                }
             }
 
             if (formant_shift != 1.0f) {
-                BiQuad_new(synthesis_bands[i].filters[0],
+                BiQuad_new(synthesis_left,
                            VOCLIB_BPF,
                            0.0f,
                            (float) (lastfreq * formant_shift),
                            (float) sample_rate,
                            (float) bandwidth);
             } else {
-                synthesis_bands[i].filters[0].a0 = analysis_bands[i].filters[0].a0;
-                synthesis_bands[i].filters[0].a1 = analysis_bands[i].filters[0].a1;
-                synthesis_bands[i].filters[0].a2 = analysis_bands[i].filters[0].a2;
-                synthesis_bands[i].filters[0].a3 = analysis_bands[i].filters[0].a3;
-                synthesis_bands[i].filters[0].a4 = analysis_bands[i].filters[0].a4;
-            }
-
-            synthesis_bands[i + VOCLIB_MAX_BANDS].filters[0].a0 = synthesis_bands[i].filters[0].a0;
-            synthesis_bands[i + VOCLIB_MAX_BANDS].filters[0].a1 = synthesis_bands[i].filters[0].a1;
-            synthesis_bands[i + VOCLIB_MAX_BANDS].filters[0].a2 = synthesis_bands[i].filters[0].a2;
-            synthesis_bands[i + VOCLIB_MAX_BANDS].filters[0].a3 = synthesis_bands[i].filters[0].a3;
-            synthesis_bands[i + VOCLIB_MAX_BANDS].filters[0].a4 = synthesis_bands[i].filters[0].a4;
-
-            for (i2 = 1; i2 < filters_per_band; ++i2) {
-                synthesis_bands[i].filters[i2].a0 = synthesis_bands[i].filters[0].a0;
-                synthesis_bands[i].filters[i2].a1 = synthesis_bands[i].filters[0].a1;
-                synthesis_bands[i].filters[i2].a2 = synthesis_bands[i].filters[0].a2;
-                synthesis_bands[i].filters[i2].a3 = synthesis_bands[i].filters[0].a3;
-                synthesis_bands[i].filters[i2].a4 = synthesis_bands[i].filters[0].a4;
-
-                synthesis_bands[i + VOCLIB_MAX_BANDS].filters[i2].a0 = synthesis_bands[i].filters[0].a0;
-                synthesis_bands[i + VOCLIB_MAX_BANDS].filters[i2].a1 = synthesis_bands[i].filters[0].a1;
-                synthesis_bands[i + VOCLIB_MAX_BANDS].filters[i2].a2 = synthesis_bands[i].filters[0].a2;
-                synthesis_bands[i + VOCLIB_MAX_BANDS].filters[i2].a3 = synthesis_bands[i].filters[0].a3;
-                synthesis_bands[i + VOCLIB_MAX_BANDS].filters[i2].a4 = synthesis_bands[i].filters[0].a4;
+                filterbank.copy_coefficients(synthesis_left, analysis);
             }
-        }
-
-    }
-
-    /**
-     * Holds a set of filters required for one vocoder band.
-     */
-    private static class band {
-        biquad[] filters = new biquad[VOCLIB_MAX_FILTERS_PER_BAND];
 
-        band() {
-            for (int i = 0; i < filters.length; i++) {
-                filters[i] = new biquad();
+            if (carrier_channels == 2) {
+                filterbank.copy_coefficients(synthesis_right, synthesis_left);
             }
         }
-    }
 
-    /**
-     * this holds the data required to update samples thru a filter.
-     */
-    private static class biquad {
-        float a0, a1, a2, a3, a4;
-        float x1, x2, y1, y2;
-    }
-
-    /**
-     * Stores the state required for our envelope follower.
-     */
-    private static class envelope {
-        float coef;
-        float[] history = new float[4];
     }
 
     /* REVISION HISTORY
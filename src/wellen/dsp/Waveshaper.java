@@ -82,9 +82,7 @@
                     }
                     break;
                 case WAVESHAPER_CUBIC:
-                    for (int i = 0; i < signal_buffer.length; i++) {
-                        signal_buffer[i] = process_cubic(signal_buffer[i]);
-                    }
+                    BlockKernels.cubic(signal_buffer, fAmount, fBias, fOutputGain, 0, signal_buffer.length);
                     break;
                 case WAVESHAPER_SIN:
                     for (int i = 0; i < signal_buffer.length; i++) {
@@ -92,9 +90,7 @@
                     }
                     break;
                 case WAVESHAPER_HARDCLIP:
-                    for (int i = 0; i < signal_buffer.length; i++) {
-                        signal_buffer[i] = process_hard_clip(signal_buffer[i]);
-                    }
+                    BlockKernels.hard_clip(signal_buffer, fAmount, fBias, fOutputGain, 0, signal_buffer.length);
                     break;
                 case WAVESHAPER_TAN_H:
                 default:
@@ -24,8 +24,6 @@ import wellen.Wellen;
 
 import java.util.Arrays;
 
-import static java.lang.Math.PI;
-
 /**
  * plays back a chunk of samples ( i.e arbitrary, single-cycle waveform like sine, triangle, saw or square waves ) at
  * different frequencies and amplitudes.
@@ -36,6 +34,7 @@ public class Wavetable extends Oscillator {
     public static final float DEFAULT_FREQUENCY = 220.0f;
     private float mAmplitude;
     private float mArrayPtr;
+    private WavetableBank mBank;
     private float mDesiredAmplitude;
     private float mDesiredAmplitudeFraction;
     private int mDesiredAmplitudeSteps;
@@ -51,7 +50,8 @@ public class Wavetable extends Oscillator {
     private final int mSamplingRate;
     private float mSignal;
     private float mStepSize;
-    private final float[] mWavetable;
+    private float[] mTable;
+    private float[] mWavetable;
 
     public Wavetable() {
         this(Wellen.DEFAULT_WAVETABLE_SIZE, Wellen.DEFAULT_SAMPLING_RATE);
@@ -62,8 +62,25 @@ public class Wavetable extends Oscillator {
     }
 
     public Wavetable(int wavetable_size, int sampling_rate) {
-        mWavetable = new float[wavetable_size];
-        mSamplingRate = sampling_rate;
+        this(new float[wavetable_size], null, sampling_rate);
+    }
+
+    /**
+     * create a wavetable that plays back the band-limited levels of a shared {@link WavetableBank}. no wavetable is
+     * allocated unless the bank is detached ( e.g by calling <code>get_wavetable()</code> ).
+     *
+     * @param bank          bank of band-limited wavetables
+     * @param sampling_rate sampling rate
+     */
+    public Wavetable(WavetableBank bank, int sampling_rate) {
+        this(null, bank, sampling_rate);
+    }
+
+    private Wavetable(float[] pTable, WavetableBank pBank, int pSamplingRate) {
+        mTable = pTable;
+        mBank = pBank;
+        mWavetable = pBank != null ? pBank.get_level(0) : pTable;
+        mSamplingRate = pSamplingRate;
         mArrayPtr = 0;
         mJitterRange = 0.0f;
         mEnableJitter = false;
@@ -140,7 +157,7 @@ public class Wavetable extends Oscillator {
         for (int i = 0; i < harmonics; i++) {
             amps[i] = 1.f / (i + 1);
         }
-        return fourier_table(wavetable, harmonics, amps, -0.25f);
+        return fourier_table(wavetable, amps, -0.25f);
     }
 
     public static void sawtooth(float[] wavetable, boolean is_ramp_up) {
@@ -166,7 +183,7 @@ public class Wavetable extends Oscillator {
         for (int i = 0; i < harmonics; i += 2) {
             amps[i] = 1.f / (i + 1);
         }
-        return fourier_table(wavetable, harmonics, amps, -0.25f);
+        return fourier_table(wavetable, amps, -0.25f);
     }
 
     public static void square(float[] wavetable) {
@@ -182,7 +199,7 @@ public class Wavetable extends Oscillator {
         for (int i = 0; i < harmonics; i += 2) {
             amps[i] = 1.f / ((i + 1) * (i + 1));
         }
-        return fourier_table(wavetable, harmonics, amps, 0);
+        return fourier_table(wavetable, amps, 0);
     }
 
     public static void triangle(float[] wavetable) {
@@ -197,17 +214,8 @@ public class Wavetable extends Oscillator {
         }
     }
 
-    private static float[] fourier_table(float[] pWavetable, int pHarmonics, float[] pAmps, float pPhase) {
-        float a;
-        double w;
-        pPhase *= (float) PI * 2;
-        for (int i = 0; i < pHarmonics; i++) {
-            for (int n = 0; n < pWavetable.length; n++) {
-                a = (pAmps != null) ? pAmps[i] : 1.f;
-                w = (i + 1) * (n * 2 * PI / pWavetable.length);
-                pWavetable[n] += (float) (a * Math.cos(w + pPhase));
-            }
-        }
+    private static float[] fourier_table(float[] pWavetable, float[] pAmps, float pPhase) {
+        WavetableBank.fourier(pWavetable, pAmps, pPhase);
         normalise_table(pWavetable);
         return pWavetable;
     }
@@ -225,13 +233,65 @@ public class Wavetable extends Oscillator {
         }
     }
 
+    /**
+     * fill wavetable with waveform. if the wavetable plays back a {@link WavetableBank} the bank of the new waveform is
+     * used instead if available.
+     *
+     * @param waveform waveform e.g {@link Wellen#WAVEFORM_SAWTOOTH}
+     */
     @Override
     public void set_waveform(int waveform) {
-        fill(mWavetable, waveform);
+        if (mBank != null) {
+            final WavetableBank mWaveformBank = WavetableBank.get(waveform, mWavetable.length);
+            if (mWaveformBank != null) {
+                set_wavetable_bank(mWaveformBank);
+                return;
+            }
+        }
+        fill(detachBank(), waveform);
     }
 
     public void set_waveform(int harmonics, int waveform) {
-        fill(mWavetable, harmonics, waveform);
+        fill(detachBank(), harmonics, waveform);
+    }
+
+    /**
+     * play back the band-limited levels of a shared bank instead of the wavetable. the level is selected from the
+     * current frequency. the bank must have the same size as the wavetable.
+     *
+     * @param bank bank of band-limited wavetables or <code>null</code> to play back the wavetable again
+     */
+    public void set_wavetable_bank(WavetableBank bank) {
+        if (bank == null) {
+            detachBank();
+            return;
+        }
+        if (bank.get_size() != mWavetable.length) {
+            System.err.println("+++ @" + getClass().getSimpleName() + ".set_wavetable_bank / size of bank ( " + bank.get_size() + " ) does not match size of wavetable ( " + mWavetable.length + " )");
+            return;
+        }
+        mBank = bank;
+        mWavetable = mBank.get_level(mBank.level(mStepSize));
+    }
+
+    /* fill the wavetable with the bank's full bandwidth level and play back the wavetable from then on */
+    private float[] detachBank() {
+        if (mBank != null) {
+            if (mTable == null) {
+                mTable = new float[mWavetable.length];
+            }
+            System.arraycopy(mBank.get_level(0), 0, mTable, 0, mTable.length);
+            mBank = null;
+            mWavetable = mTable;
+        }
+        return mWavetable;
+    }
+
+    /**
+     * @return bank of band-limited wavetables currently played back or <code>null</code>
+     */
+    public WavetableBank get_wavetable_bank() {
+        return mBank;
     }
 
     @Override
@@ -244,6 +304,9 @@ public class Wavetable extends Oscillator {
         if (mFrequency != PApplet.abs(frequency)) {
             mFrequency = PApplet.abs(frequency);
             mStepSize = computeStepSize();
+            if (mBank != null) {
+                mWavetable = mBank.get_level(mBank.level(mStepSize));
+            }
         }
     }
 
@@ -310,8 +373,14 @@ public class Wavetable extends Oscillator {
         }
     }
 
+    /**
+     * @return wavetable that is played back. if a {@link WavetableBank} is currently played back the bank is detached
+     *         first, i.e the wavetable is filled with the bank's full bandwidth level and played back from then on, so
+     *         that changes to the returned array are played back. note that the wavetable is no longer band-limited
+     *         afterwards ( see <code>get_wavetable_bank()</code> ).
+     */
     public float[] get_wavetable() {
-        return mWavetable;
+        return detachBank();
     }
 
     public void enable_jitter(boolean enable_jitter) {
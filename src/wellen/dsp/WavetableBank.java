@@ -0,0 +1,210 @@
+/*
+ * Wellen
+ *
+ * This file is part of the *wellen* library (https://github.com/dennisppaul/wellen).
+ * Copyright (c) 2024 Dennis P Paul.
+ *
+ * This library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This library is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package wellen.dsp;
+
+import wellen.Wellen;
+import wellen.analysis.FFT;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * immutable, process-wide cache of band-limited wavetables. for each waveform and wavetable size the bank holds one
+ * table per octave ( mip level ). level <code>k</code> contains only harmonics up to <code>size / 2^(k+1)</code> and
+ * can be played back without aliasing as long as the step size through the table is smaller than <code>2^k</code>.
+ * {@link Wavetable} selects the level from its current step size.
+ * <p>
+ * the tables are synthesized once from their fourier series with an inverse FFT and shared by all oscillators, so they
+ * must not be modified. supported waveforms are {@link Wellen#WAVEFORM_SINE}, {@link Wellen#WAVEFORM_TRIANGLE},
+ * {@link Wellen#WAVEFORM_SAWTOOTH} and {@link Wellen#WAVEFORM_SQUARE}. the wavetable size must be a power of two.
+ */
+public final class WavetableBank {
+
+    private static final ConcurrentHashMap<Long, WavetableBank> fBanks = new ConcurrentHashMap<>();
+    private final float[][] fLevels;
+    private final int fSize;
+    private final int fWaveform;
+
+    private WavetableBank(int pWaveform, int pSize) {
+        fWaveform = pWaveform;
+        fSize = pSize;
+        final int mNumberOfLevels = Integer.numberOfTrailingZeros(pSize);
+        fLevels = new float[mNumberOfLevels][];
+        final float[] mAmplitudes = new float[pSize / 2];
+        float mScale = 1.0f;
+        for (int k = 0; k < mNumberOfLevels; k++) {
+            if (pWaveform == Wellen.WAVEFORM_SINE && k > 0) {
+                fLevels[k] = fLevels[0];
+                continue;
+            }
+            final int mHarmonics = k == 0 ? pSize / 2 - 1 : pSize >> (k + 1);
+            amplitudes(pWaveform, mAmplitudes, mHarmonics);
+            final float[] mTable = new float[pSize];
+            fourier(mTable, mAmplitudes, -0.25f);
+            if (k == 0) {
+                mScale = 1.0f / peak(mTable);
+            }
+            for (int i = 0; i < mTable.length; i++) {
+                mTable[i] *= mScale;
+            }
+            fLevels[k] = mTable;
+        }
+    }
+
+    /**
+     * @param waveform waveform of wavetables
+     * @param size     size of wavetables ( power of two )
+     * @return shared bank of band-limited wavetables or <code>null</code> if waveform or size are not supported
+     */
+    public static WavetableBank get(int waveform, int size) {
+        if (!is_supported(waveform) || size < 4 || Integer.bitCount(size) != 1) {
+            return null;
+        }
+        return fBanks.computeIfAbsent(((long) waveform << 32) | size, k -> new WavetableBank(waveform, size));
+    }
+
+    /**
+     * @param waveform waveform
+     * @return <code>true</code> if bank can be created for waveform
+     */
+    public static boolean is_supported(int waveform) {
+        return waveform == Wellen.WAVEFORM_SINE || waveform == Wellen.WAVEFORM_TRIANGLE || waveform == Wellen.WAVEFORM_SAWTOOTH || waveform == Wellen.WAVEFORM_SQUARE;
+    }
+
+    /**
+     * @param step_size number of samples the playback position advances per sample
+     * @return index of band-limited level for step size
+     */
+    public int level(float step_size) {
+        if (step_size < 1.0f) {
+            return 0;
+        }
+        final int mLevel = 32 - Integer.numberOfLeadingZeros((int) step_size);
+        return Math.min(mLevel, fLevels.length - 1);
+    }
+
+    /**
+     * @param level index of level
+     * @return wavetable of level. the array is shared and must not be modified.
+     */
+    public float[] get_level(int level) {
+        return fLevels[Math.max(0, Math.min(level, fLevels.length - 1))];
+    }
+
+    /**
+     * @return number of levels
+     */
+    public int get_number_of_levels() {
+        return fLevels.length;
+    }
+
+    /**
+     * @return size of wavetables
+     */
+    public int get_size() {
+        return fSize;
+    }
+
+    /**
+     * @return waveform of wavetables
+     */
+    public int get_waveform() {
+        return fWaveform;
+    }
+
+    /**
+     * adds the fourier series <code>sum( amplitudes[i] * cos( (i + 1) * w + phase ) )</code> to wavetable. tables with
+     * a size that is a power of two are synthesized with an inverse FFT in O(N log N), all others by direct summation.
+     *
+     * @param wavetable  wavetable to add series to
+     * @param amplitudes amplitude of each harmonic, starting with the fundamental
+     * @param phase      phase offset in periods
+     */
+    public static void fourier(float[] wavetable, float[] amplitudes, float phase) {
+        final int    N      = wavetable.length;
+        final double mPhase = phase * Math.PI * 2;
+        if (N < 2 || Integer.bitCount(N) != 1) {
+            for (int i = 0; i < amplitudes.length; i++) {
+                for (int n = 0; n < N; n++) {
+                    wavetable[n] += (float) (amplitudes[i] * Math.cos((i + 1) * (n * 2 * Math.PI / N) + mPhase));
+                }
+            }
+            return;
+        }
+        /* half spectrum packed as expected by `FFT`: a[2k] = Re[k], a[2k+1] = Im[k], a[1] = Re[N/2] */
+        final float[]  mSpectrum = new float[N];
+        final double   mCos      = Math.cos(mPhase);
+        final double   mSin      = Math.sin(mPhase);
+        for (int i = 0; i < amplitudes.length; i++) {
+            /* harmonics above the table's nyquist fold back with conjugate phase, as with direct summation */
+            int    k     = (i + 1) % N;
+            double mSign = 1.0;
+            if (k > N / 2) {
+                k     = N - k;
+                mSign = -1.0;
+            }
+            if (k == 0) {
+                mSpectrum[0] += (float) (N * amplitudes[i] * mCos);
+            } else if (k == N / 2) {
+                mSpectrum[1] += (float) (N * amplitudes[i] * mCos);
+            } else {
+                mSpectrum[2 * k] += (float) (N / 2.0 * amplitudes[i] * mCos);
+                mSpectrum[2 * k + 1] += (float) (mSign * N / 2.0 * amplitudes[i] * mSin);
+            }
+        }
+        FFT.plan(N).backwardsTransform(mSpectrum);
+        for (int n = 0; n < N; n++) {
+            wavetable[n] += mSpectrum[n];
+        }
+    }
+
+    private static void amplitudes(int pWaveform, float[] pAmplitudes, int pHarmonics) {
+        Arrays.fill(pAmplitudes, 0.0f);
+        for (int i = 0; i < pHarmonics && i < pAmplitudes.length; i++) {
+            final int n = i + 1;
+            switch (pWaveform) {
+                case Wellen.WAVEFORM_TRIANGLE:
+                    if (n % 2 == 1) {
+                        pAmplitudes[i] = (((n - 1) / 2) % 2 == 0 ? 1.0f : -1.0f) / (n * (float) n);
+                    }
+                    break;
+                case Wellen.WAVEFORM_SAWTOOTH:
+                    pAmplitudes[i] = 1.0f / n;
+                    break;
+                case Wellen.WAVEFORM_SQUARE:
+                    if (n % 2 == 1) {
+                        pAmplitudes[i] = 1.0f / n;
+                    }
+                    break;
+                default:
+                    pAmplitudes[i] = n == 1 ? 1.0f : 0.0f;
+                    break;
+            }
+        }
+    }
+
+    private static float peak(float[] pWavetable) {
+        float mPeak = 0.0f;
+        for (float v : pWavetable) {
+            mPeak = Math.max(mPeak, Math.abs(v));
+        }
+        return mPeak > 0.0f ? mPeak : 1.0f;
+    }
+}
@@ -19,10 +19,9 @@ public class ExampleDSP23MultipleDSPInstances extends PApplet {
      * this technique can be used, for example, in a system with multiple sound cards to send the output of each *track*
      * of a composition to these different sound cards.
      *
-     * note, that this technique should only be used when the device configurations are varying in e.g number of output
-     * or input channels, sampling rate, bit depth etcetera or when working with multiple audio devices. if this is not
-     * the case it is often more efficient to use a single audio device and accumulate the outputs of a composition into
-     * a single multi-channel buffer.
+     * the signal processors share one audio device and one audio thread per output device ( see `AudioDeviceHost` ).
+     * the third parameter of `AudioBufferManager` enables this. without it each signal processor opens a dedicated
+     * audio device and audio thread.
      */
 
     private final ArrayList<DSProcessor> fDSProcessors = new ArrayList<>();
@@ -46,7 +45,7 @@ public class ExampleDSP23MultipleDSPInstances extends PApplet {
             /* send signal processors to different output devices */
             mConfig.output_device_ID = OUTPUT_DEVICE_IDs[i % OUTPUT_DEVICE_IDs.length];
             DSProcessor mDSP = new DSProcessor();
-            new AudioBufferManager(mDSP, mConfig);
+            new AudioBufferManager(mDSP, mConfig, true);
             fDSProcessors.add(mDSP);
         }
     }
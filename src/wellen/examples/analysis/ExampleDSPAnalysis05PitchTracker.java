@@ -0,0 +1,76 @@
+package wellen.examples.analysis;
+
+import processing.core.PApplet;
+import wellen.Wellen;
+import wellen.analysis.PitchTracker;
+import wellen.dsp.DSP;
+import wellen.dsp.Wavetable;
+
+public class ExampleDSPAnalysis05PitchTracker extends PApplet {
+
+    //@add import wellen.analysis.*;
+
+    /*
+     * this example demonstrates how to continuously track the pitch of an input signal. the pitch tracker analyzes a
+     * window of 2048 samples every 64 samples, independent of the audio block size. the detected pitch is applied to
+     * an oscillator at the exact position within the audio block where it was detected.
+     *
+     * press keys 1–5 to select the pitch detection algorithm.
+     */
+
+    private final PitchTracker fPitchTracker = new PitchTracker(Wellen.DEFAULT_SAMPLING_RATE,
+                                                                2048,
+                                                                64,
+                                                                PitchTracker.YIN);
+    private final Wavetable    fWavetable    = new Wavetable();
+
+    public void settings() {
+        size(640, 480);
+    }
+
+    public void setup() {
+        fWavetable.set_waveform(10, Wellen.WAVEFORM_SQUARE);
+        DSP.start(this, 1, 1);
+    }
+
+    public void draw() {
+        background(255);
+        fill(0);
+        ellipse(width * 0.5f,
+                height * 0.5f,
+                fPitchTracker.is_pitched() ? 100 : 5,
+                fPitchTracker.is_pitched() ? 100 : 5);
+        text("ALGORITHM: " + fPitchTracker.get_algorithm(), 10, 20);
+        text("PITCH    : " + fPitchTracker.get_pitch(), 10, 32);
+        DSP.draw_buffers(g, width, height);
+    }
+
+    public void keyPressed() {
+        if (key >= '1' && key <= '5') {
+            fPitchTracker.set_algorithm(key - '1');
+        }
+    }
+
+    public void audioblock(float[] output_signal, float[] pInputSignal) {
+        /* feed input signal hop by hop and update oscillator after each analysis */
+        final int mHopSize = fPitchTracker.get_hop_size();
+        for (int i = 0; i < pInputSignal.length; i += mHopSize) {
+            final int mLength = Math.min(mHopSize, pInputSignal.length - i);
+            if (fPitchTracker.process(pInputSignal, i, mLength) > 0) {
+                if (fPitchTracker.is_pitched()) {
+                    fWavetable.set_frequency(fPitchTracker.get_pitch());
+                    fWavetable.set_amplitude(0.25f, 32);
+                } else {
+                    fWavetable.set_amplitude(0.0f, 32);
+                }
+            }
+            for (int j = i; j < i + mLength; j++) {
+                output_signal[j] = fWavetable.output();
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        PApplet.main(ExampleDSPAnalysis05PitchTracker.class.getName());
+    }
+}
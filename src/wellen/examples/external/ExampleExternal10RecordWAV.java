@@ -1,42 +1,39 @@
 package wellen.examples.external;
 
 import processing.core.PApplet;
+import wellen.AudioRecorder;
 import wellen.Wellen;
 import wellen.dsp.DSP;
 
-import java.util.ArrayList;
-
 public class ExampleExternal10RecordWAV extends PApplet {
 
     /*
      * this example demonstrates how to record an input signal into a WAV file.
-     * `s` starts the recording and `e` ends it.
+     * `s` starts the recording and `e` ends it. the recorder is attached to the
+     * output of `DSP` and streams samples to disk on a background thread.
      */
 
-    private boolean mIsRecording = true;
-    private final ArrayList<Float> mRecordedSamples = new ArrayList<>();
+    private AudioRecorder mRecorder;
+    private String mFileName;
 
     public void settings() {
         size(640, 480);
     }
 
     public void setup() {
-        DSP.start(this, 1, 1);
+        mRecorder = new AudioRecorder(1, Wellen.DEFAULT_SAMPLING_RATE);
+        DSP.start(this, 1, 1).register_audioblock_callback(mRecorder);
+        start_recording();
     }
 
     public void draw() {
-        background(mIsRecording ? 0 : 255);
-        stroke(mIsRecording ? 255 : 0);
+        background(mRecorder.is_recording() ? 0 : 255);
+        stroke(mRecorder.is_recording() ? 255 : 0);
         DSP.draw_buffers(g, width, height);
     }
 
     public void audioblock(float[] output_signal, float[] pInputSignal) {
-        for (int i = 0; i < output_signal.length; i++) {
-            output_signal[i] = pInputSignal[i];
-            if (mIsRecording) {
-                mRecordedSamples.add(pInputSignal[i]);
-            }
-        }
+        System.arraycopy(pInputSignal, 0, output_signal, 0, output_signal.length);
     }
 
     public void keyPressed() {
@@ -49,31 +46,18 @@ public class ExampleExternal10RecordWAV extends PApplet {
     }
 
     private void start_recording() {
-        mRecordedSamples.clear();
-        mIsRecording = true;
+        mFileName = sketchPath("recording-" + Wellen.now() + ".wav");
+        mRecorder.start(mFileName);
     }
 
     private void stop_recording() {
-        mIsRecording = false;
-        /* export samples to WAV file */
-        final String WAV_FILE_NAME = "recording-" + Wellen.now() + ".wav";
-        final int WAV_FILE_LENGTH = mRecordedSamples.size();
-        final int NUM_OF_CHANNELS = 1;
-        final float[][] mExportSamples = new float[NUM_OF_CHANNELS][WAV_FILE_LENGTH];
-        for (int i = 0; i < WAV_FILE_LENGTH; i++) {
-            mExportSamples[0][i] = mRecordedSamples.get(i);
-        }
-        Wellen.exportWAV(this,
-                         WAV_FILE_NAME,
-                         mExportSamples,
-                         32,
-                         Wellen.DEFAULT_SAMPLING_RATE,
-                         Wellen.WAV_FORMAT_IEEE_FLOAT_32BIT);
-        println("+++ recorded file ...... : " + WAV_FILE_NAME);
-        println("+++ recorded samples ... : " + WAV_FILE_LENGTH);
+        mRecorder.stop();
+        println("+++ recorded file ...... : " + mFileName);
+        println("+++ recorded samples ... : " + mRecorder.get_frames_written());
+        println("+++ overruns ........... : " + mRecorder.get_overruns());
     }
 
     public static void main(String[] args) {
         PApplet.main(ExampleExternal10RecordWAV.class.getName());
     }
-}
\ No newline at end of file
+}
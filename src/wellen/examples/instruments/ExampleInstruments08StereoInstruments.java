@@ -63,7 +63,7 @@ public class ExampleInstruments08StereoInstruments extends PApplet {
             this.set_sub_ratio(0.01f);
             set_spread(0.5f);
 
-            Wavetable.fill(fVCO.get_wavetable(), Wellen.WAVEFORM_SINE);
+            fVCO.set_waveform(Wellen.WAVEFORM_SINE);
 
             mVCOSecond = new Wavetable(DEFAULT_WAVETABLE_SIZE);
             mVCOSecond.set_interpolation(Wellen.WAVESHAPE_INTERPOLATE_LINEAR);
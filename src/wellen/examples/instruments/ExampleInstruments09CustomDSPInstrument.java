@@ -150,7 +150,7 @@ public class ExampleInstruments09CustomDSPInstrument extends PApplet {
             this.set_sub_ratio(0.01f);
             set_spread(0.5f);
 
-            Wavetable.fill(fVCO.get_wavetable(), Wellen.WAVEFORM_TRIANGLE);
+            fVCO.set_waveform(Wellen.WAVEFORM_TRIANGLE);
 
             mVCOSecond = new Wavetable(DEFAULT_WAVETABLE_SIZE);
             mVCOSecond.set_interpolation(Wellen.WAVESHAPE_INTERPOLATE_LINEAR);
@@ -267,7 +267,7 @@ public class ExampleInstruments09CustomDSPInstrument extends PApplet {
             mLowerVCO.set_interpolation(Wellen.WAVESHAPE_INTERPOLATE_LINEAR);
             mVeryLowVCO = new Wavetable(DEFAULT_WAVETABLE_SIZE);
             mVeryLowVCO.set_interpolation(Wellen.WAVESHAPE_INTERPOLATE_LINEAR);
-            Wavetable.fill(fVCO.get_wavetable(), Wellen.WAVEFORM_TRIANGLE);
+            fVCO.set_waveform(Wellen.WAVEFORM_TRIANGLE);
             Wavetable.fill(mLowerVCO.get_wavetable(), Wellen.WAVEFORM_SINE);
             Wavetable.fill(mVeryLowVCO.get_wavetable(), Wellen.WAVEFORM_SQUARE);
         }
@@ -23,10 +23,11 @@ public class TechniqueAlgorithmicComposition05FunctionDSPFormula extends PApplet
         background(255);
         stroke(0);
         final int mBufferSize = DSP.get_buffer_size();
-        for (int i = 0; i < mBufferSize; i++) {
-            if (DSP.get_output_buffer() != null) {
+        final float[] mBuffer = DSP.get_output_buffer();
+        if (mBuffer != null) {
+            for (int i = 0; i < mBufferSize; i++) {
                 final float x = map(i, 0, mBufferSize, 0, width);
-                point(x, map(DSP.get_output_buffer()[i], -1, 1, 0, height));
+                point(x, map(mBuffer[i], -1, 1, 0, height));
             }
         }
     }
@@ -1,5 +1,7 @@
 package wellen.extra.daisysp;
 
+import wellen.dsp.FractionalDelayLine;
+
 import static wellen.extra.daisysp.DaisySP.fclamp;
 import static wellen.extra.daisysp.DaisySP.fmax;
 import static wellen.extra.daisysp.DaisySP.fmin;
@@ -196,7 +198,7 @@ public class Chorus {
     public static class ChorusEngine {
 
         private static final int kDelayLength = 2400; // 50 ms at 48kHz = .05 * 48000
-        private final DelayLine del_ = new DelayLine(kDelayLength);
+        private final FractionalDelayLine del_ = new FractionalDelayLine(kDelayLength);
         private float delay_;
         private float feedback_;
         private float lfo_amp_;
@@ -213,7 +215,7 @@ public class Chorus {
         public void Init(float sample_rate) {
             sample_rate_ = sample_rate;
 
-            del_.Init();
+            del_.clear();
             lfo_amp_ = 0.f;
             feedback_ = .2f;
             SetDelay(.75f);
@@ -230,10 +232,10 @@ public class Chorus {
          */
         public float Process(float in) {
             float lfo_sig = ProcessLfo();
-            del_.SetDelay(lfo_sig + delay_);
+            del_.set_delay(lfo_sig + delay_);
 
-            float out = del_.Read();
-            del_.Write(in + out * feedback_);
+            float out = del_.read();
+            del_.write(in + out * feedback_);
 
             return (in + out) * .5f; //equal mix
         }
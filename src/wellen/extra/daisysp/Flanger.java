@@ -1,5 +1,7 @@
 package wellen.extra.daisysp;
 
+import wellen.dsp.FractionalDelayLine;
+
 import static wellen.extra.daisysp.DaisySP.fclamp;
 import static wellen.extra.daisysp.DaisySP.fmax;
 import static wellen.extra.daisysp.DaisySP.fmin;
@@ -12,7 +14,7 @@ import static wellen.extra.daisysp.DaisySP.fmin;
  */
 public class Flanger {
     private static final int kDelayLength = 960; // 20 ms at 48kHz = .02 * 48000
-    private final DelayLine del_ = new DelayLine(kDelayLength);
+    private final FractionalDelayLine del_ = new FractionalDelayLine(kDelayLength);
     private float delay_;
     private float feedback_;
     private float lfo_amp_;
@@ -29,7 +31,7 @@ public class Flanger {
 
         SetFeedback(.2f);
 
-        del_.Init();
+        del_.clear();
         lfo_amp_ = 0.f;
         SetDelay(.75f);
 
@@ -45,10 +47,10 @@ public class Flanger {
      */
     public float Process(float in) {
         float lfo_sig = ProcessLfo();
-        del_.SetDelay(1.f + lfo_sig + delay_);
+        del_.set_delay(1.f + lfo_sig + delay_);
 
-        float out = del_.Read();
-        del_.Write(in + out * feedback_);
+        float out = del_.read();
+        del_.write(in + out * feedback_);
 
         return (in + out) * .5f; //equal mix
     }
@@ -0,0 +1,175 @@
+package wellen.tests;
+
+import wellen.Wellen;
+import wellen.dsp.BlockKernels;
+import wellen.dsp.FilterBiquad;
+import wellen.dsp.FilterBiquadBank;
+import wellen.dsp.Vocoder;
+
+import java.util.Arrays;
+
+/**
+ * compares the block kernels in {@link BlockKernels} and {@link FilterBiquadBank} with equivalent per-sample and
+ * per-object loops. run once as is and once with the JVM option <code>-XX:-UseSuperWord</code> to see how much of the
+ * difference comes from SIMD instructions generated by the JIT compiler.
+ */
+public class TestBlockKernelsPerformance {
+
+    private static final int BLOCK_SIZE       = 512;
+    private static final int NUMBER_OF_BLOCKS = 20000;
+    private static final int NUMBER_OF_RUNS   = 5;
+    private static final int NUMBER_OF_BANDS  = 32;
+    private static final int FILTERS_PER_BAND = 4;
+    private static float     fSink;
+
+    public static void main(String[] args) {
+        final float[] mBuffer = new float[BLOCK_SIZE];
+        final float[] mSource = new float[BLOCK_SIZE];
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            mSource[i] = Wellen.random(-1.5f, 1.5f);
+        }
+        final FilterBiquad[] mFilters = new FilterBiquad[NUMBER_OF_BANDS * FILTERS_PER_BAND];
+        final FilterBiquadBank mBank = new FilterBiquadBank(NUMBER_OF_BANDS, FILTERS_PER_BAND);
+        for (int i = 0; i < mFilters.length; i++) {
+            mFilters[i] = new FilterBiquad(Wellen.DEFAULT_SAMPLING_RATE);
+            mFilters[i].set_mode(Wellen.FILTER_MODE_BAND_PASS);
+            mFilters[i].set_frequency(80 + (i % NUMBER_OF_BANDS) * 200);
+        }
+        for (int i = 0; i < NUMBER_OF_BANDS; i++) {
+            mBank.set_coefficients(i, 0.01f, 0.0f, -0.01f, -1.9f, 0.98f);
+        }
+        final float[] mFrame = new float[NUMBER_OF_BANDS];
+        final Vocoder mVocoder = new Vocoder(NUMBER_OF_BANDS, FILTERS_PER_BAND, Wellen.DEFAULT_SAMPLING_RATE, 1);
+        final float[] mVocoderOutput = new float[BLOCK_SIZE];
+
+        System.out.println("+++ " + NUMBER_OF_BLOCKS + " blocks of " + BLOCK_SIZE + " samples");
+        System.out.println("kernel             | reference ms | kernel ms | speedup");
+        for (int r = 0; r < NUMBER_OF_RUNS; r++) {
+            final boolean mPrint = r == NUMBER_OF_RUNS - 1;
+
+            /* gain */
+            long mReference = System.nanoTime();
+            for (int b = 0; b < NUMBER_OF_BLOCKS; b++) {
+                System.arraycopy(mSource, 0, mBuffer, 0, BLOCK_SIZE);
+                for (int i = 0; i < BLOCK_SIZE; i++) {
+                    mBuffer[i] *= 0.5f;
+                }
+            }
+            mReference = System.nanoTime() - mReference;
+            long mKernel = System.nanoTime();
+            for (int b = 0; b < NUMBER_OF_BLOCKS; b++) {
+                System.arraycopy(mSource, 0, mBuffer, 0, BLOCK_SIZE);
+                BlockKernels.gain(mBuffer, 0.5f);
+            }
+            mKernel = System.nanoTime() - mKernel;
+            print(mPrint, "gain", mReference, mKernel);
+
+            /* mix */
+            mReference = System.nanoTime();
+            for (int b = 0; b < NUMBER_OF_BLOCKS; b++) {
+                System.arraycopy(mSource, 0, mBuffer, 0, BLOCK_SIZE);
+                for (int i = 0; i < BLOCK_SIZE; i++) {
+                    mBuffer[i] += mSource[i] * 0.25f;
+                }
+            }
+            mReference = System.nanoTime() - mReference;
+            mKernel = System.nanoTime();
+            for (int b = 0; b < NUMBER_OF_BLOCKS; b++) {
+                System.arraycopy(mSource, 0, mBuffer, 0, BLOCK_SIZE);
+                BlockKernels.mix(mBuffer, mSource, 0.25f, 0, BLOCK_SIZE);
+            }
+            mKernel = System.nanoTime() - mKernel;
+            print(mPrint, "mix", mReference, mKernel);
+
+            /* clamp */
+            mReference = System.nanoTime();
+            for (int b = 0; b < NUMBER_OF_BLOCKS; b++) {
+                System.arraycopy(mSource, 0, mBuffer, 0, BLOCK_SIZE);
+                for (int i = 0; i < BLOCK_SIZE; i++) {
+                    mBuffer[i] = Wellen.clamp(mBuffer[i]);
+                }
+            }
+            mReference = System.nanoTime() - mReference;
+            mKernel = System.nanoTime();
+            for (int b = 0; b < NUMBER_OF_BLOCKS; b++) {
+                System.arraycopy(mSource, 0, mBuffer, 0, BLOCK_SIZE);
+                BlockKernels.clamp(mBuffer);
+            }
+            mKernel = System.nanoTime() - mKernel;
+            print(mPrint, "clamp", mReference, mKernel);
+
+            /* cubic waveshaper */
+            mReference = System.nanoTime();
+            for (int b = 0; b < NUMBER_OF_BLOCKS; b++) {
+                System.arraycopy(mSource, 0, mBuffer, 0, BLOCK_SIZE);
+                for (int i = 0; i < BLOCK_SIZE; i++) {
+                    float mSample = (mBuffer[i] + 0.1f) * 2.0f;
+                    if (Math.abs(mSample) > 1.0f) {
+                        mSample = Math.signum(mSample) * 2.0f / 3.0f;
+                    } else {
+                        mSample = mSample - mSample * mSample * mSample / 3.0f;
+                    }
+                    mBuffer[i] = mSample * 0.8f;
+                }
+            }
+            mReference = System.nanoTime() - mReference;
+            mKernel = System.nanoTime();
+            for (int b = 0; b < NUMBER_OF_BLOCKS; b++) {
+                System.arraycopy(mSource, 0, mBuffer, 0, BLOCK_SIZE);
+                BlockKernels.cubic(mBuffer, 2.0f, 0.1f, 0.8f, 0, BLOCK_SIZE);
+            }
+            mKernel = System.nanoTime() - mKernel;
+            print(mPrint, "cubic", mReference, mKernel);
+
+            /* parallel biquad cascades ( bands x filters per band ) */
+            mReference = System.nanoTime();
+            for (int b = 0; b < NUMBER_OF_BLOCKS / 16; b++) {
+                for (int i = 0; i < BLOCK_SIZE; i++) {
+                    for (int j = 0; j < NUMBER_OF_BANDS; j++) {
+                        float mSample = mSource[i];
+                        for (int k = 0; k < FILTERS_PER_BAND; k++) {
+                            mSample = mFilters[k * NUMBER_OF_BANDS + j].process(mSample);
+                        }
+                        fSink += mSample;
+                    }
+                }
+            }
+            mReference = System.nanoTime() - mReference;
+            mKernel = System.nanoTime();
+            for (int b = 0; b < NUMBER_OF_BLOCKS / 16; b++) {
+                for (int i = 0; i < BLOCK_SIZE; i++) {
+                    Arrays.fill(mFrame, mSource[i]);
+                    mBank.process(mFrame);
+                    fSink += mFrame[0];
+                }
+            }
+            mKernel = System.nanoTime() - mKernel;
+            print(mPrint, "biquad bank", mReference, mKernel);
+
+            /* vocoder */
+            long mVocoderTime = System.nanoTime();
+            for (int b = 0; b < NUMBER_OF_BLOCKS / 16; b++) {
+                mVocoder.process(mSource, mSource, mVocoderOutput);
+            }
+            mVocoderTime = System.nanoTime() - mVocoderTime;
+            if (mPrint) {
+                final double mAudioSeconds = (double) NUMBER_OF_BLOCKS / 16 * BLOCK_SIZE / Wellen.DEFAULT_SAMPLING_RATE;
+                System.out.println(String.format("vocoder %d x %d    | %.1f x realtime",
+                                                 NUMBER_OF_BANDS,
+                                                 FILTERS_PER_BAND,
+                                                 mAudioSeconds / (mVocoderTime / 1.0E9)));
+            }
+        }
+        System.out.println(fSink == 0 ? "" : " ");
+    }
+
+    private static void print(boolean pPrint, String pName, long pReference, long pKernel) {
+        if (pPrint) {
+            System.out.println(String.format("%-18s | %12.1f | %9.1f | %6.2f",
+                                             pName,
+                                             pReference / 1.0E6,
+                                             pKernel / 1.0E6,
+                                             (double) pReference / pKernel));
+        }
+    }
+}
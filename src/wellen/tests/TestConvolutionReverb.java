@@ -0,0 +1,99 @@
+package wellen.tests;
+
+import wellen.dsp.ConvolutionReverb;
+
+import java.util.Random;
+
+/**
+ * compares {@link ConvolutionReverb} with direct time-domain convolution for short and long, mono and stereo impulse
+ * responses, with and without worker thread and with ragged host block sizes. the worker thread is also stopped while
+ * the reverb is processing, which must neither hang nor change the result. the test fails with an exception if the
+ * error exceeds float rounding level.
+ */
+public class TestConvolutionReverb {
+
+    private static final int[] IMPULSE_RESPONSE_LENGTHS = {50, 1024, 1025, 20000};
+    private static final int[] BLOCK_SIZES              = {64, 1024};
+    private static final int[] HOST_BLOCK_SIZES         = {512, 100, 1, 777};
+    private static final int   SIGNAL_LENGTH            = 40000;
+    private static final float MAX_ERROR                = 1.0e-4f;
+
+    public static void main(String[] args) {
+        final Random mRandom = new Random(23);
+        float mMaxError = 0.0f;
+        for (int mIRLength : IMPULSE_RESPONSE_LENGTHS) {
+            for (int mChannels = 1; mChannels <= 2; mChannels++) {
+                final float[][] mImpulseResponse = noise(mRandom, mChannels, mIRLength, (float) (1.0 / Math.sqrt(mIRLength)));
+                final float[][] mSignal = noise(mRandom, 2, SIGNAL_LENGTH, 1.0f);
+                final float[][] mExpected = {convolve(mSignal[0], mImpulseResponse[0]),
+                                             convolve(mSignal[1], mImpulseResponse[mChannels - 1])};
+                for (int mBlockSize : BLOCK_SIZES) {
+                    for (int mMode = 0; mMode < 3; mMode++) {
+                        final ConvolutionReverb mReverb = new ConvolutionReverb(mImpulseResponse, mBlockSize, mMode > 0);
+                        final float mError = compare(mReverb, mSignal, mExpected, mMode == 2);
+                        mReverb.stop();
+                        System.out.println("+++ IR " + mIRLength + " x " + mChannels + " / block " + mBlockSize + " / "
+                                           + (mMode == 0 ? "inline" : mMode == 1 ? "worker" : "worker stopped") + " : "
+                                           + mError);
+                        mMaxError = Math.max(mMaxError, mError);
+                    }
+                }
+            }
+        }
+        System.out.println("+++ max error ........ : " + mMaxError);
+        System.out.println("TEST SUCCESS: " + (mMaxError < MAX_ERROR));
+        if (mMaxError >= MAX_ERROR) {
+            throw new IllegalStateException("reverb differs from direct convolution by " + mMaxError);
+        }
+    }
+
+    private static float compare(ConvolutionReverb pReverb,
+                                 float[][] pSignal,
+                                 float[][] pExpected,
+                                 boolean pStopWhileProcessing) {
+        pReverb.set_dry(0.0f);
+        pReverb.set_wet(1.0f);
+        final float[][] mOutput = {pSignal[0].clone(), pSignal[1].clone()};
+        final int mLatency = pReverb.get_latency();
+        int i = 0;
+        int mHostBlock = 0;
+        while (i < SIGNAL_LENGTH) {
+            if (pStopWhileProcessing && i > SIGNAL_LENGTH / 2) {
+                pReverb.stop();
+            }
+            final int mLength = Math.min(HOST_BLOCK_SIZES[mHostBlock++ % HOST_BLOCK_SIZES.length], SIGNAL_LENGTH - i);
+            pReverb.process(mOutput[0], mOutput[1], i, mLength);
+            i += mLength;
+        }
+        float mError = 0.0f;
+        for (int c = 0; c < 2; c++) {
+            for (int j = mLatency; j < SIGNAL_LENGTH; j++) {
+                mError = Math.max(mError, Math.abs(mOutput[c][j] - pExpected[c][j - mLatency]));
+            }
+        }
+        return mError;
+    }
+
+    private static float[] convolve(float[] pSignal, float[] pImpulseResponse) {
+        final float[] mResult = new float[pSignal.length];
+        for (int n = 0; n < pSignal.length; n++) {
+            double mSum = 0.0;
+            final int mTaps = Math.min(n + 1, pImpulseResponse.length);
+            for (int k = 0; k < mTaps; k++) {
+                mSum += pSignal[n - k] * pImpulseResponse[k];
+            }
+            mResult[n] = (float) mSum;
+        }
+        return mResult;
+    }
+
+    private static float[][] noise(Random pRandom, int pChannels, int pLength, float pAmplitude) {
+        final float[][] mNoise = new float[pChannels][pLength];
+        for (float[] mChannel : mNoise) {
+            for (int i = 0; i < pLength; i++) {
+                mChannel[i] = (pRandom.nextFloat() * 2.0f - 1.0f) * pAmplitude;
+            }
+        }
+        return mNoise;
+    }
+}
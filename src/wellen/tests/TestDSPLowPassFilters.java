@@ -28,13 +28,14 @@ public class TestDSPLowPassFilters extends PApplet {
         background(255);
         stroke(0);
         final int mBufferSize = DSP.get_buffer_size();
-        if (DSP.get_output_buffer() != null) {
+        final float[] mBuffer = DSP.get_output_buffer();
+        if (mBuffer != null) {
             for (int i = 0; i < mBufferSize - 1; i++) {
                 final float x = map(i, 0, mBufferSize, 0, width);
                 line(map(i, 0, mBufferSize, 0, width),
-                     map(DSP.get_output_buffer()[i], -1, 1, 0, height),
+                     map(mBuffer[i], -1, 1, 0, height),
                      map(i + 1, 0, mBufferSize, 0, width),
-                     map(DSP.get_output_buffer()[i + 1], -1, 1, 0, height));
+                     map(mBuffer[i + 1], -1, 1, 0, height));
             }
         }
     }
@@ -0,0 +1,102 @@
+package wellen.tests;
+
+import wellen.BeatListener;
+import wellen.EventScheduler;
+import wellen.Pattern;
+import wellen.Sequencer;
+import wellen.ToneEngineDSP;
+
+import java.util.ArrayList;
+
+/**
+ * evaluates a {@link Pattern} and a {@link Sequencer} with an {@link EventScheduler} ahead of an offline
+ * {@link ToneEngineDSP} and checks that each note starts at the sample time of its tick. the tempo is set to 0 for a
+ * while, during which the scheduler holds. ticks that were not yet scheduled when the tempo was set to 0 must continue
+ * from the playhead, i.e they are shifted by exactly the duration of the hold instead of firing all at once when the
+ * tempo is restored. the test fails with an exception if a tick is off the expected grid or a note does not start at
+ * its tick.
+ */
+public class TestEventSchedulerLookahead {
+
+    private static final int   SAMPLING_RATE    = 48000;
+    private static final int   AUDIOBLOCK_SIZE  = 512;
+    private static final int   NUMBER_OF_BLOCKS = 300;
+    private static final int   PAUSE_BLOCK      = 100;
+    private static final int   RESUME_BLOCK     = 150;
+    private static final float BPM              = 133.3f * 4;
+    private static final float LOOKAHEAD        = 0.05f;
+
+    public static void main(String[] args) {
+        final ToneEngineDSP mToneEngine = ToneEngineDSP.create_offline(SAMPLING_RATE, AUDIOBLOCK_SIZE, 1);
+        TestTransportTiming.prepareInstrument(mToneEngine);
+
+        final ArrayList<Integer> mBeats = new ArrayList<>();
+        final ArrayList<Long>    mTicks = new ArrayList<>();
+        final Pattern mPattern = new Pattern();
+        mPattern.set_length(4);
+        final Sequencer<Integer> mSequencer = new Sequencer<>(48, 55, 60, 67);
+        final EventScheduler[]   mScheduler = new EventScheduler[1];
+        mScheduler[0] = new EventScheduler((BeatListener) beat -> {
+            if (mPattern.event(beat, 0) || mPattern.event(beat, 3)) {
+                mBeats.add(beat);
+                mTicks.add(mScheduler[0].get_event_time());
+                mScheduler[0].note_on(0, mSequencer.step(), 100, 0.04f);
+            }
+        }, mToneEngine);
+        mScheduler[0].set_bpm(BPM);
+        mScheduler[0].set_lookahead(LOOKAHEAD);
+        mScheduler[0].start(false);
+
+        final ArrayList<Long> mOnsets = new ArrayList<>();
+        final float[]         mLeft   = new float[AUDIOBLOCK_SIZE];
+        final float[]         mRight  = new float[AUDIOBLOCK_SIZE];
+        boolean               mSilent = true;
+        for (int b = 0; b < NUMBER_OF_BLOCKS; b++) {
+            if (b == PAUSE_BLOCK) {
+                System.out.println("+++ pause @ " + (long) b * AUDIOBLOCK_SIZE);
+                mScheduler[0].set_bpm(0);
+            } else if (b == RESUME_BLOCK) {
+                System.out.println("+++ resume @ " + (long) b * AUDIOBLOCK_SIZE);
+                mScheduler[0].set_bpm(BPM);
+            }
+            mScheduler[0].update();
+            mToneEngine.audioblock(mLeft, mRight);
+            mSilent = TestTransportTiming.findNoteOnsets(mLeft, (long) b * AUDIOBLOCK_SIZE, mSilent, mOnsets);
+        }
+        mScheduler[0].clean_up();
+        mToneEngine.stop();
+
+        final boolean mOnsetsMatch = TestTransportTiming.compareOnsets(mTicks, mOnsets);
+        final boolean mTicksOnGrid = isOnGrid(mBeats, mTicks);
+        System.out.println("+++ onsets match ticks . : " + mOnsetsMatch);
+        System.out.println("+++ ticks on grid ...... : " + mTicksOnGrid);
+        System.out.println("TEST SUCCESS: " + (mOnsetsMatch && mTicksOnGrid));
+        if (!(mOnsetsMatch && mTicksOnGrid)) {
+            throw new IllegalStateException("events do not fire at their scheduled sample across pause and resume");
+        }
+    }
+
+    /*
+     * ticks lie on a grid starting at the first tick. ticks beyond the lookahead horizon at the time of the pause are
+     * shifted by the duration of the hold. a tolerance of one sample accounts for rounding tick times to samples.
+     */
+    private static boolean isOnGrid(ArrayList<Integer> pBeats, ArrayList<Long> pTicks) {
+        if (pTicks.isEmpty() || pBeats.get(0) != 0) {
+            return false;
+        }
+        final double mTickDuration = 60.0 * SAMPLING_RATE / BPM;
+        final long   mHorizon      = (long) PAUSE_BLOCK * AUDIOBLOCK_SIZE + Math.round(LOOKAHEAD * SAMPLING_RATE);
+        final long   mHold         = (long) (RESUME_BLOCK - PAUSE_BLOCK) * AUDIOBLOCK_SIZE;
+        for (int i = 0; i < pTicks.size(); i++) {
+            double mExpected = pTicks.get(0) + pBeats.get(i) * mTickDuration;
+            if (mExpected >= mHorizon) {
+                mExpected += mHold;
+            }
+            if (Math.abs(pTicks.get(i) - mExpected) > 1.0) {
+                System.out.println("+++ tick " + pBeats.get(i) + " @ " + pTicks.get(i) + " expected @ " + mExpected);
+                return false;
+            }
+        }
+        return true;
+    }
+}
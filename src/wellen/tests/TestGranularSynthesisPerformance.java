@@ -0,0 +1,51 @@
+package wellen.tests;
+
+import wellen.Wellen;
+import wellen.dsp.GranularSynthesis;
+
+/**
+ * measures how many simultaneous grains {@link GranularSynthesis} renders per second of audio. the grain density is
+ * chosen so that the number of overlapping grains equals the given number of grains.
+ */
+public class TestGranularSynthesisPerformance {
+
+    private static final int   BLOCK_SIZE       = 256;
+    private static final int   NUMBER_OF_BLOCKS = 4000;
+    private static final float GRAIN_DURATION   = 0.2f;
+    private static final int[] NUMBER_OF_GRAINS = {100, 500, 1000, 2000};
+
+    public static void main(String[] args) {
+        final float[] mSource = new float[Wellen.DEFAULT_SAMPLING_RATE * 4];
+        for (int i = 0; i < mSource.length; i++) {
+            mSource[i] = Wellen.random(-1, 1);
+        }
+        final float[][] mOutput = new float[2][BLOCK_SIZE];
+        System.out.println("+++ " + NUMBER_OF_BLOCKS + " blocks of " + BLOCK_SIZE + " samples");
+        System.out.println("grains | avg active | x realtime");
+        for (int mGrains : NUMBER_OF_GRAINS) {
+            final GranularSynthesis mGranular = new GranularSynthesis(mGrains * 2);
+            mGranular.set_source(mSource);
+            mGranular.set_duration(GRAIN_DURATION);
+            mGranular.set_density(mGrains / GRAIN_DURATION);
+            mGranular.set_position(0.5f);
+            mGranular.set_position_jitter(0.4f);
+            mGranular.set_pitch_jitter(0.1f);
+            mGranular.set_spread(1.0f);
+            for (int b = 0; b < NUMBER_OF_BLOCKS; b++) {
+                mGranular.render(mOutput, 0, BLOCK_SIZE);
+            }
+            long mActive = 0;
+            long mTime   = System.nanoTime();
+            for (int b = 0; b < NUMBER_OF_BLOCKS; b++) {
+                mGranular.render(mOutput, 0, BLOCK_SIZE);
+                mActive += mGranular.get_number_of_active_grains();
+            }
+            mTime = System.nanoTime() - mTime;
+            final double mAudioSeconds = (double) NUMBER_OF_BLOCKS * BLOCK_SIZE / Wellen.DEFAULT_SAMPLING_RATE;
+            System.out.println(String.format("%6d | %10d | %10.1f",
+                                             mGrains,
+                                             mActive / NUMBER_OF_BLOCKS,
+                                             mAudioSeconds / (mTime / 1.0E9)));
+        }
+    }
+}
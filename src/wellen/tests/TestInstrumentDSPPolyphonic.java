@@ -0,0 +1,59 @@
+package wellen.tests;
+
+import processing.core.PApplet;
+import wellen.InstrumentDSPPolyphonic;
+import wellen.Tone;
+import wellen.Wellen;
+
+public class TestInstrumentDSPPolyphonic extends PApplet {
+
+    /*
+     * this example demonstrates how to play chords with a polyphonic instrument. each key plays a note, notes are
+     * turned off individually when keys are released. press SPACE to cycle through the voice stealing strategies.
+     */
+
+    private static final String KEYS = "asdfghjkl";
+    private InstrumentDSPPolyphonic fInstrument;
+
+    public void settings() {
+        size(640, 480);
+    }
+
+    public void setup() {
+        fInstrument = new InstrumentDSPPolyphonic(0, 4);
+        fInstrument.set_oscillator_type(Wellen.WAVEFORM_SAWTOOTH);
+        fInstrument.enable_LPF(true);
+        fInstrument.set_filter_frequency(1200);
+        fInstrument.set_release(0.5f);
+        Tone.replace_instrument(fInstrument);
+        Tone.instrument(0);
+    }
+
+    public void draw() {
+        background(255);
+        fill(0);
+        for (int i = 0; i < fInstrument.get_number_of_voices(); i++) {
+            final float mDiameter = fInstrument.get_voice(i).is_idle() ? 5 : 50;
+            ellipse(width * (i + 1) / (fInstrument.get_number_of_voices() + 1.0f), height * 0.5f, mDiameter, mDiameter);
+        }
+        text("voice stealing: " + fInstrument.get_voice_stealing(), 10, 20);
+    }
+
+    public void keyPressed() {
+        if (key == ' ') {
+            fInstrument.set_voice_stealing((fInstrument.get_voice_stealing() + 1) % 3);
+        } else if (KEYS.indexOf(key) != -1) {
+            Tone.note_on(48 + KEYS.indexOf(key) * 2, 80);
+        }
+    }
+
+    public void keyReleased() {
+        if (KEYS.indexOf(key) != -1) {
+            Tone.note_off(48 + KEYS.indexOf(key) * 2);
+        }
+    }
+
+    public static void main(String[] args) {
+        PApplet.main(TestInstrumentDSPPolyphonic.class.getName());
+    }
+}
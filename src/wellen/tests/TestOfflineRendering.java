@@ -0,0 +1,107 @@
+package wellen.tests;
+
+import wellen.AudioBufferRenderer;
+import wellen.AudioDeviceConfiguration;
+import wellen.AudioDeviceImplOffline;
+import wellen.ToneEngineDSP;
+import wellen.WAVReader;
+import wellen.Wellen;
+import wellen.dsp.BeatDSP;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * renders a short composition driven by {@link BeatDSP} with {@link AudioDeviceImplOffline} twice, reports how much
+ * faster than real-time the rendering is and checks that both renderings are identical. the test fails with an
+ * exception if the renderings differ.
+ */
+public class TestOfflineRendering {
+
+    private static final int   SAMPLING_RATE   = 48000;
+    private static final int   AUDIOBLOCK_SIZE = 512;
+    private static final float DURATION        = 30.0f;
+    private static final int[] NOTES           = {48, 55, 60, 63, 67, 70, 72, 75};
+
+    public static void main(String[] args) throws IOException {
+        final File mFileA = File.createTempFile("wellen-offline-a", ".wav");
+        final File mFileB = File.createTempFile("wellen-offline-b", ".wav");
+        render(mFileA);
+        render(mFileB);
+        final float[][] mA = new WAVReader(mFileA).read_all();
+        final float[][] mB = new WAVReader(mFileB).read_all();
+        if (mA.length != mB.length || mA[0].length != mB[0].length) {
+            throw new IllegalStateException("renderings differ in length: " + mA[0].length + " vs " + mB[0].length);
+        }
+        int mDifferences = 0;
+        for (int c = 0; c < mA.length; c++) {
+            for (int i = 0; i < mA[c].length; i++) {
+                if (mA[c][i] != mB[c][i]) {
+                    mDifferences++;
+                }
+            }
+        }
+        System.out.println("+++ rendered samples ... : " + mA[0].length);
+        System.out.println("+++ differences ........ : " + mDifferences);
+        System.out.println("TEST SUCCESS: " + (mDifferences == 0));
+        mFileA.deleteOnExit();
+        mFileB.deleteOnExit();
+        if (mDifferences > 0) {
+            throw new IllegalStateException("renderings differ in " + mDifferences + " samples");
+        }
+    }
+
+    private static void render(File pFile) {
+        final ToneEngineDSP mToneEngine = ToneEngineDSP.create_offline(SAMPLING_RATE, AUDIOBLOCK_SIZE, 4);
+        for (int i = 0; i < 4; i++) {
+            mToneEngine.instrument(i).set_oscillator_type(Wellen.WAVEFORM_SAWTOOTH);
+        }
+        final Composition mComposition = new Composition(mToneEngine);
+        final AudioDeviceConfiguration mConfig = new AudioDeviceConfiguration();
+        mConfig.sample_rate               = SAMPLING_RATE;
+        mConfig.sample_buffer_size        = AUDIOBLOCK_SIZE;
+        mConfig.number_of_output_channels = 2;
+        mConfig.number_of_input_channels  = 0;
+        mConfig.bits_per_sample           = 16;
+        final AudioDeviceImplOffline mDevice = new AudioDeviceImplOffline(mComposition, mConfig, pFile);
+        mComposition.fDevice = mDevice;
+        final long mStart = System.nanoTime();
+        mDevice.render_seconds(DURATION);
+        final double mElapsed = (System.nanoTime() - mStart) / 1.0E9;
+        mDevice.exit();
+        System.out.println("+++ rendered " + DURATION + " sec in " + String.format("%.3f", mElapsed) + " sec ( " + String.format("%.1f", DURATION / mElapsed) + "x real-time )");
+    }
+
+    private static class Composition implements AudioBufferRenderer {
+
+        private final BeatDSP                fBeat;
+        private       AudioDeviceImplOffline fDevice;
+        private final ToneEngineDSP          fToneEngine;
+        private       long                   fSampleTime = 0;
+
+        Composition(ToneEngineDSP pToneEngine) {
+            fToneEngine = pToneEngine;
+            fBeat       = new BeatDSP(null, SAMPLING_RATE);
+            fBeat.set_bpm(480);
+            fBeat.add(this::beat);
+        }
+
+        private void beat(int pBeat) {
+            final int mInstrument = pBeat % 4;
+            final int mNote       = NOTES[(pBeat * 3) % NOTES.length];
+            fToneEngine.schedule_note_on(fSampleTime, mInstrument, mNote, 80);
+            fToneEngine.schedule_note_off(fSampleTime + SAMPLING_RATE / 10, mInstrument);
+        }
+
+        @Override
+        public void audioblock(float[][] output_signal, float[][] input_signal) {
+            /* the virtual sample clock of the device points to the start of the block being rendered */
+            final long mBlockStart = fDevice.get_sample_time();
+            for (int i = 0; i < output_signal[0].length; i++) {
+                fSampleTime = mBlockStart + i;
+                fBeat.tick();
+            }
+            fToneEngine.audioblock(output_signal, input_signal);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package wellen.tests;
+
+import wellen.AudioBufferRenderer;
+import wellen.AudioDeviceConfiguration;
+import wellen.AudioDeviceImplOffline;
+import wellen.WAVReader;
+import wellen.Wellen;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * renders a ramp that encodes the position of the virtual sample clock with {@link AudioDeviceImplOffline} in several
+ * calls of ragged length and checks that the file contains every sample exactly once and in order, and that the clock
+ * is never more than one audio block ahead of the written samples. the test fails with an exception if the output has
+ * gaps or the clock drifts.
+ */
+public class TestOfflineRenderingContinuity {
+
+    private static final int    SAMPLING_RATE   = 48000;
+    private static final int    AUDIOBLOCK_SIZE = 512;
+    private static final int    RAMP_PERIOD     = 1000;
+    private static final long[] RENDER_LENGTHS  = {100, 512, 1, 777, 2048, 3, 10000, 511, 513};
+
+    public static void main(String[] args) throws IOException {
+        final File mFile = File.createTempFile("wellen-offline-continuity", ".wav");
+        mFile.deleteOnExit();
+        final AudioDeviceConfiguration mConfig = new AudioDeviceConfiguration();
+        mConfig.sample_rate               = SAMPLING_RATE;
+        mConfig.sample_buffer_size        = AUDIOBLOCK_SIZE;
+        mConfig.number_of_output_channels = 2;
+        mConfig.number_of_input_channels  = 0;
+        mConfig.encoding                  = Wellen.ENCODING_PCM_FLOAT;
+        final Ramp mRamp = new Ramp();
+        final AudioDeviceImplOffline mDevice = new AudioDeviceImplOffline(mRamp, mConfig, mFile);
+        mRamp.fDevice = mDevice;
+
+        long mWritten = 0;
+        int mClockErrors = 0;
+        for (long mLength : RENDER_LENGTHS) {
+            mWritten += mDevice.render(mLength);
+            if (!isClockInRange(mDevice.get_sample_time(), mWritten)) {
+                mClockErrors++;
+            }
+        }
+        mWritten += mDevice.render_seconds(0.25f);
+        if (!isClockInRange(mDevice.get_sample_time(), mWritten)) {
+            mClockErrors++;
+        }
+        mDevice.exit();
+
+        final float[][] mOutput = new WAVReader(mFile).read_all();
+        int mErrors = 0;
+        for (float[] mChannel : mOutput) {
+            for (int i = 0; i < mChannel.length; i++) {
+                if (mChannel[i] != ramp(i)) {
+                    mErrors++;
+                }
+            }
+        }
+        final boolean mSuccess = mOutput[0].length == mWritten && mErrors == 0 && mClockErrors == 0;
+        System.out.println("+++ samples written .... : " + mWritten);
+        System.out.println("+++ samples in file .... : " + mOutput[0].length);
+        System.out.println("+++ sample clock ....... : " + mDevice.get_sample_time());
+        System.out.println("+++ discontinuities .... : " + mErrors);
+        System.out.println("+++ clock errors ....... : " + mClockErrors);
+        System.out.println("TEST SUCCESS: " + mSuccess);
+        if (!mSuccess) {
+            throw new IllegalStateException("offline rendering is not continuous across calls");
+        }
+    }
+
+    private static boolean isClockInRange(long pSampleTime, long pWritten) {
+        return pSampleTime >= pWritten && pSampleTime < pWritten + AUDIOBLOCK_SIZE;
+    }
+
+    private static float ramp(long pSample) {
+        return (pSample % RAMP_PERIOD) / (float) RAMP_PERIOD;
+    }
+
+    private static class Ramp implements AudioBufferRenderer {
+
+        private AudioDeviceImplOffline fDevice;
+
+        @Override
+        public void audioblock(float[][] output_signal, float[][] input_signal) {
+            final long mBlockStart = fDevice.get_sample_time();
+            for (float[] mChannel : output_signal) {
+                for (int i = 0; i < mChannel.length; i++) {
+                    mChannel[i] = ramp(mBlockStart + i);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package wellen.tests;
+
+import wellen.ToneEngineDSP;
+
+/**
+ * measures the time per audio block of a tone engine with 16 instruments of which only a few are sounding. idle
+ * instruments ( i.e instruments whose envelopes have finished ) are skipped by the tone engine, so the time per block
+ * should grow with the number of sounding instruments rather than with the number of instruments. the tone engine is
+ * set up and measured as in {@link TestToneEngineParallelRendering}.
+ */
+public class TestToneEngineIdleVoices {
+
+    private static final int NUMBER_OF_INSTRUMENTS = 16;
+
+    public static void main(String[] args) {
+        System.out.println("+++ " + NUMBER_OF_INSTRUMENTS + " instruments");
+        System.out.println("sounding | ms per block");
+        for (int mSounding = 0; mSounding <= NUMBER_OF_INSTRUMENTS; mSounding += 2) {
+            final ToneEngineDSP mToneEngine = TestToneEngineParallelRendering.createToneEngine(NUMBER_OF_INSTRUMENTS,
+                                                                                               mSounding);
+            final double mSecondsPerBlock = TestToneEngineParallelRendering.measureSecondsPerBlock(mToneEngine);
+            System.out.println(String.format("%8d | %12.4f", mSounding, mSecondsPerBlock * 1000));
+            mToneEngine.stop();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package wellen.tests;
+
+import wellen.Instrument;
+import wellen.ToneEngineDSP;
+import wellen.Wellen;
+
+/**
+ * measures how many voices ( i.e instruments ) can be rendered in realtime at 48 kHz with 256 samples per audio block
+ * with an increasing number of render threads. the tone engine is run without audio device as fast as possible.
+ */
+public class TestToneEngineParallelRendering {
+
+    private static final int   SAMPLING_RATE     = 48000;
+    private static final int   AUDIOBLOCK_SIZE   = 256;
+    private static final int   NUMBER_OF_VOICES  = 256;
+    private static final int   WARMUP_BLOCKS     = 500;
+    private static final int   MEASURED_BLOCKS   = 2000;
+    private static final float REALTIME_HEADROOM = 0.7f;
+
+    public static void main(String[] args) {
+        final int mProcessors = Runtime.getRuntime().availableProcessors();
+        final double mBlockDuration = (double) AUDIOBLOCK_SIZE / SAMPLING_RATE;
+        System.out.println("+++ " + NUMBER_OF_VOICES + " voices @ " + SAMPLING_RATE + " Hz / " + AUDIOBLOCK_SIZE +
+                           " samples ( " + String.format("%.3f", mBlockDuration * 1000) + " ms per block, " +
+                           mProcessors + " processors )");
+        System.out.println("threads | ms per block | realtime voices | voices per core");
+        for (int mThreads = 1; mThreads <= mProcessors; mThreads++) {
+            final ToneEngineDSP mToneEngine = createToneEngine(NUMBER_OF_VOICES, NUMBER_OF_VOICES);
+            mToneEngine.enable_parallel_rendering(mThreads - 1);
+            final double mSecondsPerBlock = measureSecondsPerBlock(mToneEngine);
+            final double mRealtimeVoices  = NUMBER_OF_VOICES * REALTIME_HEADROOM * mBlockDuration / mSecondsPerBlock;
+            System.out.println(String.format("%7d | %12.3f | %15.0f | %15.0f",
+                                             mThreads,
+                                             mSecondsPerBlock * 1000,
+                                             mRealtimeVoices,
+                                             mRealtimeVoices / mThreads));
+            mToneEngine.stop();
+        }
+        System.out.println("+++ render threads alive after stop: " + countRenderThreads());
+    }
+
+    private static int countRenderThreads() {
+        try {
+            /* give workers a moment to leave their park */
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int mCount = 0;
+        for (Thread mThread : Thread.getAllStackTraces().keySet()) {
+            if (mThread.getName().startsWith("wellen-render-") && mThread.isAlive()) {
+                mCount++;
+            }
+        }
+        return mCount;
+    }
+
+    /* creates a tone engine without audio device in which the first <code>pSounding</code> instruments play a note */
+    static ToneEngineDSP createToneEngine(int pInstruments, int pSounding) {
+        final ToneEngineDSP mToneEngine = new ToneEngineDSP(SAMPLING_RATE,
+                                                            AUDIOBLOCK_SIZE,
+                                                            Wellen.NO_AUDIO_DEVICE,
+                                                            2,
+                                                            pInstruments);
+        for (int i = 0; i < pInstruments; i++) {
+            final Instrument mInstrument = mToneEngine.instrument(i);
+            mInstrument.set_oscillator_type(Wellen.WAVEFORM_SAWTOOTH);
+            mInstrument.enable_LPF(true);
+            mInstrument.enable_frequency_LFO(true);
+            mInstrument.enable_sub_oscillator(true);
+            mInstrument.set_sustain(1.0f);
+            mInstrument.set_pan((i % 16) / 8.0f - 1.0f);
+            if (i < pSounding) {
+                mToneEngine.note_on(36 + i % 48, 64);
+            }
+        }
+        return mToneEngine;
+    }
+
+    /* renders warmup blocks and returns the average time per measured block */
+    static double measureSecondsPerBlock(ToneEngineDSP pToneEngine) {
+        final float[][] mOutput = new float[2][AUDIOBLOCK_SIZE];
+        final float[][] mInput  = new float[0][];
+        for (int i = 0; i < WARMUP_BLOCKS; i++) {
+            pToneEngine.audioblock(mOutput, mInput);
+        }
+        final long mStart = System.nanoTime();
+        for (int i = 0; i < MEASURED_BLOCKS; i++) {
+            pToneEngine.audioblock(mOutput, mInput);
+        }
+        return (System.nanoTime() - mStart) / 1.0E9 / MEASURED_BLOCKS;
+    }
+}
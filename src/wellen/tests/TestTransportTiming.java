@@ -0,0 +1,95 @@
+package wellen.tests;
+
+import wellen.InstrumentDSP;
+import wellen.ToneEngineDSP;
+import wellen.Transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * plays notes from the ticks of a {@link Transport} that is advanced by an offline {@link ToneEngineDSP} and checks
+ * that each note starts at the sample of its tick. with fractional tempo and swing the onsets match the ticks exactly
+ * although the ticks do not fall on audio block boundaries. the oscillator plays a constant signal so that a note is
+ * audible from its first sample. the test fails with an exception if an onset differs from its tick.
+ */
+public class TestTransportTiming {
+
+    private static final int SAMPLING_RATE    = 48000;
+    private static final int AUDIOBLOCK_SIZE  = 512;
+    private static final int NUMBER_OF_BLOCKS = 200;
+
+    public static void main(String[] args) {
+        final ToneEngineDSP mToneEngine = ToneEngineDSP.create_offline(SAMPLING_RATE, AUDIOBLOCK_SIZE, 1);
+        prepareInstrument(mToneEngine);
+
+        final ArrayList<Long> mTicks     = new ArrayList<>();
+        final Transport       mTransport = new Transport(SAMPLING_RATE);
+        mTransport.set_bpm(97.5f);
+        mTransport.set_ticks_per_beat(4);
+        mTransport.set_swing(0.33f);
+        mTransport.add(beat_count -> {
+            mTicks.add(mTransport.get_sample_position());
+            mToneEngine.note_on(48 + beat_count % 12, 100, 0.05f);
+        });
+        mToneEngine.add_transport(mTransport);
+
+        final ArrayList<Long> mOnsets = new ArrayList<>();
+        final float[]         mLeft   = new float[AUDIOBLOCK_SIZE];
+        final float[]         mRight  = new float[AUDIOBLOCK_SIZE];
+        boolean               mSilent = true;
+        for (int b = 0; b < NUMBER_OF_BLOCKS; b++) {
+            mToneEngine.audioblock(mLeft, mRight);
+            mSilent = findNoteOnsets(mLeft, (long) b * AUDIOBLOCK_SIZE, mSilent, mOnsets);
+        }
+        mToneEngine.stop();
+
+        final boolean mSuccess = compareOnsets(mTicks, mOnsets);
+        System.out.println("TEST SUCCESS: " + mSuccess);
+        if (!mSuccess) {
+            throw new IllegalStateException("note onsets do not match ticks");
+        }
+    }
+
+    /**
+     * set up instrument 0 to play a constant signal without attack and release
+     */
+    static void prepareInstrument(ToneEngineDSP pToneEngine) {
+        final InstrumentDSP mInstrument = (InstrumentDSP) pToneEngine.instrument(0);
+        mInstrument.set_attack(0);
+        mInstrument.set_release(0);
+        Arrays.fill(mInstrument.get_VCO().get_wavetable(), 1.0f);
+    }
+
+    /**
+     * collects the sample at which a note starts for every transition from silence to signal in the block
+     *
+     * @return <code>true</code> if the block ends in silence
+     */
+    static boolean findNoteOnsets(float[] pBlock, long pBlockStart, boolean pSilent, ArrayList<Long> pOnsets) {
+        for (int i = 0; i < pBlock.length; i++) {
+            final boolean mSounding = Math.abs(pBlock[i]) > 1.0E-4f;
+            if (mSounding && pSilent) {
+                pOnsets.add(pBlockStart + i);
+            }
+            pSilent = !mSounding;
+        }
+        return pSilent;
+    }
+
+    /**
+     * prints the sample time of each tick next to the sample at which its note starts
+     *
+     * @return <code>true</code> if every tick has a note starting at the same sample
+     */
+    static boolean compareOnsets(ArrayList<Long> pTicks, ArrayList<Long> pOnsets) {
+        boolean mMatch = !pTicks.isEmpty() && pTicks.size() == pOnsets.size();
+        for (int i = 0; i < Math.max(pTicks.size(), pOnsets.size()); i++) {
+            final String mTick  = i < pTicks.size() ? String.valueOf(pTicks.get(i)) : "-";
+            final String mOnset = i < pOnsets.size() ? String.valueOf(pOnsets.get(i)) : "-";
+            System.out.println("event " + i + " @ " + mTick + " > note starts @ " + mOnset);
+            mMatch &= mTick.equals(mOnset);
+        }
+        return mMatch;
+    }
+}
@@ -29,6 +29,8 @@ public class AudioDeviceImplAndroid extends Thread implements AudioDevice {
     private boolean mRunBuffer = true;
     private int mFrameCounter = 0;
     private final AndroidAudioOutputStream fOutput;
+    private final AudioBufferSet fBufferSet;
+    private final float[] fOutBufferInterleaved;
 
     private final AudioBufferRenderer mSampleRenderer;
     private final int mSampleRate;
@@ -42,6 +44,11 @@ public class AudioDeviceImplAndroid extends Thread implements AudioDevice {
         mSampleBufferSize = pConfiguration.sample_buffer_size;
         mNumOutputChannels = pConfiguration.number_of_output_channels;
         mNumInputChannels = pConfiguration.number_of_input_channels;
+        fBufferSet = new AudioBufferSet(mNumOutputChannels,
+                                        mNumInputChannels,
+                                        mSampleBufferSize,
+                                        pConfiguration.double_buffering);
+        fOutBufferInterleaved = new float[mSampleBufferSize * mNumOutputChannels];
 
         fOutput = createOutputStream(pConfiguration.output_device, mSampleRate, mNumOutputChannels);
         fOutput.start();
@@ -70,24 +77,21 @@ public class AudioDeviceImplAndroid extends Thread implements AudioDevice {
             boolean mLockAudioBlock;
 
             /* output */
-            float[][] mOutputBuffers = new float[mNumOutputChannels][];
-            for (int j = 0; j < mNumOutputChannels; j++) {
-                mOutputBuffers[j] = new float[mSampleBufferSize];
-            }
+            fBufferSet.swap();
+            final float[][] mOutputBuffers = fBufferSet.output();
 
             // TODO ignore input channels for now
-            mSampleRenderer.audioblock(mOutputBuffers, null);
+            mSampleRenderer.audioblock(mOutputBuffers, fBufferSet.input());
 
             if (mNumOutputChannels == Wellen.MONO) {
                 fOutput.write(mOutputBuffers[0]);
             } else if (mNumOutputChannels > Wellen.MONO) {
-                float[] mOutBufferInterleaved = new float[mSampleBufferSize * mNumOutputChannels];
                 for (int i = 0; i < mSampleBufferSize; i++) {
                     for (int j = 0; j < mNumOutputChannels; j++) {
-                        mOutBufferInterleaved[i * mNumOutputChannels + j] = mOutputBuffers[j][i];
+                        fOutBufferInterleaved[i * mNumOutputChannels + j] = mOutputBuffers[j][i];
                     }
                 }
-                fOutput.write(mOutBufferInterleaved);
+                fOutput.write(fOutBufferInterleaved);
             }
             mFrameCounter++;
         }